@@ -3,6 +3,7 @@ package playwell.action;
 import com.alibaba.fastjson.JSON;
 import com.google.common.collect.ImmutableMap;
 import java.util.Map;
+import java.util.Optional;
 import playwell.common.Mappable;
 import playwell.common.expression.PlaywellExpression;
 
@@ -22,6 +23,9 @@ public class ActionCtrlCondition implements Mappable {
   // 要更新的上下文变量
   private final Map<String, PlaywellExpression> contextVars;
 
+  // 控制动作是常量表达式时预先解析好的控制信息
+  private final Optional<ActionCtrlInfo> constantCtrlInfo;
+
   public ActionCtrlCondition(
       PlaywellExpression whenCondition,
       PlaywellExpression thenExpression,
@@ -29,6 +33,8 @@ public class ActionCtrlCondition implements Mappable {
     this.whenCondition = whenCondition;
     this.thenExpression = thenExpression;
     this.contextVars = contextVars;
+    this.constantCtrlInfo = ActionCtrlInfo.fromConstantCtrlExpression(
+        thenExpression.getExpressionString());
   }
 
   public PlaywellExpression getWhenCondition() {
@@ -43,6 +49,10 @@ public class ActionCtrlCondition implements Mappable {
     return contextVars;
   }
 
+  public Optional<ActionCtrlInfo> getConstantCtrlInfo() {
+    return constantCtrlInfo;
+  }
+
   @Override
   public Map<String, Object> toMap() {
     return ImmutableMap.of(
@@ -1,10 +1,14 @@
 package playwell.action;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import playwell.common.argument.BaseArgumentRootContext;
 import playwell.common.exception.BuildComponentException;
 
 /**
@@ -14,6 +18,15 @@ import playwell.common.exception.BuildComponentException;
  */
 public class ActionCtrlInfo {
 
+  // 常量控制表达式，比如call("next")、finish()、retry(3, "fail")，参数只能是字符串或者整数字面量
+  private static final Pattern CONSTANT_CTRL_PATTERN = Pattern.compile(
+      "^\\s*(call|fail|failBecause|finish|retry|repair)\\s*\\(\\s*"
+          + "(?:(\"[^\"]*\"|'[^']*'|\\d+)(?:\\s*,\\s*(\"[^\"]*\"|'[^']*'))?)?\\s*\\)\\s*$");
+
+  // 使用与表达式执行时相同的函数生成控制字符串
+  private static final BaseArgumentRootContext CTRL_FUNCTIONS = new BaseArgumentRootContext() {
+  };
+
   private final ActionCtrlType ctrlType;
 
   private final String nextStep;
@@ -50,6 +63,62 @@ public class ActionCtrlInfo {
     return fromCtrlStringTokens(ctrlString, tokens, contextVars);
   }
 
+  /**
+   * 在构建ActionDefinition时解析常量控制表达式，调度时可以直接使用解析结果，无需计算表达式和解析控制字符串。
+   * 得到的ActionCtrlInfo不包含上下文变量，调度时通过withContextVars补充
+   *
+   * @param ctrlExpression 控制表达式字符串
+   * @return 不是常量表达式或者无法解析时返回empty，由调度时计算
+   */
+  public static Optional<ActionCtrlInfo> fromConstantCtrlExpression(String ctrlExpression) {
+    if (StringUtils.isEmpty(ctrlExpression)) {
+      return Optional.empty();
+    }
+
+    final Matcher matcher = CONSTANT_CTRL_PATTERN.matcher(ctrlExpression);
+    if (!matcher.matches()) {
+      return Optional.empty();
+    }
+
+    final String function = matcher.group(1);
+    final String firstArg = matcher.group(2);
+    final String secondArg = matcher.group(3);
+    final int argNum = firstArg == null ? 0 : (secondArg == null ? 1 : 2);
+
+    try {
+      final String ctrlString;
+      if ("call".equals(function) && argNum == 1 && isStringLiteral(firstArg)) {
+        ctrlString = CTRL_FUNCTIONS.call(stringLiteral(firstArg));
+      } else if ("fail".equals(function) && argNum == 0) {
+        ctrlString = CTRL_FUNCTIONS.fail();
+      } else if ("failBecause".equals(function) && argNum == 1 && isStringLiteral(firstArg)) {
+        ctrlString = CTRL_FUNCTIONS.failBecause(stringLiteral(firstArg));
+      } else if ("finish".equals(function) && argNum == 0) {
+        ctrlString = CTRL_FUNCTIONS.finish();
+      } else if ("retry".equals(function) && argNum == 1 && !isStringLiteral(firstArg)) {
+        ctrlString = CTRL_FUNCTIONS.retry(Integer.parseInt(firstArg));
+      } else if ("retry".equals(function) && argNum == 2 && !isStringLiteral(firstArg)) {
+        ctrlString = CTRL_FUNCTIONS.retry(Integer.parseInt(firstArg), stringLiteral(secondArg));
+      } else if ("repair".equals(function) && argNum == 1 && isStringLiteral(firstArg)) {
+        ctrlString = CTRL_FUNCTIONS.repair(stringLiteral(firstArg));
+      } else {
+        return Optional.empty();
+      }
+      return Optional.of(fromCtrlString(ctrlString, Collections.emptyMap()));
+    } catch (RuntimeException e) {
+      // 比如整数溢出、缺少跳转目标，保持原有的行为，在调度时报告错误
+      return Optional.empty();
+    }
+  }
+
+  private static boolean isStringLiteral(String literal) {
+    return literal.startsWith("\"") || literal.startsWith("'");
+  }
+
+  private static String stringLiteral(String literal) {
+    return literal.substring(1, literal.length() - 1);
+  }
+
   private static ActionCtrlInfo fromCtrlStringTokens(
       String ctrlString, String[] tokens, Map<String, Object> contextVars)
       throws BuildComponentException {
@@ -149,6 +218,16 @@ public class ActionCtrlInfo {
     return contextVars;
   }
 
+  /**
+   * 基于当前控制信息，使用新的上下文变量构建ActionCtrlInfo
+   *
+   * @param contextVars 上下文变量
+   * @return 新的ActionCtrlInfo对象
+   */
+  public ActionCtrlInfo withContextVars(Map<String, Object> contextVars) {
+    return new ActionCtrlInfo(ctrlType, nextStep, failureReason, contextVars);
+  }
+
   /**
    * 获取控制描述字符串
    */
@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.MapUtils;
 import playwell.assertion.AssertDefinition;
@@ -48,6 +49,9 @@ public class ActionDefinition implements Mappable {
   // 默认控制表达式
   private final PlaywellExpression defaultCtrlExpression;
 
+  // 默认控制表达式是常量表达式时预先解析好的控制信息
+  private final Optional<ActionCtrlInfo> defaultConstantCtrlInfo;
+
   // 默认上下文表达式
   private final Map<String, PlaywellExpression> defaultContextVars;
 
@@ -71,6 +75,8 @@ public class ActionDefinition implements Mappable {
     this.arguments = arguments;
     this.ctrlConditions = ctrlConditions;
     this.defaultCtrlExpression = defaultCtrlExpression;
+    this.defaultConstantCtrlInfo = defaultCtrlExpression == null ? Optional.empty() :
+        ActionCtrlInfo.fromConstantCtrlExpression(defaultCtrlExpression.getExpressionString());
     this.defaultContextVars = defaultContextVars;
     this.assertions = assertions;
     this.await = await;
@@ -101,6 +107,10 @@ public class ActionDefinition implements Mappable {
     return this.defaultCtrlExpression;
   }
 
+  public Optional<ActionCtrlInfo> getDefaultConstantCtrlInfo() {
+    return this.defaultConstantCtrlInfo;
+  }
+
   public Map<String, PlaywellExpression> getDefaultContextVars() {
     return defaultContextVars;
   }
@@ -17,4 +17,9 @@ public class RepairActionCtrlInfo extends ActionCtrlInfo {
   public String getProblem() {
     return problem;
   }
+
+  @Override
+  public ActionCtrlInfo withContextVars(Map<String, Object> contextVars) {
+    return new RepairActionCtrlInfo(problem, contextVars);
+  }
 }
@@ -27,4 +27,15 @@ public class RetryActionCtrlInfo extends ActionCtrlInfo {
   public ActionCtrlInfo getRetryFailureAction() {
     return retryFailureAction;
   }
+
+  @Override
+  public ActionCtrlInfo withContextVars(Map<String, Object> contextVars) {
+    return new RetryActionCtrlInfo(
+        getNextStep(),
+        getFailureReason(),
+        count,
+        retryFailureAction.withContextVars(contextVars),
+        contextVars
+    );
+  }
 }
@@ -144,7 +144,7 @@ public class ServiceActionInstanceBuilder implements ActionInstanceBuilder {
       // 如果有超时参数，注册时间事件
       if (arguments.contains(ArgNames.TIMEOUT)) {
         final long timestamp = arguments.getLong(ArgNames.TIMEOUT);
-        clock.registerClockMessage(ClockMessage.buildForActivity(
+        clock.replaceClockMessage(ClockMessage.buildForActivity(
             CachedTimestamp.nowMilliseconds() + timestamp,
             activity.getId(),
             activityThread.getDomainId(),
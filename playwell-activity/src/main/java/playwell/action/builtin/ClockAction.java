@@ -65,7 +65,7 @@ public class ClockAction extends AsyncAction {
     final DateTime time = (DateTime) arguments.get(ArgNames.TIME);
     ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
     Clock clock = integrationPlan.getClock();
-    clock.registerClockMessage(ClockMessage.buildForActivity(
+    clock.replaceClockMessage(ClockMessage.buildForActivity(
         time.getMillis(),
         getActivity().getId(),
         getActivityThread().getDomainId(),
@@ -137,7 +137,7 @@ public class ConcurrentAction extends AsyncAction {
       if (ctrlArg.containsKey(ArgNames.AFTER)) {
         final ExpressionArgument afterExpression = (ExpressionArgument) ctrlArg.get(ArgNames.AFTER);
         final long timestamp = (long) afterExpression.getValue(getArgExpressionContext());
-        clock.registerClockMessage(ClockMessage.buildForActivity(
+        clock.replaceClockMessage(ClockMessage.buildForActivity(
             CachedTimestamp.nowMilliseconds() + timestamp,
             activity.getId(),
             activityThread.getDomainId(),
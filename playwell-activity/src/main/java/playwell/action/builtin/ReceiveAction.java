@@ -97,7 +97,7 @@ public class ReceiveAction extends AsyncAction {
             getArgExpressionContext());
         ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
         Clock clock = integrationPlan.getClock();
-        clock.registerClockMessage(ClockMessage.buildForActivity(
+        clock.replaceClockMessage(ClockMessage.buildForActivity(
             CachedTimestamp.nowMilliseconds() + timestamp,
             activity.getId(),
             activityThread.getDomainId(),
@@ -63,7 +63,7 @@ public class SleepAction extends AsyncAction {
     final long timestamp = arguments.getLong("time");
     ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
     Clock clock = integrationPlan.getClock();
-    clock.registerClockMessage(ClockMessage.buildForActivity(
+    clock.replaceClockMessage(ClockMessage.buildForActivity(
         System.currentTimeMillis() + timestamp,
         getActivity().getId(),
         getActivityThread().getDomainId(),
@@ -24,6 +24,8 @@ import playwell.message.MessageDispatcher;
 import playwell.message.MessageDispatcherListener;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
+import playwell.message.idle.IdleStrategy;
+import playwell.message.idle.IdleStrategyType;
 import playwell.util.PerfLog;
 import playwell.util.Sleeper;
 
@@ -43,6 +45,9 @@ public class ActivityReplicationRunner implements MessageDispatcher {
   // 每次循环的休眠时间
   private long sleepTime;
 
+  // 空闲策略
+  private IdleStrategy idleStrategy;
+
   // 最大fetch消息数目
   private int maxFetchNum;
 
@@ -70,6 +75,8 @@ public class ActivityReplicationRunner implements MessageDispatcher {
     this.inputMessageBusName = configuration.getString(ConfigItems.INPUT_MESSAGE_BUS);
     this.sleepTime = configuration.getLong(
         ConfigItems.SLEEP_TIME, ConfigItems.DEFAULT_SLEEP_TIME);
+    this.idleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.IDLE_STRATEGY), sleepTime);
     this.maxFetchNum = configuration.getInt(
         ConfigItems.MAX_FETCH_NUM, ConfigItems.DEFAULT_MAX_FETCH_NUM);
     // 加载MessageDispatcherListener
@@ -108,6 +115,7 @@ public class ActivityReplicationRunner implements MessageDispatcher {
         this.actualStatus = ActivityReplicationRunnerStatus.RUNNING;
       }
 
+      int readCount = 0;
       try {
         PerfLog.beginSpan("loop");
 
@@ -120,7 +128,7 @@ public class ActivityReplicationRunner implements MessageDispatcher {
         final MessageBus inputMessageBus = getInputMessageBus();
         final List<Message> activityMessages = new LinkedList<>();
         final List<Message> clockMessages = new LinkedList<>();
-        final int readCount = inputMessageBus.readWithConsumer(maxFetchNum, message -> {
+        readCount = inputMessageBus.readWithConsumer(maxFetchNum, message -> {
           if (isActivityThreadMsg(message)) {
             activityMessages.add(message);
           } else if (isClockMsg(message)) {
@@ -156,7 +164,7 @@ public class ActivityReplicationRunner implements MessageDispatcher {
         PerfLog.endRootSpan();  // end loop span
         PerfLog.outputPerfLog();
         PerfLog.clear();
-        Sleeper.sleep(this.sleepTime);
+        idleStrategy.idle(readCount, maxFetchNum);
       }
     }
   }
@@ -261,6 +269,8 @@ public class ActivityReplicationRunner implements MessageDispatcher {
 
     int DEFAULT_SLEEP_TIME = 100;
 
+    String IDLE_STRATEGY = "idle_strategy";
+
     String MAX_FETCH_NUM = "max_fetch_num";
 
     int DEFAULT_MAX_FETCH_NUM = 10000;
@@ -1,15 +1,25 @@
 package playwell.activity;
 
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -17,6 +27,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import playwell.activity.thread.ActivityThread;
 import playwell.activity.thread.ActivityThreadPool;
+import playwell.activity.thread.ActivityThreadScheduleExecutor;
+import playwell.activity.thread.ActivityThreadScheduleExecutor.Batch;
 import playwell.activity.thread.ActivityThreadScheduler;
 import playwell.activity.thread.ScheduleResult;
 import playwell.activity.thread.UserScanOperation;
@@ -37,9 +49,13 @@ import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
 import playwell.message.bus.MessageBusNotAvailableException;
 import playwell.message.domainid.MessageDomainIDStrategy;
+import playwell.message.domainid.MessageDomainIDStrategyGroup;
 import playwell.message.domainid.MessageDomainIDStrategyManager;
+import playwell.message.idle.IdleStrategy;
+import playwell.message.idle.IdleStrategyType;
 import playwell.message.sys.ActivityThreadCtrlMessage;
 import playwell.route.SlotsManager;
+import playwell.route.SlotsSnapshot;
 import playwell.route.migration.MigrationInputTask;
 import playwell.route.migration.MigrationOutputTask;
 import playwell.service.ServiceMeta;
@@ -59,6 +75,9 @@ public class ActivityRunner implements MessageDispatcher {
 
   private static final Logger logger = LogManager.getLogger(ActivityRunner.class);
 
+  // 转发目标与MessageBus映射的刷新周期，slots快照发生变化时会立即刷新
+  private static final long REDIRECT_TARGETS_REFRESH_PERIOD = 3000L;
+
   // MessageDispatcherListeners
   private final Collection<MessageDispatcherListener> listeners;
 
@@ -71,12 +90,30 @@ public class ActivityRunner implements MessageDispatcher {
   // 休眠时间
   private long sleepTime;
 
+  // 空闲策略
+  private IdleStrategy idleStrategy;
+
+  // 流水线模式下，读取线程所使用的空闲策略
+  private IdleStrategy readerIdleStrategy;
+
   // 每个循环周期能获取的最大消息数目
   private int maxFetchNum;
 
   // 消息确认类型
   private MessageAckType messageAckType;
 
+  // 是否开启流水线模式，开启后由独立的线程读取消息并按DomainID分组，与调度阶段重叠执行
+  private boolean pipeline;
+
+  // 流水线模式下，读取阶段与调度阶段之间的有界队列，队列满时读取线程阻塞，形成背压
+  private BlockingQueue<MessageBatch> messageBatchQueue = null;
+
+  // 流水线模式下的消息读取线程
+  private Thread pipelineReaderThread = null;
+
+  // ActivityThread调度执行器，按照(activityId, domainId)将调度任务分配到固定的执行通道
+  private ActivityThreadScheduleExecutor scheduleExecutor;
+
   // 是否已经启动
   private volatile boolean started = false;
 
@@ -99,6 +136,12 @@ public class ActivityRunner implements MessageDispatcher {
 
   private volatile UserScanOperation userScanOperation = null;
 
+  // 转发目标缓存，按照slots快照中的服务序号保存对应的MessageBus
+  private volatile RedirectTargets redirectTargets = null;
+
+  // 按照目标服务统计的转发消息数目
+  private final Map<String, LongAdder> redirectCounts = new ConcurrentHashMap<>();
+
   // 上次发生的异常类型
   private Class<? extends Exception> lastExceptionType = null;
 
@@ -115,6 +158,10 @@ public class ActivityRunner implements MessageDispatcher {
     this.serviceName = configuration.getString(ConfigItems.SERVICE_NAME);
     this.inputMessageBusName = configuration.getString(ConfigItems.INPUT_MESSAGE_BUS);
     this.sleepTime = configuration.getLong(ConfigItems.SLEEP_TIME, ConfigItems.DEFAULT_SLEEP_TIME);
+    this.idleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.IDLE_STRATEGY), sleepTime);
+    this.readerIdleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.PIPELINE_READER_IDLE_STRATEGY), sleepTime);
     this.maxFetchNum = configuration
         .getInt(ConfigItems.MAX_FETCH_NUM, ConfigItems.DEFAULT_MAX_FETCH_NUM);
     Optional<MessageAckType> messageAckTypeOptional = MessageAckType.valueOfByType(
@@ -126,6 +173,22 @@ public class ActivityRunner implements MessageDispatcher {
     }
     this.messageAckType = messageAckTypeOptional.get();
 
+    this.pipeline = configuration.getBoolean(ConfigItems.PIPELINE, ConfigItems.DEFAULT_PIPELINE);
+    if (pipeline) {
+      // 读取线程会在调度阶段执行的同时继续读取，此时无法保证AFTER_HANDLE语义
+      if (messageAckType == MessageAckType.AFTER_HANDLE) {
+        throw new RuntimeException(String.format(
+            "The pipeline mode only support message ack type: %s",
+            MessageAckType.AFTER_READ.getType()
+        ));
+      }
+      this.messageBatchQueue = new ArrayBlockingQueue<>(configuration.getInt(
+          ConfigItems.PIPELINE_QUEUE_SIZE, ConfigItems.DEFAULT_PIPELINE_QUEUE_SIZE));
+    }
+
+    this.scheduleExecutor = new ActivityThreadScheduleExecutor(serviceName, configuration.getInt(
+        ConfigItems.SCHEDULE_PARALLELISM, ConfigItems.DEFAULT_SCHEDULE_PARALLELISM));
+
     // 加载MessageDispatcherListener
     IntergrationUtils.loadAndInitSubComponents(configuration.getObjectList(ConfigItems.LISTENERS))
         .forEach(listenerObj -> listeners.add((MessageDispatcherListener) listenerObj));
@@ -166,16 +229,27 @@ public class ActivityRunner implements MessageDispatcher {
 
     this.started = true;
 
+    if (pipeline) {
+      startPipelineReader(messageDomainIDStrategyManager);
+    }
+
     while (true) {
       PerfLog.beginSpan("loop");
 
       if (expectedStatus == ActivityRunnerStatus.STOPPED) {
+        if (pipeline) {
+          stopPipelineReader(activityManager, activityThreadScheduler, triggerManager);
+        }
+        scheduleExecutor.shutdown();
         this.actualStatus = ActivityRunnerStatus.STOPPED;
         logger.info("ActivityRunner stopped.");
         break;
       }
 
       if (expectedStatus == ActivityRunnerStatus.PAUSED) {
+        if (pipeline) {
+          drainPipelineBatches(activityManager, activityThreadScheduler, triggerManager);
+        }
         this.actualStatus = ActivityRunnerStatus.PAUSED;
         logger.info("ActivityRunner paused.");
         try {
@@ -191,9 +265,14 @@ public class ActivityRunner implements MessageDispatcher {
       PerfLog.endSpan();  // end span for before_loop_listeners
 
       if (expectedStatus == ActivityRunnerStatus.SCANNING) {
+        if (pipeline) {
+          drainPipelineBatches(activityManager, activityThreadScheduler, triggerManager);
+        }
         this.actualStatus = ActivityRunnerStatus.SCANNING;
         try {
-          this.activityThreadPool.scanAll(this.userScanOperation);
+          if (!this.userScanOperation.tryRemoveSlotNoMatchByRange(activityThreadPool)) {
+            this.activityThreadPool.scanAll(this.userScanOperation);
+          }
         } catch (Exception e) {
           logger.error("Scan activity thread error", e);
         } finally {
@@ -205,13 +284,20 @@ public class ActivityRunner implements MessageDispatcher {
         // 判断当前节点是否是迁移输出节点
         final MigrationOutputTask migrationOutputTask = slotsManager.getMigrationOutputTask();
         if (migrationOutputTask != null) {
-          migrationOutputTask.getMigrationProgress(serviceName)
-              .ifPresent(migrationOutputTask::startOutputTask);
+          migrationOutputTask.getMigrationProgress(serviceName).ifPresent(progress -> {
+            if (pipeline) {
+              drainPipelineBatches(activityManager, activityThreadScheduler, triggerManager);
+            }
+            migrationOutputTask.startOutputTask(progress);
+          });
         }
         // 判断当前节点是否是迁移输入节点
         final MigrationInputTask migrationInputTask = slotsManager.getMigrationInputTask();
         if (migrationInputTask != null) {
           migrationInputTask.getMigrationProgress(serviceName).ifPresent(process -> {
+            if (pipeline) {
+              drainPipelineBatches(activityManager, activityThreadScheduler, triggerManager);
+            }
             this.actualStatus = ActivityRunnerStatus.MIGRATING_IN;
             migrationInputTask.startInputTask(process);
           });
@@ -220,120 +306,58 @@ public class ActivityRunner implements MessageDispatcher {
 
       this.actualStatus = ActivityRunnerStatus.RUNNING;
 
+      int readCount = 0;
       try {
         this.lastActive = System.currentTimeMillis();
 
-        PerfLog.beginSpan("get_domain_id_strategies");
-        final Collection<MessageDomainIDStrategy> messageDomainIDStrategies = messageDomainIDStrategyManager
-            .getAllMessageDomainIDStrategies();
-        PerfLog.endSpan();  // end span for get_domain_id_strategies
-
-        // 根据配置，从队列中获取指定数目的消息，计算出相应的domainId，并将系统消息单独分开处理
-        final Map<String, Map<String, Collection<Message>>> commonMessagesByStrategies =
-            Maps.newHashMapWithExpectedSize(messageDomainIDStrategies.size());  // 普通消息
-        messageDomainIDStrategies.forEach(strategy ->
-            commonMessagesByStrategies.put(
-                strategy.name(), new HashMap<>(maxFetchNum * 3 / 2)));
-
-        final Map<Pair<Integer, String>, Collection<Message>> activityThreadMessages =
-            Maps.newHashMapWithExpectedSize(maxFetchNum * 3 / 2); // ActivityThread消息
-        final Map<Pair<Integer, String>, Collection<ActivityThreadCtrlMessage>> ctrlMessages =
-            Maps.newHashMap(); // 系统控制消息
-
-        PerfLog.beginSpan("get_input_message_bus");
-        final Optional<MessageBus> inputMessageBusOptional = messageBusManager
-            .getMessageBusByName(inputMessageBusName);
-        if (!inputMessageBusOptional.isPresent()) {
-          throw new RuntimeException(
-              "Could not found the input message bus: " + inputMessageBusName);
-        }
-        final MessageBus inputMessageBus = inputMessageBusOptional.get();
-        PerfLog.endSpan();  // end span for get_input_message_bus
-
-        PerfLog.beginSpan("read_messages");
-        int readCount = inputMessageBus.readWithConsumer(maxFetchNum, message -> {
-
-          if (ifMessageNotBelongToThisNodeThenRedirectToTheRightNode(message)) {
-            return;
+        final MessageBus inputMessageBus;
+        final MessageBatch messageBatch;
+        if (pipeline) {
+          // 流水线模式，直接从队列中获取读取线程已经分组好的消息
+          inputMessageBus = null;
+          PerfLog.beginSpan("take_message_batch");
+          messageBatch = takeMessageBatch();
+          PerfLog.endSpan(String.format(
+              "Read messages count: %d", messageBatch.readCount));  // end span for take batch
+          // 读取之后slots分布发生了变化，批次中的消息可能已经不再属于该节点，重新投递后再判断归属
+          if (messageBatch.slotsVersion != currentSlotsVersion()) {
+            requeueMessageBatch(messageBatch);
+            continue;
           }
-
-          if (message instanceof ActivityThreadCtrlMessage) {  // 收集系统消息
-            ActivityThreadCtrlMessage ctrlMessage = (ActivityThreadCtrlMessage) message;
-            ctrlMessages.computeIfAbsent(
-                Pair.of(ctrlMessage.getActivityId(), ctrlMessage.getDomainId()),
-                p -> new LinkedList<>()).add(ctrlMessage);
-          } else if (message instanceof ActivityThreadMessage) {
-            ActivityThreadMessage activityThreadMessage = (ActivityThreadMessage) message;
-            activityThreadMessages.computeIfAbsent(
-                Pair.of(activityThreadMessage.getActivityId(), activityThreadMessage.getDomainId()),
-                p -> new LinkedList<>()).add(message);
-          } else if (message instanceof RoutedMessage) {
-            RoutedMessage routedMessage = (RoutedMessage) message;
-            Map<String, Collection<Message>> commonMessages = commonMessagesByStrategies.get(
-                routedMessage.getDomainIDStrategy());
-            commonMessages.computeIfAbsent(
-                routedMessage.getDomainId(), did -> new LinkedList<>()).add(routedMessage);
-          } else {
-            for (MessageDomainIDStrategy domainIDStrategy : messageDomainIDStrategies) {
-              Map<String, Collection<Message>> commonMessages = commonMessagesByStrategies.get(
-                  domainIDStrategy.name());
-              Optional<String> domainIdOptional = domainIDStrategy.domainId(message);
-              domainIdOptional.ifPresent(domainId ->
-                  commonMessages.computeIfAbsent(domainId, did -> new LinkedList<>()).add(message));
-            }
+        } else {
+          PerfLog.beginSpan("get_domain_id_strategies");
+          final MessageDomainIDStrategyGroup messageDomainIDStrategyGroup =
+              messageDomainIDStrategyManager.getMessageDomainIDStrategyGroup();
+          PerfLog.endSpan();  // end span for get_domain_id_strategies
+
+          PerfLog.beginSpan("get_input_message_bus");
+          inputMessageBus = getInputMessageBus();
+          PerfLog.endSpan();  // end span for get_input_message_bus
+
+          PerfLog.beginSpan("read_messages");
+          messageBatch = readMessageBatch(inputMessageBus, messageDomainIDStrategyGroup);
+          readCount = messageBatch.readCount;
+          PerfLog.endSpan(String.format(
+              "Read messages count: %d", messageBatch.readCount));  // end span for read_messages
+
+          if (messageAckType == MessageAckType.AFTER_READ) {
+            PerfLog.beginSpan("ack_messages");
+            inputMessageBus.ackMessages();
+            PerfLog.endSpan();  // end span for ack_messages
           }
-        });
-        PerfLog.endSpan(
-            String.format("Read messages count: %d", readCount));  // end span for read_messages
-
-        if (messageAckType == MessageAckType.AFTER_READ) {
-          PerfLog.beginSpan("ack_messages");
-          inputMessageBus.ackMessages();
-          PerfLog.endSpan();  // end span for ack_messages
         }
 
-        // 优先处理系统消息
-        if (MapUtils.isNotEmpty(ctrlMessages)) {
-          PerfLog.beginSpan("handle_sys_messages");
-          parallelScheduleCtrlMessages(activityThreadPool, activityThreadScheduler, ctrlMessages);
-          PerfLog.endSpan();  // end span for handle_sys_messages
-        }
-
-        // 再处理ActivityThread消息
-        if (MapUtils.isNotEmpty(activityThreadMessages)) {
-          PerfLog.beginSpan("handle_activity_thread_messages");
-          parallelSchedule(activityThreadPool, activityThreadScheduler, activityThreadMessages);
-          PerfLog.endSpan();  // end span for handle_activity_thread_messages
-        }
-
-        // 最后，通过触发器来处理普通消息
-        PerfLog.beginSpan("get_schedulable_activities");
-        final Collection<Activity> activities = activityManager.getSchedulableActivities();
-        if (CollectionUtils.isEmpty(activities)) {
+        if (!scheduleMessageBatch(
+            messageBatch, activityManager, activityThreadScheduler, triggerManager)) {
           continue;
         }
-        PerfLog.endSpan();  // end span for get_schedulable_activities
-
-        PerfLog.beginSpan("trigger");
-        final Map<ActivityThread, Collection<Message>> collector = new ConcurrentHashMap<>(
-            maxFetchNum * 3 / 2);
-        activities.parallelStream().forEach(activity -> {
-          Trigger trigger = triggerManager.getTriggerInstance(activity);
-          trigger.handleMessageStream(collector, commonMessagesByStrategies);
-        });
-        PerfLog.endSpan(String
-            .format("All activity thread count: %d", collector.size()));  // end span for trigger
-
-        // 可以执行ActivityThread了
-        PerfLog.beginSpan("schedule_activity_threads");
-        collector.keySet().parallelStream().forEach(activityThread -> {
-          final Collection<Message> mailbox = collector.get(activityThread);
-          ScheduleResult result = activityThreadScheduler.schedule(activityThread, mailbox);
-          logScheduleResult(result);
-        });
-        PerfLog.endSpan();  // end span for schedule_activity_threads
 
         if (messageAckType == MessageAckType.AFTER_HANDLE) {
+          // 确保处理过程中写出的消息都已经被确认，再确认输入消息
+          PerfLog.beginSpan("await_writes");
+          messageBusManager.getAllMessageBus().forEach(MessageBus::awaitWrites);
+          PerfLog.endSpan();  // end span for await_writes
+
           PerfLog.beginSpan("ack_messages");
           inputMessageBus.ackMessages();
           PerfLog.endSpan();  // end span for ack messages
@@ -345,9 +369,11 @@ public class ActivityRunner implements MessageDispatcher {
         final int consumeBatchSize = 1000;
         final VariableHolder<Map<Pair<Integer, String>, Collection<Message>>> groupedClockMessages =
             new VariableHolder<>(new HashMap<>(consumeBatchSize));
+        final RedirectedMessages redirectedClockMessages = new RedirectedMessages();
         clock.consumeClockMessage(now, clockMessage -> {
           // 转发不属于该节点的时钟消息
-          if (ifMessageNotBelongToThisNodeThenRedirectToTheRightNode(clockMessage)) {
+          if (ifMessageNotBelongToThisNodeThenRedirectToTheRightNode(
+              clockMessage, redirectedClockMessages)) {
             return;
           }
 
@@ -368,6 +394,8 @@ public class ActivityRunner implements MessageDispatcher {
           parallelSchedule(activityThreadPool, activityThreadScheduler,
               groupedClockMessages.getVar());
         }
+        // 在清理时钟消息之前批量写出需要转发的时钟消息
+        flushRedirectedMessages(redirectedClockMessages);
 
         PerfLog.beginSpan("clean");
         clock.clean(now);
@@ -385,50 +413,294 @@ public class ActivityRunner implements MessageDispatcher {
         PerfLog.endRootSpan();  // end span for loop
         PerfLog.outputPerfLog();
         PerfLog.clear();
-        sleep();
+        // 流水线模式下，等待消息的时间已经包含在了获取消息批次的过程中
+        if (!pipeline) {
+          idleStrategy.idle(readCount, maxFetchNum);
+        }
       }
     }
 
     this.actualStatus = ActivityRunnerStatus.STOPPED;
   }
 
-  // 判断消息是否属于该节点，如果属于，则返回false；如果不属于，则转发给对应的正确节点，然后返回true
-  private boolean ifMessageNotBelongToThisNodeThenRedirectToTheRightNode(Message message) {
+  // 从输入总线中读取消息，计算出相应的domainId，并将系统消息和ActivityThread消息单独分开
+  private MessageBatch readMessageBatch(
+      MessageBus inputMessageBus, MessageDomainIDStrategyGroup messageDomainIDStrategyGroup)
+      throws MessageBusNotAvailableException {
+    final MessageBatch messageBatch = new MessageBatch(
+        maxFetchNum, messageDomainIDStrategyGroup.getStrategies(), currentSlotsVersion());
+    final RedirectedMessages redirectedMessages = new RedirectedMessages();
+    messageBatch.readCount = inputMessageBus.readWithConsumer(maxFetchNum, message -> {
 
-    if (slotsManager != null && message instanceof DomainMessage) {
-      DomainMessage domainMessage = (DomainMessage) message;
-      String nodeServiceName = slotsManager.getServiceByKey(domainMessage.getDomainId());
-      if (!this.serviceName.equals(nodeServiceName)) {
-        Optional<ServiceMeta> serviceMetaOptional = serviceMetaManager
-            .getServiceMetaByName(nodeServiceName);
-        if (!serviceMetaOptional.isPresent()) {
-          throw new RuntimeException(String.format(
-              "Unknown service %s for domain id %s",
-              nodeServiceName,
-              domainMessage.getDomainId()
-          ));
+      if (ifMessageNotBelongToThisNodeThenRedirectToTheRightNode(message, redirectedMessages)) {
+        return;
+      }
+      if (pipeline) {
+        messageBatch.messages.add(message);
+      }
+
+      if (message instanceof ActivityThreadCtrlMessage) {  // 收集系统消息
+        ActivityThreadCtrlMessage ctrlMessage = (ActivityThreadCtrlMessage) message;
+        messageBatch.ctrlMessages.computeIfAbsent(
+            Pair.of(ctrlMessage.getActivityId(), ctrlMessage.getDomainId()),
+            p -> new LinkedList<>()).add(ctrlMessage);
+      } else if (message instanceof ActivityThreadMessage) {
+        ActivityThreadMessage activityThreadMessage = (ActivityThreadMessage) message;
+        messageBatch.activityThreadMessages.computeIfAbsent(
+            Pair.of(activityThreadMessage.getActivityId(), activityThreadMessage.getDomainId()),
+            p -> new LinkedList<>()).add(message);
+      } else if (message instanceof RoutedMessage) {
+        RoutedMessage routedMessage = (RoutedMessage) message;
+        Map<String, Collection<Message>> commonMessages = messageBatch.commonMessagesByStrategies
+            .get(routedMessage.getDomainIDStrategy());
+        commonMessages.computeIfAbsent(
+            routedMessage.getDomainId(), did -> new LinkedList<>()).add(routedMessage);
+        messageBatch.commonMessageTypes.add(routedMessage.getType());
+      } else {
+        // 所有策略共享同一个表达式上下文，相同的表达式只计算一次
+        messageDomainIDStrategyGroup.forEachDomainId(message, (strategyName, domainId) ->
+            messageBatch.commonMessagesByStrategies.get(strategyName)
+                .computeIfAbsent(domainId, did -> new LinkedList<>()).add(message));
+        messageBatch.commonMessageTypes.add(message.getType());
+      }
+    });
+    // 读取阶段结束后，按照目标节点批量写出转发消息，保证在确认输入消息之前已经写出
+    flushRedirectedMessages(redirectedMessages);
+    return messageBatch;
+  }
+
+  // 调度一批消息：优先处理系统消息，再处理ActivityThread消息，最后通过触发器处理普通消息
+  // 如果当前没有可调度的活动，则返回false
+  private boolean scheduleMessageBatch(
+      MessageBatch messageBatch,
+      ActivityManager activityManager,
+      ActivityThreadScheduler activityThreadScheduler,
+      TriggerManager triggerManager) {
+    // 优先处理系统消息
+    if (MapUtils.isNotEmpty(messageBatch.ctrlMessages)) {
+      PerfLog.beginSpan("handle_sys_messages");
+      parallelScheduleCtrlMessages(
+          activityThreadPool, activityThreadScheduler, messageBatch.ctrlMessages);
+      PerfLog.endSpan();  // end span for handle_sys_messages
+    }
+
+    // 再处理ActivityThread消息
+    if (MapUtils.isNotEmpty(messageBatch.activityThreadMessages)) {
+      PerfLog.beginSpan("handle_activity_thread_messages");
+      parallelSchedule(
+          activityThreadPool, activityThreadScheduler, messageBatch.activityThreadMessages);
+      PerfLog.endSpan();  // end span for handle_activity_thread_messages
+    }
+
+    // 最后，通过触发器来处理普通消息
+    PerfLog.beginSpan("get_schedulable_activities");
+    final Collection<Activity> activities = activityManager.getSchedulableActivities();
+    if (CollectionUtils.isEmpty(activities)) {
+      return false;
+    }
+    PerfLog.endSpan();  // end span for get_schedulable_activities
+
+    PerfLog.beginSpan("trigger");
+    final Map<ActivityThread, Collection<Message>> collector = new ConcurrentHashMap<>(
+        maxFetchNum * 3 / 2);
+    final List<Trigger> triggers = activities.stream()
+        .map(triggerManager::getTriggerInstance).collect(Collectors.toList());
+    // 只有触发条件可能被本批次事件类型满足的活动才需要尝试创建新的ActivityThread
+    final Set<Integer> triggerableActivities = triggerManager.getTriggerIndex(triggers)
+        .getCandidates(messageBatch.commonMessageTypes);
+    // 各个活动的ActivityThread查询与触发相互独立，按活动分散到调度执行通道上并行执行；
+    // 触发器在通道中继续向同一批次提交ActivityThread任务，批次的await会一并等待这些任务完成
+    final Batch triggerBatch = scheduleExecutor.newBatch();
+    for (Trigger trigger : triggers) {
+      final int activityId = trigger.getActivity().getId();
+      triggerBatch.submit(activityId, null, () -> trigger.handleMessageStream(
+          collector,
+          messageBatch.commonMessagesByStrategies,
+          triggerBatch,
+          triggerableActivities.contains(activityId)
+      ));
+    }
+    triggerBatch.await();
+    PerfLog.endSpan(String
+        .format("All activity thread count: %d", collector.size()));  // end span for trigger
+
+    // 可以执行ActivityThread了
+    PerfLog.beginSpan("schedule_activity_threads");
+    final Batch scheduleBatch = scheduleExecutor.newBatch();
+    collector.forEach((activityThread, mailbox) -> scheduleBatch.submit(
+        activityThread.getActivity().getId(),
+        activityThread.getDomainId(),
+        () -> scheduleAndEvictOnFailure(
+            activityThread, () -> activityThreadScheduler.schedule(activityThread, mailbox))
+    ));
+    scheduleBatch.await();
+    PerfLog.endSpan();  // end span for schedule_activity_threads
+
+    return true;
+  }
+
+  // 启动流水线读取线程
+  private void startPipelineReader(
+      MessageDomainIDStrategyManager messageDomainIDStrategyManager) {
+    this.pipelineReaderThread = new Thread(
+        () -> pipelineRead(messageDomainIDStrategyManager),
+        String.format("%s-pipeline-reader", serviceName)
+    );
+    this.pipelineReaderThread.setDaemon(true);
+    this.pipelineReaderThread.start();
+    logger.info("ActivityRunner pipeline reader started.");
+  }
+
+  // 流水线读取阶段：只有在Runner正常运行时才会读取消息，暂停、扫描、迁移期间不会读取
+  private void pipelineRead(MessageDomainIDStrategyManager messageDomainIDStrategyManager) {
+    while (expectedStatus != ActivityRunnerStatus.STOPPED) {
+      if (!isPipelineReadable()) {
+        sleep();
+        continue;
+      }
+
+      try {
+        final MessageBus inputMessageBus = getInputMessageBus();
+        final MessageBatch messageBatch = readMessageBatch(
+            inputMessageBus, messageDomainIDStrategyManager.getMessageDomainIDStrategyGroup());
+        readerIdleStrategy.idle(messageBatch.readCount, maxFetchNum);
+        if (messageBatch.readCount == 0) {
+          continue;
+        }
+        // 队列已满时等待，直到调度阶段消费掉之前的批次；Runner停止时，调度线程会负责排空队列。
+        // 等待期间Runner的状态发生了变化，则将批次重新投递到输入总线，由恢复运行后的读取再处理；
+        // 重新投递失败时不确认输入消息，由输入总线再次投递
+        boolean offered = false;
+        while (!offered && isPipelineReadable()) {
+          offered = messageBatchQueue.offer(
+              messageBatch, Math.max(sleepTime, 1L), TimeUnit.MILLISECONDS);
         }
-        ServiceMeta serviceMeta = serviceMetaOptional.get();
-
-        Optional<MessageBus> messageBusOptional = messageBusManager
-            .getMessageBusByName(serviceMeta.getMessageBus());
-        if (!messageBusOptional.isPresent()) {
-          throw new RuntimeException(
-              String.format(
-                  "Unknown message bus %s of service %s",
-                  serviceMeta.getMessageBus(),
-                  nodeServiceName
-              )
-          );
+        if (!offered) {
+          requeueMessageBatch(messageBatch);
         }
-        MessageBus messageBus = messageBusOptional.get();
+        inputMessageBus.ackMessages();
+      } catch (Exception e) {
+        logger.error("Error happened when reading messages in pipeline mode", e);
+        sleep();
+      }
+    }
+    logger.info("ActivityRunner pipeline reader stopped.");
+  }
 
-        try {
-          messageBus.write(message);
-        } catch (MessageBusNotAvailableException e) {
-          throw new RuntimeException(e);
+  private boolean isPipelineReadable() {
+    return expectedStatus == ActivityRunnerStatus.RUNNING
+        && actualStatus == ActivityRunnerStatus.RUNNING;
+  }
+
+  // 获取下一个消息批次，如果在休眠时间内没有消息，则返回空批次，以便继续处理时钟消息
+  private MessageBatch takeMessageBatch() throws InterruptedException {
+    final MessageBatch messageBatch = messageBatchQueue.poll(
+        Math.max(sleepTime, 1L), TimeUnit.MILLISECONDS);
+    if (messageBatch == null) {
+      return new MessageBatch(0, Collections.emptyList(), currentSlotsVersion());
+    }
+    return messageBatch;
+  }
+
+  // 暂停、扫描或者迁移之前，先把队列中已经读取确认过的批次调度完毕，而不是重新投递到输入总线，
+  // 避免这些消息被排到后续新消息之后。只有slots分布已经变化的批次才需要重新投递并判断归属
+  private void drainPipelineBatches(
+      ActivityManager activityManager,
+      ActivityThreadScheduler activityThreadScheduler,
+      TriggerManager triggerManager) {
+    MessageBatch messageBatch;
+    while ((messageBatch = messageBatchQueue.poll()) != null) {
+      try {
+        if (messageBatch.slotsVersion != currentSlotsVersion()) {
+          requeueMessageBatch(messageBatch);
+        } else {
+          scheduleMessageBatch(
+              messageBatch, activityManager, activityThreadScheduler, triggerManager);
         }
+      } catch (Exception e) {
+        logger.error(String.format(
+            "Drain %d pipeline messages error!", messageBatch.messages.size()), e);
+      }
+    }
+  }
 
+  // 将已经确认过的批次重新投递到输入总线，并等待写入完成。重新投递的消息会排在输入总线中
+  // 尚未读取的消息之后，因此只用于消息已经不再属于该节点，或者Runner状态发生变化无法入队的情况。
+  // 写入失败时抛出异常，由调用者决定是否跳过输入消息的确认
+  private void requeueMessageBatch(MessageBatch messageBatch) {
+    if (messageBatch.messages.isEmpty()) {
+      return;
+    }
+    try {
+      final MessageBus inputMessageBus = getInputMessageBus();
+      inputMessageBus.write(messageBatch.messages);
+      inputMessageBus.awaitWrites();
+    } catch (Exception e) {
+      throw new RuntimeException(String.format(
+          "Requeue %d pipeline messages error!", messageBatch.messages.size()), e);
+    }
+    logger.info(String.format(
+        "Requeued %d pipeline messages to the input message bus",
+        messageBatch.messages.size()));
+  }
+
+  private long currentSlotsVersion() {
+    return slotsManager == null ? 0L : slotsManager.getSlotsSnapshot().getVersion();
+  }
+
+  // 等待读取线程结束，并处理完队列中已经读取确认过的消息，避免消息丢失
+  private void stopPipelineReader(
+      ActivityManager activityManager,
+      ActivityThreadScheduler activityThreadScheduler,
+      TriggerManager triggerManager) {
+    if (pipelineReaderThread == null) {
+      return;
+    }
+
+    try {
+      while (pipelineReaderThread.isAlive() || !messageBatchQueue.isEmpty()) {
+        final MessageBatch messageBatch = messageBatchQueue.poll(
+            Math.max(sleepTime, 1L), TimeUnit.MILLISECONDS);
+        if (messageBatch != null) {
+          scheduleMessageBatch(
+              messageBatch, activityManager, activityThreadScheduler, triggerManager);
+        }
+      }
+      callbackListeners(MessageDispatcherListener::afterLoop);
+    } catch (Exception e) {
+      logger.error("Error happened when handle the remaining message batches", e);
+    } finally {
+      this.pipelineReaderThread = null;
+    }
+  }
+
+  private MessageBus getInputMessageBus() {
+    final Optional<MessageBus> inputMessageBusOptional = messageBusManager
+        .getMessageBusByName(inputMessageBusName);
+    if (!inputMessageBusOptional.isPresent()) {
+      throw new RuntimeException(
+          "Could not found the input message bus: " + inputMessageBusName);
+    }
+    return inputMessageBusOptional.get();
+  }
+
+  // 判断消息是否属于该节点，如果属于，则返回false；如果不属于，则加入到对应节点的转发批次中，然后返回true
+  private boolean ifMessageNotBelongToThisNodeThenRedirectToTheRightNode(
+      Message message, RedirectedMessages redirectedMessages) {
+
+    if (slotsManager != null && message instanceof DomainMessage) {
+      final DomainMessage domainMessage = (DomainMessage) message;
+      final RedirectTargets targets = getRedirectTargets();
+      final int serviceIndex = targets.slotsSnapshot.getServiceIndexByKey(
+          domainMessage.getDomainId());
+      if (serviceIndex != targets.localServiceIndex) {
+        final String nodeServiceName = targets.slotsSnapshot.getService(serviceIndex);
+        MessageBus messageBus = targets.messageBuses[serviceIndex];
+        if (messageBus == null) {
+          messageBus = getServiceMessageBus(nodeServiceName, domainMessage.getDomainId());
+          targets.messageBuses[serviceIndex] = messageBus;
+        }
+        redirectedMessages.add(nodeServiceName, messageBus, message);
         return true;
       }
     }
@@ -436,6 +708,65 @@ public class ActivityRunner implements MessageDispatcher {
     return false;
   }
 
+  // 获取当前slots快照对应的转发目标，快照发生变化或者超过刷新周期时重建
+  private RedirectTargets getRedirectTargets() {
+    final SlotsSnapshot slotsSnapshot = slotsManager.getSlotsSnapshot();
+    RedirectTargets targets = this.redirectTargets;
+    if (targets == null || targets.slotsSnapshot != slotsSnapshot
+        || System.currentTimeMillis() - targets.createdOn > REDIRECT_TARGETS_REFRESH_PERIOD) {
+      targets = new RedirectTargets(slotsSnapshot, serviceName);
+      this.redirectTargets = targets;
+    }
+    return targets;
+  }
+
+  private MessageBus getServiceMessageBus(String nodeServiceName, String domainId) {
+    Optional<ServiceMeta> serviceMetaOptional = serviceMetaManager
+        .getServiceMetaByName(nodeServiceName);
+    if (!serviceMetaOptional.isPresent()) {
+      throw new RuntimeException(String.format(
+          "Unknown service %s for domain id %s",
+          nodeServiceName,
+          domainId
+      ));
+    }
+    ServiceMeta serviceMeta = serviceMetaOptional.get();
+
+    Optional<MessageBus> messageBusOptional = messageBusManager
+        .getMessageBusByName(serviceMeta.getMessageBus());
+    if (!messageBusOptional.isPresent()) {
+      throw new RuntimeException(
+          String.format(
+              "Unknown message bus %s of service %s",
+              serviceMeta.getMessageBus(),
+              nodeServiceName
+          )
+      );
+    }
+    return messageBusOptional.get();
+  }
+
+  // 将转发批次按照目标节点写出，每个目标节点只调用一次write
+  private void flushRedirectedMessages(RedirectedMessages redirectedMessages)
+      throws MessageBusNotAvailableException {
+    if (redirectedMessages.batches.isEmpty()) {
+      return;
+    }
+
+    PerfLog.beginSpan("redirect_messages");
+    try {
+      for (Map.Entry<String, RedirectBatch> entry : redirectedMessages.batches.entrySet()) {
+        final RedirectBatch batch = entry.getValue();
+        batch.messageBus.write(batch.messages);
+        redirectCounts.computeIfAbsent(entry.getKey(), k -> new LongAdder())
+            .add(batch.messages.size());
+      }
+    } finally {
+      redirectedMessages.batches.clear();
+      PerfLog.endSpan();  // end span for redirect_messages
+    }
+  }
+
   @Override
   public boolean isStarted() {
     return this.started;
@@ -486,6 +817,38 @@ public class ActivityRunner implements MessageDispatcher {
     return this.lastActive;
   }
 
+  public int getScheduleParallelism() {
+    return scheduleExecutor.getParallelism();
+  }
+
+  public List<Integer> getScheduleQueueDepths() {
+    return scheduleExecutor.getQueueDepths();
+  }
+
+  public boolean isPipeline() {
+    return this.pipeline;
+  }
+
+  /**
+   * 流水线模式下，已经读取但尚未被调度的消息批次数目
+   *
+   * @return 等待调度的消息批次数目
+   */
+  public int getPendingMessageBatchNum() {
+    return messageBatchQueue == null ? 0 : messageBatchQueue.size();
+  }
+
+  /**
+   * 按照目标服务统计的转发消息数目
+   *
+   * @return 目标服务名称 -> 转发消息数目
+   */
+  public Map<String, Long> getRedirectCounts() {
+    final Map<String, Long> counts = new HashMap<>(redirectCounts.size());
+    redirectCounts.forEach((service, count) -> counts.put(service, count.sum()));
+    return counts;
+  }
+
   public void startScanProcess(EasyMap scanArgs) {
     final UserScanOperation userScanOperation = UserScanOperation.buildWithArgs(scanArgs);
     // 如果是只读的，那么可以单独开启一个DAEMON线程扫描
@@ -523,16 +886,18 @@ public class ActivityRunner implements MessageDispatcher {
     PerfLog.endSpan(String.format("Query count: %d", messages.keySet().size()));
 
     PerfLog.beginSpan("schedule_threads");
-    activityThreads.parallelStream().forEach(activityThread -> {
+    final Batch batch = scheduleExecutor.newBatch();
+    for (ActivityThread activityThread : activityThreads) {
       if (activityThread == null) {
-        return;
+        continue;
       }
-      final Pair<Integer, String> identifier = Pair.of(
-          activityThread.getActivity().getId(), activityThread.getDomainId());
-      final Collection<Message> mailbox = messages.get(identifier);
-      ScheduleResult result = activityThreadScheduler.schedule(activityThread, mailbox);
-      logScheduleResult(result);
-    });
+      final int activityId = activityThread.getActivity().getId();
+      final String domainId = activityThread.getDomainId();
+      final Collection<Message> mailbox = messages.get(Pair.of(activityId, domainId));
+      batch.submit(activityId, domainId, () -> scheduleAndEvictOnFailure(
+          activityThread, () -> activityThreadScheduler.schedule(activityThread, mailbox)));
+    }
+    batch.await();
     PerfLog.endSpan();
   }
 
@@ -550,17 +915,20 @@ public class ActivityRunner implements MessageDispatcher {
     PerfLog.endSpan(String.format("Query count: %d", messages.keySet().size()));
 
     PerfLog.beginSpan("schedule_threads");
-    activityThreads.parallelStream().forEach(activityThread -> {
+    final Batch batch = scheduleExecutor.newBatch();
+    for (ActivityThread activityThread : activityThreads) {
       if (activityThread == null) {
-        return;
+        continue;
       }
-      final Pair<Integer, String> identifier = Pair.of(
-          activityThread.getActivity().getId(), activityThread.getDomainId());
-      final Collection<ActivityThreadCtrlMessage> mailbox = messages.get(identifier);
-      ScheduleResult result = activityThreadScheduler
-          .scheduleWithCtrlMessages(activityThread, mailbox);
-      logScheduleResult(result);
-    });
+      final int activityId = activityThread.getActivity().getId();
+      final String domainId = activityThread.getDomainId();
+      final Collection<ActivityThreadCtrlMessage> mailbox = messages.get(
+          Pair.of(activityId, domainId));
+      batch.submit(activityId, domainId, () -> scheduleAndEvictOnFailure(
+          activityThread,
+          () -> activityThreadScheduler.scheduleWithCtrlMessages(activityThread, mailbox)));
+    }
+    batch.await();
     PerfLog.endSpan();
   }
 
@@ -569,13 +937,14 @@ public class ActivityRunner implements MessageDispatcher {
       return;
     }
 
-    listeners.parallelStream().forEach(listener -> {
+    // Listener回调在Runner线程中按顺序执行，不占用ActivityThread的调度执行通道
+    for (MessageDispatcherListener listener : listeners) {
       try {
         callback.accept(listener);
       } catch (Exception e) {
         logger.error("Callback MessageDispatcherListener error!", e);
       }
-    });
+    }
   }
 
   private void logException(Exception e) {
@@ -592,6 +961,21 @@ public class ActivityRunner implements MessageDispatcher {
     this.lastExceptionType = exceptionType;
   }
 
+  // 调度中途失败时，缓存中共享的ActivityThread可能已经被修改而与存储不一致，从缓存中移除，下次重新加载
+  private void scheduleAndEvictOnFailure(
+      ActivityThread activityThread, Supplier<ScheduleResult> scheduleAction) {
+    ScheduleResult scheduleResult = null;
+    try {
+      scheduleResult = scheduleAction.get();
+    } finally {
+      if (scheduleResult == null || !scheduleResult.isOk()) {
+        activityThreadPool.evictCachedActivityThread(
+            activityThread.getActivity().getId(), activityThread.getDomainId());
+      }
+    }
+    logScheduleResult(scheduleResult);
+  }
+
   private void logScheduleResult(ScheduleResult scheduleResult) {
     if (logger.isDebugEnabled()) {
       logger.debug(scheduleResult.toString());
@@ -623,6 +1007,11 @@ public class ActivityRunner implements MessageDispatcher {
     String SLEEP_TIME = "sleep_time";
     long DEFAULT_SLEEP_TIME = 100;
 
+    /**
+     * 每个循环周期结束后的空闲策略，默认为按照sleep_time休眠
+     */
+    String IDLE_STRATEGY = "idle_strategy";
+
     /**
      * 每个循环周期能连续从队列中获取的最大消息数目
      */
@@ -639,5 +1028,108 @@ public class ActivityRunner implements MessageDispatcher {
      */
     String MESSAGE_ACK_TYPE = "message_ack_type";
     String DEFAULT_MESSAGE_ACK_TYPE = MessageAckType.AFTER_READ.getType();
+
+    /**
+     * 是否开启流水线模式
+     */
+    String PIPELINE = "pipeline";
+    boolean DEFAULT_PIPELINE = false;
+
+    /**
+     * 流水线模式下读取线程的空闲策略，默认为按照sleep_time休眠。
+     * 读取线程与时钟无关，不应使用clock_deadline策略
+     */
+    String PIPELINE_READER_IDLE_STRATEGY = "pipeline_reader_idle_strategy";
+
+    /**
+     * 流水线模式下等待调度的最大消息批次数目
+     */
+    String PIPELINE_QUEUE_SIZE = "pipeline_queue_size";
+    int DEFAULT_PIPELINE_QUEUE_SIZE = 2;
+
+    /**
+     * ActivityThread调度执行器的执行通道数目
+     */
+    String SCHEDULE_PARALLELISM = "schedule_parallelism";
+    int DEFAULT_SCHEDULE_PARALLELISM = Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * 一次读取的消息批次，已经按照消息类型以及DomainID分好组
+   */
+  private static class MessageBatch {
+
+    // 普通消息，按照DomainID策略以及DomainID分组
+    final Map<String, Map<String, Collection<Message>>> commonMessagesByStrategies;
+
+    // 普通消息中出现的事件类型
+    final Set<String> commonMessageTypes = new HashSet<>();
+
+    // ActivityThread消息
+    final Map<Pair<Integer, String>, Collection<Message>> activityThreadMessages;
+
+    // 系统控制消息
+    final Map<Pair<Integer, String>, Collection<ActivityThreadCtrlMessage>> ctrlMessages;
+
+    // 流水线模式下保留的原始消息，用于在状态变化时重新投递
+    final List<Message> messages = new ArrayList<>();
+
+    // 读取时的slots快照版本
+    final long slotsVersion;
+
+    // 读取的消息数目
+    int readCount = 0;
+
+    MessageBatch(int maxFetchNum, Collection<MessageDomainIDStrategy> messageDomainIDStrategies,
+        long slotsVersion) {
+      this.slotsVersion = slotsVersion;
+      this.commonMessagesByStrategies = Maps.newHashMapWithExpectedSize(
+          messageDomainIDStrategies.size());
+      messageDomainIDStrategies.forEach(strategy ->
+          commonMessagesByStrategies.put(strategy.name(), new HashMap<>(maxFetchNum * 3 / 2)));
+      this.activityThreadMessages = Maps.newHashMapWithExpectedSize(maxFetchNum * 3 / 2);
+      this.ctrlMessages = Maps.newHashMap();
+    }
+  }
+
+  // 转发目标，按照slots快照中的服务序号缓存对应的MessageBus，在首次转发时解析
+  private static class RedirectTargets {
+
+    final SlotsSnapshot slotsSnapshot;
+
+    // 当前节点的服务序号，不在快照中时为-1
+    final int localServiceIndex;
+
+    final MessageBus[] messageBuses;
+
+    final long createdOn;
+
+    RedirectTargets(SlotsSnapshot slotsSnapshot, String serviceName) {
+      this.slotsSnapshot = slotsSnapshot;
+      this.localServiceIndex = slotsSnapshot.getServiceIndex(serviceName);
+      this.messageBuses = new MessageBus[slotsSnapshot.getServicesNum()];
+      this.createdOn = System.currentTimeMillis();
+    }
+  }
+
+  // 一次读取过程中需要转发的消息，按照目标服务分组并保持读取顺序
+  private static class RedirectedMessages {
+
+    final Map<String, RedirectBatch> batches = new LinkedHashMap<>();
+
+    void add(String service, MessageBus messageBus, Message message) {
+      batches.computeIfAbsent(service, s -> new RedirectBatch(messageBus)).messages.add(message);
+    }
+  }
+
+  private static class RedirectBatch {
+
+    final MessageBus messageBus;
+
+    final List<Message> messages = new LinkedList<>();
+
+    RedirectBatch(MessageBus messageBus) {
+      this.messageBus = messageBus;
+    }
   }
 }
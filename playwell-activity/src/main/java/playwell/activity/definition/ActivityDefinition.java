@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -18,7 +19,9 @@ import org.apache.commons.lang3.StringUtils;
 import playwell.action.ActionDefinition;
 import playwell.common.AbstractComponentBuilder;
 import playwell.common.Mappable;
+import playwell.common.argument.Argument;
 import playwell.common.exception.BuildComponentException;
+import playwell.common.expression.PlaywellExpression;
 import playwell.trigger.TriggerDefinition;
 import playwell.util.DateUtils;
 import playwell.util.Regexpr;
@@ -57,6 +60,11 @@ public class ActivityDefinition implements Mappable {
 
   private final Map<String, ActionDefinition> actionDefinitionsMap;
 
+  // Action在编排中的位置，用于ActivityThread的紧凑存储
+  private final Map<String, Integer> actionIndexes;
+
+  private final String[] actionNames;
+
   // 该版本是否可用
   private final boolean enable;
 
@@ -90,6 +98,18 @@ public class ActivityDefinition implements Mappable {
         CollectionUtils.isEmpty(actionDefinitions) ? Collections.emptyMap() :
             actionDefinitions.stream()
                 .collect(Collectors.toMap(ActionDefinition::getName, Function.identity()));
+    if (CollectionUtils.isEmpty(actionDefinitions)) {
+      this.actionIndexes = Collections.emptyMap();
+      this.actionNames = new String[0];
+    } else {
+      this.actionIndexes = new HashMap<>(actionDefinitions.size());
+      this.actionNames = new String[actionDefinitions.size()];
+      int index = 0;
+      for (ActionDefinition actionDefinition : actionDefinitions) {
+        actionIndexes.putIfAbsent(actionDefinition.getName(), index);
+        actionNames[index++] = actionDefinition.getName();
+      }
+    }
     this.enable = enable;
     this.config = config;
     this.activityDefinitionString = activityDefinitionString;
@@ -158,6 +178,29 @@ public class ActivityDefinition implements Mappable {
     return actionDefinitionsMap.get(name);
   }
 
+  /**
+   * 获取Action在编排中的位置
+   *
+   * @param name Action名称
+   * @return Action位置，不存在时返回-1
+   */
+  public int getActionIndex(String name) {
+    return actionIndexes.getOrDefault(name, -1);
+  }
+
+  /**
+   * 根据Action在编排中的位置获取Action名称
+   *
+   * @param index Action位置
+   * @return Action名称，位置不合法时返回null
+   */
+  public String getActionNameByIndex(int index) {
+    if (index < 0 || index >= actionNames.length) {
+      return null;
+    }
+    return actionNames[index];
+  }
+
   public boolean isEnable() {
     return enable;
   }
@@ -178,6 +221,62 @@ public class ActivityDefinition implements Mappable {
     return updatedOn;
   }
 
+  /**
+   * 统计定义中所有表达式被编译为字节码的情况，包括Trigger参数、Action参数、控制条件以及断言
+   *
+   * @return 表达式总数以及已经编译为字节码的数目
+   */
+  public Map<String, Object> getExpressionCompileStats() {
+    final int[] stats = new int[2];
+    forEachExpression(expression -> {
+      stats[0]++;
+      if (expression.isBytecodeCompiled()) {
+        stats[1]++;
+      }
+    });
+    return ImmutableMap.of(
+        Fields.NAME, this.name,
+        Fields.VERSION, this.version,
+        "expressions", stats[0],
+        "compiled", stats[1]
+    );
+  }
+
+  private void forEachExpression(Consumer<PlaywellExpression> consumer) {
+    if (triggerDefinition != null) {
+      Argument.forEachExpression(triggerDefinition.getArguments(), consumer);
+      Argument.forEachExpression(triggerDefinition.getContextVars(), consumer);
+    }
+
+    final Consumer<PlaywellExpression> nonNullConsumer = expression -> {
+      if (expression != null) {
+        consumer.accept(expression);
+      }
+    };
+    for (ActionDefinition actionDefinition : actionDefinitions) {
+      Argument.forEachExpression(actionDefinition.getArguments(), consumer);
+      if (CollectionUtils.isNotEmpty(actionDefinition.getCtrlConditions())) {
+        actionDefinition.getCtrlConditions().forEach(condition -> {
+          nonNullConsumer.accept(condition.getWhenCondition());
+          nonNullConsumer.accept(condition.getThenExpression());
+          if (MapUtils.isNotEmpty(condition.getContextVars())) {
+            condition.getContextVars().values().forEach(nonNullConsumer);
+          }
+        });
+      }
+      nonNullConsumer.accept(actionDefinition.getDefaultCtrlExpression());
+      if (MapUtils.isNotEmpty(actionDefinition.getDefaultContextVars())) {
+        actionDefinition.getDefaultContextVars().values().forEach(nonNullConsumer);
+      }
+      if (CollectionUtils.isNotEmpty(actionDefinition.getAssertions())) {
+        actionDefinition.getAssertions().forEach(assertion -> {
+          nonNullConsumer.accept(assertion.getExpression());
+          nonNullConsumer.accept(assertion.getMsg());
+        });
+      }
+    }
+  }
+
   @Override
   public Map<String, Object> toMap() {
     return ImmutableMap.<String, Object>builder()
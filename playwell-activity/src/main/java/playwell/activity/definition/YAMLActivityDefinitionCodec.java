@@ -30,6 +30,9 @@ public class YAMLActivityDefinitionCodec implements ActivityDefinitionCodec {
 
   public static final String NAME = "yaml";
 
+  // 编译定义中各种表达式所使用的编译器
+  private String expressionCompiler = PlaywellExpression.Compilers.SPRING_EL;
+
   public YAMLActivityDefinitionCodec() {
 
   }
@@ -41,7 +44,14 @@ public class YAMLActivityDefinitionCodec implements ActivityDefinitionCodec {
 
   @Override
   public void init(Object config) {
-    // Do Nothing
+    final EasyMap configuration = (EasyMap) config;
+    final String compiler = configuration.getString(
+        ConfigItems.EXPRESSION_COMPILER, ConfigItems.DEFAULT_EXPRESSION_COMPILER);
+    if (!PlaywellExpression.Compilers.SPRING_EL.equals(compiler)
+        && !PlaywellExpression.Compilers.FAST_PATH.equals(compiler)) {
+      throw new RuntimeException(String.format("Unknown expression compiler: '%s'", compiler));
+    }
+    this.expressionCompiler = compiler;
   }
 
   @Override
@@ -94,18 +104,18 @@ public class YAMLActivityDefinitionCodec implements ActivityDefinitionCodec {
       triggerDefinitionBuilder = TriggerDefinition.builder(name, triggerType);
       if (triggerData.contains("args")) {
         triggerDefinitionBuilder.arguments(
-            Argument.parse(triggerData.get("args"), PlaywellExpression.Compilers.SPRING_EL));
+            Argument.parse(triggerData.get("args"), expressionCompiler));
       }
       if (triggerData.contains("context_vars")) {
         triggerDefinitionBuilder.contextVars(
             (MapArgument) Argument
-                .parse(triggerData.get("context_vars"), PlaywellExpression.Compilers.SPRING_EL));
+                .parse(triggerData.get("context_vars"), expressionCompiler));
       }
     } else if (triggerDefObj instanceof String) {
       triggerDefinitionBuilder = TriggerDefinition.builder(name, "event");
       triggerDefinitionBuilder.arguments(Argument.parse(
           ImmutableMap.of("condition", (String) triggerDefObj),
-          PlaywellExpression.Compilers.SPRING_EL));
+          expressionCompiler));
     } else {
       throw new BuildComponentException("Invalid trigger definition, only accept map or string");
     }
@@ -172,12 +182,12 @@ public class YAMLActivityDefinitionCodec implements ActivityDefinitionCodec {
 
     // Builder
     final ActionDefinition.ActionDefinitionBuilder builder = ActionDefinition.builder(
-        activityDefinitionName, PlaywellExpression.Compilers.SPRING_EL, name, type);
+        activityDefinitionName, expressionCompiler, name, type);
 
     // 获取 & 检查参数
     if (actionData.contains("args")) {
       Argument argument = Argument.parse(
-          actionData.get("args"), PlaywellExpression.Compilers.SPRING_EL);
+          actionData.get("args"), expressionCompiler);
       actionManager.getArgSpec(type).ifPresent(spec -> spec.accept(argument));
       builder.arguments(argument);
     }
@@ -206,4 +216,10 @@ public class YAMLActivityDefinitionCodec implements ActivityDefinitionCodec {
     return builder.build();
   }
 
+  public interface ConfigItems {
+
+    String EXPRESSION_COMPILER = "expression_compiler";
+
+    String DEFAULT_EXPRESSION_COMPILER = PlaywellExpression.Compilers.SPRING_EL;
+  }
 }
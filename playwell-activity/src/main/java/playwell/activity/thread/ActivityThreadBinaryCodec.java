@@ -0,0 +1,140 @@
+package playwell.activity.thread;
+
+import java.util.Map;
+import playwell.activity.definition.ActivityDefinition;
+import playwell.util.BinaryDecoder;
+import playwell.util.BinaryEncoder;
+
+/**
+ * ActivityThread的紧凑二进制存储格式
+ * <pre>
+ *   [magic][codec version][definition version][status][current action][updatedOn][createdOn][context]
+ * </pre>
+ * <ul>
+ * <li>头部的整数字段均使用varint编码</li>
+ * <li>current action保存的是其在ActivityDefinition编排中的位置，只有找不到时才保存名称</li>
+ * <li>context中的值按类型编码，无法识别的类型退化为JSON文本</li>
+ * </ul>
+ * 旧的JSON数组格式以'['开头，因此可以通过首字节区分两种格式
+ *
+ * @author chihongze@gmail.com
+ */
+public final class ActivityThreadBinaryCodec {
+
+  // 首字节标记
+  static final byte MAGIC = (byte) 0xA7;
+
+  // 编码版本
+  static final byte CODEC_VERSION = 1;
+
+  // current action编码：0表示null，1表示后面跟随action名称，其余值减去2即为action位置
+  private static final int ACTION_NULL = 0;
+
+  private static final int ACTION_LITERAL = 1;
+
+  private static final int ACTION_INDEX_OFFSET = 2;
+
+  private ActivityThreadBinaryCodec() {
+
+  }
+
+  /**
+   * 判断存储记录是否为二进制格式
+   *
+   * @param valueBytes 存储记录
+   * @return 是否为二进制格式
+   */
+  public static boolean isBinary(byte[] valueBytes) {
+    return valueBytes != null && valueBytes.length > 1 && valueBytes[0] == MAGIC;
+  }
+
+  /**
+   * 将ActivityThread编码为二进制格式
+   *
+   * @param activityThread ActivityThread
+   * @return 编码结果
+   */
+  public static byte[] encode(ActivityThread activityThread) {
+    final BinaryEncoder encoder = new BinaryEncoder(128);
+    encoder.writeByte(MAGIC);
+    encoder.writeByte(CODEC_VERSION);
+
+    final ActivityDefinition activityDefinition = activityThread.getActivityDefinition();
+    encoder.writeString(activityDefinition.getVersion());
+    encoder.writeVarInt(activityThread.getStatus().getCode());
+
+    final String currentAction = activityThread.getCurrentAction();
+    if (currentAction == null) {
+      encoder.writeVarInt(ACTION_NULL);
+    } else {
+      final int actionIndex = activityDefinition.getActionIndex(currentAction);
+      if (actionIndex < 0) {
+        encoder.writeVarInt(ACTION_LITERAL);
+        encoder.writeString(currentAction);
+      } else {
+        encoder.writeVarInt(actionIndex + ACTION_INDEX_OFFSET);
+      }
+    }
+
+    encoder.writeVarLong(activityThread.getUpdatedOn());
+    encoder.writeVarLong(activityThread.getCreatedOn());
+    encoder.writeMapEntries(activityThread.getContext());
+    return encoder.toByteArray();
+  }
+
+  /**
+   * 对二进制存储记录进行解码，需要按照格式中字段的顺序依次读取
+   */
+  public static class Decoder {
+
+    private final BinaryDecoder decoder;
+
+    public Decoder(byte[] bytes) {
+      if (!isBinary(bytes)) {
+        throw new IllegalArgumentException("The bytes is not a binary activity thread record");
+      }
+      if (bytes[1] != CODEC_VERSION) {
+        throw new IllegalArgumentException(String.format(
+            "Unsupported activity thread codec version: %d", bytes[1]));
+      }
+      this.decoder = new BinaryDecoder(bytes, 2);
+    }
+
+    public String readDefinitionVersion() {
+      return decoder.readString();
+    }
+
+    public int readStatusCode() {
+      return decoder.readVarInt();
+    }
+
+    public String readCurrentAction(ActivityDefinition activityDefinition) {
+      final int actionRef = decoder.readVarInt();
+      if (actionRef == ACTION_NULL) {
+        return null;
+      } else if (actionRef == ACTION_LITERAL) {
+        return decoder.readString();
+      }
+      final int actionIndex = actionRef - ACTION_INDEX_OFFSET;
+      final String actionName = activityDefinition.getActionNameByIndex(actionIndex);
+      if (actionName == null) {
+        throw new IllegalArgumentException(String.format(
+            "Invalid action index %d of activity definition '%s', version: '%s'",
+            actionIndex, activityDefinition.getName(), activityDefinition.getVersion()));
+      }
+      return actionName;
+    }
+
+    public long readUpdatedOn() {
+      return decoder.readVarLong();
+    }
+
+    public long readCreatedOn() {
+      return decoder.readVarLong();
+    }
+
+    public Map<String, Object> readContext() {
+      return decoder.readMapEntries();
+    }
+  }
+}
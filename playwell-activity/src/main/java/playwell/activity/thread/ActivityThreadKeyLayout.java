@@ -0,0 +1,143 @@
+package playwell.activity.thread;
+
+import com.google.common.primitives.Ints;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * <p>ActivityThread在RocksDB中的Key布局</p>
+ *
+ * <pre>
+ *   activity: [activityId(4)][domainId]
+ *   slot:     [slot(4)][activityId(4)][domainId]
+ * </pre>
+ *
+ * slot布局下同一个slot的ActivityThread在存储中是连续的，迁移和清理slot时只需要遍历或删除对应的Key范围。
+ * 布局需要在列族创建时确定，已有数据的列族不能直接切换布局
+ *
+ * @author chihongze@gmail.com
+ */
+public enum ActivityThreadKeyLayout {
+
+  /**
+   * 按照ActivityId排列，兼容早期的存储记录
+   */
+  ACTIVITY("activity", 0),
+
+  /**
+   * 按照slot排列，需要开启SlotsManager
+   */
+  SLOT("slot", 4),
+
+  ;
+
+  private static final Map<String, ActivityThreadKeyLayout> ALL_LAYOUTS = new HashMap<>();
+
+  static {
+    for (ActivityThreadKeyLayout layout : values()) {
+      ALL_LAYOUTS.put(layout.getType(), layout);
+    }
+  }
+
+  private final String type;
+
+  // Key中ActivityId之前的前缀长度
+  private final int prefixLength;
+
+  ActivityThreadKeyLayout(String type, int prefixLength) {
+    this.type = type;
+    this.prefixLength = prefixLength;
+  }
+
+  public static Optional<ActivityThreadKeyLayout> valueOfByType(String type) {
+    return Optional.ofNullable(ALL_LAYOUTS.get(type));
+  }
+
+  /**
+   * slot布局下某个slot所有Key的公共前缀
+   *
+   * @param slot slot
+   * @return Key前缀
+   */
+  public static byte[] slotPrefix(int slot) {
+    return Ints.toByteArray(slot);
+  }
+
+  /**
+   * 将slots合并为连续的区间，slot布局下每个区间对应一段连续的Key范围
+   *
+   * @param slots slots
+   * @return 升序排列的闭区间[from, to]
+   */
+  public static List<Pair<Integer, Integer>> mergeSlots(Collection<Integer> slots) {
+    final List<Pair<Integer, Integer>> runs = new ArrayList<>();
+    Integer from = null;
+    Integer to = null;
+    for (int slot : new TreeSet<>(slots)) {
+      if (to != null && slot == to + 1) {
+        to = slot;
+        continue;
+      }
+      if (from != null) {
+        runs.add(Pair.of(from, to));
+      }
+      from = slot;
+      to = slot;
+    }
+    if (from != null) {
+      runs.add(Pair.of(from, to));
+    }
+    return runs;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * 构建ActivityThread的Key
+   *
+   * @param slot DomainID所属的slot，activity布局下会被忽略
+   * @param activityId 活动ID
+   * @param domainId DomainID
+   * @return Key bytes
+   */
+  public byte[] buildKey(int slot, int activityId, String domainId) {
+    final byte[] domainIdBytes = domainId.getBytes();
+    final byte[] keyBytes = new byte[prefixLength + 4 + domainIdBytes.length];
+    if (this == SLOT) {
+      System.arraycopy(Ints.toByteArray(slot), 0, keyBytes, 0, 4);
+    }
+    System.arraycopy(Ints.toByteArray(activityId), 0, keyBytes, prefixLength, 4);
+    System.arraycopy(domainIdBytes, 0, keyBytes, prefixLength + 4, domainIdBytes.length);
+    return keyBytes;
+  }
+
+  public int getActivityId(byte[] keyBytes) {
+    return Ints.fromByteArray(ArrayUtils.subarray(keyBytes, prefixLength, prefixLength + 4));
+  }
+
+  public String getDomainId(byte[] keyBytes) {
+    return new String(ArrayUtils.subarray(keyBytes, prefixLength + 4, keyBytes.length));
+  }
+
+  /**
+   * slot布局下Key所属的slot
+   *
+   * @param keyBytes Key bytes
+   * @return slot，activity布局下返回-1
+   */
+  public int getSlot(byte[] keyBytes) {
+    if (this != SLOT) {
+      return -1;
+    }
+    return Ints.fromByteArray(ArrayUtils.subarray(keyBytes, 0, 4));
+  }
+}
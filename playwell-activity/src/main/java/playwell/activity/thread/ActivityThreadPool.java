@@ -1,6 +1,8 @@
 package playwell.activity.thread;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.apache.commons.lang3.tuple.Pair;
@@ -57,6 +59,98 @@ public interface ActivityThreadPool extends PlaywellComponent {
    */
   void scanAll(ActivityThreadScanConsumer consumer);
 
+  /**
+   * 将ActivityThread存储划分为若干个可以独立扫描的范围，用于并行扫描。
+   * 不支持范围扫描的实现只返回一个覆盖全部ActivityThread的范围
+   *
+   * @param num 期望的范围数目
+   * @return 范围列表，按照存储顺序排列
+   */
+  default List<ScanRange> splitScanRanges(int num) {
+    return Collections.singletonList(ScanRange.ALL);
+  }
+
+  /**
+   * 扫描指定范围内位于游标之后的ActivityThread，游标可以通过ScanActivityThreadContext.getCursor获取。
+   * 与scanAll不同，范围扫描不持有扫描锁，可以在多个线程中对不同的范围并行执行。
+   * 不支持范围扫描的实现会忽略游标，退化为scanAll
+   *
+   * @param range 扫描范围
+   * @param cursor 上次扫描到的位置，不包含在内，为空时从范围的起点开始
+   * @param consumer 回调上下文
+   */
+  default void scanRange(ScanRange range, String cursor, ActivityThreadScanConsumer consumer) {
+    scanAll(consumer);
+  }
+
+  /**
+   * 获取指定slots对应的扫描范围，只有按照slot组织存储的实现才支持，扫描这些范围只会读取到这些slots的数据
+   *
+   * @param slots slots
+   * @return 扫描范围，不支持时返回空
+   */
+  default Optional<List<ScanRange>> getSlotScanRanges(Collection<Integer> slots) {
+    return Optional.empty();
+  }
+
+  /**
+   * 按照范围删除指定slots的所有ActivityThread，只有按照slot组织存储的实现才支持。
+   * 范围删除不会同步给Replication MessageBus，因此配置了Replication MessageBus时不会执行范围删除
+   *
+   * @param slots slots
+   * @return 是否支持并执行了范围删除，不支持时需要调用者通过扫描逐个删除
+   */
+  default boolean removeSlots(Collection<Integer> slots) {
+    return false;
+  }
+
+  /**
+   * 统计某个slot的ActivityThread数目，只有按照slot组织存储的实现才支持
+   *
+   * @param slot slot
+   * @return ActivityThread数目，不支持时返回空
+   */
+  default Optional<Long> countBySlot(int slot) {
+    return Optional.empty();
+  }
+
+  /**
+   * 将指定slots的ActivityThread原样导出为SST文件，用于批量迁移，只有按照slot组织存储的实现才支持
+   *
+   * @param slots slots
+   * @param pathPrefix 文件路径前缀
+   * @param maxFileSize 单个文件的最大字节数
+   * @return 导出的文件路径，不支持时返回空
+   */
+  default Optional<List<String>> exportSlotsToSstFiles(
+      Collection<Integer> slots, String pathPrefix, long maxFileSize) {
+    return Optional.empty();
+  }
+
+  /**
+   * 导入由exportSlotsToSstFiles生成的SST文件，只有按照slot组织存储的实现才支持。
+   * 导入的数据不会同步给Replication MessageBus
+   *
+   * @param slots 文件中包含的slots
+   * @param paths SST文件路径
+   * @param moveFiles 是否直接移动文件，否则复制文件
+   * @return 是否支持并完成了导入
+   */
+  default boolean ingestSstFiles(Collection<Integer> slots, List<String> paths, boolean moveFiles) {
+    return false;
+  }
+
+  /**
+   * 从缓存中移除ActivityThread，调度中途失败时缓存的对象可能已经被修改，与存储不一致。
+   * 没有缓存的实现无需处理
+   *
+   * @param activityId Activity ID
+   * @param domainId Domain ID
+   */
+  default void evictCachedActivityThread(int activityId, String domainId) {
+
+  }
+
   /**
    * 停止对ActivityThread的扫描
    */
@@ -98,4 +192,13 @@ public interface ActivityThreadPool extends PlaywellComponent {
    * @return All replication message bus
    */
   Collection<MessageBus> getAllReplicationMessageBuses();
+
+  /**
+   * 获取ActivityThread对象缓存的统计信息
+   *
+   * @return 统计信息，没有使用缓存时返回空Map
+   */
+  default Map<String, Object> getCacheStats() {
+    return Collections.emptyMap();
+  }
 }
@@ -0,0 +1,191 @@
+package playwell.activity.thread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * ActivityThread调度执行器，由N个单线程的执行通道组成，按照hash(activityId, domainId)将任务分配到固定的通道上。
+ * 同一个ActivityThread的任务总是在同一个通道上按提交顺序执行，因此无需加锁即可保证顺序。
+ * 与公共的ForkJoinPool隔离，避免阻塞的存储和总线IO占用其它组件的计算线程。
+ *
+ * @author chihongze@gmail.com
+ */
+public class ActivityThreadScheduleExecutor {
+
+  private static final Logger logger = LogManager.getLogger(ActivityThreadScheduleExecutor.class);
+
+  // 执行通道
+  private final List<ThreadPoolExecutor> lanes;
+
+  public ActivityThreadScheduleExecutor(String name, int parallelism) {
+    if (parallelism <= 0) {
+      throw new RuntimeException(String.format(
+          "Invalid schedule parallelism: %d, it must be greater than zero", parallelism));
+    }
+
+    final List<ThreadPoolExecutor> lanes = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      final String threadName = String.format("%s-schedule-lane-%d", name, i);
+      lanes.add(new ThreadPoolExecutor(
+          1,
+          1,
+          0L,
+          TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(),
+          runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+          }
+      ));
+    }
+    this.lanes = Collections.unmodifiableList(lanes);
+  }
+
+  /**
+   * 开启一个新的任务批次，批次内的任务全部提交后，通过{@link Batch#await()}等待执行完毕
+   *
+   * @return 任务批次
+   */
+  public Batch newBatch() {
+    return new Batch();
+  }
+
+  /**
+   * 获取执行通道数目
+   *
+   * @return 执行通道数目
+   */
+  public int getParallelism() {
+    return lanes.size();
+  }
+
+  /**
+   * 获取各个执行通道中等待执行的任务数目
+   *
+   * @return 每个通道的队列深度
+   */
+  public List<Integer> getQueueDepths() {
+    final List<Integer> depths = new ArrayList<>(lanes.size());
+    for (ThreadPoolExecutor lane : lanes) {
+      depths.add(lane.getQueue().size());
+    }
+    return depths;
+  }
+
+  /**
+   * 关闭所有执行通道
+   */
+  public void shutdown() {
+    lanes.forEach(ExecutorService::shutdown);
+  }
+
+  private ThreadPoolExecutor selectLane(int activityId, String domainId) {
+    final int hash = 31 * activityId + Objects.hashCode(domainId);
+    // 打散hash的高位，避免domainId规律分布时集中在少数通道
+    final int spread = hash ^ (hash >>> 16);
+    return lanes.get((spread & Integer.MAX_VALUE) % lanes.size());
+  }
+
+  /**
+   * 任务批次，记录批次内尚未执行完毕的任务数目以及首个异常
+   */
+  public class Batch {
+
+    private final Object lock = new Object();
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>(null);
+
+    private int pendingNum = 0;
+
+    private Batch() {
+
+    }
+
+    /**
+     * 提交任务，相同activityId和domainId的任务会按照提交顺序执行
+     *
+     * @param activityId Activity ID
+     * @param domainId Domain ID
+     * @param task 任务逻辑
+     */
+    public void submit(int activityId, String domainId, Runnable task) {
+      synchronized (lock) {
+        pendingNum++;
+      }
+      try {
+        selectLane(activityId, domainId).execute(wrap(task));
+      } catch (RejectedExecutionException e) {
+        // 任务没有被接受，不会再执行，需要撤销计数，否则await会一直等待
+        done();
+        throw e;
+      }
+    }
+
+    private Runnable wrap(Runnable task) {
+      return () -> {
+        try {
+          task.run();
+        } catch (Throwable e) {
+          if (!error.compareAndSet(null, e)) {
+            logger.error("Error happened when executing schedule task", e);
+          }
+        } finally {
+          done();
+        }
+      };
+    }
+
+    private void done() {
+      synchronized (lock) {
+        if (--pendingNum == 0) {
+          lock.notifyAll();
+        }
+      }
+    }
+
+    /**
+     * 等待批次内的所有任务执行完毕，如果有任务抛出了异常，那么重新抛出首个异常
+     */
+    public void await() {
+      synchronized (lock) {
+        while (pendingNum > 0) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }
+
+      final Throwable e = error.get();
+      if (e != null) {
+        if (e instanceof RuntimeException) {
+          throw (RuntimeException) e;
+        }
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * 获取批次中尚未执行完毕的任务数目
+     *
+     * @return 任务数目
+     */
+    public int getPendingNum() {
+      synchronized (lock) {
+        return pendingNum;
+      }
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package playwell.activity.thread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ActivityThread的存储格式，读取时会根据记录内容自动识别格式，写入时使用配置的格式
+ *
+ * @author chihongze@gmail.com
+ */
+public enum ActivityThreadStorageFormat {
+
+  /**
+   * JSON数组格式，兼容早期的存储记录
+   */
+  JSON("json"),
+
+  /**
+   * 紧凑的二进制格式，见{@link ActivityThreadBinaryCodec}
+   */
+  BINARY("binary"),
+
+  ;
+
+  private static final Map<String, ActivityThreadStorageFormat> ALL_FORMATS = new HashMap<>();
+
+  static {
+    for (ActivityThreadStorageFormat format : values()) {
+      ALL_FORMATS.put(format.getType(), format);
+    }
+  }
+
+  private final String type;
+
+  ActivityThreadStorageFormat(String type) {
+    this.type = type;
+  }
+
+  public static Optional<ActivityThreadStorageFormat> valueOfByType(String type) {
+    return Optional.ofNullable(ALL_FORMATS.get(type));
+  }
+
+  /**
+   * 识别存储记录的格式
+   *
+   * @param valueBytes 存储记录
+   * @return 存储格式
+   */
+  public static ActivityThreadStorageFormat detect(byte[] valueBytes) {
+    return ActivityThreadBinaryCodec.isBinary(valueBytes) ? BINARY : JSON;
+  }
+
+  public String getType() {
+    return type;
+  }
+}
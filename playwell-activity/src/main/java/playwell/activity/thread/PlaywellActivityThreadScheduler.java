@@ -164,7 +164,7 @@ public class PlaywellActivityThreadScheduler implements ActivityThreadScheduler
         // 并注册一个时钟消息，用于到时唤醒调度器工作
         if (period++ >= maxContinuePeriods && maxContinuePeriods != -1 &&
             status == ActivityThreadStatus.RUNNING) {
-          clock.registerClockMessage(ClockMessage.buildForActivity(
+          clock.replaceClockMessage(ClockMessage.buildForActivity(
               CachedTimestamp.nowMilliseconds() + suspendTime,
               activityId,
               domainId,
@@ -398,7 +398,20 @@ public class PlaywellActivityThreadScheduler implements ActivityThreadScheduler
 
     if (ActionCtrlType.WAITING == ctrlInfo.getCtrlType()) {
       return ScheduleResult.ok(activityThread);
-    } else if (ActionCtrlType.FINISH == ctrlInfo.getCtrlType()) {
+    }
+
+    // Action已经在超时之前得到了结果，取消其尚未触发的超时时钟消息，
+    // 需要在重试或跳转之前进行，以免取消掉新注册的时钟消息
+    if (!(message instanceof ClockMessage)) {
+      final ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+      integrationPlan.getClock().cancelClockMessage(
+          activityThread.getActivity().getId(),
+          activityThread.getDomainId(),
+          asyncAction.getName()
+      );
+    }
+
+    if (ActionCtrlType.FINISH == ctrlInfo.getCtrlType()) {
       markActivityThreadFinished(activityThreadPool, activityThread);
       ActivityThreadLogger.logReceiveAsyncResponse(
           activityThread, asyncAction, message, result);
@@ -442,6 +455,13 @@ public class PlaywellActivityThreadScheduler implements ActivityThreadScheduler
         PlaywellExpression whenExpression = condition.getWhenCondition();
         // 符合条件，直接返回
         if ((boolean) whenExpression.getResult(expressionContext)) {
+          // 常量控制表达式已经在构建时解析，无需计算表达式和解析控制字符串
+          if (condition.getConstantCtrlInfo().isPresent()) {
+            return withContextVars(
+                condition.getConstantCtrlInfo().get(),
+                getContextVars(condition.getContextVars(), action.getActivityThread(), result)
+            );
+          }
           ctrlString = (String) condition.getThenExpression().getResult(expressionContext);
           return ActionCtrlInfo.fromCtrlString(
               ctrlString,
@@ -459,6 +479,15 @@ public class PlaywellActivityThreadScheduler implements ActivityThreadScheduler
       if (StringUtils.isNotEmpty(resultCtrlString)) {
         ctrlString = resultCtrlString;
       }
+    } else if (actionDefinition.getDefaultConstantCtrlInfo().isPresent()) {
+      return withContextVars(
+          actionDefinition.getDefaultConstantCtrlInfo().get(),
+          getContextVars(
+              actionDefinition.getDefaultContextVars(),
+              action.getActivityThread(),
+              result
+          )
+      );
     } else {
       // 存在默认的ctrl设置，则直接计算默认的表达式
       ctrlString = (String) defaultCtrlExpression.getResult(expressionContext);
@@ -475,6 +504,15 @@ public class PlaywellActivityThreadScheduler implements ActivityThreadScheduler
     );
   }
 
+  // 预先解析的控制信息是共享的，没有上下文变量时可以直接使用
+  private ActionCtrlInfo withContextVars(
+      ActionCtrlInfo constantCtrlInfo, Map<String, Object> contextVars) {
+    if (MapUtils.isEmpty(contextVars)) {
+      return constantCtrlInfo;
+    }
+    return constantCtrlInfo.withContextVars(contextVars);
+  }
+
   private Map<String, Object> getContextVars(
       Map<String, PlaywellExpression> contextExpressions, ActivityThread activityThread,
       Result result) {
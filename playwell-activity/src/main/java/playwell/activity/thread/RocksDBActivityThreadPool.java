@@ -2,28 +2,39 @@ package playwell.activity.thread;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
-import com.google.common.primitives.Ints;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.rocksdb.RocksIterator;
 import playwell.activity.Activity;
 import playwell.activity.ActivityManager;
 import playwell.activity.definition.ActivityDefinition;
@@ -37,6 +48,7 @@ import playwell.integration.IntegrationPlanFactory;
 import playwell.integration.TopComponentType;
 import playwell.message.Message;
 import playwell.message.MessageDispatcherListener;
+import playwell.route.SlotsManager;
 import playwell.storage.rocksdb.RocksDBHelper;
 import playwell.storage.rocksdb.RocksDBOperation;
 import playwell.util.VariableHolder;
@@ -58,9 +70,33 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
   // 使用的列族名称
   private String columnFamilyName;
 
+  // 写入时使用的存储格式
+  private ActivityThreadStorageFormat storageFormat;
+
+  // 扫描时是否将其它格式的记录改写为当前的存储格式
+  private boolean migrateOnScan;
+
+  // Key布局
+  private ActivityThreadKeyLayout keyLayout;
+
   // ActivityThreadBuffer
   private Map<Pair<Integer, String>, ActivityThread> activityThreadBuffer;
 
+  // 已解码的ActivityThread对象缓存，写入时同步更新，避免频繁活跃的ActivityThread反复从RocksDB读取和解码
+  private Cache<Pair<Integer, String>, ActivityThread> activityThreadCache = null;
+
+  // 每个活动的DomainID布隆过滤器，用于在批量读取之前排除一定不存在的ActivityThread，为null时不开启
+  private Map<Integer, BloomFilter<CharSequence>> domainIdBloomFilters = null;
+
+  // 单个布隆过滤器的预期元素数目
+  private int bloomFilterExpectedInsertions;
+
+  // 布隆过滤器的误判率
+  private double bloomFilterFpp;
+
+  // 启动时的重建扫描是否已经完成，完成之前不使用布隆过滤器
+  private volatile boolean bloomFiltersReady = false;
+
   // 停止扫描标记
   private volatile boolean stopScan = false;
 
@@ -75,6 +111,22 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
     this.columnFamilyName = columnFamilyConfig.getString(
         ConfigItems.COLUMN_FAMILY_NAME,
         ConfigItems.DEFAULT_COLUMN_FAMILY_NAME_VALUE);
+    final String formatType = columnFamilyConfig.getString(
+        ConfigItems.COLUMN_FAMILY_FORMAT, ConfigItems.DEFAULT_COLUMN_FAMILY_FORMAT_VALUE);
+    final Optional<ActivityThreadStorageFormat> formatOptional = ActivityThreadStorageFormat
+        .valueOfByType(formatType);
+    if (!formatOptional.isPresent()) {
+      throw new RuntimeException(String.format(
+          "Unknown activity thread storage format: %s", formatType));
+    }
+    this.storageFormat = formatOptional.get();
+    this.migrateOnScan = columnFamilyConfig.getBoolean(
+        ConfigItems.MIGRATE_ON_SCAN, ConfigItems.DEFAULT_MIGRATE_ON_SCAN_VALUE);
+    final String keyLayoutType = columnFamilyConfig.getString(
+        ConfigItems.COLUMN_FAMILY_KEY_LAYOUT, ConfigItems.DEFAULT_COLUMN_FAMILY_KEY_LAYOUT_VALUE);
+    this.keyLayout = ActivityThreadKeyLayout.valueOfByType(keyLayoutType).orElseThrow(
+        () -> new RuntimeException(String.format(
+            "Unknown activity thread key layout: %s", keyLayoutType)));
 
     boolean sync = configuration.getBoolean(ConfigItems.DIRECT,
         ConfigItems.DEFAULT_DIRECT_VALUE);
@@ -83,6 +135,38 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
           ConfigItems.BUFFER_INIT_SIZE, ConfigItems.DEFAULT_BUFFER_INIT_SIZE);
       activityThreadBuffer = new ConcurrentHashMap<>(bufferInitSize);
     }
+
+    final EasyMap cacheConfig = configuration.getSubArguments(ConfigItems.CACHE);
+    final long cacheMaxWeight = cacheConfig.getLong(
+        ConfigItems.CACHE_MAX_WEIGHT, ConfigItems.DEFAULT_CACHE_MAX_WEIGHT);
+    if (cacheMaxWeight > 0) {
+      // 按照上下文变量数目估算对象大小
+      this.activityThreadCache = CacheBuilder.newBuilder()
+          .maximumWeight(cacheMaxWeight)
+          .<Pair<Integer, String>, ActivityThread>weigher(
+              (key, activityThread) -> 1 + MapUtils.size(activityThread.getContext()))
+          .expireAfterAccess(cacheConfig.getLong(
+              ConfigItems.CACHE_EXPIRE_AFTER_ACCESS, ConfigItems.DEFAULT_CACHE_EXPIRE_AFTER_ACCESS),
+              TimeUnit.SECONDS)
+          .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+          .recordStats()
+          .build();
+    }
+
+    final EasyMap bloomFilterConfig = configuration.getSubArguments(ConfigItems.BLOOM_FILTER);
+    this.bloomFilterExpectedInsertions = bloomFilterConfig.getInt(
+        ConfigItems.BLOOM_FILTER_EXPECTED_INSERTIONS,
+        ConfigItems.DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS);
+    if (bloomFilterExpectedInsertions > 0) {
+      this.bloomFilterFpp = bloomFilterConfig.getDouble(
+          ConfigItems.BLOOM_FILTER_FPP, ConfigItems.DEFAULT_BLOOM_FILTER_FPP);
+      this.domainIdBloomFilters = new ConcurrentHashMap<>();
+      // 重建扫描在后台进行，期间写入的ActivityThread同样会加入布隆过滤器
+      final Thread rebuildThread = new Thread(
+          this::rebuildBloomFilters, "activity-thread-bloom-filter-rebuild");
+      rebuildThread.setDaemon(true);
+      rebuildThread.start();
+    }
   }
 
   /**
@@ -93,6 +177,8 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
   @Override
   public void upsertActivityThread(ActivityThread activityThread) {
     activityThread.setUpdatedOn(CachedTimestamp.nowMilliseconds());
+    updateCache(activityThread);
+    putBloomFilter(activityThread);
     if (activityThreadBuffer == null) {
       write(RocksDBHelper.useColumnFamily(columnFamilyName), activityThread);
     } else {
@@ -107,13 +193,25 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
 
   @Override
   public Optional<ActivityThread> getActivityThread(int activityId, String domainId) {
+    if (isRemovedInBuffer(Pair.of(activityId, domainId))) {
+      return Optional.empty();
+    }
+    final ActivityThread cachedActivityThread = getFromCache(
+        getActivityManager(), Pair.of(activityId, domainId));
+    if (cachedActivityThread != null) {
+      return Optional.of(cachedActivityThread);
+    }
+    if (!mightContain(activityId, domainId)) {
+      return Optional.empty();
+    }
+
     byte[] key = getKey(activityId, domainId);
     byte[] value = RocksDBHelper.useColumnFamily(columnFamilyName).getBytes(key);
     if (value == null) {
       return Optional.empty();
     } else {
-      return Optional.ofNullable(bytes2ActivityThread(
-          getActivityDefinitionManager(), getActivityManager(), key, value));
+      return Optional.ofNullable(loadToCache(bytes2ActivityThread(
+          getActivityDefinitionManager(), getActivityManager(), key, value)));
     }
   }
 
@@ -124,22 +222,41 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
       return Collections.emptyMap();
     }
 
-    final List<byte[]> keys = domainIdCollection.stream()
-        .map(did -> getKey(activityId, did)).collect(Collectors.toCollection(LinkedList::new));
+    final ActivityManager activityManager = getActivityManager();
+    final Map<String, ActivityThread> result = new HashMap<>(domainIdCollection.size());
+    final List<byte[]> keys = new LinkedList<>();
+    for (String domainId : domainIdCollection) {
+      if (isRemovedInBuffer(Pair.of(activityId, domainId))) {
+        continue;
+      }
+      final ActivityThread cachedActivityThread = getFromCache(
+          activityManager, Pair.of(activityId, domainId));
+      if (cachedActivityThread == null) {
+        if (mightContain(activityId, domainId)) {
+          keys.add(getKey(activityId, domainId));
+        }
+      } else {
+        result.put(domainId, cachedActivityThread);
+      }
+    }
+    if (keys.isEmpty()) {
+      return result;
+    }
 
     final Map<byte[], byte[]> rawRecords = RocksDBHelper.useColumnFamily(columnFamilyName)
         .multiGet(keys);
     if (MapUtils.isEmpty(rawRecords)) {
-      return Collections.emptyMap();
+      return result;
     }
 
     final ActivityDefinitionManager activityDefinitionManager = getActivityDefinitionManager();
-    final ActivityManager activityManager = getActivityManager();
-    return rawRecords.entrySet().stream()
+    rawRecords.entrySet().stream()
         .map(entry -> bytes2ActivityThread(
             activityDefinitionManager, activityManager, entry.getKey(), entry.getValue()))
         .filter(Objects::nonNull)
-        .collect(Collectors.toMap(ActivityThread::getDomainId, Function.identity()));
+        .forEach(activityThread -> result.put(
+            activityThread.getDomainId(), loadToCache(activityThread)));
+    return result;
   }
 
   @Override
@@ -148,22 +265,39 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
     if (CollectionUtils.isEmpty(identifiers)) {
       return Collections.emptyList();
     }
-    final List<byte[]> keys = identifiers.stream()
-        .map(pair -> getKey(pair.getKey(), pair.getValue()))
-        .collect(Collectors.toCollection(LinkedList::new));
+    final ActivityManager activityManager = getActivityManager();
+    final List<ActivityThread> result = new LinkedList<>();
+    final List<byte[]> keys = new LinkedList<>();
+    for (Pair<Integer, String> identifier : identifiers) {
+      if (isRemovedInBuffer(identifier)) {
+        continue;
+      }
+      final ActivityThread cachedActivityThread = getFromCache(activityManager, identifier);
+      if (cachedActivityThread == null) {
+        if (mightContain(identifier.getKey(), identifier.getValue())) {
+          keys.add(getKey(identifier.getKey(), identifier.getValue()));
+        }
+      } else {
+        result.add(cachedActivityThread);
+      }
+    }
+    if (keys.isEmpty()) {
+      return result;
+    }
+
     final Map<byte[], byte[]> rawRecords = RocksDBHelper.useColumnFamily(columnFamilyName)
         .multiGet(keys);
     if (MapUtils.isEmpty(rawRecords)) {
-      return Collections.emptyList();
+      return result;
     }
     final ActivityDefinitionManager activityDefinitionManager = getActivityDefinitionManager();
-    final ActivityManager activityManager = getActivityManager();
-    return rawRecords.entrySet().stream().map(entry -> bytes2ActivityThread(
+    rawRecords.forEach((keyBytes, valueBytes) -> result.add(loadToCache(bytes2ActivityThread(
         activityDefinitionManager,
         activityManager,
-        entry.getKey(),
-        entry.getValue())
-    ).collect(Collectors.toCollection(LinkedList::new));
+        keyBytes,
+        valueBytes
+    ))));
+    return result;
   }
 
   @Override
@@ -185,6 +319,8 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
       logger.info("Start scanning activity threads...");
 
       final VariableHolder<Integer> scannedNumCounter = new VariableHolder<>(0);
+      final VariableHolder<Integer> migratedNumCounter = new VariableHolder<>(0);
+      final RocksDBOperation rocksDBOperation = RocksDBHelper.useColumnFamily(columnFamilyName);
       final Multiset<Integer> activityScannedNum = HashMultiset.create();
 
       RocksDBHelper
@@ -201,8 +337,14 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
                     return;
                   }
                   activityScannedNum.add(activityThread.getActivity().getId());
+                  // 在线迁移：将旧格式的记录改写为当前配置的存储格式
+                  if (migrateOnScan
+                      && ActivityThreadStorageFormat.detect(valueBytes) != storageFormat) {
+                    rocksDBOperation.put(keyBytes, activityThread2Bytes(activityThread));
+                    migratedNumCounter.setVar(migratedNumCounter.getVar() + 1);
+                  }
                   consumer.accept(new RocksDBActivityThreadScanContext(
-                      activityThread, allScannedNum, keyBytes));
+                      activityThread, allScannedNum, keyBytes, valueBytes.length, this::stopScan));
                 } catch (Exception e) {
                   logger.error("Scan activity thread error!", e);
                 }
@@ -212,18 +354,22 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
 
       if (stopScan) {
         logger.info(String.format(
-            "Scan activity thread stopped! All scanned num: %d, Activity scanned num: %s",
+            "Scan activity thread stopped! All scanned num: %d, Activity scanned num: %s, "
+                + "Migrated num: %d",
             scannedNumCounter.getVar(),
-            activityScannedNum
+            activityScannedNum,
+            migratedNumCounter.getVar()
         ));
         consumer.onStop();
         return;
       }
 
       logger.info(String.format(
-          "Scan activity thread finished! All scanned num: %d, Activity scanned num: %s",
+          "Scan activity thread finished! All scanned num: %d, Activity scanned num: %s, "
+              + "Migrated num: %d",
           scannedNumCounter.getVar(),
-          activityScannedNum
+          activityScannedNum,
+          migratedNumCounter.getVar()
       ));
       consumer.onEOF();
     } finally {
@@ -236,6 +382,71 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
     this.stopScan = true;
   }
 
+  @Override
+  public List<ScanRange> splitScanRanges(int num) {
+    final List<byte[]> splitKeys = RocksDBHelper.useColumnFamily(columnFamilyName).splitKeys(num);
+    final List<ScanRange> ranges = new ArrayList<>(splitKeys.size() + 1);
+    String begin = "";
+    for (byte[] splitKey : splitKeys) {
+      final String end = encodeCursor(splitKey);
+      ranges.add(new ScanRange(begin, end));
+      begin = end;
+    }
+    ranges.add(new ScanRange(begin, ""));
+    return ranges;
+  }
+
+  @Override
+  public void scanRange(ScanRange range, String cursor, ActivityThreadScanConsumer consumer) {
+    final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+    final ActivityDefinitionManager activityDefinitionManager = (ActivityDefinitionManager)
+        integrationPlan.getTopComponent(TopComponentType.ACTIVITY_DEFINITION_MANAGER);
+    final ActivityManager activityManager = (ActivityManager) integrationPlan
+        .getTopComponent(TopComponentType.ACTIVITY_MANAGER);
+
+    // 从游标处开始时需要跳过游标本身
+    final byte[] cursorBytes = decodeCursor(cursor);
+    final byte[] from = cursorBytes != null ? cursorBytes : decodeCursor(range.getBegin());
+    final byte[] to = decodeCursor(range.getEnd());
+    final AtomicBoolean stopped = new AtomicBoolean(false);
+    final VariableHolder<Integer> scannedNumCounter = new VariableHolder<>(0);
+
+    RocksDBHelper.useColumnFamily(columnFamilyName).iterateRangeWithConsumer(
+        from,
+        to,
+        (keyBytes, valueBytes) -> stopped.get(),
+        (keyBytes, valueBytes) -> {
+          if (cursorBytes != null && Arrays.equals(cursorBytes, keyBytes)) {
+            return;
+          }
+          final int allScannedNum = scannedNumCounter.getVar() + 1;
+          scannedNumCounter.setVar(allScannedNum);
+          final ActivityThread activityThread;
+          try {
+            activityThread = bytes2ActivityThread(
+                activityDefinitionManager, activityManager, keyBytes, valueBytes);
+          } catch (Exception e) {
+            logger.error("Scan activity thread error!", e);
+            return;
+          }
+          if (activityThread == null) {
+            return;
+          }
+          // 回调中的错误(例如迁移时写出失败)会终止范围扫描并抛给调用方，游标不会越过未处理的记录
+          consumer.accept(new RocksDBActivityThreadScanContext(
+              activityThread, allScannedNum, keyBytes, valueBytes.length,
+              () -> stopped.set(true)));
+        },
+        true
+    );
+
+    if (stopped.get()) {
+      consumer.onStop();
+    } else {
+      consumer.onEOF();
+    }
+  }
+
   @Override
   public void batchSaveActivityThreads(Collection<ActivityThread> activityThreads) {
     if (CollectionUtils.isEmpty(activityThreads)) {
@@ -246,6 +457,8 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
         .useColumnFamily(columnFamilyName)
         .beginWriteBatch();
     activityThreads.forEach(activityThread -> {
+      updateCache(activityThread);
+      putBloomFilter(activityThread);
       write(rocksDBOperation, activityThread);
       doReplication(activityThread);
     });
@@ -267,12 +480,15 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
         final MigrateActivityThreadMessage migrateActivityThreadMessage =
             (MigrateActivityThreadMessage) message;
         final ActivityThread activityThread = migrateActivityThreadMessage.getActivityThread();
+        invalidateCache(activityThread.getActivity().getId(), activityThread.getDomainId());
+        putBloomFilter(activityThread);
         rocksDBOperation.put(getKey(activityThread), activityThread2Bytes(activityThread));
       } else if (message instanceof RemoveActivityThreadMessage) {
         final RemoveActivityThreadMessage removeActivityThreadMessage =
             (RemoveActivityThreadMessage) message;
         final int activityId = removeActivityThreadMessage.getActivityId();
         final String domainId = removeActivityThreadMessage.getDomainId();
+        invalidateCache(activityId, domainId);
         rocksDBOperation.delete(getKey(activityId, domainId));
       }
     }
@@ -299,11 +515,155 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
     activityThreadBuffer.clear();
   }
 
+  @Override
+  public void evictCachedActivityThread(int activityId, String domainId) {
+    invalidateCache(activityId, domainId);
+  }
+
+  @Override
+  public Map<String, Object> getCacheStats() {
+    if (activityThreadCache == null) {
+      return Collections.emptyMap();
+    }
+    final CacheStats stats = activityThreadCache.stats();
+    return ImmutableMap.<String, Object>builder()
+        .put("size", activityThreadCache.size())
+        .put("hit_count", stats.hitCount())
+        .put("miss_count", stats.missCount())
+        .put("hit_rate", stats.hitRate())
+        .put("eviction_count", stats.evictionCount())
+        .build();
+  }
+
+  /**
+   * 从缓存中获取ActivityThread，缓存未命中时依次查找尚未写入的buffer。
+   * 如果活动对象已经发生了变化(例如被暂停或者修改了配置)，那么缓存的对象已经过期，需要重新加载
+   */
+  private ActivityThread getFromCache(
+      ActivityManager activityManager, Pair<Integer, String> identifier) {
+    ActivityThread activityThread = activityThreadCache == null
+        ? null : activityThreadCache.getIfPresent(identifier);
+    if (activityThread == null && activityThreadBuffer != null) {
+      activityThread = activityThreadBuffer.get(identifier);
+    }
+    if (activityThread == null || REMOVE_STATUS.contains(activityThread.getStatus())) {
+      return null;
+    }
+
+    final Optional<Activity> activityOptional = activityManager.getActivityById(
+        identifier.getKey());
+    if (!activityOptional.isPresent() || activityOptional.get() != activityThread.getActivity()) {
+      invalidateCache(identifier.getKey(), identifier.getValue());
+      return null;
+    }
+    return activityThread;
+  }
+
+  /**
+   * 已经结束但尚未从RocksDB中删除的ActivityThread，此时RocksDB中仍然是旧的记录，
+   * 必须视为不存在，既不能查询RocksDB，也不能加载到缓存中，否则会在删除之后作为僵尸记录继续被使用
+   */
+  private boolean isRemovedInBuffer(Pair<Integer, String> identifier) {
+    if (activityThreadBuffer == null) {
+      return false;
+    }
+    final ActivityThread bufferedActivityThread = activityThreadBuffer.get(identifier);
+    return bufferedActivityThread != null
+        && REMOVE_STATUS.contains(bufferedActivityThread.getStatus());
+  }
+
+  private ActivityThread loadToCache(ActivityThread activityThread) {
+    if (activityThreadCache != null && activityThread != null) {
+      activityThreadCache.put(
+          Pair.of(activityThread.getActivity().getId(), activityThread.getDomainId()),
+          activityThread
+      );
+    }
+    return activityThread;
+  }
+
+  private void updateCache(ActivityThread activityThread) {
+    if (activityThreadCache == null) {
+      return;
+    }
+    if (REMOVE_STATUS.contains(activityThread.getStatus())) {
+      invalidateCache(activityThread.getActivity().getId(), activityThread.getDomainId());
+    } else {
+      loadToCache(activityThread);
+    }
+  }
+
+  private void invalidateCache(int activityId, String domainId) {
+    if (activityThreadCache != null) {
+      activityThreadCache.invalidate(Pair.of(activityId, domainId));
+    }
+  }
+
+  /**
+   * 判断ActivityThread是否可能存在，布隆过滤器没有开启或者尚未重建完毕时总是返回true
+   */
+  private boolean mightContain(int activityId, String domainId) {
+    if (domainIdBloomFilters == null || !bloomFiltersReady) {
+      return true;
+    }
+    final BloomFilter<CharSequence> bloomFilter = domainIdBloomFilters.get(activityId);
+    return bloomFilter != null && bloomFilter.mightContain(domainId);
+  }
+
+  // 布隆过滤器不支持删除，被删除的ActivityThread只会造成误判，由后续的读取来确认
+  private void putBloomFilter(ActivityThread activityThread) {
+    if (domainIdBloomFilters == null || REMOVE_STATUS.contains(activityThread.getStatus())) {
+      return;
+    }
+    putBloomFilter(activityThread.getActivity().getId(), activityThread.getDomainId());
+  }
+
+  private void putBloomFilter(int activityId, String domainId) {
+    domainIdBloomFilters.computeIfAbsent(activityId, id -> BloomFilter.create(
+        Funnels.stringFunnel(StandardCharsets.UTF_8),
+        bloomFilterExpectedInsertions,
+        bloomFilterFpp
+    )).put(domainId);
+  }
+
+  /**
+   * 遍历列族中所有的key来重建布隆过滤器，只读取key，不对ActivityThread进行解码
+   */
+  private void rebuildBloomFilters() {
+    logger.info("Start rebuilding activity thread bloom filters...");
+    long keysNum = 0L;
+    try (final RocksIterator iterator = RocksDBHelper.useColumnFamily(columnFamilyName)
+        .iterator()) {
+      for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+        final byte[] keyBytes = iterator.key();
+        putBloomFilter(keyLayout.getActivityId(keyBytes), keyLayout.getDomainId(keyBytes));
+        keysNum++;
+      }
+      this.bloomFiltersReady = true;
+      logger.info(String.format(
+          "Rebuild activity thread bloom filters finished! Keys num: %d, Activities num: %d",
+          keysNum,
+          domainIdBloomFilters.size()
+      ));
+    } catch (Exception e) {
+      logger.error("Rebuild activity thread bloom filters error!", e);
+    }
+  }
+
   private ActivityManager getActivityManager() {
     IntegrationPlan plan = IntegrationPlanFactory.currentPlan();
     return (ActivityManager) plan.getTopComponent(TopComponentType.ACTIVITY_MANAGER);
   }
 
+  private SlotsManager getSlotsManager() {
+    final IntegrationPlan plan = IntegrationPlanFactory.currentPlan();
+    if (!plan.contains(TopComponentType.SLOTS_MANAGER)) {
+      throw new RuntimeException(
+          "The slot key layout of activity thread requires the slots manager");
+    }
+    return (SlotsManager) plan.getTopComponent(TopComponentType.SLOTS_MANAGER);
+  }
+
   private ActivityDefinitionManager getActivityDefinitionManager() {
     IntegrationPlan plan = IntegrationPlanFactory.currentPlan();
     return (ActivityDefinitionManager) plan
@@ -311,28 +671,169 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
   }
 
   /**
-   * 获取基于bytes的activity key 前4byte固定用于存储activityId 剩余的byte都是用于存储DomainId
+   * 获取基于bytes的activity key，布局见{@link ActivityThreadKeyLayout}
    */
   private byte[] getKey(ActivityThread activityThread) {
     return getKey(activityThread.getActivity().getId(), activityThread.getDomainId());
   }
 
   private byte[] getKey(int activityId, String domainId) {
-    final byte[] activityIdBytes = Ints.toByteArray(activityId);
-    final byte[] domainIdBytes = domainId.getBytes();
-    final byte[] keyBytes = new byte[4 + domainIdBytes.length];
-    System.arraycopy(activityIdBytes, 0, keyBytes, 0, 4);
-    System.arraycopy(domainIdBytes, 0, keyBytes, 4, domainIdBytes.length);
-    return keyBytes;
+    final int slot = keyLayout == ActivityThreadKeyLayout.SLOT ?
+        getSlotsManager().getSlotByKey(domainId) : -1;
+    return keyLayout.buildKey(slot, activityId, domainId);
+  }
+
+  @Override
+  public Optional<List<ScanRange>> getSlotScanRanges(Collection<Integer> slots) {
+    if (keyLayout != ActivityThreadKeyLayout.SLOT) {
+      return Optional.empty();
+    }
+    final List<ScanRange> ranges = new ArrayList<>();
+    for (Pair<byte[], byte[]> range : getSlotKeyRanges(slots)) {
+      ranges.add(new ScanRange(encodeCursor(range.getLeft()), encodeCursor(range.getRight())));
+    }
+    return Optional.of(ranges);
+  }
+
+  @Override
+  public boolean removeSlots(Collection<Integer> slots) {
+    // 配置了复制时需要逐条发送删除的复制消息，由调用者通过扫描删除
+    if (keyLayout != ActivityThreadKeyLayout.SLOT
+        || CollectionUtils.isNotEmpty(replicationMessageBusNames)) {
+      return false;
+    }
+    final RocksDBOperation rocksDBOperation = RocksDBHelper.useColumnFamily(columnFamilyName);
+    for (Pair<byte[], byte[]> range : getSlotKeyRanges(slots)) {
+      rocksDBOperation.deleteRange(range.getLeft(), range.getRight());
+    }
+    // 范围删除无法定位具体的ActivityThread，直接清空缓存，布隆过滤器多出的记录只会带来误判
+    if (activityThreadCache != null) {
+      activityThreadCache.invalidateAll();
+    }
+    if (activityThreadBuffer != null) {
+      final Set<Integer> slotSet = new HashSet<>(slots);
+      final SlotsManager slotsManager = getSlotsManager();
+      activityThreadBuffer.keySet().removeIf(
+          identifier -> slotSet.contains(slotsManager.getSlotByKey(identifier.getRight())));
+    }
+    logger.info(String.format("Removed activity threads of slots: %s", slots));
+    return true;
+  }
+
+  @Override
+  public Optional<Long> countBySlot(int slot) {
+    if (keyLayout != ActivityThreadKeyLayout.SLOT) {
+      return Optional.empty();
+    }
+    final VariableHolder<Long> counter = new VariableHolder<>(0L);
+    RocksDBHelper.useColumnFamily(columnFamilyName).iterateRangeWithConsumer(
+        ActivityThreadKeyLayout.slotPrefix(slot),
+        ActivityThreadKeyLayout.slotPrefix(slot + 1),
+        null,
+        (keyBytes, valueBytes) -> counter.setVar(counter.getVar() + 1),
+        true
+    );
+    return Optional.of(counter.getVar());
+  }
+
+  @Override
+  public Optional<List<String>> exportSlotsToSstFiles(
+      Collection<Integer> slots, String pathPrefix, long maxFileSize) {
+    if (keyLayout != ActivityThreadKeyLayout.SLOT) {
+      return Optional.empty();
+    }
+    final List<String> paths = RocksDBHelper.useColumnFamily(columnFamilyName)
+        .writeSstFiles(getSlotKeyRanges(slots), pathPrefix, maxFileSize);
+    logger.info(String.format(
+        "Exported activity threads of slots %s to sst files: %s", slots, paths));
+    return Optional.of(paths);
+  }
+
+  @Override
+  public boolean ingestSstFiles(Collection<Integer> slots, List<String> paths, boolean moveFiles) {
+    if (keyLayout != ActivityThreadKeyLayout.SLOT) {
+      return false;
+    }
+    final RocksDBOperation rocksDBOperation = RocksDBHelper.useColumnFamily(columnFamilyName);
+    rocksDBOperation.ingestSstFiles(paths, moveFiles);
+    // 导入的记录可能覆盖已缓存的ActivityThread，并且需要补充到布隆过滤器中
+    if (activityThreadCache != null) {
+      activityThreadCache.invalidateAll();
+    }
+    // 导入SST文件不会经过write，配置了复制时需要逐条补发复制消息
+    final boolean replicate = CollectionUtils.isNotEmpty(replicationMessageBusNames);
+    if (domainIdBloomFilters != null || replicate) {
+      final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+      final ActivityDefinitionManager activityDefinitionManager = (ActivityDefinitionManager)
+          integrationPlan.getTopComponent(TopComponentType.ACTIVITY_DEFINITION_MANAGER);
+      final ActivityManager activityManager = (ActivityManager) integrationPlan
+          .getTopComponent(TopComponentType.ACTIVITY_MANAGER);
+      for (Pair<byte[], byte[]> range : getSlotKeyRanges(slots)) {
+        rocksDBOperation.iterateRangeWithConsumer(
+            range.getLeft(),
+            range.getRight(),
+            null,
+            (keyBytes, valueBytes) -> {
+              if (domainIdBloomFilters != null) {
+                putBloomFilter(keyLayout.getActivityId(keyBytes), keyLayout.getDomainId(keyBytes));
+              }
+              if (replicate) {
+                final ActivityThread activityThread = bytes2ActivityThread(
+                    activityDefinitionManager, activityManager, keyBytes, valueBytes);
+                if (activityThread != null) {
+                  doReplication(activityThread);
+                }
+              }
+            },
+            false
+        );
+      }
+    }
+    logger.info(String.format(
+        "Ingested activity threads of slots %s from sst files: %s", slots, paths));
+    return true;
+  }
+
+  // 连续的slots合并为一个[from, to)范围
+  private List<Pair<byte[], byte[]>> getSlotKeyRanges(Collection<Integer> slots) {
+    final List<Pair<byte[], byte[]>> ranges = new ArrayList<>();
+    for (Pair<Integer, Integer> run : ActivityThreadKeyLayout.mergeSlots(slots)) {
+      ranges.add(Pair.of(
+          ActivityThreadKeyLayout.slotPrefix(run.getLeft()),
+          ActivityThreadKeyLayout.slotPrefix(run.getRight() + 1)
+      ));
+    }
+    return ranges;
+  }
+
+  private static String encodeCursor(byte[] keyBytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(keyBytes);
+  }
+
+  private static byte[] decodeCursor(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    return Base64.getUrlDecoder().decode(cursor);
+  }
+
+  /**
+   * 按照配置的存储格式将ActivityThread转化为bytes
+   */
+  private byte[] activityThread2Bytes(ActivityThread activityThread) {
+    if (storageFormat == ActivityThreadStorageFormat.BINARY) {
+      return ActivityThreadBinaryCodec.encode(activityThread);
+    }
+    return activityThread2JSONBytes(activityThread);
   }
 
   /**
    * 将ActivityThread转化为JSON bytes
    * <pre>
-   *  [version, status, currentAction, createdOn, {context}]
+   *  [version, status, currentAction, updatedOn, createdOn, {context}]
    * </pre>
    */
-  private byte[] activityThread2Bytes(ActivityThread activityThread) {
+  private byte[] activityThread2JSONBytes(ActivityThread activityThread) {
     return JSONArray.toJSONBytes(new Object[]{
         activityThread.getActivityDefinition().getVersion(),
         activityThread.getStatus().getCode(),
@@ -348,16 +849,20 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
    */
   private ActivityThread bytes2ActivityThread(ActivityDefinitionManager activityDefinitionManager,
       ActivityManager activityManager, byte[] keyBytes, byte[] valueBytes) {
-    final int activityId = Ints.fromByteArray(ArrayUtils.subarray(keyBytes, 0, 4));
+    final int activityId = keyLayout.getActivityId(keyBytes);
     final Optional<Activity> activityOptional = activityManager.getActivityById(activityId);
     if (!activityOptional.isPresent()) {
       logger.error(String.format("Unknown activity id: %d", activityId));
       return null;
     }
     final Activity activity = activityOptional.get();
-    final String domainId = new String(ArrayUtils.subarray(keyBytes, 4, keyBytes.length));
-    final JSONArray jsonArray = (JSONArray) JSONArray.parse(valueBytes);
-    final String version = jsonArray.getString(0);
+    final String domainId = keyLayout.getDomainId(keyBytes);
+    // 两种存储格式可以共存，根据记录的首字节识别
+    final ActivityThreadBinaryCodec.Decoder decoder = ActivityThreadBinaryCodec
+        .isBinary(valueBytes) ? new ActivityThreadBinaryCodec.Decoder(valueBytes) : null;
+    final JSONArray jsonArray = decoder == null ? (JSONArray) JSONArray.parse(valueBytes) : null;
+    final String version = decoder == null ? jsonArray.getString(0)
+        : decoder.readDefinitionVersion();
     final Optional<ActivityDefinition> activityDefinitionOptional = activityDefinitionManager
         .getActivityDefinition(activity.getDefinitionName(), version);
     if (!activityDefinitionOptional.isPresent()) {
@@ -369,24 +874,35 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
       return null;
     }
     final ActivityDefinition activityDefinition = activityDefinitionOptional.get();
+    final int statusCode = decoder == null ? jsonArray.getInteger(1) : decoder.readStatusCode();
     final Optional<ActivityThreadStatus> statusOptional = ActivityThreadStatus
-        .valueOfByCode(jsonArray.getInteger(1));
+        .valueOfByCode(statusCode);
     if (!statusOptional.isPresent()) {
       throw new ActivityThreadRuntimeException(
           SysScheduleErrorCodes.INVALID_THREAD_STATUS,
-          String.format("Unknown activity thread status code: %d", jsonArray.getInteger(0))
+          String.format("Unknown activity thread status code: %d", statusCode)
       );
     }
     final ActivityThreadStatus status = statusOptional.get();
-    final String currentAction = jsonArray.getString(2);
-    final long updatedOn = jsonArray.getLong(3);
-    final long createdOn = jsonArray.getLong(4);
-    final JSONObject contextJson = jsonArray.getJSONObject(5);
+    final String currentAction;
+    final long updatedOn;
+    final long createdOn;
     Map<String, Object> context;
-    if (contextJson == null || contextJson.size() == 0) {
-      context = new HashMap<>();
+    if (decoder == null) {
+      currentAction = jsonArray.getString(2);
+      updatedOn = jsonArray.getLong(3);
+      createdOn = jsonArray.getLong(4);
+      final JSONObject contextJson = jsonArray.getJSONObject(5);
+      if (contextJson == null || contextJson.size() == 0) {
+        context = new HashMap<>();
+      } else {
+        context = new HashMap<>(contextJson.getInnerMap());
+      }
     } else {
-      context = new HashMap<>(contextJson.getInnerMap());
+      currentAction = decoder.readCurrentAction(activityDefinition);
+      updatedOn = decoder.readUpdatedOn();
+      createdOn = decoder.readCreatedOn();
+      context = decoder.readContext();
     }
 
     return new ActivityThread(
@@ -422,6 +938,18 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
     String COLUMN_FAMILY_NAME = "name";
     String DEFAULT_COLUMN_FAMILY_NAME_VALUE = "clock";
 
+    // 存储格式，json或者binary
+    String COLUMN_FAMILY_FORMAT = "format";
+    String DEFAULT_COLUMN_FAMILY_FORMAT_VALUE = ActivityThreadStorageFormat.JSON.getType();
+
+    // 扫描时是否将其它格式的记录迁移为当前的存储格式
+    String MIGRATE_ON_SCAN = "migrate_on_scan";
+    boolean DEFAULT_MIGRATE_ON_SCAN_VALUE = false;
+
+    // Key布局，activity或者slot，需要在列族创建时确定
+    String COLUMN_FAMILY_KEY_LAYOUT = "key_layout";
+    String DEFAULT_COLUMN_FAMILY_KEY_LAYOUT_VALUE = ActivityThreadKeyLayout.ACTIVITY.getType();
+
     // 是否同步写入
     String DIRECT = "direct";
     boolean DEFAULT_DIRECT_VALUE = false;
@@ -429,6 +957,28 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
     // Buffer大小
     String BUFFER_INIT_SIZE = "buffer_init_size";
     int DEFAULT_BUFFER_INIT_SIZE = 1024;
+
+    // ActivityThread对象缓存配置
+    String CACHE = "cache";
+
+    // 缓存的最大权重，每个ActivityThread的权重为1 + 上下文变量数目，为0时不开启缓存
+    String CACHE_MAX_WEIGHT = "max_weight";
+    long DEFAULT_CACHE_MAX_WEIGHT = 0L;
+
+    // 缓存对象在多久没有被访问之后过期，单位为秒
+    String CACHE_EXPIRE_AFTER_ACCESS = "expire_after_access";
+    long DEFAULT_CACHE_EXPIRE_AFTER_ACCESS = 600L;
+
+    // DomainID布隆过滤器配置
+    String BLOOM_FILTER = "bloom_filter";
+
+    // 每个活动布隆过滤器的预期元素数目，超出之后误判率会上升，为0时不开启布隆过滤器
+    String BLOOM_FILTER_EXPECTED_INSERTIONS = "expected_insertions";
+    int DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS = 0;
+
+    // 布隆过滤器的误判率
+    String BLOOM_FILTER_FPP = "fpp";
+    double DEFAULT_BLOOM_FILTER_FPP = 0.01;
   }
 
   private class RocksDBActivityThreadScanContext implements ScanActivityThreadContext {
@@ -439,11 +989,18 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
 
     private final byte[] keyBytes;
 
-    RocksDBActivityThreadScanContext(
-        ActivityThread activityThread, int allScannedNum, byte[] keyBytes) {
+    private final int storedSize;
+
+    // 停止当前扫描的操作，范围扫描只停止自身
+    private final Runnable stopAction;
+
+    RocksDBActivityThreadScanContext(ActivityThread activityThread, int allScannedNum,
+        byte[] keyBytes, int storedSize, Runnable stopAction) {
       this.activityThread = activityThread;
       this.allScannedNum = allScannedNum;
       this.keyBytes = keyBytes;
+      this.storedSize = storedSize;
+      this.stopAction = stopAction;
     }
 
     @Override
@@ -458,13 +1015,24 @@ public class RocksDBActivityThreadPool extends BaseActivityThreadPool implements
 
     @Override
     public void remove() {
+      invalidateCache(activityThread.getActivity().getId(), activityThread.getDomainId());
       RocksDBHelper.useColumnFamily(columnFamilyName).delete(keyBytes);
       sendRemoveReplicationMessage(activityThread);
     }
 
+    @Override
+    public String getCursor() {
+      return encodeCursor(keyBytes);
+    }
+
+    @Override
+    public int getStoredSize() {
+      return storedSize;
+    }
+
     @Override
     public void stop() {
-      stopScan();
+      stopAction.run();
     }
   }
 }
@@ -19,6 +19,24 @@ public interface ScanActivityThreadContext {
    */
   int getAllScannedNum();
 
+  /**
+   * 当前迭代的位置，可以传递给ActivityThreadPool.scanRange从该位置之后恢复扫描
+   *
+   * @return 当前位置，不支持时返回空字符串
+   */
+  default String getCursor() {
+    return "";
+  }
+
+  /**
+   * 当前ActivityThread在存储中的字节数，用于按照字节限速等场景，避免重新编码
+   *
+   * @return 存储的字节数，不支持时返回-1
+   */
+  default int getStoredSize() {
+    return -1;
+  }
+
   /**
    * 从ActivityThreadPool中移除当前迭代的ActivityThread
    */
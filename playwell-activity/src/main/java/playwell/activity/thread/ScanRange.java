@@ -0,0 +1,43 @@
+package playwell.activity.thread;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>ActivityThread存储中一段可以独立扫描的范围，由ActivityThreadPool划分，范围为[begin, end)。</p>
+ *
+ * <p>begin与end是由ActivityThreadPool编码的位置，对调用者透明，可以持久化之后用于恢复扫描，
+ * 空字符串表示不限制。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class ScanRange {
+
+  // 覆盖全部ActivityThread的范围
+  public static final ScanRange ALL = new ScanRange("", "");
+
+  private final String begin;
+
+  private final String end;
+
+  public ScanRange(String begin, String end) {
+    this.begin = StringUtils.defaultString(begin);
+    this.end = StringUtils.defaultString(end);
+  }
+
+  public String getBegin() {
+    return begin;
+  }
+
+  public String getEnd() {
+    return end;
+  }
+
+  public boolean isAll() {
+    return begin.isEmpty() && end.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ScanRange[%s, %s)", begin, end);
+  }
+}
@@ -1,5 +1,6 @@
 package playwell.activity.thread;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,6 +28,7 @@ import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
 import playwell.message.bus.MessageBusNotAvailableException;
 import playwell.route.SlotsManager;
+import playwell.route.SlotsSnapshot;
 import playwell.util.TimeUtils;
 
 /**
@@ -135,6 +137,41 @@ public class UserScanOperation implements ActivityThreadScanConsumer {
     return (!removeSlotNoMatch) && (!removeThread);
   }
 
+  /**
+   * 如果本次扫描只需要移除不属于当前节点的slots，那么尝试通过范围删除完成，无需逐条扫描
+   *
+   * @param activityThreadPool ActivityThreadPool
+   * @return 是否已经通过范围删除完成，返回false时需要继续执行扫描
+   */
+  public boolean tryRemoveSlotNoMatchByRange(ActivityThreadPool activityThreadPool) {
+    if (!removeSlotNoMatch || removeThread || slotsManager == null || limit != -1
+        || CollectionUtils.isNotEmpty(conditions)
+        || CollectionUtils.isNotEmpty(syncMessageBusNames)
+        || CollectionUtils.isNotEmpty(activityThreadPool.getAllReplicationMessageBuses())) {
+      // 范围删除无法为每个ActivityThread发送删除的复制消息，配置了复制时只能逐条扫描删除
+      return false;
+    }
+
+    final SlotsSnapshot slotsSnapshot = slotsManager.getSlotsSnapshot();
+    final int localServiceIndex = slotsSnapshot.getServiceIndex(activityRunnerServiceName);
+    final List<Integer> noMatchSlots = new ArrayList<>();
+    for (int slot = 0; slot < slotsSnapshot.getSlotsNum(); slot++) {
+      if (slotsSnapshot.getServiceIndexBySlot(slot) != localServiceIndex) {
+        noMatchSlots.add(slot);
+      }
+    }
+    if (!activityThreadPool.removeSlots(noMatchSlots)) {
+      return false;
+    }
+
+    logger.info(String.format(
+        "%s - [EOF] Removed activity threads by range, slots num: %d",
+        this.mark,
+        noMatchSlots.size()
+    ));
+    return true;
+  }
+
   @Override
   public void accept(ScanActivityThreadContext scanActivityThreadContext) {
     this.allScannedNum = scanActivityThreadContext.getAllScannedNum();
@@ -4,6 +4,7 @@ package playwell.api;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import playwell.activity.definition.ActivityDefinition;
 import playwell.activity.definition.ActivityDefinitionManager;
 import playwell.activity.definition.YAMLActivityDefinitionCodec;
@@ -80,6 +81,7 @@ class ActivityDefinitionAPIRoutes extends APIRoutes {
       service.post("/disable", this::disable);
       service.delete("/delete", this::delete);
       service.get("/all/latest", this::getAllLatest);
+      service.get("/all/compile_stats", this::getAllCompileStats);
       service.get("/:name", this::getByName);
       service.get("/:name/:version", this::getByNameAndVersion);
     });
@@ -216,6 +218,24 @@ class ActivityDefinitionAPIRoutes extends APIRoutes {
     );
   }
 
+  private String getAllCompileStats(Request request, Response response) {
+    return getResponseWithPathParam(
+        request,
+        response,
+        GET_ALL_LATEST_API_FIELDS,
+        args -> {
+          final Collection<ActivityDefinition> allLatestDefinitions = getDefManager()
+              .getAllLatestDefinitions();
+          return Result.okWithData(Collections.singletonMap(
+              "definitions",
+              allLatestDefinitions.stream()
+                  .map(ActivityDefinition::getExpressionCompileStats)
+                  .collect(Collectors.toList())
+          ));
+        }
+    );
+  }
+
   private ActivityDefinitionManager getDefManager() {
     final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
     return (ActivityDefinitionManager) integrationPlan
@@ -31,10 +31,15 @@ class ActivityRunnerAPIRoutes extends APIRoutes {
         new Field[]{},
         args -> {
           final ActivityRunner activityRunner = getRunner();
-          return Result.okWithData(ImmutableMap.of(
-              "status", activityRunner.getStatus().getStatus(),
-              "last_active", activityRunner.getLastActive()
-          ));
+          return Result.okWithData(ImmutableMap.<String, Object>builder()
+              .put("status", activityRunner.getStatus().getStatus())
+              .put("last_active", activityRunner.getLastActive())
+              .put("pipeline", activityRunner.isPipeline())
+              .put("pending_message_batches", activityRunner.getPendingMessageBatchNum())
+              .put("schedule_parallelism", activityRunner.getScheduleParallelism())
+              .put("schedule_queue_depths", activityRunner.getScheduleQueueDepths())
+              .put("redirect_counts", activityRunner.getRedirectCounts())
+              .build());
         }
     );
   }
@@ -51,6 +51,10 @@ class ActivityThreadAPIRoutes extends APIRoutes {
       new Field.Builder("domain_id").type(FieldType.Str).required(true).build()
   };
 
+  private static final Field[] SLOT_STATS_API_FIELDS = new Field[]{
+      new Field.Builder("slot").type(FieldType.Int).required(true).build()
+  };
+
   private static final Field[] ADD_REPLICATION_MESSAGE_BUS_API_FIELDS = new Field[]{
       new Field.Builder("message_bus").type(FieldType.Str).required(true).build(),
   };
@@ -65,6 +69,8 @@ class ActivityThreadAPIRoutes extends APIRoutes {
       service.post("/replication_message_bus", this::addReplicationMessageBus);
       service.delete("/replication_message_bus", this::removeApplicationMessageBus);
       service.get("/replication_message_bus/all", this::viewAllReplicationMessageBuses);
+      service.get("/cache_stats", this::viewCacheStats);
+      service.get("/slot_stats", this::viewSlotStats);
       service.post("/pause", this::pauseActivityThread);
       service.post("/continue", this::continueActivityThread);
       service.post("/kill", this::killActivityThread);
@@ -223,6 +229,37 @@ class ActivityThreadAPIRoutes extends APIRoutes {
     );
   }
 
+  private String viewCacheStats(Request request, Response response) {
+    return getResponseWithQueryParam(
+        request,
+        response,
+        new Field[]{},
+        args -> Result.okWithData(getActivityThreadPool().getCacheStats())
+    );
+  }
+
+  private String viewSlotStats(Request request, Response response) {
+    return getResponseWithQueryParam(
+        request,
+        response,
+        SLOT_STATS_API_FIELDS,
+        args -> {
+          final int slot = args.getInt("slot");
+          final Optional<Long> countOptional = getActivityThreadPool().countBySlot(slot);
+          if (!countOptional.isPresent()) {
+            return Result.failWithCodeAndMessage(
+                "not_supported",
+                "The activity thread pool does not support slot stats"
+            );
+          }
+          return Result.okWithData(ImmutableMap.of(
+              "slot", slot,
+              "count", countOptional.get()
+          ));
+        }
+    );
+  }
+
   private ActivityThreadPool getActivityThreadPool() {
     final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
     return (ActivityThreadPool) integrationPlan
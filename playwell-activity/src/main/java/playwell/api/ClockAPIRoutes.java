@@ -34,7 +34,12 @@ class ClockAPIRoutes extends APIRoutes {
         response,
         new Field[]{},
         args -> {
-          getClock().scanAll(UserScanOperation.buildWithArgs(args));
+          final UserScanOperation userScanOperation = UserScanOperation.buildWithArgs(args);
+          if (userScanOperation.getSlots().isEmpty()) {
+            getClock().scanAll(userScanOperation);
+          } else {
+            getClock().scanSlots(userScanOperation.getSlots(), userScanOperation);
+          }
           return Result.ok();
         }
     );
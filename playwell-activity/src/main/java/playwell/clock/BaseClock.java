@@ -132,6 +132,17 @@ public abstract class BaseClock implements Clock {
     }).filter(MessageBus::isOpen).collect(Collectors.toList());
   }
 
+  // 取消索引的Key，同一个ActivityThread在同一个Action上最多只保留一个有效的时钟通知。
+  // domainId和action都可能包含分隔符，因此domainId带有长度前缀，保证不同的组合不会得到相同的Key
+  protected static String indexKey(int activityId, String domainId, String action) {
+    return activityId + "_" + domainId.length() + ":" + domainId + "_" + action;
+  }
+
+  protected static String indexKey(ClockMessage clockMessage) {
+    return indexKey(
+        clockMessage.getActivityId(), clockMessage.getDomainId(), clockMessage.getAction());
+  }
+
   public interface ConfigItems {
 
     String SYNC_MESSAGE_BUS = "sync_message_bus";
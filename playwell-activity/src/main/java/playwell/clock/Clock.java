@@ -1,6 +1,7 @@
 package playwell.clock;
 
 import java.util.Collection;
+import java.util.Optional;
 import java.util.function.Consumer;
 import playwell.common.PlaywellComponent;
 import playwell.message.Message;
@@ -19,6 +20,30 @@ public interface Clock extends PlaywellComponent {
    */
   void registerClockMessage(ClockMessage clockMessage);
 
+  /**
+   * 取消某个ActivityThread在指定Action上尚未触发的时钟通知，比如服务已经在超时之前返回了响应。
+   * 取消是尽力而为的，没有被取消的时钟通知依然会触发，并由Action自行忽略
+   *
+   * @param activityId 活动ID
+   * @param domainId DomainID
+   * @param action Action名称
+   * @return 是否有时钟通知被取消
+   */
+  default boolean cancelClockMessage(int activityId, String domainId, String action) {
+    return false;
+  }
+
+  /**
+   * 注册时钟通知，同时取消同一个ActivityThread在同一个Action上尚未触发的旧通知
+   *
+   * @param clockMessage 时钟通知事件
+   */
+  default void replaceClockMessage(ClockMessage clockMessage) {
+    cancelClockMessage(
+        clockMessage.getActivityId(), clockMessage.getDomainId(), clockMessage.getAction());
+    registerClockMessage(clockMessage);
+  }
+
   /**
    * 获取截止到指定时间点的时钟通知
    *
@@ -35,6 +60,13 @@ public interface Clock extends PlaywellComponent {
    */
   void consumeClockMessage(long untilTimePoint, Consumer<ClockMessage> consumer);
 
+  /**
+   * 获取最近一个待触发的时钟通知时间点，用于决定事件循环的休眠时间
+   *
+   * @return 最近的时间点，没有待触发的时钟通知时返回empty
+   */
+  Optional<Long> getNextTimePoint();
+
   /**
    * 清理截止到指定时间点的所有事件，防止重复获取
    *
@@ -49,6 +81,17 @@ public interface Clock extends PlaywellComponent {
    */
   void scanAll(ClockMessageScanConsumer consumer);
 
+  /**
+   * 只扫描属于指定slots的ClockMessage。没有slot索引的实现会退化为scanAll，
+   * 此时由回调逻辑自行按照slot进行过滤
+   *
+   * @param slots slots
+   * @param consumer 回调逻辑
+   */
+  default void scanSlots(Collection<Integer> slots, ClockMessageScanConsumer consumer) {
+    scanAll(consumer);
+  }
+
   /**
    * 终止扫描
    */
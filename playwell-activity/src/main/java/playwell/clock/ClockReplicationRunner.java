@@ -16,6 +16,8 @@ import playwell.message.MessageDispatcher;
 import playwell.message.MessageDispatcherListener;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
+import playwell.message.idle.IdleStrategy;
+import playwell.message.idle.IdleStrategyType;
 import playwell.util.PerfLog;
 import playwell.util.Sleeper;
 
@@ -35,6 +37,9 @@ public class ClockReplicationRunner implements MessageDispatcher {
   // 每次循环的休眠时间
   private long sleepTime;
 
+  // 空闲策略
+  private IdleStrategy idleStrategy;
+
   // 最大fetch消息数目
   private int maxFetchNum;
 
@@ -58,6 +63,8 @@ public class ClockReplicationRunner implements MessageDispatcher {
     this.inputMessageBusName = configuration.getString(ConfigItems.INPUT_MESSAGE_BUS);
     this.sleepTime = configuration.getLong(
         ConfigItems.SLEEP_TIME, ConfigItems.DEFAULT_SLEEP_TIME);
+    this.idleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.IDLE_STRATEGY), sleepTime);
     this.maxFetchNum = configuration.getInt(
         ConfigItems.MAX_FETCH_NUM, ConfigItems.DEFAULT_MAX_FETCH_NUM);
     // 加载MessageDispatcherListener
@@ -91,6 +98,7 @@ public class ClockReplicationRunner implements MessageDispatcher {
         this.actualStatus = ClockReplicationRunnerStatus.RUNNING;
       }
 
+      int readCount = 0;
       try {
         PerfLog.beginSpan("loop");
 
@@ -102,6 +110,7 @@ public class ClockReplicationRunner implements MessageDispatcher {
         PerfLog.beginSpan("read_messages");
         final MessageBus inputMessageBus = getInputMessageBus();
         final Collection<Message> messages = inputMessageBus.read(maxFetchNum);
+        readCount = messages.size();
         if (CollectionUtils.isEmpty(messages)) {
           continue;
         }
@@ -121,7 +130,7 @@ public class ClockReplicationRunner implements MessageDispatcher {
         PerfLog.endRootSpan();  // end span for loop
         PerfLog.outputPerfLog();
         PerfLog.clear();
-        Sleeper.sleep(this.sleepTime);
+        idleStrategy.idle(readCount, maxFetchNum);
       }
     }
   }
@@ -216,6 +225,8 @@ public class ClockReplicationRunner implements MessageDispatcher {
 
     int DEFAULT_SLEEP_TIME = 100;
 
+    String IDLE_STRATEGY = "idle_strategy";
+
     String MAX_FETCH_NUM = "max_fetch_num";
 
     int DEFAULT_MAX_FETCH_NUM = 10000;
@@ -22,6 +22,8 @@ import playwell.message.MessageDispatcherListener;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
 import playwell.message.bus.MessageBusNotAvailableException;
+import playwell.message.idle.IdleStrategy;
+import playwell.message.idle.IdleStrategyType;
 import playwell.service.ServiceMeta;
 import playwell.service.ServiceMetaManager;
 import playwell.util.PerfLog;
@@ -48,6 +50,9 @@ public class ClockRunner implements MessageDispatcher {
   // 每次循环的休眠时间
   private long sleepTime;
 
+  // 空闲策略
+  private IdleStrategy idleStrategy;
+
   // 最大fetch消息数目
   private int maxFetchNum;
 
@@ -79,6 +84,8 @@ public class ClockRunner implements MessageDispatcher {
     this.serviceName = configuration.getString(ConfigItems.SERVICE_NAME);
     this.inputMessageBusName = configuration.getString(ConfigItems.INPUT_MESSAGE_BUS);
     this.sleepTime = configuration.getLong(ConfigItems.SLEEP_TIME, ConfigItems.DEFAULT_SLEEP_TIME);
+    this.idleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.IDLE_STRATEGY), sleepTime);
     this.maxFetchNum = configuration
         .getInt(ConfigItems.MAX_FETCH_NUM, ConfigItems.DEFAULT_MAX_FETCH_NUM);
     this.accept = configuration.getBoolean(ConfigItems.ACCEPT, ConfigItems.DEFAULT_ACCEPT);
@@ -124,6 +131,7 @@ public class ClockRunner implements MessageDispatcher {
         this.actualStatus = ClockRunnerStatus.RUNNING;
       }
 
+      int readCount = 0;
       try {
         PerfLog.beginSpan("loop");
 
@@ -137,7 +145,7 @@ public class ClockRunner implements MessageDispatcher {
         // 从input message bus获取clock message，然后注册到clock中
         if (this.accept) {
           PerfLog.beginSpan("read_messages");
-          inputMessageBus.readWithConsumer(maxFetchNum, message -> {
+          readCount = inputMessageBus.readWithConsumer(maxFetchNum, message -> {
             if (ClockMessage.TYPE.equals(message.getType())) {
               clock.registerClockMessage((ClockMessage) message);
             } else {
@@ -194,7 +202,7 @@ public class ClockRunner implements MessageDispatcher {
         PerfLog.endRootSpan();  // end span for loop
         PerfLog.outputPerfLog();
         PerfLog.clear();
-        sleep();
+        idleStrategy.idle(readCount, maxFetchNum);
       }
     }
   }
@@ -279,12 +287,6 @@ public class ClockRunner implements MessageDispatcher {
     return inputMessageBusOptional.get();
   }
 
-  private void sleep() {
-    if (this.sleepTime > 0) {
-      Sleeper.sleep(sleepTime);
-    }
-  }
-
   private void callbackListeners(Consumer<MessageDispatcherListener> callback) {
     if (CollectionUtils.isEmpty(listeners)) {
       return;
@@ -323,6 +325,8 @@ public class ClockRunner implements MessageDispatcher {
 
     int DEFAULT_SLEEP_TIME = 100;
 
+    String IDLE_STRATEGY = "idle_strategy";
+
     String MAX_FETCH_NUM = "max_fetch_num";
 
     int DEFAULT_MAX_FETCH_NUM = 5000;
@@ -7,6 +7,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -33,6 +35,9 @@ public class MemoryClock extends BaseClock {
   private final ConcurrentSkipListMap<Long, ConcurrentLinkedQueue<ClockMessage>> allClockMessages =
       new ConcurrentSkipListMap<>();
 
+  // 取消索引，(activityId, domainId, action) -> 尚未触发的时钟消息
+  private final ConcurrentHashMap<String, ClockMessage> cancelIndex = new ConcurrentHashMap<>();
+
   private final Lock scanLock = new ReentrantLock();
 
   private volatile boolean stopScanMark = false;
@@ -53,6 +58,18 @@ public class MemoryClock extends BaseClock {
     sync(clockMessage);
   }
 
+  @Override
+  public boolean cancelClockMessage(int activityId, String domainId, String action) {
+    final ClockMessage clockMessage = cancelIndex.remove(indexKey(activityId, domainId, action));
+    if (clockMessage == null) {
+      return false;
+    }
+
+    final ConcurrentLinkedQueue<ClockMessage> messages = allClockMessages.get(
+        clockMessage.getTimePoint());
+    return messages != null && messages.remove(clockMessage);
+  }
+
   @Override
   public Collection<ClockMessage> fetchClockMessages(long untilTimePoint) {
     final ConcurrentNavigableMap<Long, ConcurrentLinkedQueue<ClockMessage>> fetchedMessages = allClockMessages
@@ -78,6 +95,13 @@ public class MemoryClock extends BaseClock {
     fetchedMessages.values().stream().flatMap(ConcurrentLinkedQueue::stream).forEach(consumer);
   }
 
+  @Override
+  public Optional<Long> getNextTimePoint() {
+    final Map.Entry<Long, ConcurrentLinkedQueue<ClockMessage>> firstEntry = allClockMessages
+        .firstEntry();
+    return firstEntry == null ? Optional.empty() : Optional.of(firstEntry.getKey());
+  }
+
   @Override
   public void clean(long untilTimePoint) {
     removeRange(untilTimePoint);
@@ -188,6 +212,7 @@ public class MemoryClock extends BaseClock {
     final ConcurrentLinkedQueue<ClockMessage> messages = allClockMessages.computeIfAbsent(
         clockMessage.getTimePoint(), tp -> new ConcurrentLinkedQueue<>());
     messages.add(clockMessage);
+    cancelIndex.put(indexKey(clockMessage), clockMessage);
   }
 
   private void removeRange(long untilTimePoint) {
@@ -198,10 +223,13 @@ public class MemoryClock extends BaseClock {
       return;
     }
 
-    final Iterator<Long> tpIter = fetchedMessages.keySet().iterator();
-    while (tpIter.hasNext()) {
-      tpIter.next();
-      tpIter.remove();
+    final Iterator<ConcurrentLinkedQueue<ClockMessage>> messagesIter = fetchedMessages.values()
+        .iterator();
+    while (messagesIter.hasNext()) {
+      for (ClockMessage clockMessage : messagesIter.next()) {
+        cancelIndex.remove(indexKey(clockMessage), clockMessage);
+      }
+      messagesIter.remove();
     }
   }
 }
@@ -76,6 +76,11 @@ public class MessageClock implements Clock {
     // Do nothing
   }
 
+  @Override
+  public Optional<Long> getNextTimePoint() {
+    return Optional.empty();
+  }
+
   @Override
   public void clean(long untilTimePoint) {
     // Do nothing
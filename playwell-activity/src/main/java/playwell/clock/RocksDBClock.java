@@ -2,28 +2,47 @@ package playwell.clock;
 
 
 import com.alibaba.fastjson.JSONArray;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.Striped;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.rocksdb.RocksIterator;
+import playwell.activity.thread.ActivityThreadKeyLayout;
 import playwell.common.EasyMap;
+import playwell.integration.IntegrationPlan;
+import playwell.integration.IntegrationPlanFactory;
+import playwell.integration.TopComponentType;
 import playwell.message.Message;
 import playwell.message.MessageDispatcherListener;
+import playwell.route.SlotsManager;
 import playwell.storage.rocksdb.RocksDBHelper;
 import playwell.storage.rocksdb.RocksDBOperation;
 import playwell.util.VariableHolder;
@@ -34,18 +53,43 @@ import playwell.util.VariableHolder;
  *
  * direct会不经过缓冲，每次直接写入到RocksDB
  *
+ * 内存中维护了一个有上限的取消索引，记录(activityId, domainId, action)对应的时间点，
+ * 用于在注册新的时钟消息或者Action提前完成时，移除尚未触发的旧消息
+ *
+ * 可以选择为时钟消息维护一个按照slot组织的二级索引列族，Key为[slot(4)][时钟消息Key(12)]，
+ * 用于只扫描某些slots的时钟消息。索引中过期或者已经被取消的条目会在扫描时校验并移除，
+ * 已经被清理的时间范围会周期性地从索引中批量删除
+ *
  * @author chihongze@gmail.com
  */
 public class RocksDBClock extends BaseClock implements MessageDispatcherListener {
 
   private static final Logger logger = LogManager.getLogger(RocksDBClock.class);
 
+  // 对同一个Key的读改写需要互斥
+  private static final Striped<Lock> keyLocks = Striped.lock(64);
+
   private final Lock scanLock = new ReentrantLock();
 
   private String columnFamilyName;
 
+  // slot索引列族名称，为null时不维护索引
+  private String slotIndexColumnFamilyName = null;
+
+  // slot索引的清理周期
+  private long slotIndexCleanPeriod;
+
+  // 上次清理slot索引的时间
+  private long lastSlotIndexCleanTime = 0L;
+
   private ConcurrentLinkedQueue<ClockMessage> clockMessageBuffer = null;
 
+  // 取消索引，(activityId, domainId, action) -> 时间点
+  private Cache<String, Long> cancelIndex = null;
+
+  // 已经被取消但还在缓冲中的消息，会在写入RocksDB时被略过
+  private final ConcurrentHashMap<String, Long> cancelledInBuffer = new ConcurrentHashMap<>();
+
   private volatile boolean stopMark = false;
 
   private long consumed;
@@ -61,7 +105,10 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
    * <pre>
    * clock:
    *   column_family:
+   *     name: clock
+   *     slot_index: clock_slot_index
    *   sync: false
+   *   cancel_index_size: 1000000
    * </pre>
    *
    * @param configuration 配置信息
@@ -72,6 +119,13 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     final EasyMap columnFamilyConfig = configuration.getSubArguments(ConfigItems.COLUMN_FAMILY);
     this.columnFamilyName = columnFamilyConfig.getString(
         ConfigItems.COLUMN_FAMILY_NAME, ConfigItems.DEFAULT_COLUMN_FAMILY_NAME_VALUE);
+    final String slotIndex = columnFamilyConfig.getString(
+        ConfigItems.COLUMN_FAMILY_SLOT_INDEX, ConfigItems.DEFAULT_COLUMN_FAMILY_SLOT_INDEX_VALUE);
+    if (StringUtils.isNotEmpty(slotIndex)) {
+      this.slotIndexColumnFamilyName = slotIndex;
+      this.slotIndexCleanPeriod = columnFamilyConfig.getLong(
+          ConfigItems.SLOT_INDEX_CLEAN_PERIOD, ConfigItems.DEFAULT_SLOT_INDEX_CLEAN_PERIOD);
+    }
 
     boolean sync = configuration.getBoolean(ConfigItems.DIRECT, ConfigItems.DEFAULT_DIRECT_VALUE);
     if (!sync) {
@@ -79,20 +133,67 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     }
 
     this.compact = configuration.getLong(ConfigItems.COMPACT, ConfigItems.DEFAULT_COMPACT);
+
+    final long cancelIndexSize = configuration.getLong(
+        ConfigItems.CANCEL_INDEX_SIZE, ConfigItems.DEFAULT_CANCEL_INDEX_SIZE);
+    if (cancelIndexSize > 0) {
+      this.cancelIndex = CacheBuilder.newBuilder().maximumSize(cancelIndexSize).build();
+    }
   }
 
   @Override
   public void registerClockMessage(ClockMessage clockMessage) {
     if (clockMessageBuffer == null) {
-      RocksDBHelper.useColumnFamily(columnFamilyName).merge(
-          getKey(clockMessage), message2Bytes(clockMessage));
+      final byte[] key = getKey(clockMessage);
+      final Lock lock = keyLocks.get(ByteBuffer.wrap(key));
+      lock.lock();
+      try {
+        RocksDBHelper.useColumnFamily(columnFamilyName).merge(key, message2Bytes(clockMessage));
+      } finally {
+        lock.unlock();
+      }
+      if (slotIndexColumnFamilyName != null) {
+        RocksDBHelper.useColumnFamily(slotIndexColumnFamilyName).put(
+            getSlotIndexKey(getSlotsManager().getSlotByKey(clockMessage.getDomainId()), key),
+            ArrayUtils.EMPTY_BYTE_ARRAY);
+      }
       sync(clockMessage);
     } else {
       clockMessageBuffer.add(clockMessage);
     }
+    if (cancelIndex != null) {
+      cancelIndex.put(indexKey(clockMessage), clockMessage.getTimePoint());
+    }
     sendAddReplicationMessage(clockMessage);
   }
 
+  @Override
+  public boolean cancelClockMessage(int activityId, String domainId, String action) {
+    if (cancelIndex == null) {
+      return false;
+    }
+
+    final String indexKey = indexKey(activityId, domainId, action);
+    final Long timePoint = cancelIndex.asMap().remove(indexKey);
+    if (timePoint == null) {
+      return false;
+    }
+
+    // 与afterLoop写入缓冲消息使用相同的锁，避免取消标记在缓冲消息写入之后才出现
+    final Lock lock = keyLocks.get(ByteBuffer.wrap(getKey(timePoint, activityId, domainId)));
+    lock.lock();
+    try {
+      // 存储中没有找到，说明消息还在缓冲中，标记为已取消，写入时略过
+      if (!removeMessage(columnFamilyName, timePoint, activityId, domainId, action)
+          && clockMessageBuffer != null) {
+        cancelledInBuffer.put(indexKey, timePoint);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
   @Override
   public Collection<ClockMessage> fetchClockMessages(long untilTimePoint) {
     final List<ClockMessage> events = new LinkedList<>();
@@ -105,6 +206,21 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     this.consumeWithTimePoint(untilTimePoint, consumer);
   }
 
+  /**
+   * 获取已经持久化的最早时间点，buffer中的消息会在每次循环结束后写入，因此不再单独计算
+   */
+  @Override
+  public Optional<Long> getNextTimePoint() {
+    try (final RocksIterator iterator = RocksDBHelper.useColumnFamily(columnFamilyName)
+        .iterator()) {
+      iterator.seekToFirst();
+      if (!iterator.isValid()) {
+        return Optional.empty();
+      }
+      return Optional.of(Longs.fromByteArray(ArrayUtils.subarray(iterator.key(), 0, 8)));
+    }
+  }
+
   @Override
   public void clean(long untilTimePoint) {
     this.removeRange(untilTimePoint);
@@ -175,6 +291,97 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     this.stopMark = true;
   }
 
+  @Override
+  public void scanSlots(Collection<Integer> slots, ClockMessageScanConsumer consumer) {
+    if (slotIndexColumnFamilyName == null) {
+      scanAll(consumer);
+      return;
+    }
+
+    logger.info("Ready to scan clock messages of slots: " + slots);
+    final Thread thread = new Thread(() -> {
+      if (!scanLock.tryLock()) {
+        logger.warn("Get scan clock message lock failure!");
+        return;
+      }
+
+      final SlotsManager slotsManager = getSlotsManager();
+      final RocksDBOperation rocksDBOperation = RocksDBHelper.useColumnFamily(columnFamilyName);
+      final RocksDBOperation indexOperation = RocksDBHelper.useColumnFamily(
+          slotIndexColumnFamilyName);
+      final VariableHolder<Integer> allScannedNum = new VariableHolder<>(0);
+      final List<byte[]> staleIndexKeys = new LinkedList<>();
+      // 同一个时钟Key下可能有多条消息被同时索引，只需要读取一次
+      final Set<ByteBuffer> visitedKeys = new HashSet<>();
+
+      try {
+        for (Pair<Integer, Integer> run : ActivityThreadKeyLayout.mergeSlots(slots)) {
+          indexOperation.iterateRangeWithConsumer(
+              ActivityThreadKeyLayout.slotPrefix(run.getLeft()),
+              ActivityThreadKeyLayout.slotPrefix(run.getRight() + 1),
+              (k, v) -> stopMark,
+              (indexKey, indexValue) -> {
+                final byte[] key = ArrayUtils.subarray(indexKey, 4, indexKey.length);
+                if (!visitedKeys.add(ByteBuffer.wrap(key))) {
+                  return;
+                }
+                final byte[] value = rocksDBOperation.getBytes(key);
+                // 时钟消息已经被触发或者取消
+                if (value == null) {
+                  staleIndexKeys.add(indexKey);
+                  return;
+                }
+                final long timePoint = Longs.fromByteArray(ArrayUtils.subarray(key, 0, 8));
+                decodeMessages(timePoint, value, clockMessage -> {
+                  if (stopMark || !slots.contains(
+                      slotsManager.getSlotByKey(clockMessage.getDomainId()))) {
+                    return;
+                  }
+                  allScannedNum.setVar(allScannedNum.getVar() + 1);
+                  try {
+                    consumer.accept(new DefaultScanClockMessageContext(
+                        this, allScannedNum.getVar(), clockMessage));
+                  } catch (Exception e) {
+                    logger.error("Error happened when scanning clock message", e);
+                  }
+                });
+              },
+              true
+          );
+          if (stopMark) {
+            break;
+          }
+        }
+
+        staleIndexKeys.forEach(indexOperation::delete);
+
+        if (stopMark) {
+          logger.info(String.format(
+              "Scan clock messages of slots stopped! All scanned num: %d, stale index num: %d",
+              allScannedNum.getVar(),
+              staleIndexKeys.size()
+          ));
+          consumer.onStop();
+          return;
+        }
+
+        logger.info(String.format(
+            "Scan clock messages of slots finished, all scanned num: %d, stale index num: %d",
+            allScannedNum.getVar(),
+            staleIndexKeys.size()
+        ));
+        consumer.onEOF();
+      } catch (Exception e) {
+        logger.error("Error happened when scanning clock messages of slots", e);
+      } finally {
+        this.stopMark = false;
+        scanLock.unlock();
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+  }
+
   @Override
   public void applyReplicationMessages(Collection<Message> messages) {
     if (CollectionUtils.isEmpty(messages)) {
@@ -190,6 +397,7 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
 
     final RocksDBOperation rocksDBOperation = RocksDBHelper
         .useColumnFamily(columnFamilyName).beginWriteBatch();
+    final List<ClockMessage> indexedMessages = new LinkedList<>();
     for (Message message : messages) {
       if (message instanceof ClockMessage) {
         final ClockMessage clockMessage = (ClockMessage) message;
@@ -197,9 +405,11 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
           continue;
         }
         rocksDBOperation.merge(getKey(clockMessage), message2Bytes(clockMessage));
+        indexedMessages.add(clockMessage);
       }
     }
     rocksDBOperation.endWriteBatch();
+    writeSlotIndex(indexedMessages);
     removeRange(latestTimePoint);
   }
 
@@ -211,14 +421,13 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
         key -> Longs.fromByteArray(ArrayUtils.subarray(key, 0, 8)),
         Function.identity(),
         null,
-        (timestamp, value) -> {
-          JSONArray jsonArray = JSONArray.parseArray("[" + new String(value) + "]");
-          for (int i = 0; i < jsonArray.size(); i++) {
-            ClockMessage clockEvent = json2Message(timestamp, jsonArray.getJSONArray(i));
-            consumer.accept(clockEvent);
-            consumed++;
+        (timestamp, value) -> decodeMessages(timestamp, value, clockMessage -> {
+          consumer.accept(clockMessage);
+          consumed++;
+          if (cancelIndex != null) {
+            cancelIndex.asMap().remove(indexKey(clockMessage), timestamp);
           }
-        },
+        }),
         false
     );
   }
@@ -228,13 +437,7 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
         key -> Longs.fromByteArray(ArrayUtils.subarray(key, 0, 8)),
         Function.identity(),
         until,
-        (timestamp, value) -> {
-          JSONArray jsonArray = JSONArray.parseArray("[" + new String(value) + "]");
-          for (int i = 0; i < jsonArray.size(); i++) {
-            ClockMessage clockEvent = json2Message(timestamp, jsonArray.getJSONArray(i));
-            consumer.accept(clockEvent);
-          }
-        },
+        (timestamp, value) -> decodeMessages(timestamp, value, consumer),
         true
     );
   }
@@ -242,6 +445,7 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
   @Override
   public void afterLoop() {
     if (CollectionUtils.isEmpty(clockMessageBuffer)) {
+      cancelledInBuffer.clear();
       return;
     }
 
@@ -251,12 +455,32 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
         .useColumnFamily(columnFamilyName)
         .beginWriteBatch();
 
-    while (!clockMessageBuffer.isEmpty()) {
-      final ClockMessage clockMessage = clockMessageBuffer.poll();
-      rocksDBOperation.merge(getKey(clockMessage), message2Bytes(clockMessage));
+    final List<ClockMessage> bufferedMessages = new ArrayList<>(clockMessageBuffer.size());
+    final List<ByteBuffer> keys = new ArrayList<>(clockMessageBuffer.size());
+    ClockMessage bufferedMessage;
+    while ((bufferedMessage = clockMessageBuffer.poll()) != null) {
+      bufferedMessages.add(bufferedMessage);
+      keys.add(ByteBuffer.wrap(getKey(bufferedMessage)));
     }
 
-    rocksDBOperation.endWriteBatch();
+    // 持有所有相关Key的锁直到批量写入完成，与取消操作互斥；bulkGet返回的锁顺序固定，不会死锁
+    final Iterable<Lock> locks = keyLocks.bulkGet(keys);
+    locks.forEach(Lock::lock);
+    final List<ClockMessage> indexedMessages = new LinkedList<>();
+    try {
+      for (int i = 0; i < bufferedMessages.size(); i++) {
+        final ClockMessage clockMessage = bufferedMessages.get(i);
+        if (cancelledInBuffer.remove(indexKey(clockMessage), clockMessage.getTimePoint())) {
+          continue;
+        }
+        rocksDBOperation.merge(keys.get(i).array(), message2Bytes(clockMessage));
+        indexedMessages.add(clockMessage);
+      }
+      rocksDBOperation.endWriteBatch();
+    } finally {
+      locks.forEach(Lock::unlock);
+    }
+    writeSlotIndex(indexedMessages);
   }
 
 
@@ -269,20 +493,123 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
       RocksDBHelper.useColumnFamily(columnFamilyName).compactRange();
       consumed = 0;
     }
+    cleanSlotIndex(untilTimePoint);
+  }
+
+  private void writeSlotIndex(Collection<ClockMessage> clockMessages) {
+    if (slotIndexColumnFamilyName == null || clockMessages.isEmpty()) {
+      return;
+    }
+    final SlotsManager slotsManager = getSlotsManager();
+    final RocksDBOperation indexOperation = RocksDBHelper
+        .useColumnFamily(slotIndexColumnFamilyName)
+        .beginWriteBatch();
+    for (ClockMessage clockMessage : clockMessages) {
+      indexOperation.put(
+          getSlotIndexKey(slotsManager.getSlotByKey(clockMessage.getDomainId()),
+              getKey(clockMessage)),
+          ArrayUtils.EMPTY_BYTE_ARRAY
+      );
+    }
+    indexOperation.endWriteBatch();
+  }
+
+  // 周期性地从每个slot的索引中删除已经被清理的时间范围
+  private void cleanSlotIndex(long untilTimePoint) {
+    if (slotIndexColumnFamilyName == null) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    if (now - lastSlotIndexCleanTime < slotIndexCleanPeriod) {
+      return;
+    }
+    this.lastSlotIndexCleanTime = now;
+
+    final int slotsNum = getSlotsManager().getSlotsSnapshot().getSlotsNum();
+    final RocksDBOperation indexOperation = RocksDBHelper.useColumnFamily(
+        slotIndexColumnFamilyName);
+    final byte[] untilKey = Longs.toByteArray(untilTimePoint + 1);
+    for (int slot = 0; slot < slotsNum; slot++) {
+      indexOperation.deleteRange(
+          getSlotIndexKey(slot, Longs.toByteArray(0L)),
+          getSlotIndexKey(slot, untilKey)
+      );
+    }
+  }
+
+  private SlotsManager getSlotsManager() {
+    final IntegrationPlan plan = IntegrationPlanFactory.currentPlan();
+    if (!plan.contains(TopComponentType.SLOTS_MANAGER)) {
+      throw new RuntimeException("The slot index of clock requires the slots manager");
+    }
+    return (SlotsManager) plan.getTopComponent(TopComponentType.SLOTS_MANAGER);
+  }
+
+  // 索引Key由4个byte的slot和时钟消息的Key构成
+  static byte[] getSlotIndexKey(int slot, byte[] clockKey) {
+    final byte[] keyBytes = new byte[4 + clockKey.length];
+    System.arraycopy(ActivityThreadKeyLayout.slotPrefix(slot), 0, keyBytes, 0, 4);
+    System.arraycopy(clockKey, 0, keyBytes, 4, clockKey.length);
+    return keyBytes;
+  }
+
+  static byte[] getKey(ClockMessage clockMessage) {
+    return getKey(
+        clockMessage.getTimePoint(), clockMessage.getActivityId(), clockMessage.getDomainId());
   }
 
   // Key由8个byte的时间戳和4个byte的ActivityId_DomainId hash值构成
-  private byte[] getKey(ClockMessage clockMessage) {
+  static byte[] getKey(long timePoint, int activityId, String domainId) {
     final byte[] keyBytes = new byte[12];
-    System.arraycopy(Longs.toByteArray(clockMessage.getTimePoint()), 0, keyBytes, 0, 8);
-    final int hash = String
-        .format("%d_%s", clockMessage.getActivityId(), clockMessage.getDomainId())
-        .hashCode();
+    System.arraycopy(Longs.toByteArray(timePoint), 0, keyBytes, 0, 8);
+    final int hash = String.format("%d_%s", activityId, domainId).hashCode();
     System.arraycopy(Ints.toByteArray(hash), 0, keyBytes, 8, 4);
     return keyBytes;
   }
 
-  private byte[] message2Bytes(ClockMessage clockMessage) {
+  /**
+   * 从存储中移除某个ActivityThread在指定时间点、指定Action上的时钟消息，同一个Key下的其它消息会被写回
+   *
+   * @return 是否有消息被移除
+   */
+  static boolean removeMessage(
+      String columnFamilyName, long timePoint, int activityId, String domainId, String action) {
+    final byte[] key = getKey(timePoint, activityId, domainId);
+    final RocksDBOperation rocksDBOperation = RocksDBHelper.useColumnFamily(columnFamilyName);
+    final Lock lock = keyLocks.get(ByteBuffer.wrap(key));
+    lock.lock();
+    try {
+      final byte[] value = rocksDBOperation.getBytes(key);
+      if (value == null) {
+        return false;
+      }
+
+      final List<ClockMessage> allMessages = new ArrayList<>();
+      decodeMessages(timePoint, value, allMessages::add);
+      final List<ClockMessage> remainMessages = allMessages.stream()
+          .filter(clockMessage -> clockMessage.getActivityId() != activityId ||
+              !clockMessage.getDomainId().equals(domainId) ||
+              !clockMessage.getAction().equals(action))
+          .collect(Collectors.toList());
+
+      if (remainMessages.size() == allMessages.size()) {
+        return false;
+      } else if (remainMessages.isEmpty()) {
+        rocksDBOperation.delete(key);
+        return true;
+      }
+
+      final String remainValue = remainMessages.stream()
+          .map(clockMessage -> new String(message2Bytes(clockMessage), StandardCharsets.UTF_8))
+          .collect(Collectors.joining(","));
+      rocksDBOperation.put(key, remainValue.getBytes(StandardCharsets.UTF_8));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  static byte[] message2Bytes(ClockMessage clockMessage) {
     if (MapUtils.isNotEmpty(clockMessage.getExtraArgs())) {
       return JSONArray.toJSONBytes(new Object[]{
           clockMessage.getSender(),
@@ -305,7 +632,16 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     }
   }
 
-  private ClockMessage json2Message(long timepoint, JSONArray jsonArray) {
+  // 同一个Key下的多条消息通过merge操作以逗号拼接在一起
+  static void decodeMessages(long timePoint, byte[] value, Consumer<ClockMessage> consumer) {
+    final JSONArray jsonArray = JSONArray.parseArray(
+        "[" + new String(value, StandardCharsets.UTF_8) + "]");
+    for (int i = 0; i < jsonArray.size(); i++) {
+      consumer.accept(json2Message(timePoint, jsonArray.getJSONArray(i)));
+    }
+  }
+
+  private static ClockMessage json2Message(long timepoint, JSONArray jsonArray) {
     if (jsonArray.size() > 6) {
       return new ClockMessage(
           jsonArray.getString(0),
@@ -343,6 +679,14 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     String COLUMN_FAMILY_NAME = "name";
     String DEFAULT_COLUMN_FAMILY_NAME_VALUE = "clock";
 
+    // slot索引列族名称，为空时不维护索引，需要开启SlotsManager
+    String COLUMN_FAMILY_SLOT_INDEX = "slot_index";
+    String DEFAULT_COLUMN_FAMILY_SLOT_INDEX_VALUE = "";
+
+    // slot索引的清理周期，单位毫秒
+    String SLOT_INDEX_CLEAN_PERIOD = "slot_index_clean_period";
+    long DEFAULT_SLOT_INDEX_CLEAN_PERIOD = 60000L;
+
     // 是否同步写入
     String DIRECT = "direct";
     boolean DEFAULT_DIRECT_VALUE = false;
@@ -350,5 +694,9 @@ public class RocksDBClock extends BaseClock implements MessageDispatcherListener
     // 触发合并的条数
     String COMPACT = "compact";
     int DEFAULT_COMPACT = -1;
+
+    // 取消索引的最大条目数，为0时不支持取消
+    String CANCEL_INDEX_SIZE = "cancel_index_size";
+    long DEFAULT_CANCEL_INDEX_SIZE = 1000000L;
   }
 }
@@ -0,0 +1,200 @@
+package playwell.clock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮，每一层由固定数目的槽位组成，上一层的一圈正好是下一层的一个槽位。 注册时根据到期时间直接定位到槽位，复杂度O(1)；
+ * 所有非空槽位按照到期时间放入优先级队列，推进时间时只需要处理已经到期的槽位，而不需要逐个tick遍历。
+ * 高层槽位到期后，其中尚未到期的消息会被重新放入低层的槽位中。
+ *
+ * <p>非线程安全，由调用者负责同步</p>
+ *
+ * @author chihongze@gmail.com
+ */
+class TimingWheel {
+
+  // 当前层的tick大小，单位为毫秒
+  private final long tickMs;
+
+  // 当前层的槽位数目
+  private final int wheelSize;
+
+  // 当前层一圈所覆盖的时间范围
+  private final long interval;
+
+  private final Bucket[] buckets;
+
+  // 所有层共享的到期队列
+  private final PriorityQueue<Bucket> queue;
+
+  // 由低到高各层时间轮的槽位数目
+  private final int[] upperWheelSizes;
+
+  // 当前层在整个时间轮中的位置
+  private final int level;
+
+  // 当前时间，总是tickMs的整数倍
+  private long currentTime;
+
+  // 更高一层的时间轮，在需要时才创建
+  private TimingWheel overflowWheel = null;
+
+  /**
+   * 创建分层时间轮
+   *
+   * @param tickMs 最底层的tick大小
+   * @param wheelSizes 由低到高各层的槽位数目，最高层的时间轮溢出时，按照最高层的槽位数目继续创建更高的层
+   * @param startMs 起始时间
+   */
+  TimingWheel(long tickMs, int[] wheelSizes, long startMs) {
+    this(tickMs, wheelSizes, 0, startMs, new PriorityQueue<>());
+  }
+
+  private TimingWheel(long tickMs, int[] wheelSizes, int level, long startMs,
+      PriorityQueue<Bucket> queue) {
+    this.tickMs = tickMs;
+    this.wheelSize = wheelSizes[Math.min(level, wheelSizes.length - 1)];
+    this.interval = tickMs * wheelSize;
+    this.buckets = new Bucket[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      buckets[i] = new Bucket();
+    }
+    this.queue = queue;
+    this.upperWheelSizes = wheelSizes;
+    this.currentTime = startMs - (startMs % tickMs);
+    this.level = level;
+  }
+
+  /**
+   * 加入时钟消息
+   *
+   * @param clockMessage 时钟消息
+   * @return 如果消息已经到期，那么返回false，由调用者直接处理
+   */
+  boolean add(ClockMessage clockMessage) {
+    final long timePoint = clockMessage.getTimePoint();
+    if (timePoint < currentTime + tickMs) {
+      return false;
+    } else if (timePoint < currentTime + interval) {
+      final long virtualId = timePoint / tickMs;
+      final Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+      bucket.messages.add(clockMessage);
+      if (bucket.setExpiration(virtualId * tickMs)) {
+        queue.offer(bucket);
+      }
+      return true;
+    } else {
+      if (overflowWheel == null) {
+        overflowWheel = new TimingWheel(interval, upperWheelSizes, level + 1, currentTime, queue);
+      }
+      return overflowWheel.add(clockMessage);
+    }
+  }
+
+  /**
+   * 将时间推进到指定的时间点，并将截止到该时间点所有到期的消息交给消费者。
+   * 高层槽位中尚未到期的消息会重新降级到低层的槽位中；当最底层的tick大于1ms时，
+   * 交给消费者的消息可能略晚于截止时间点，需要由调用者进行过滤
+   *
+   * @param untilTimePoint 截止时间点
+   * @param expiredConsumer 到期消息消费者
+   */
+  void advance(long untilTimePoint, Consumer<ClockMessage> expiredConsumer) {
+    Bucket bucket;
+    while ((bucket = queue.peek()) != null && bucket.expiration <= untilTimePoint) {
+      queue.poll();
+      advanceClock(bucket.expiration);
+      for (ClockMessage clockMessage : bucket.flush()) {
+        if (!add(clockMessage)) {
+          expiredConsumer.accept(clockMessage);
+        }
+      }
+    }
+    advanceClock(untilTimePoint);
+  }
+
+  /**
+   * 获取最近一个非空槽位的到期时间，该时间不会晚于槽位中任何消息的触发时间
+   *
+   * @return 最近的到期时间，时间轮为空时返回-1
+   */
+  long getNextExpiration() {
+    final Bucket bucket = queue.peek();
+    return bucket == null ? -1L : bucket.expiration;
+  }
+
+  /**
+   * 遍历时间轮中所有尚未到期的消息
+   *
+   * @param consumer 消息消费者
+   */
+  void forEach(Consumer<ClockMessage> consumer) {
+    for (Bucket bucket : buckets) {
+      bucket.messages.forEach(consumer);
+    }
+    if (overflowWheel != null) {
+      overflowWheel.forEach(consumer);
+    }
+  }
+
+  /**
+   * 获取时间轮中尚未到期的消息数目
+   *
+   * @return 消息数目
+   */
+  int size() {
+    int size = 0;
+    for (Bucket bucket : buckets) {
+      size += bucket.messages.size();
+    }
+    return overflowWheel == null ? size : size + overflowWheel.size();
+  }
+
+  private void advanceClock(long timeMs) {
+    if (timeMs >= currentTime + tickMs) {
+      currentTime = timeMs - (timeMs % tickMs);
+      if (overflowWheel != null) {
+        overflowWheel.advanceClock(currentTime);
+      }
+    }
+  }
+
+  /**
+   * 时间轮槽位
+   */
+  static class Bucket implements Comparable<Bucket> {
+
+    private final List<ClockMessage> messages = new ArrayList<>();
+
+    private long expiration = -1L;
+
+    // 更新到期时间，如果发生了变化，说明该槽位被复用，需要重新放入到期队列
+    boolean setExpiration(long expiration) {
+      if (this.expiration == expiration) {
+        return false;
+      }
+      this.expiration = expiration;
+      return true;
+    }
+
+    List<ClockMessage> flush() {
+      if (messages.isEmpty()) {
+        this.expiration = -1L;
+        return Collections.emptyList();
+      }
+      final List<ClockMessage> flushed = new ArrayList<>(messages);
+      messages.clear();
+      this.expiration = -1L;
+      return flushed;
+    }
+
+    @Override
+    public int compareTo(Bucket other) {
+      return Long.compare(this.expiration, other.expiration);
+    }
+  }
+}
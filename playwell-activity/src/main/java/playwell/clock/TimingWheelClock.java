@@ -0,0 +1,507 @@
+package playwell.clock;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.primitives.Longs;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rocksdb.RocksIterator;
+import playwell.common.EasyMap;
+import playwell.message.Message;
+import playwell.message.MessageDispatcherListener;
+import playwell.storage.rocksdb.RocksDBHelper;
+import playwell.storage.rocksdb.RocksDBOperation;
+import playwell.util.VariableHolder;
+
+/**
+ * 基于分层时间轮的时钟服务，注册和到期的复杂度都是O(1)，不会随着积压的时钟消息数目增长
+ *
+ * <p>如果配置了列族，那么所有注册的消息都会以与RocksDBClock相同的格式追加写入到RocksDB中，
+ * 内存中只保留preload_window时间窗口以内的消息，随着时间的推进再从RocksDB中加载新进入窗口的消息；
+ * 重启时也只需要加载最近窗口内的消息。没有配置列族时，所有消息只存在于内存中。</p>
+ *
+ * <p>时间轮中的消息可以通过取消索引进行取消，被取消的消息在到期时直接丢弃。本进程注册的、
+ * 位于加载窗口之外的消息同样会进入取消索引，取消时直接从RocksDB中删除；重启之后只有加载窗口以内的消息
+ * 会重建取消索引，窗口之外的消息需要等到被加载之后才能取消</p>
+ * <pre>
+ * clock:
+ *   class: playwell.clock.TimingWheelClock
+ *   tick_ms: 1
+ *   wheel_sizes: [1000, 60, 60, 24]
+ *   column_family:
+ *     name: clock
+ *   preload_window: 3600000
+ *   direct: false
+ * </pre>
+ *
+ * @author chihongze@gmail.com
+ */
+public class TimingWheelClock extends BaseClock implements MessageDispatcherListener {
+
+  private static final Logger logger = LogManager.getLogger(TimingWheelClock.class);
+
+  // 保护时间轮、到期消息以及加载窗口
+  private final Lock wheelLock = new ReentrantLock();
+
+  private final Lock scanLock = new ReentrantLock();
+
+  // 已经到期但尚未被clean的消息
+  private final List<ClockMessage> expiredMessages = new ArrayList<>();
+
+  // 取消索引，(activityId, domainId, action) -> 尚未到期的消息时间点
+  private final Map<String, Long> cancelIndex = new HashMap<>();
+
+  // 已经被取消但仍然留在时间轮或者写入缓冲中的消息，(indexKey, timePoint)
+  private final Set<Pair<String, Long>> cancelledMessages = new HashSet<>();
+
+  private TimingWheel timingWheel;
+
+  // 持久化使用的列族，为null时不进行持久化
+  private String columnFamilyName = null;
+
+  // 写入缓冲，在每次循环结束后批量写入RocksDB
+  private ConcurrentLinkedQueue<ClockMessage> clockMessageBuffer = null;
+
+  // 内存中保留的时间窗口大小
+  private long preloadWindow;
+
+  // 已经加载到时间轮中的截止时间点，晚于该时间点的消息只存在于RocksDB中
+  private long loadedUntil = Long.MAX_VALUE;
+
+  private volatile boolean stopMark = false;
+
+  public TimingWheelClock() {
+
+  }
+
+  @Override
+  protected void initConfig(EasyMap configuration) {
+    final long tickMs = configuration.getLong(ConfigItems.TICK_MS, ConfigItems.DEFAULT_TICK_MS);
+    final List<Integer> wheelSizeList = configuration.getIntegerList(ConfigItems.WHEEL_SIZES);
+    final int[] wheelSizes = CollectionUtils.isEmpty(wheelSizeList)
+        ? ConfigItems.DEFAULT_WHEEL_SIZES
+        : wheelSizeList.stream().mapToInt(Integer::intValue).toArray();
+    this.timingWheel = new TimingWheel(tickMs, wheelSizes, CachedTimestamp.nowMilliseconds());
+
+    if (configuration.contains(ConfigItems.COLUMN_FAMILY)) {
+      final EasyMap columnFamilyConfig = configuration.getSubArguments(ConfigItems.COLUMN_FAMILY);
+      this.columnFamilyName = columnFamilyConfig.getString(
+          ConfigItems.COLUMN_FAMILY_NAME, ConfigItems.DEFAULT_COLUMN_FAMILY_NAME_VALUE);
+      this.preloadWindow = configuration.getLong(
+          ConfigItems.PRELOAD_WINDOW, ConfigItems.DEFAULT_PRELOAD_WINDOW);
+      if (!configuration.getBoolean(ConfigItems.DIRECT, ConfigItems.DEFAULT_DIRECT_VALUE)) {
+        this.clockMessageBuffer = new ConcurrentLinkedQueue<>();
+      }
+
+      // 恢复最近窗口内的消息，包括已经过期但尚未被清理的消息
+      this.loadedUntil = Long.MIN_VALUE;
+      final long now = CachedTimestamp.nowMilliseconds();
+      final int loadedNum = load(now + preloadWindow);
+      logger.info(String.format(
+          "TimingWheelClock recovered %d clock messages before %d", loadedNum, loadedUntil));
+    }
+  }
+
+  @Override
+  public void registerClockMessage(ClockMessage clockMessage) {
+    wheelLock.lock();
+    try {
+      if (columnFamilyName == null) {
+        addToWheel(clockMessage);
+        sync(clockMessage);
+      } else {
+        if (clockMessageBuffer == null) {
+          RocksDBHelper.useColumnFamily(columnFamilyName).merge(
+              RocksDBClock.getKey(clockMessage), RocksDBClock.message2Bytes(clockMessage));
+          sync(clockMessage);
+        } else {
+          clockMessageBuffer.add(clockMessage);
+        }
+        // 窗口之外的消息只需要持久化并建立取消索引，等时间推进到窗口内时再加载
+        if (clockMessage.getTimePoint() <= loadedUntil) {
+          addToWheel(clockMessage);
+        } else {
+          cancelIndex.put(indexKey(clockMessage), clockMessage.getTimePoint());
+        }
+      }
+    } finally {
+      wheelLock.unlock();
+    }
+    sendAddReplicationMessage(clockMessage);
+  }
+
+  @Override
+  public boolean cancelClockMessage(int activityId, String domainId, String action) {
+    final String indexKey = indexKey(activityId, domainId, action);
+    wheelLock.lock();
+    try {
+      final Long timePoint = cancelIndex.remove(indexKey);
+      if (timePoint == null) {
+        return false;
+      }
+      if (timePoint <= loadedUntil) {
+        // 时间轮中的消息在到期时丢弃，写入缓冲中的消息在写入时略过
+        cancelledMessages.add(Pair.of(indexKey, timePoint));
+        if (columnFamilyName != null) {
+          RocksDBClock.removeMessage(columnFamilyName, timePoint, activityId, domainId, action);
+        }
+      } else if (!RocksDBClock.removeMessage(
+          columnFamilyName, timePoint, activityId, domainId, action)
+          && clockMessageBuffer != null) {
+        // 窗口之外的消息不在时间轮中，存储中没有找到说明还在写入缓冲中
+        cancelledMessages.add(Pair.of(indexKey, timePoint));
+      }
+      return true;
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public Collection<ClockMessage> fetchClockMessages(long untilTimePoint) {
+    final List<ClockMessage> clockMessages = new LinkedList<>();
+    consumeClockMessage(untilTimePoint, clockMessages::add);
+    return clockMessages;
+  }
+
+  @Override
+  public void consumeClockMessage(long untilTimePoint, Consumer<ClockMessage> consumer) {
+    final List<ClockMessage> clockMessages = new ArrayList<>();
+    wheelLock.lock();
+    try {
+      advance(untilTimePoint);
+      for (ClockMessage clockMessage : expiredMessages) {
+        if (clockMessage.getTimePoint() <= untilTimePoint) {
+          clockMessages.add(clockMessage);
+        }
+      }
+    } finally {
+      wheelLock.unlock();
+    }
+    clockMessages.forEach(consumer);
+  }
+
+  @Override
+  public Optional<Long> getNextTimePoint() {
+    wheelLock.lock();
+    try {
+      long nextTimePoint = timingWheel.getNextExpiration();
+      for (ClockMessage clockMessage : expiredMessages) {
+        if (nextTimePoint == -1L || clockMessage.getTimePoint() < nextTimePoint) {
+          nextTimePoint = clockMessage.getTimePoint();
+        }
+      }
+      return nextTimePoint == -1L ? Optional.empty() : Optional.of(nextTimePoint);
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public void clean(long untilTimePoint) {
+    removeRange(untilTimePoint);
+    sendCleanReplicationMessage(untilTimePoint);
+  }
+
+  @Override
+  public void scanAll(ClockMessageScanConsumer consumer) {
+    logger.info("Ready to scan clock messages");
+    final Thread thread = new Thread(() -> {
+      if (!scanLock.tryLock()) {
+        logger.warn("Get scan clock message lock failure!");
+        return;
+      }
+
+      final VariableHolder<Integer> allScannedNum = new VariableHolder<>(0);
+      final Multiset<Integer> activityScannedNum = HashMultiset.create();
+
+      try {
+        final Consumer<ClockMessage> scanConsumer = clockMessage -> {
+          allScannedNum.setVar(allScannedNum.getVar() + 1);
+          activityScannedNum.add(clockMessage.getActivityId());
+          try {
+            consumer.accept(new DefaultScanClockMessageContext(
+                this, allScannedNum.getVar(), clockMessage));
+          } catch (Exception e) {
+            logger.error("Error happened when scanning clock message", e);
+          }
+        };
+
+        if (columnFamilyName == null) {
+          // 先复制一份快照，避免长时间持有锁
+          final List<ClockMessage> snapshot = new ArrayList<>();
+          wheelLock.lock();
+          try {
+            snapshot.addAll(expiredMessages);
+            timingWheel.forEach(snapshot::add);
+          } finally {
+            wheelLock.unlock();
+          }
+          for (ClockMessage clockMessage : snapshot) {
+            if (stopMark) {
+              break;
+            }
+            scanConsumer.accept(clockMessage);
+          }
+        } else {
+          RocksDBHelper.useColumnFamily(columnFamilyName).iterateFromFirstWithConsumer(
+              key -> Longs.fromByteArray(ArrayUtils.subarray(key, 0, 8)),
+              Function.identity(),
+              (k, v) -> stopMark,
+              (timePoint, value) -> RocksDBClock.decodeMessages(timePoint, value, scanConsumer),
+              true
+          );
+        }
+
+        if (stopMark) {
+          logger.info(String.format(
+              "Scan clock messages stopped! All scanned num: %d, activity clock message num: %s",
+              allScannedNum.getVar(),
+              activityScannedNum
+          ));
+          consumer.onStop();
+          return;
+        }
+
+        logger.info(String.format(
+            "Scan clock messages finished, all scanned num: %d, activity clock message num: %s",
+            allScannedNum.getVar(),
+            activityScannedNum
+        ));
+        consumer.onEOF();
+      } finally {
+        this.stopMark = false;
+        scanLock.unlock();
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void stopScan() {
+    this.stopMark = true;
+  }
+
+  @Override
+  public void applyReplicationMessages(Collection<Message> messages) {
+    if (CollectionUtils.isEmpty(messages)) {
+      return;
+    }
+
+    // 找出CleanMessage中的最近时间点
+    final long latestTimePoint = messages.stream()
+        .filter(message -> CleanTimeRangeMessage.TYPE.equals(message.getType()))
+        .map(message -> ((CleanTimeRangeMessage) message).getTimePoint())
+        .max(Long::compare)
+        .orElse(0L);
+
+    wheelLock.lock();
+    try {
+      final RocksDBOperation rocksDBOperation = columnFamilyName == null ? null :
+          RocksDBHelper.useColumnFamily(columnFamilyName).beginWriteBatch();
+      for (Message message : messages) {
+        if (message instanceof ClockMessage) {
+          final ClockMessage clockMessage = (ClockMessage) message;
+          if (clockMessage.getTimePoint() <= latestTimePoint) {
+            continue;
+          }
+          if (rocksDBOperation != null) {
+            rocksDBOperation.merge(
+                RocksDBClock.getKey(clockMessage), RocksDBClock.message2Bytes(clockMessage));
+          }
+          if (clockMessage.getTimePoint() <= loadedUntil) {
+            addToWheel(clockMessage);
+          }
+        }
+      }
+      if (rocksDBOperation != null) {
+        rocksDBOperation.endWriteBatch();
+      }
+    } finally {
+      wheelLock.unlock();
+    }
+
+    if (latestTimePoint != 0) {
+      removeRange(latestTimePoint);
+    }
+  }
+
+  /**
+   * 将缓冲中的消息批量写入RocksDB
+   */
+  @Override
+  public void afterLoop() {
+    if (CollectionUtils.isEmpty(clockMessageBuffer)) {
+      return;
+    }
+
+    wheelLock.lock();
+    try {
+      flushBuffer();
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  /**
+   * 获取时间轮中尚未到期的消息数目
+   *
+   * @return 消息数目
+   */
+  public int getPendingNum() {
+    wheelLock.lock();
+    try {
+      // 只有加载窗口以内的取消标记对应时间轮中的消息
+      final long cancelledInWheel = cancelledMessages.stream()
+          .filter(cancelled -> cancelled.getRight() <= loadedUntil)
+          .count();
+      return timingWheel.size() - (int) cancelledInWheel;
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  // 推进时间轮，必要时将新进入窗口的消息从RocksDB中加载到时间轮
+  private void advance(long untilTimePoint) {
+    timingWheel.advance(untilTimePoint, this::onExpired);
+    if (columnFamilyName != null && untilTimePoint + preloadWindow / 2 > loadedUntil) {
+      load(untilTimePoint + preloadWindow);
+      timingWheel.advance(untilTimePoint, this::onExpired);
+    }
+  }
+
+  // 将(loadedUntil, newLoadedUntil]范围内的消息加载到时间轮
+  private int load(long newLoadedUntil) {
+    flushBuffer();
+
+    final VariableHolder<Integer> loadedNum = new VariableHolder<>(0);
+    final byte[] fromKey = Longs.toByteArray(
+        loadedUntil == Long.MIN_VALUE ? 0L : loadedUntil + 1);
+    try (final RocksIterator iterator = RocksDBHelper.useColumnFamily(columnFamilyName)
+        .iterator()) {
+      for (iterator.seek(fromKey); iterator.isValid(); iterator.next()) {
+        final long timePoint = Longs.fromByteArray(ArrayUtils.subarray(iterator.key(), 0, 8));
+        if (timePoint > newLoadedUntil) {
+          break;
+        }
+        RocksDBClock.decodeMessages(timePoint, iterator.value(), clockMessage -> {
+          addToWheel(clockMessage);
+          loadedNum.setVar(loadedNum.getVar() + 1);
+        });
+      }
+    }
+    this.loadedUntil = newLoadedUntil;
+    return loadedNum.getVar();
+  }
+
+  private void flushBuffer() {
+    if (CollectionUtils.isEmpty(clockMessageBuffer)) {
+      return;
+    }
+
+    final List<ClockMessage> clockMessages = new ArrayList<>(clockMessageBuffer.size());
+    ClockMessage clockMessage;
+    while ((clockMessage = clockMessageBuffer.poll()) != null) {
+      clockMessages.add(clockMessage);
+    }
+    batchSync(clockMessages);
+
+    final RocksDBOperation rocksDBOperation = RocksDBHelper
+        .useColumnFamily(columnFamilyName)
+        .beginWriteBatch();
+    for (ClockMessage message : clockMessages) {
+      final Pair<String, Long> identifier = Pair.of(indexKey(message), message.getTimePoint());
+      if (cancelledMessages.contains(identifier)) {
+        // 窗口之外的消息不会进入时间轮，略过之后即可清除取消标记
+        if (message.getTimePoint() > loadedUntil) {
+          cancelledMessages.remove(identifier);
+        }
+        continue;
+      }
+      rocksDBOperation.merge(RocksDBClock.getKey(message), RocksDBClock.message2Bytes(message));
+    }
+    rocksDBOperation.endWriteBatch();
+  }
+
+  private void addToWheel(ClockMessage clockMessage) {
+    if (timingWheel.add(clockMessage)) {
+      cancelIndex.put(indexKey(clockMessage), clockMessage.getTimePoint());
+    } else {
+      expiredMessages.add(clockMessage);
+    }
+  }
+
+  // 时间轮中的消息到期，被取消的消息直接丢弃
+  private void onExpired(ClockMessage clockMessage) {
+    final String indexKey = indexKey(clockMessage);
+    if (cancelledMessages.remove(Pair.of(indexKey, clockMessage.getTimePoint()))) {
+      return;
+    }
+    cancelIndex.remove(indexKey, clockMessage.getTimePoint());
+    expiredMessages.add(clockMessage);
+  }
+
+  private void removeRange(long untilTimePoint) {
+    wheelLock.lock();
+    try {
+      expiredMessages.removeIf(clockMessage -> clockMessage.getTimePoint() <= untilTimePoint);
+    } finally {
+      wheelLock.unlock();
+    }
+
+    if (columnFamilyName != null) {
+      RocksDBHelper.useColumnFamily(columnFamilyName).deleteRange(
+          Longs.toByteArray(0L),
+          Longs.toByteArray(untilTimePoint + 1)
+      );
+    }
+  }
+
+  /**
+   * 配置项
+   */
+  public interface ConfigItems {
+
+    // 最底层时间轮的tick大小，单位为毫秒
+    String TICK_MS = "tick_ms";
+    long DEFAULT_TICK_MS = 1L;
+
+    // 由低到高各层时间轮的槽位数目，默认为毫秒、秒、分钟、小时四层
+    String WHEEL_SIZES = "wheel_sizes";
+    int[] DEFAULT_WHEEL_SIZES = new int[]{1000, 60, 60, 24};
+
+    // 持久化使用的列族，不配置则不进行持久化
+    String COLUMN_FAMILY = "column_family";
+
+    // 列族名称
+    String COLUMN_FAMILY_NAME = "name";
+    String DEFAULT_COLUMN_FAMILY_NAME_VALUE = "clock";
+
+    // 内存中保留的时间窗口大小，单位为毫秒
+    String PRELOAD_WINDOW = "preload_window";
+    long DEFAULT_PRELOAD_WINDOW = TimeUnit.HOURS.toMillis(1L);
+
+    // 是否同步写入
+    String DIRECT = "direct";
+    boolean DEFAULT_DIRECT_VALUE = false;
+  }
+}
@@ -1,9 +1,12 @@
 package playwell.clock;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -23,6 +26,7 @@ import playwell.message.MessageArgumentVar;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
 import playwell.message.bus.MessageBusNotAvailableException;
+import playwell.route.SlotsManager;
 
 
 /**
@@ -33,6 +37,7 @@ import playwell.message.bus.MessageBusNotAvailableException;
  *        "activityId == 100 AND domainId == 'SamChi' AND eventAttr('xxx') == 'xxx'",
  *     ],
  *
+ *     "slots": [1, 2, 3],
  *     "log_per_record": 1,
  *     "limit": 100,
  *     "mark": "xxxx"
@@ -45,6 +50,11 @@ public class UserScanOperation implements ClockMessageScanConsumer {
 
   private final List<PlaywellExpression> conditions;
 
+  // 只扫描属于这些slots的ClockMessage，为空时不限制
+  private final Set<Integer> slots;
+
+  private final SlotsManager slotsManager;
+
   private final int logPerRecords;
 
   private final int limit;
@@ -64,8 +74,29 @@ public class UserScanOperation implements ClockMessageScanConsumer {
       String mark,
       List<String> syncMessageBusNames,
       int batchSyncNum
+  ) {
+    this(conditions, Collections.emptyList(), logPerRecords, limit, mark, syncMessageBusNames,
+        batchSyncNum);
+  }
+
+  public UserScanOperation(
+      List<PlaywellExpression> conditions,
+      Collection<Integer> slots,
+      int logPerRecords,
+      int limit,
+      String mark,
+      List<String> syncMessageBusNames,
+      int batchSyncNum
   ) {
     this.conditions = conditions;
+    this.slots = new HashSet<>(slots);
+    final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+    if (!this.slots.isEmpty() && integrationPlan.contains(TopComponentType.SLOTS_MANAGER)) {
+      this.slotsManager = (SlotsManager) integrationPlan
+          .getTopComponent(TopComponentType.SLOTS_MANAGER);
+    } else {
+      this.slotsManager = null;
+    }
     this.logPerRecords = logPerRecords;
     this.limit = limit;
     this.mark = mark;
@@ -82,6 +113,7 @@ public class UserScanOperation implements ClockMessageScanConsumer {
         }).collect(Collectors.toList());
     return new UserScanOperation(
         conditions,
+        args.getIntegerList(Args.SLOTS),
         args.getInt(Args.LOG_PER_RECORDS, 1),
         args.getInt(Args.LIMIT, -1),
         args.getString(Args.MARK, RandomStringUtils.randomAlphanumeric(6)),
@@ -101,7 +133,7 @@ public class UserScanOperation implements ClockMessageScanConsumer {
       return;
     }
 
-    if (!isMatchCondition(clockMessage)) {
+    if (!isSlotMatch(clockMessage) || !isMatchCondition(clockMessage)) {
       return;
     }
 
@@ -119,6 +151,22 @@ public class UserScanOperation implements ClockMessageScanConsumer {
     }
   }
 
+  /**
+   * 需要扫描的slots，为空时扫描全部ClockMessage
+   *
+   * @return slots
+   */
+  public Set<Integer> getSlots() {
+    return slots;
+  }
+
+  private boolean isSlotMatch(ClockMessage clockMessage) {
+    if (slotsManager == null) {
+      return true;
+    }
+    return slots.contains(slotsManager.getSlotByKey(clockMessage.getDomainId()));
+  }
+
   private boolean isMatchCondition(ClockMessage clockMessage) {
     if (CollectionUtils.isEmpty(conditions)) {
       return true;
@@ -173,6 +221,8 @@ public class UserScanOperation implements ClockMessageScanConsumer {
 
     String CONDITIONS = "conditions";
 
+    String SLOTS = "slots";
+
     String LOG_PER_RECORDS = "log_per_records";
 
     String LIMIT = "limit";
@@ -4,6 +4,7 @@ import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import playwell.common.expression.PlaywellExpression;
 import playwell.common.expression.PlaywellExpressionContext;
 
@@ -66,6 +67,27 @@ public abstract class Argument {
     }
   }
 
+  /**
+   * 遍历参数中包含的所有表达式
+   *
+   * @param argument 参数
+   * @param consumer 表达式消费者
+   */
+  public static void forEachExpression(Argument argument, Consumer<PlaywellExpression> consumer) {
+    if (argument == null) {
+      return;
+    }
+
+    if (argument instanceof ExpressionArgument) {
+      consumer.accept(((ExpressionArgument) argument).getExpression());
+    } else if (argument instanceof ListArgument) {
+      ((ListArgument) argument).getArgs().forEach(arg -> forEachExpression(arg, consumer));
+    } else if (argument instanceof MapArgument) {
+      ((MapArgument) argument).getArgs().values().forEach(
+          arg -> forEachExpression(arg, consumer));
+    }
+  }
+
   Object getVal(Argument arg, PlaywellExpressionContext context) {
     if (arg instanceof ExpressionArgument) {
       return ((ExpressionArgument) arg).getValue(context);
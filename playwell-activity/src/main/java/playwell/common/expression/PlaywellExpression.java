@@ -1,5 +1,6 @@
 package playwell.common.expression;
 
+import playwell.common.expression.fastpath.FastPathPlaywellExpression;
 import playwell.common.expression.spel.SpELPlaywellExpression;
 
 /**
@@ -12,6 +13,8 @@ public interface PlaywellExpression {
   static PlaywellExpression compile(String compiler, String expression) {
     if (Compilers.SPRING_EL.equals(compiler)) {
       return new SpELPlaywellExpression(expression).compile();
+    } else if (Compilers.FAST_PATH.equals(compiler)) {
+      return new FastPathPlaywellExpression(expression).compile();
     } else {
       throw new IllegalArgumentException(
           String.format("Unknown NESTS expression compiler: '%s'", compiler));
@@ -30,6 +33,15 @@ public interface PlaywellExpression {
    */
   PlaywellExpression compile(PlaywellExpressionContext defaultContext);
 
+  /**
+   * 表达式是否已经被编译成了字节码，不支持字节码编译的实现总是返回false
+   *
+   * @return 是否已经编译为字节码
+   */
+  default boolean isBytecodeCompiled() {
+    return false;
+  }
+
   /**
    * 获取表达式的原始字符串表示
    *
@@ -96,5 +108,8 @@ public interface PlaywellExpression {
   interface Compilers {
 
     String SPRING_EL = "spring_el";
+
+    // 常见表达式形式直接执行，其余退回到SpEL
+    String FAST_PATH = "fast_path";
   }
 }
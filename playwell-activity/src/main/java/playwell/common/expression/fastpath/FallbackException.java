@@ -0,0 +1,16 @@
+package playwell.common.expression.fastpath;
+
+/**
+ * 快速路径在求值时遇到无法保证与SpEL语义一致的情况，比如参数类型不匹配，会抛出该异常， 由调用者退回到SpEL重新求值。
+ * 该异常只用于控制流程，因此不记录调用栈
+ *
+ * @author chihongze@gmail.com
+ */
+class FallbackException extends RuntimeException {
+
+  static final FallbackException INSTANCE = new FallbackException();
+
+  private FallbackException() {
+    super(null, null, false, false);
+  }
+}
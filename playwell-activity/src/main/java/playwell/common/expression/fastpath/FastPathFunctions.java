@@ -0,0 +1,144 @@
+package playwell.common.expression.fastpath;
+
+import java.util.HashMap;
+import java.util.Map;
+import playwell.common.argument.BaseArgumentRootContext;
+import playwell.common.argument.ContextVarAccessMixin;
+import playwell.common.argument.EventVarAccessMixin;
+import playwell.common.argument.ResultVarAccessMixin;
+
+/**
+ * 快速路径所支持的根对象函数表，以"函数名/参数个数"作为索引。
+ * 函数直接调用EventVarAccessMixin、ContextVarAccessMixin、ResultVarAccessMixin以及
+ * BaseArgumentRootContext上的方法，参数类型必须与方法签名严格一致，否则退回到SpEL，
+ * 由SpEL完成类型转换以及重载决议
+ *
+ * @author chihongze@gmail.com
+ */
+final class FastPathFunctions {
+
+  private static final Map<String, RootFunction> FUNCTIONS = new HashMap<>();
+
+  static {
+    // EventVarAccessMixin
+    register("eventType", 0, (root, args) -> event(root).eventType());
+    register("eventTypeIs", 1, (root, args) -> event(root).eventTypeIs(str(args[0])));
+    register("eventAttr", 1, (root, args) -> event(root).eventAttr(str(args[0])));
+    register("eventAttr", 2, (root, args) -> event(root).eventAttr(str(args[0]), args[1]));
+    register("strEventAttr", 1, (root, args) -> event(root).strEventAttr(str(args[0])));
+    register("strEventAttr", 2,
+        (root, args) -> event(root).strEventAttr(str(args[0]), str(args[1])));
+    register("intEventAttr", 1, (root, args) -> event(root).intEventAttr(str(args[0])));
+    register("intEventAttr", 2,
+        (root, args) -> event(root).intEventAttr(str(args[0]), intArg(args[1])));
+    register("longEventAttr", 1, (root, args) -> event(root).longEventAttr(str(args[0])));
+    register("boolEventAttr", 1, (root, args) -> event(root).boolEventAttr(str(args[0])));
+    register("containsAttr", 1, (root, args) -> event(root).containsAttr(str(args[0])));
+    register("isAttrEmpty", 1, (root, args) -> event(root).isAttrEmpty(str(args[0])));
+    register("isAttrNotEmpty", 1, (root, args) -> event(root).isAttrNotEmpty(str(args[0])));
+
+    // ContextVarAccessMixin
+    register("$", 1, (root, args) -> context(root).$(str(args[0])));
+    register("$", 2, (root, args) -> context(root).$(str(args[0]), args[1]));
+    register("var", 1, (root, args) -> context(root).var(str(args[0])));
+    register("var", 2, (root, args) -> context(root).var(str(args[0]), args[1]));
+    register("intVar", 1, (root, args) -> context(root).intVar(str(args[0])));
+    register("intVar", 2,
+        (root, args) -> context(root).intVar(str(args[0]), intArg(args[1])));
+    register("longVar", 1, (root, args) -> context(root).longVar(str(args[0])));
+    register("boolVar", 1, (root, args) -> context(root).boolVar(str(args[0])));
+    register("strVar", 1, (root, args) -> context(root).strVar(str(args[0])));
+    register("strVar", 2, (root, args) -> context(root).strVar(str(args[0]), str(args[1])));
+
+    // ResultVarAccessMixin
+    register("resultOk", 0, (root, args) -> result(root).resultOk());
+    register("resultFailure", 0, (root, args) -> result(root).resultFailure());
+    register("resultTimeout", 0, (root, args) -> result(root).resultTimeout());
+    register("resultIgnore", 0, (root, args) -> result(root).resultIgnore());
+    register("errorCode", 0, (root, args) -> result(root).errorCode());
+    register("resultVar", 1, (root, args) -> result(root).resultVar(str(args[0])));
+    register("resultVar", 2, (root, args) -> result(root).resultVar(str(args[0]), args[1]));
+    register("strResultVar", 1, (root, args) -> result(root).strResultVar(str(args[0])));
+    register("intResultVar", 1, (root, args) -> result(root).intResultVar(str(args[0])));
+
+    // BaseArgumentRootContext
+    register("call", 1, (root, args) -> base(root).call(str(args[0])));
+    register("fail", 0, (root, args) -> base(root).fail());
+    register("failBecause", 1, (root, args) -> base(root).failBecause(str(args[0])));
+    register("finish", 0, (root, args) -> base(root).finish());
+    register("retry", 1, (root, args) -> base(root).retry(intArg(args[0])));
+    register("retry", 2, (root, args) -> base(root).retry(intArg(args[0]), str(args[1])));
+    register("repair", 1, (root, args) -> base(root).repair(str(args[0])));
+    register("str", 1, (root, args) -> {
+      base(root);
+      return BaseArgumentRootContext.str(str(args[0]));
+    });
+  }
+
+  private FastPathFunctions() {
+
+  }
+
+  /**
+   * 查找函数
+   *
+   * @param name 函数名称
+   * @param argNum 参数个数
+   * @return 函数，不支持时返回null
+   */
+  static RootFunction lookup(String name, int argNum) {
+    return FUNCTIONS.get(name + "/" + argNum);
+  }
+
+  private static void register(String name, int argNum, RootFunction function) {
+    FUNCTIONS.put(name + "/" + argNum, function);
+  }
+
+  private static EventVarAccessMixin event(Object root) {
+    if (root instanceof EventVarAccessMixin) {
+      return (EventVarAccessMixin) root;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  private static ContextVarAccessMixin context(Object root) {
+    if (root instanceof ContextVarAccessMixin) {
+      return (ContextVarAccessMixin) root;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  private static ResultVarAccessMixin result(Object root) {
+    if (root instanceof ResultVarAccessMixin) {
+      return (ResultVarAccessMixin) root;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  private static BaseArgumentRootContext base(Object root) {
+    if (root instanceof BaseArgumentRootContext) {
+      return (BaseArgumentRootContext) root;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  private static String str(Object arg) {
+    if (arg == null || arg instanceof String) {
+      return (String) arg;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  private static int intArg(Object arg) {
+    if (arg instanceof Integer) {
+      return (Integer) arg;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  @FunctionalInterface
+  interface RootFunction {
+
+    Object invoke(Object root, Object[] args);
+  }
+}
@@ -0,0 +1,356 @@
+package playwell.common.expression.fastpath;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.ast.Operator;
+import playwell.common.argument.EventVarAccessMixin;
+import playwell.common.expression.fastpath.FastPathFunctions.RootFunction;
+
+/**
+ * 快速路径表达式的语法树节点。节点直接访问根对象完成求值， 只处理语义可以和SpEL保持严格一致的类型组合，
+ * 其它情况抛出FallbackException，交由SpEL重新求值
+ *
+ * @author chihongze@gmail.com
+ */
+abstract class FastPathNode {
+
+  /**
+   * 对节点进行求值
+   *
+   * @param root 根对象
+   * @param evaluationContext SpEL上下文，用于相等比较、类型比较以及字符串转换
+   * @return 求值结果
+   */
+  abstract Object evaluate(Object root, EvaluationContext evaluationContext);
+
+  // 常量
+  static class Literal extends FastPathNode {
+
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      return value;
+    }
+  }
+
+  // 根对象上的函数调用，比如$("count")、eventAttr("user_id")
+  static class RootCall extends FastPathNode {
+
+    private final RootFunction function;
+
+    private final FastPathNode[] args;
+
+    RootCall(RootFunction function, FastPathNode[] args) {
+      this.function = function;
+      this.args = args;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      final Object[] values = new Object[args.length];
+      for (int i = 0; i < args.length; i++) {
+        values[i] = args[i].evaluate(root, evaluationContext);
+      }
+      return function.invoke(root, values);
+    }
+  }
+
+  // event.get(name)以及event.get(name, default)
+  static class EventGet extends FastPathNode {
+
+    private final FastPathNode name;
+
+    private final FastPathNode defaultValue;
+
+    EventGet(FastPathNode name, FastPathNode defaultValue) {
+      this.name = name;
+      this.defaultValue = defaultValue;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      if (!(root instanceof EventVarAccessMixin)) {
+        throw FallbackException.INSTANCE;
+      }
+      final Object nameValue = name.evaluate(root, evaluationContext);
+      if (nameValue != null && !(nameValue instanceof String)) {
+        throw FallbackException.INSTANCE;
+      }
+      if (defaultValue == null) {
+        return ((EventVarAccessMixin) root).getEvent().get((String) nameValue);
+      }
+      return ((EventVarAccessMixin) root).getEvent().get(
+          (String) nameValue, defaultValue.evaluate(root, evaluationContext));
+    }
+  }
+
+  // AND和OR，短路求值，操作数必须是Boolean
+  static class Logic extends FastPathNode {
+
+    private final boolean and;
+
+    private final FastPathNode left;
+
+    private final FastPathNode right;
+
+    Logic(boolean and, FastPathNode left, FastPathNode right) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      final boolean leftValue = bool(left.evaluate(root, evaluationContext));
+      if (and != leftValue) {
+        return leftValue;
+      }
+      return bool(right.evaluate(root, evaluationContext));
+    }
+  }
+
+  static class Not extends FastPathNode {
+
+    private final FastPathNode operand;
+
+    Not(FastPathNode operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      return !bool(operand.evaluate(root, evaluationContext));
+    }
+  }
+
+  // ==和!=，与SpEL使用同样的相等性判断
+  static class Equality extends FastPathNode {
+
+    private final boolean equal;
+
+    private final FastPathNode left;
+
+    private final FastPathNode right;
+
+    Equality(boolean equal, FastPathNode left, FastPathNode right) {
+      this.equal = equal;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      final Object leftValue = left.evaluate(root, evaluationContext);
+      final Object rightValue = right.evaluate(root, evaluationContext);
+      return equal == Operator.equalityCheck(evaluationContext, leftValue, rightValue);
+    }
+  }
+
+  // <、<=、>、>=
+  static class Relational extends FastPathNode {
+
+    private final String operator;
+
+    private final FastPathNode left;
+
+    private final FastPathNode right;
+
+    Relational(String operator, FastPathNode left, FastPathNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      final Object leftValue = left.evaluate(root, evaluationContext);
+      final Object rightValue = right.evaluate(root, evaluationContext);
+      if (leftValue instanceof Number && rightValue instanceof Number) {
+        checkNumber(leftValue);
+        checkNumber(rightValue);
+        if (leftValue instanceof Double || rightValue instanceof Double) {
+          // 与SpEL一致，使用基本类型比较，NaN参与的比较均为false
+          final double l = ((Number) leftValue).doubleValue();
+          final double r = ((Number) rightValue).doubleValue();
+          switch (operator) {
+            case "<":
+              return l < r;
+            case "<=":
+              return l <= r;
+            case ">":
+              return l > r;
+            default:
+              return l >= r;
+          }
+        }
+        return compareResult(Long.compare(
+            ((Number) leftValue).longValue(), ((Number) rightValue).longValue()));
+      }
+
+      if (leftValue instanceof CharSequence && rightValue instanceof CharSequence) {
+        return compareResult(evaluationContext.getTypeComparator().compare(
+            leftValue.toString(), rightValue.toString()));
+      }
+      return compareResult(
+          evaluationContext.getTypeComparator().compare(leftValue, rightValue));
+    }
+
+    private boolean compareResult(int result) {
+      switch (operator) {
+        case "<":
+          return result < 0;
+        case "<=":
+          return result <= 0;
+        case ">":
+          return result > 0;
+        default:
+          return result >= 0;
+      }
+    }
+  }
+
+  // +、-、*、/、%，数值只处理Integer、Long、Double，字符串只处理拼接
+  static class Arithmetic extends FastPathNode {
+
+    private final char operator;
+
+    private final FastPathNode left;
+
+    private final FastPathNode right;
+
+    Arithmetic(char operator, FastPathNode left, FastPathNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      final Object leftValue = left.evaluate(root, evaluationContext);
+      final Object rightValue = right.evaluate(root, evaluationContext);
+
+      if (leftValue instanceof Number && rightValue instanceof Number) {
+        checkNumber(leftValue);
+        checkNumber(rightValue);
+        final Number l = (Number) leftValue;
+        final Number r = (Number) rightValue;
+        if (l instanceof Double || r instanceof Double) {
+          return calculate(l.doubleValue(), r.doubleValue());
+        } else if (l instanceof Long || r instanceof Long) {
+          return calculate(l.longValue(), r.longValue());
+        } else {
+          return calculate(l.intValue(), r.intValue());
+        }
+      }
+
+      if (operator == '+' && (leftValue instanceof String || rightValue instanceof String)) {
+        return concatString(leftValue) + concatString(rightValue);
+      }
+
+      throw FallbackException.INSTANCE;
+    }
+
+    private Object calculate(double l, double r) {
+      switch (operator) {
+        case '+':
+          return l + r;
+        case '-':
+          return l - r;
+        case '*':
+          return l * r;
+        case '/':
+          return l / r;
+        default:
+          return l % r;
+      }
+    }
+
+    private Object calculate(long l, long r) {
+      switch (operator) {
+        case '+':
+          return l + r;
+        case '-':
+          return l - r;
+        case '*':
+          return l * r;
+        case '/':
+          return l / r;
+        default:
+          return l % r;
+      }
+    }
+
+    private Object calculate(int l, int r) {
+      switch (operator) {
+        case '+':
+          return l + r;
+        case '-':
+          return l - r;
+        case '*':
+          return l * r;
+        case '/':
+          return l / r;
+        default:
+          return l % r;
+      }
+    }
+
+    // 只拼接toString结果与SpEL类型转换结果一致的类型
+    private static String concatString(Object value) {
+      if (value == null) {
+        return "null";
+      }
+      if (value instanceof String || value instanceof Integer || value instanceof Long
+          || value instanceof Double || value instanceof Boolean || value instanceof Character) {
+        return value.toString();
+      }
+      throw FallbackException.INSTANCE;
+    }
+  }
+
+  // 一元正负号
+  static class Sign extends FastPathNode {
+
+    private final boolean negative;
+
+    private final FastPathNode operand;
+
+    Sign(boolean negative, FastPathNode operand) {
+      this.negative = negative;
+      this.operand = operand;
+    }
+
+    @Override
+    Object evaluate(Object root, EvaluationContext evaluationContext) {
+      final Object value = operand.evaluate(root, evaluationContext);
+      checkNumber(value);
+      if (!negative) {
+        return value;
+      }
+      if (value instanceof Double) {
+        return -(Double) value;
+      } else if (value instanceof Long) {
+        return -(Long) value;
+      } else {
+        return -(Integer) value;
+      }
+    }
+  }
+
+  private static boolean bool(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    throw FallbackException.INSTANCE;
+  }
+
+  private static void checkNumber(Object value) {
+    if (!(value instanceof Integer || value instanceof Long || value instanceof Double)) {
+      throw FallbackException.INSTANCE;
+    }
+  }
+}
@@ -0,0 +1,453 @@
+package playwell.common.expression.fastpath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import playwell.common.expression.fastpath.FastPathFunctions.RootFunction;
+
+/**
+ * 快速路径表达式解析器，识别Playwell表达式中最常见的形式：
+ * 字面量、根对象上的访问函数、event.get、逻辑运算、比较运算以及四则运算。
+ * 运算符优先级与SpEL保持一致，遇到不支持的语法直接放弃，由SpEL负责执行
+ *
+ * @author chihongze@gmail.com
+ */
+final class FastPathParser {
+
+  private final String expression;
+
+  private final List<Token> tokens;
+
+  private int position = 0;
+
+  private FastPathParser(String expression, List<Token> tokens) {
+    this.expression = expression;
+    this.tokens = tokens;
+  }
+
+  /**
+   * 解析表达式
+   *
+   * @param expression 表达式字符串
+   * @return 解析得到的语法树，不支持的表达式返回empty
+   */
+  static Optional<FastPathNode> parse(String expression) {
+    final List<Token> tokens = tokenize(expression);
+    if (tokens == null) {
+      return Optional.empty();
+    }
+    try {
+      final FastPathParser parser = new FastPathParser(expression, tokens);
+      final FastPathNode node = parser.parseLogicalOr();
+      if (parser.peek().kind != TokenKind.EOF) {
+        return Optional.empty();
+      }
+      return Optional.of(node);
+    } catch (UnsupportedSyntaxException e) {
+      return Optional.empty();
+    }
+  }
+
+  private FastPathNode parseLogicalOr() {
+    FastPathNode node = parseLogicalAnd();
+    while (peekOperator("||")) {
+      next();
+      node = new FastPathNode.Logic(false, node, parseLogicalAnd());
+    }
+    return node;
+  }
+
+  private FastPathNode parseLogicalAnd() {
+    FastPathNode node = parseRelational();
+    while (peekOperator("&&")) {
+      next();
+      node = new FastPathNode.Logic(true, node, parseRelational());
+    }
+    return node;
+  }
+
+  // SpEL中比较运算不能连续出现，a < b < c属于语法错误
+  private FastPathNode parseRelational() {
+    final FastPathNode left = parseSum();
+    final Token token = peek();
+    if (token.kind != TokenKind.OPERATOR) {
+      return left;
+    }
+    switch (token.text) {
+      case "==":
+        next();
+        return new FastPathNode.Equality(true, left, parseSum());
+      case "!=":
+        next();
+        return new FastPathNode.Equality(false, left, parseSum());
+      case "<":
+      case "<=":
+      case ">":
+      case ">=":
+        next();
+        return new FastPathNode.Relational(token.text, left, parseSum());
+      default:
+        return left;
+    }
+  }
+
+  private FastPathNode parseSum() {
+    FastPathNode node = parseProduct();
+    while (peekOperator("+") || peekOperator("-")) {
+      final Token token = next();
+      node = new FastPathNode.Arithmetic(token.text.charAt(0), node, parseProduct());
+    }
+    return node;
+  }
+
+  private FastPathNode parseProduct() {
+    FastPathNode node = parseUnary();
+    while (peekOperator("*") || peekOperator("/") || peekOperator("%")) {
+      final Token token = next();
+      node = new FastPathNode.Arithmetic(token.text.charAt(0), node, parseUnary());
+    }
+    return node;
+  }
+
+  private FastPathNode parseUnary() {
+    if (peekOperator("!")) {
+      next();
+      return new FastPathNode.Not(parseUnary());
+    } else if (peekOperator("-")) {
+      next();
+      return new FastPathNode.Sign(true, parseUnary());
+    } else if (peekOperator("+")) {
+      next();
+      return new FastPathNode.Sign(false, parseUnary());
+    }
+    return parsePrimary();
+  }
+
+  private FastPathNode parsePrimary() {
+    final Token token = next();
+    switch (token.kind) {
+      case LITERAL:
+        return new FastPathNode.Literal(token.value);
+      case LPAREN: {
+        final FastPathNode node = parseLogicalOr();
+        expect(TokenKind.RPAREN);
+        return node;
+      }
+      case IDENTIFIER:
+        return parseIdentifier(token);
+      default:
+        throw UnsupportedSyntaxException.INSTANCE;
+    }
+  }
+
+  private FastPathNode parseIdentifier(Token identifier) {
+    if (peek().kind == TokenKind.LPAREN) {
+      final List<FastPathNode> args = parseArgs();
+      final RootFunction function = FastPathFunctions.lookup(identifier.text, args.size());
+      if (function == null) {
+        throw UnsupportedSyntaxException.INSTANCE;
+      }
+      return new FastPathNode.RootCall(function, args.toArray(new FastPathNode[0]));
+    }
+
+    if ("event".equals(identifier.text) && peek().kind == TokenKind.DOT) {
+      next();
+      final Token method = next();
+      if (method.kind != TokenKind.IDENTIFIER || !"get".equals(method.text)
+          || peek().kind != TokenKind.LPAREN) {
+        throw UnsupportedSyntaxException.INSTANCE;
+      }
+      final List<FastPathNode> args = parseArgs();
+      if (args.size() == 1) {
+        return new FastPathNode.EventGet(args.get(0), null);
+      } else if (args.size() == 2) {
+        return new FastPathNode.EventGet(args.get(0), args.get(1));
+      }
+    }
+
+    throw UnsupportedSyntaxException.INSTANCE;
+  }
+
+  private List<FastPathNode> parseArgs() {
+    expect(TokenKind.LPAREN);
+    final List<FastPathNode> args = new ArrayList<>(2);
+    if (peek().kind == TokenKind.RPAREN) {
+      next();
+      return args;
+    }
+    while (true) {
+      args.add(parseLogicalOr());
+      final Token token = next();
+      if (token.kind == TokenKind.RPAREN) {
+        return args;
+      } else if (token.kind != TokenKind.COMMA) {
+        throw UnsupportedSyntaxException.INSTANCE;
+      }
+    }
+  }
+
+  private boolean peekOperator(String operator) {
+    final Token token = peek();
+    return token.kind == TokenKind.OPERATOR && token.text.equals(operator);
+  }
+
+  private Token peek() {
+    return tokens.get(position);
+  }
+
+  private Token next() {
+    final Token token = tokens.get(position);
+    if (token.kind != TokenKind.EOF) {
+      position++;
+    }
+    return token;
+  }
+
+  private void expect(TokenKind kind) {
+    if (next().kind != kind) {
+      throw UnsupportedSyntaxException.INSTANCE;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  // 词法分析，遇到不支持的字符或者字面量形式返回null
+  private static List<Token> tokenize(String expression) {
+    final List<Token> tokens = new ArrayList<>();
+    final int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      final char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'' || c == '"') {
+        final StringBuilder buffer = new StringBuilder();
+        int j = i + 1;
+        while (true) {
+          if (j >= length) {
+            return null;
+          }
+          final char ch = expression.charAt(j);
+          if (ch == c) {
+            // 与SpEL一致，两个连续的引号表示引号本身
+            if (j + 1 < length && expression.charAt(j + 1) == c) {
+              buffer.append(c);
+              j += 2;
+              continue;
+            }
+            break;
+          }
+          buffer.append(ch);
+          j++;
+        }
+        tokens.add(Token.literal(buffer.toString()));
+        i = j + 1;
+      } else if (c >= '0' && c <= '9') {
+        int j = i;
+        while (j < length && Character.isDigit(expression.charAt(j))) {
+          j++;
+        }
+        boolean real = false;
+        if (j + 1 < length && expression.charAt(j) == '.'
+            && Character.isDigit(expression.charAt(j + 1))) {
+          real = true;
+          j++;
+          while (j < length && Character.isDigit(expression.charAt(j))) {
+            j++;
+          }
+        }
+        final String digits = expression.substring(i, j);
+        final Object value;
+        try {
+          if (j < length && (expression.charAt(j) == 'L' || expression.charAt(j) == 'l')) {
+            if (real) {
+              return null;
+            }
+            value = Long.parseLong(digits);
+            j++;
+          } else if (j < length && (expression.charAt(j) == 'D' || expression.charAt(j) == 'd')) {
+            if (!real) {
+              return null;
+            }
+            value = Double.parseDouble(digits);
+            j++;
+          } else if (real) {
+            value = Double.parseDouble(digits);
+          } else {
+            value = Integer.parseInt(digits);
+          }
+        } catch (NumberFormatException e) {
+          return null;
+        }
+        // 科学计数法、十六进制、float等形式交给SpEL处理
+        if (j < length && isIdentifierPart(expression.charAt(j))) {
+          return null;
+        }
+        tokens.add(Token.literal(value));
+        i = j;
+      } else if (isIdentifierStart(c)) {
+        int j = i + 1;
+        while (j < length && isIdentifierPart(expression.charAt(j))) {
+          j++;
+        }
+        final Token token = identifierOrKeyword(expression.substring(i, j));
+        if (token == null) {
+          return null;
+        }
+        tokens.add(token);
+        i = j;
+      } else {
+        final String twoChars = i + 1 < length ? expression.substring(i, i + 2) : "";
+        switch (twoChars) {
+          case "==":
+          case "!=":
+          case "<=":
+          case ">=":
+          case "&&":
+          case "||":
+            tokens.add(Token.operator(twoChars));
+            i += 2;
+            continue;
+          case "++":
+          case "--":
+            return null;
+          default:
+            break;
+        }
+        switch (c) {
+          case '(':
+            tokens.add(new Token(TokenKind.LPAREN, "(", null));
+            break;
+          case ')':
+            tokens.add(new Token(TokenKind.RPAREN, ")", null));
+            break;
+          case ',':
+            tokens.add(new Token(TokenKind.COMMA, ",", null));
+            break;
+          case '.':
+            tokens.add(new Token(TokenKind.DOT, ".", null));
+            break;
+          case '<':
+          case '>':
+          case '+':
+          case '-':
+          case '*':
+          case '/':
+          case '%':
+          case '!':
+            tokens.add(Token.operator(String.valueOf(c)));
+            break;
+          default:
+            return null;
+        }
+        i++;
+      }
+    }
+    tokens.add(new Token(TokenKind.EOF, "", null));
+    return tokens;
+  }
+
+  // SpEL会把这些单词无论大小写都识别为运算符或者字面量
+  private static Token identifierOrKeyword(String word) {
+    switch (word.toLowerCase()) {
+      case "and":
+        return Token.operator("&&");
+      case "or":
+        return Token.operator("||");
+      case "not":
+        return Token.operator("!");
+      case "eq":
+        return Token.operator("==");
+      case "ne":
+        return Token.operator("!=");
+      case "lt":
+        return Token.operator("<");
+      case "le":
+        return Token.operator("<=");
+      case "gt":
+        return Token.operator(">");
+      case "ge":
+        return Token.operator(">=");
+      case "div":
+        return Token.operator("/");
+      case "mod":
+        return Token.operator("%");
+      case "true":
+        return Token.literal(Boolean.TRUE);
+      case "false":
+        return Token.literal(Boolean.FALSE);
+      case "null":
+        return Token.literal(null);
+      case "new":
+      case "instanceof":
+      case "matches":
+      case "between":
+        return null;
+      default:
+        return new Token(TokenKind.IDENTIFIER, word, null);
+    }
+  }
+
+  private static boolean isIdentifierStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return isIdentifierStart(c) || (c >= '0' && c <= '9');
+  }
+
+  enum TokenKind {
+
+    LITERAL,
+
+    IDENTIFIER,
+
+    OPERATOR,
+
+    LPAREN,
+
+    RPAREN,
+
+    COMMA,
+
+    DOT,
+
+    EOF,
+  }
+
+  static class Token {
+
+    final TokenKind kind;
+
+    final String text;
+
+    final Object value;
+
+    Token(TokenKind kind, String text, Object value) {
+      this.kind = kind;
+      this.text = text;
+      this.value = value;
+    }
+
+    static Token literal(Object value) {
+      return new Token(TokenKind.LITERAL, "", value);
+    }
+
+    static Token operator(String text) {
+      return new Token(TokenKind.OPERATOR, text, null);
+    }
+  }
+
+  // 语法分析过程中遇到不支持的语法
+  private static class UnsupportedSyntaxException extends RuntimeException {
+
+    static final UnsupportedSyntaxException INSTANCE = new UnsupportedSyntaxException();
+
+    private UnsupportedSyntaxException() {
+      super(null, null, false, false);
+    }
+  }
+}
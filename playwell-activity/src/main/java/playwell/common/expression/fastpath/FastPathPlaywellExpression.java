@@ -0,0 +1,170 @@
+package playwell.common.expression.fastpath;
+
+import java.util.Objects;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import playwell.common.expression.PlaywellExpression;
+import playwell.common.expression.PlaywellExpressionContext;
+import playwell.common.expression.spel.SpELPlaywellExpression;
+import playwell.common.expression.spel.SpELPlaywellExpressionContext;
+
+/**
+ * 快速路径表达式
+ *
+ * <p>在编译时识别Playwell中最常见的表达式形式，比如$("count") + 1、eventAttr("amount") > 100 AND resultOk()，
+ * 预先构建出直接访问EventVarAccessMixin、ContextVarAccessMixin、ResultVarAccessMixin的语法树，
+ * 执行时不再经过SpEL的反射属性解析和方法查找。</p>
+ *
+ * <p>不能识别的表达式以及执行时遇到的非常规类型组合，都会退回到同时编译好的SpEL表达式，
+ * 因此两者的执行结果总是一致的。表达式上下文必须是SpELPlaywellExpressionContext。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class FastPathPlaywellExpression implements PlaywellExpression {
+
+  // 原始的表达式字符串
+  private final String expressionString;
+
+  // 作为兜底的SpEL表达式
+  private final SpELPlaywellExpression delegate;
+
+  // 快速路径语法树，为null表示该表达式只能由SpEL执行
+  private volatile FastPathNode fastPathNode = null;
+
+  public FastPathPlaywellExpression(String expressionString) {
+    this.expressionString = expressionString;
+    this.delegate = new SpELPlaywellExpression(expressionString);
+  }
+
+  @Override
+  public synchronized PlaywellExpression compile() {
+    // 先由SpEL编译，保证语法错误的报告方式不变
+    delegate.compile();
+    if (!expressionString.contains("${")) {
+      this.fastPathNode = FastPathParser.parse(expressionString).orElse(null);
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized PlaywellExpression compile(PlaywellExpressionContext defaultContext) {
+    delegate.compile(defaultContext);
+    if (!expressionString.contains("${")) {
+      this.fastPathNode = FastPathParser.parse(expressionString).orElse(null);
+    }
+    return this;
+  }
+
+  @Override
+  public String getExpressionString() {
+    return expressionString;
+  }
+
+  /**
+   * 表达式是否可以通过快速路径执行
+   *
+   * @return 是否被快速路径识别
+   */
+  public boolean isFastPath() {
+    return fastPathNode != null;
+  }
+
+  @Override
+  public Object getResult() {
+    return delegate.getResult();
+  }
+
+  @Override
+  public Object getResult(PlaywellExpressionContext context) {
+    final FastPathNode node = this.fastPathNode;
+    if (node != null && context instanceof SpELPlaywellExpressionContext) {
+      try {
+        return evaluate(node, (SpELPlaywellExpressionContext) context);
+      } catch (RuntimeException e) {
+        // 交给SpEL重新执行，异常也由SpEL抛出
+      }
+    }
+    return delegate.getResult(context);
+  }
+
+  @Override
+  public Object getResult(PlaywellExpressionContext context, boolean extendsDefaultContext) {
+    // 快速路径不会访问上下文中的变量和函数，因此无需继承默认上下文
+    if (fastPathNode == null) {
+      return delegate.getResult(context, extendsDefaultContext);
+    }
+    return getResult(context);
+  }
+
+  @Override
+  public <T> T getResultWithType(Class<T> clazz) {
+    return delegate.getResultWithType(clazz);
+  }
+
+  @Override
+  public <T> T getResultWithType(PlaywellExpressionContext context, Class<T> clazz) {
+    final FastPathNode node = this.fastPathNode;
+    if (node != null && context instanceof SpELPlaywellExpressionContext) {
+      try {
+        final Object result = evaluate(node, (SpELPlaywellExpressionContext) context);
+        if (isIdentityConversion(result, clazz)) {
+          return clazz.cast(result);
+        }
+      } catch (RuntimeException e) {
+        // 交给SpEL重新执行，异常也由SpEL抛出
+      }
+    }
+    return delegate.getResultWithType(context, clazz);
+  }
+
+  @Override
+  public <T> T getResultWithType(PlaywellExpressionContext context, Class<T> clazz,
+      boolean extendsDefaultContext) {
+    if (fastPathNode == null) {
+      return delegate.getResultWithType(context, clazz, extendsDefaultContext);
+    }
+    return getResultWithType(context, clazz);
+  }
+
+  @Override
+  public boolean isBytecodeCompiled() {
+    return delegate.isBytecodeCompiled();
+  }
+
+  private static Object evaluate(FastPathNode node, SpELPlaywellExpressionContext context) {
+    final StandardEvaluationContext evaluationContext = context.getStandardEvaluationContext();
+    return node.evaluate(evaluationContext.getRootObject().getValue(), evaluationContext);
+  }
+
+  // 只有这些类型经过SpEL的类型转换之后仍然是原对象，其余情况交给SpEL转换
+  private static boolean isIdentityConversion(Object result, Class<?> clazz) {
+    if (result == null || !clazz.isInstance(result)) {
+      return false;
+    }
+    final Class<?> resultClass = result.getClass();
+    return clazz == Object.class || resultClass == String.class || resultClass == Boolean.class
+        || resultClass == Integer.class || resultClass == Long.class
+        || resultClass == Double.class;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    FastPathPlaywellExpression that = (FastPathPlaywellExpression) o;
+    return Objects.equals(expressionString, that.expressionString);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(expressionString);
+  }
+
+  @Override
+  public String toString() {
+    return this.expressionString;
+  }
+}
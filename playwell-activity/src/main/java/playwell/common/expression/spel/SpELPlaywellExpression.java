@@ -1,12 +1,20 @@
 package playwell.common.expression.spel;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.Objects;
 import org.apache.commons.collections4.MapUtils;
+import org.springframework.core.SpringProperties;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.common.CompositeStringExpression;
+import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.SpelNodeImpl;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import playwell.common.expression.AlreadyCompiledException;
 import playwell.common.expression.NotCompiledException;
@@ -16,11 +24,26 @@ import playwell.common.expression.PlaywellExpressionContext;
 /**
  * 针对Spring-el Expression对象的封装
  *
+ * <p>默认使用MIXED编译模式：表达式先以解释方式执行，执行一定次数之后会被编译为字节码；
+ * 如果编译后的代码在运行时因为类型变化而失败，会自动退回到解释执行。
+ * 可以通过Spring的spring.expression.compiler.mode属性覆盖编译模式</p>
+ *
  * @author chihongze@gmail.com
  */
 public class SpELPlaywellExpression implements PlaywellExpression {
 
-  public static final ExpressionParser DEFAULT_PARSER = new SpelExpressionParser();
+  private static final String COMPILER_MODE_PROPERTY = "spring.expression.compiler.mode";
+
+  public static final ExpressionParser DEFAULT_PARSER = new SpelExpressionParser(
+      new SpelParserConfiguration(
+          SpringProperties.getProperty(COMPILER_MODE_PROPERTY) == null
+              ? SpelCompilerMode.MIXED : null,
+          SpELPlaywellExpression.class.getClassLoader()
+      )
+  );
+
+  // SpelExpression中保存字节码编译结果的字段，只读取，不主动触发编译
+  private static final Field COMPILED_AST_FIELD = findCompiledAstField();
 
   // 表达式编译所需要使用的Parser
   private final ExpressionParser elParser;
@@ -127,6 +150,56 @@ public class SpELPlaywellExpression implements PlaywellExpression {
         ((SpELPlaywellExpressionContext) context).getStandardEvaluationContext(), clazz);
   }
 
+  /**
+   * 判断表达式是否已经被编译成了字节码，模板表达式需要其中所有的子表达式都被编译。
+   * 只读取当前的编译状态，编译由SpEL在MIXED模式下执行达到阈值后自行完成
+   *
+   * @return 是否已经编译为字节码
+   */
+  @Override
+  public boolean isBytecodeCompiled() {
+    checkCompiled();
+    if (compiledExpression instanceof CompositeStringExpression) {
+      for (Expression expression : ((CompositeStringExpression) compiledExpression)
+          .getExpressions()) {
+        if (!isBytecodeCompiled(expression)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return isBytecodeCompiled(compiledExpression);
+  }
+
+  private static boolean isBytecodeCompiled(Expression expression) {
+    if (expression instanceof LiteralExpression) {
+      return true;
+    } else if (expression instanceof SpelExpression) {
+      final SpelExpression spelExpression = (SpelExpression) expression;
+      if (COMPILED_AST_FIELD == null
+          || !((SpelNodeImpl) spelExpression.getAST()).isCompilable()) {
+        return false;
+      }
+      try {
+        return COMPILED_AST_FIELD.get(spelExpression) != null;
+      } catch (IllegalAccessException e) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  // 调用compileExpression()会真正执行编译并消耗失败次数，因此这里只通过反射读取编译状态
+  private static Field findCompiledAstField() {
+    try {
+      final Field field = SpelExpression.class.getDeclaredField("compiledAst");
+      field.setAccessible(true);
+      return field;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
   // 判断当前表达式是否已经被编译过，如果没有编译，那么会抛出NotCompiledException
   private void checkCompiled() {
     if (this.compiledExpression == null) {
@@ -2,19 +2,43 @@ package playwell.common.expression.spel;
 
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.expression.spel.support.StandardTypeConverter;
+import org.springframework.expression.spel.support.StandardTypeLocator;
 import playwell.common.expression.PlaywellExpressionContext;
 
 /**
  * 基于Spring EL StandardEvaluationContext所实现的Context对象
  *
+ * <p>每次求值都会创建新的Context，因此属性访问器、方法解析器等无状态且线程安全的组件在所有Context之间共享，
+ * 属性访问器内部缓存的反射结果也因此可以被复用。共享的组件列表不可修改</p>
+ *
  * @author chihongze@gmail.com
  */
 public class SpELPlaywellExpressionContext implements PlaywellExpressionContext {
 
+  private static final List<PropertyAccessor> SHARED_PROPERTY_ACCESSORS = Collections
+      .singletonList(new ReflectivePropertyAccessor());
+
+  private static final List<MethodResolver> SHARED_METHOD_RESOLVERS = Collections
+      .singletonList(new ReflectiveMethodResolver());
+
+  private static final TypeConverter SHARED_TYPE_CONVERTER = new StandardTypeConverter();
+
+  private static final TypeLocator SHARED_TYPE_LOCATOR = new StandardTypeLocator(
+      SpELPlaywellExpressionContext.class.getClassLoader());
+
   private final StandardEvaluationContext ctx;
 
   private Map<String, Method> registeredFunctions;
@@ -23,6 +47,10 @@ public class SpELPlaywellExpressionContext implements PlaywellExpressionContext
 
   public SpELPlaywellExpressionContext() {
     this.ctx = new StandardEvaluationContext();
+    this.ctx.setPropertyAccessors(SHARED_PROPERTY_ACCESSORS);
+    this.ctx.setMethodResolvers(SHARED_METHOD_RESOLVERS);
+    this.ctx.setTypeConverter(SHARED_TYPE_CONVERTER);
+    this.ctx.setTypeLocator(SHARED_TYPE_LOCATOR);
     this.registeredFunctions = null;
     this.registeredVariables = null;
   }
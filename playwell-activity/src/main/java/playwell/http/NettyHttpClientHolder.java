@@ -50,14 +50,18 @@ public class NettyHttpClientHolder implements Closeable {
     final int connectTimeout = configuration.getInt(ConfigItems.CONNECT_TIMEOUT);
     final int requestTimeout = configuration.getInt(ConfigItems.REQUEST_TIMEOUT);
     final int readTimeout = configuration.getInt(ConfigItems.READ_TIMEOUT);
-    final int maxRetry = configuration.getInt(ConfigItems.MAX_RETRY, ConfigItems.DEFAULT_MAX_RETRY);
+    final int maxConnectionsPerHost = configuration.getInt(
+        ConfigItems.MAX_CONNECTIONS_PER_HOST, ConfigItems.DEFAULT_MAX_CONNECTIONS_PER_HOST);
 
     final AsyncHttpClientConfig asyncHttpClientConfig = new DefaultAsyncHttpClientConfig.Builder()
         .setEventLoopGroup(eventLoopGroup)
         .setConnectTimeout(connectTimeout)
         .setRequestTimeout(requestTimeout)
         .setReadTimeout(readTimeout)
-        .setMaxRequestRetry(maxRetry)
+        // 使用方各自按照状态码和退避时间重试，客户端内部不再重试，避免重试次数叠加
+        .setMaxRequestRetry(0)
+        .setKeepAlive(true)
+        .setMaxConnectionsPerHost(maxConnectionsPerHost)
         .build();
 
     this.asyncHttpClient = new DefaultAsyncHttpClient(asyncHttpClientConfig);
@@ -84,9 +88,9 @@ public class NettyHttpClientHolder implements Closeable {
 
     String READ_TIMEOUT = "read_timeout";
 
-    String MAX_RETRY = "max_retry";
-
-    int DEFAULT_MAX_RETRY = 3;
+    // 每个Host的最大连接数，连接会被复用，-1表示不限制
+    String MAX_CONNECTIONS_PER_HOST = "max_connections_per_host";
+    int DEFAULT_MAX_CONNECTIONS_PER_HOST = -1;
   }
 
   interface EventLoopTypes {
@@ -1,25 +1,47 @@
 package playwell.message.bus;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import playwell.common.EasyMap;
 import playwell.kafka.KafkaConsumerManager;
 import playwell.kafka.KafkaProducerManager;
 import playwell.message.Message;
+import playwell.message.bus.codec.BinaryMessageCodec;
 import playwell.message.bus.codec.JSONObjectMessageCodec;
 
 /**
@@ -31,6 +53,11 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
 
   private static final JSONObjectMessageCodec codec = new JSONObjectMessageCodec();
 
+  private static final BinaryMessageCodec binaryCodec = new BinaryMessageCodec();
+
+  // 批量写入时每个编码任务处理的消息数目
+  private static final int ENCODE_CHUNK_SIZE = 256;
+
   // Kafka Producer
   protected KafkaProducer<String, String> kafkaProducer;
 
@@ -54,6 +81,40 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
   // Seek to
   protected String seekTo;
 
+  // 是否按照maxFetchNum限制每次读取的消息数目，超出的记录缓存到下次读取
+  protected boolean boundedPoll = false;
+
+  // 按Partition并行解码的线程数目
+  protected int decodeThreads = 0;
+
+  // 允许同时存在的未确认消息数目
+  protected int maxInFlight = Integer.MAX_VALUE;
+
+  // 未确认消息的许可
+  private Semaphore inFlightPermits = new Semaphore(Integer.MAX_VALUE);
+
+  // 尚未完成或者已经失败但还没有被awaitWrites报告的写入批次，成功完成的批次会自行移除
+  private final Set<CompletableFuture<Void>> pendingWrites = ConcurrentHashMap.newKeySet();
+
+  // 批量写入的编码线程数目
+  protected int encodeThreads = 0;
+
+  // 批量写入的编码线程池，为null时在写入线程上编码
+  private ExecutorService encodePool = null;
+
+  // 按Partition并行解码的线程池，为null时在读取线程上串行解码
+  private ExecutorService decodePool = null;
+
+  // 有界读取模式下尚未交付的记录，按照Partition分组并保持offset顺序
+  private final Map<TopicPartition, Deque<ConsumerRecord<String, String>>> pendingRecords =
+      new LinkedHashMap<>();
+
+  // 有界读取模式下已经交付但尚未提交的offset
+  private final Map<TopicPartition, OffsetAndMetadata> handedOutOffsets = new HashMap<>();
+
+  // 是否采用二进制格式写入消息
+  protected boolean binaryFormat = false;
+
   private EasyMap configuration;
 
   @Override
@@ -61,6 +122,23 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
     this.configuration = configuration;
     this.topic = configuration.getString(ConfigItems.TOPIC);
     this.seekTo = configuration.getString(ConfigItems.SEEK_TO, "");
+    this.boundedPoll = configuration.getBoolean(
+        ConfigItems.BOUNDED_POLL, ConfigItems.DEFAULT_BOUNDED_POLL);
+    this.decodeThreads = configuration.getInt(
+        ConfigItems.DECODE_THREADS, ConfigItems.DEFAULT_DECODE_THREADS);
+    final int maxInFlightConfig = configuration.getInt(
+        ConfigItems.MAX_IN_FLIGHT, ConfigItems.DEFAULT_MAX_IN_FLIGHT);
+    this.maxInFlight = maxInFlightConfig > 0 ? maxInFlightConfig : Integer.MAX_VALUE;
+    this.inFlightPermits = new Semaphore(maxInFlight);
+    this.encodeThreads = configuration.getInt(
+        ConfigItems.ENCODE_THREADS, ConfigItems.DEFAULT_ENCODE_THREADS);
+    final String codecName = configuration.getString(ConfigItems.CODEC, ConfigItems.DEFAULT_CODEC);
+    if (Codecs.BINARY.equals(codecName)) {
+      this.binaryFormat = true;
+    } else if (!Codecs.JSON.equals(codecName)) {
+      throw new RuntimeException(String.format(
+          "Unknown codec '%s' of the message bus: %s", codecName, name()));
+    }
   }
 
   @Override
@@ -70,6 +148,18 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
     this.openKafkaProducer();
     // 开启MessageBus所需要的Consumer
     this.openKafkaConsumer();
+    if (boundedPoll && decodeThreads > 0) {
+      this.decodePool = Executors.newFixedThreadPool(decodeThreads, new ThreadFactoryBuilder()
+          .setNameFormat(String.format("%s-decode-%%d", name()))
+          .setDaemon(true)
+          .build());
+    }
+    if (encodeThreads > 0) {
+      this.encodePool = Executors.newFixedThreadPool(encodeThreads, new ThreadFactoryBuilder()
+          .setNameFormat(String.format("%s-encode-%%d", name()))
+          .setDaemon(true)
+          .build());
+    }
   }
 
   private void openKafkaProducer() {
@@ -115,31 +205,160 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
   @Override
   public void write(Message message) throws MessageBusNotAvailableException {
     checkAvailable();
-    write(kafkaProducer, message);
+    final CompletableFuture<Void> future = trackWrite();
+    try {
+      send(encodeMessage(message), exception -> {
+        if (exception != null) {
+          future.completeExceptionally(exception);
+        } else {
+          future.complete(null);
+        }
+      });
+    } catch (RuntimeException e) {
+      // 同步抛出的错误已经交给了调用方，不再由awaitWrites重复报告
+      pendingWrites.remove(future);
+      throw e;
+    }
   }
 
   @Override
   public void write(Collection<Message> messages) throws MessageBusNotAvailableException {
+    writeAsync(messages);
+  }
+
+  /**
+   * 批量写入消息，返回整批消息的完成句柄。未被确认的消息数目达到max_in_flight时，写入会阻塞直到有消息被确认，
+   * 以此对调用方形成背压
+   *
+   * @param messages 要写入的消息
+   * @return 整批消息都被Kafka确认后完成，任何一条消息失败都会以异常完成
+   */
+  public CompletableFuture<Void> writeAsync(Collection<Message> messages)
+      throws MessageBusNotAvailableException {
     checkAvailable();
 
     if (CollectionUtils.isEmpty(messages)) {
-      return;
+      return CompletableFuture.completedFuture(null);
     }
 
-    for (Message message : messages) {
-      this.write(kafkaProducer, message);
+    final List<String> encodedMessages = encode(messages);
+    final CompletableFuture<Void> batchFuture = trackWrite();
+    final AtomicInteger remaining = new AtomicInteger(encodedMessages.size());
+    try {
+      for (String encodedMessage : encodedMessages) {
+        send(encodedMessage, exception -> {
+          if (exception != null) {
+            batchFuture.completeExceptionally(exception);
+          } else if (remaining.decrementAndGet() == 0) {
+            batchFuture.complete(null);
+          }
+        });
+      }
+    } catch (RuntimeException e) {
+      pendingWrites.remove(batchFuture);
+      throw e;
     }
+    return batchFuture;
   }
 
-  private void write(KafkaProducer<String, String> producer, Message message)
-      throws MessageBusNotAvailableException {
-    checkAvailable();
+  // 登记一个写入批次，成功完成之后自动移除，失败的批次保留到被awaitWrites报告为止
+  private CompletableFuture<Void> trackWrite() {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    pendingWrites.add(future);
+    future.thenRun(() -> pendingWrites.remove(future));
+    return future;
+  }
+
+  // 消息较多并且配置了编码线程池时，分段在线程池中编码，保持原有顺序
+  private List<String> encode(Collection<Message> messages) {
+    if (encodePool == null || messages.size() < ENCODE_CHUNK_SIZE * 2) {
+      return messages.stream().map(message -> encodeMessage(message))
+          .collect(Collectors.toList());
+    }
+
+    final List<Message> messageList = new ArrayList<>(messages);
+    final List<Future<List<String>>> futures = new ArrayList<>(
+        messageList.size() / ENCODE_CHUNK_SIZE + 1);
+    for (int i = 0; i < messageList.size(); i += ENCODE_CHUNK_SIZE) {
+      final List<Message> chunk = messageList.subList(
+          i, Math.min(i + ENCODE_CHUNK_SIZE, messageList.size()));
+      futures.add(encodePool.submit(() -> chunk.stream()
+          .map(message -> encodeMessage(message)).collect(Collectors.toList())));
+    }
 
-    producer.send(buildProducerRecord((String) codec.encode(message)), ((metadata, exception) -> {
-      if (exception != null) {
-        logger.error(exception.getMessage(), exception);
+    final List<String> encodedMessages = new ArrayList<>(messageList.size());
+    try {
+      for (Future<List<String>> future : futures) {
+        encodedMessages.addAll(future.get());
       }
-    }));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    return encodedMessages;
+  }
+
+  private void send(String encodedMessage, Consumer<Exception> completion) {
+    inFlightPermits.acquireUninterruptibly();
+    try {
+      kafkaProducer.send(buildProducerRecord(encodedMessage), (metadata, exception) -> {
+        inFlightPermits.release();
+        if (exception != null) {
+          logger.error(exception.getMessage(), exception);
+        }
+        completion.accept(exception);
+      });
+    } catch (RuntimeException e) {
+      inFlightPermits.release();
+      completion.accept(e);
+      throw e;
+    }
+  }
+
+  /**
+   * 等待调用之前已经写入的批次被Kafka确认，只会抛出这些批次中发生的写入错误。
+   * 调用之后其它线程新写入的消息不会延长等待，它们的错误也留给之后的awaitWrites报告
+   */
+  @Override
+  public void awaitWrites() {
+    final List<CompletableFuture<Void>> writes = new ArrayList<>(pendingWrites);
+    if (writes.isEmpty()) {
+      return;
+    }
+    if (kafkaProducer != null) {
+      kafkaProducer.flush();
+    }
+
+    Throwable exception = null;
+    for (CompletableFuture<Void> write : writes) {
+      try {
+        write.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        pendingWrites.remove(write);
+        if (exception == null) {
+          exception = e.getCause();
+        }
+      }
+    }
+
+    if (exception != null) {
+      throw new RuntimeException(String.format(
+          "Write messages to the kafka message bus %s failure", name()), exception);
+    }
+  }
+
+  /**
+   * 获取当前已发送但尚未被确认的消息数目
+   *
+   * @return 未确认的消息数目
+   */
+  public int getInFlightNum() {
+    return maxInFlight - inFlightPermits.availablePermits();
   }
 
   protected abstract ProducerRecord<String, String> buildProducerRecord(String message);
@@ -153,6 +372,12 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
           "There is no available KafkaConsumer for the message bus: %s", name()));
     }
 
+    if (boundedPoll) {
+      final List<Message> messages = new LinkedList<>();
+      boundedRead(maxFetchNum, messages::add);
+      return messages;
+    }
+
     final ConsumerRecords<String, String> records = consumer.poll(Duration.ZERO);
     if (records.isEmpty()) {
       return Collections.emptyList();
@@ -161,7 +386,7 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
     final List<Message> messages = new LinkedList<>();
 
     for (ConsumerRecord<String, String> record : records) {
-      messages.add(codec.decode(record.value()));
+      messages.add(decodeMessage(record.value()));
     }
 
     return messages;
@@ -177,6 +402,10 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
           "There is no available KafkaConsumer for the message bus: %s", name()));
     }
 
+    if (boundedPoll) {
+      return boundedRead(maxFetchNum, eventConsumer);
+    }
+
     final ConsumerRecords<String, String> records = consumer.poll(Duration.ZERO);
     if (records.isEmpty()) {
       return 0;
@@ -184,13 +413,157 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
 
     int consumed = 0;
     for (ConsumerRecord<String, String> record : records) {
-      final Message message = codec.decode(record.value());
+      final Message message = decodeMessage(record.value());
       eventConsumer.accept(message);
       consumed++;
     }
     return consumed;
   }
 
+  /**
+   * 订阅模式下使用的Rebalance监听器。Partition被收回时丢弃其尚未交付的缓存记录以及尚未提交的offset，
+   * 之后即使同一个Partition被重新分配回来，也会从已提交的位置重新拉取，避免缓存记录与新拉取的记录重复或者乱序
+   *
+   * @return Rebalance监听器
+   */
+  protected ConsumerRebalanceListener newRebalanceListener() {
+    return new ConsumerRebalanceListener() {
+      @Override
+      public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (!partitions.isEmpty()) {
+          logger.info(String.format(
+              "The partitions %s of the message bus %s have been revoked", partitions, name()));
+        }
+        partitions.forEach(tp -> {
+          pendingRecords.remove(tp);
+          handedOutOffsets.remove(tp);
+        });
+      }
+
+      @Override
+      public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        // 新分配的Partition从已提交的位置开始拉取，无需处理
+      }
+    };
+  }
+
+  /**
+   * 有界读取：缓存中的记录不足maxFetchNum时才会继续poll，仍有缓存记录的Partition会被暂停拉取，
+   * 超出maxFetchNum的记录保留到下次读取，并且只记录真正交付出去的offset
+   */
+  private int boundedRead(int maxFetchNum, Consumer<Message> eventConsumer) {
+    // 发生rebalance之后，不再属于本Consumer的Partition缓存需要丢弃
+    final Set<TopicPartition> assignment = consumer.assignment();
+    pendingRecords.keySet().removeIf(tp -> !assignment.contains(tp));
+    handedOutOffsets.keySet().removeIf(tp -> !assignment.contains(tp));
+
+    if (pendingSize() < maxFetchNum) {
+      final List<TopicPartition> drained = assignment.stream()
+          .filter(tp -> !pendingRecords.containsKey(tp))
+          .collect(Collectors.toList());
+      consumer.resume(drained);
+      final ConsumerRecords<String, String> records = consumer.poll(Duration.ZERO);
+      for (TopicPartition tp : records.partitions()) {
+        pendingRecords.computeIfAbsent(tp, p -> new ArrayDeque<>()).addAll(records.records(tp));
+      }
+    }
+    if (pendingRecords.isEmpty()) {
+      return 0;
+    }
+
+    // 按Partition依次取出最多maxFetchNum条记录
+    final Map<TopicPartition, List<ConsumerRecord<String, String>>> taken = new LinkedHashMap<>();
+    int remaining = maxFetchNum;
+    final Iterator<Map.Entry<TopicPartition, Deque<ConsumerRecord<String, String>>>> iterator =
+        pendingRecords.entrySet().iterator();
+    while (iterator.hasNext() && remaining > 0) {
+      final Map.Entry<TopicPartition, Deque<ConsumerRecord<String, String>>> entry =
+          iterator.next();
+      final Deque<ConsumerRecord<String, String>> partitionRecords = entry.getValue();
+      final List<ConsumerRecord<String, String>> partitionTaken = new ArrayList<>(
+          Math.min(remaining, partitionRecords.size()));
+      while (remaining > 0 && !partitionRecords.isEmpty()) {
+        partitionTaken.add(partitionRecords.pollFirst());
+        remaining--;
+      }
+      taken.put(entry.getKey(), partitionTaken);
+      if (partitionRecords.isEmpty()) {
+        iterator.remove();
+      }
+    }
+
+    // 仍有缓存记录的Partition暂停拉取，直到缓存被消费完毕
+    consumer.pause(pendingRecords.keySet());
+
+    int consumed = 0;
+    for (Map.Entry<TopicPartition, List<Message>> entry : decode(taken).entrySet()) {
+      for (Message message : entry.getValue()) {
+        eventConsumer.accept(message);
+        consumed++;
+      }
+      final List<ConsumerRecord<String, String>> partitionTaken = taken.get(entry.getKey());
+      handedOutOffsets.put(entry.getKey(), new OffsetAndMetadata(
+          partitionTaken.get(partitionTaken.size() - 1).offset() + 1));
+    }
+    return consumed;
+  }
+
+  // 多个Partition的记录在解码线程池中并行解码，同一Partition内保持原有顺序
+  private Map<TopicPartition, List<Message>> decode(
+      Map<TopicPartition, List<ConsumerRecord<String, String>>> taken) {
+    final Map<TopicPartition, List<Message>> decoded = new LinkedHashMap<>(taken.size());
+    if (decodePool == null || taken.size() == 1) {
+      taken.forEach((tp, records) -> decoded.put(tp, decode(records)));
+      return decoded;
+    }
+
+    final Map<TopicPartition, Future<List<Message>>> futures = new LinkedHashMap<>(taken.size());
+    taken.forEach((tp, records) -> futures.put(tp, decodePool.submit(() -> decode(records))));
+    try {
+      for (Map.Entry<TopicPartition, Future<List<Message>>> entry : futures.entrySet()) {
+        decoded.put(entry.getKey(), entry.getValue().get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    return decoded;
+  }
+
+  // Producer与Consumer均为String类型，二进制格式的消息以Base64文本的形式写入
+  private String encodeMessage(Message message) {
+    if (binaryFormat) {
+      return Base64.getEncoder().encodeToString((byte[]) binaryCodec.encode(message));
+    }
+    return (String) codec.encode(message);
+  }
+
+  // 按照内容自动识别格式，切换codec的过程中新旧格式的消息可以共存于同一个Topic
+  private Message decodeMessage(String value) {
+    if (value.startsWith("{")) {
+      return codec.decode(value);
+    }
+    return binaryCodec.decode(Base64.getDecoder().decode(value));
+  }
+
+  private List<Message> decode(List<ConsumerRecord<String, String>> records) {
+    final List<Message> messages = new ArrayList<>(records.size());
+    for (ConsumerRecord<String, String> record : records) {
+      messages.add(decodeMessage(record.value()));
+    }
+    return messages;
+  }
+
+  private int pendingSize() {
+    int size = 0;
+    for (Deque<ConsumerRecord<String, String>> partitionRecords : pendingRecords.values()) {
+      size += partitionRecords.size();
+    }
+    return size;
+  }
+
   @Override
   public void ackMessages() {
     if (autoCommit) {
@@ -200,6 +573,25 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
       return;
     }
 
+    if (boundedPoll) {
+      // 只提交已经交付出去的消息，缓存中的记录等到交付之后再提交
+      if (handedOutOffsets.isEmpty()) {
+        return;
+      }
+      final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(handedOutOffsets);
+      handedOutOffsets.clear();
+      if (commitSync) {
+        consumer.commitSync(offsets);
+      } else {
+        consumer.commitAsync(offsets, (committedOffsets, exception) -> {
+          if (exception != null) {
+            logger.error(exception.getMessage(), exception);
+          }
+        });
+      }
+      return;
+    }
+
     if (commitSync) {
       consumer.commitSync();
     } else {
@@ -211,6 +603,18 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
   public void close() {
     super.close();
 
+    if (decodePool != null) {
+      decodePool.shutdown();
+      decodePool = null;
+    }
+    if (encodePool != null) {
+      encodePool.shutdown();
+      encodePool = null;
+    }
+    pendingRecords.clear();
+    handedOutOffsets.clear();
+    pendingWrites.clear();
+
     // 关闭非资源声明的producer和consumer
     if ((!resourceProducer) && kafkaProducer != null) {
       try {
@@ -240,6 +644,26 @@ public abstract class BaseKafkaMessageBus extends BaseMessageBus {
     String COMMIT_SYNC = "commit_sync";
 
     String SEEK_TO = "seek_to";
+
+    // 是否按照max_fetch_num限制每次读取的消息数目，并且只提交已经交付的消息offset
+    String BOUNDED_POLL = "bounded_poll";
+    boolean DEFAULT_BOUNDED_POLL = false;
+
+    // 有界读取模式下按Partition并行解码的线程数目，为0时串行解码
+    String DECODE_THREADS = "decode_threads";
+    int DEFAULT_DECODE_THREADS = 0;
+
+    // 允许同时存在的未确认消息数目，达到之后写入会阻塞，为0时不限制
+    String MAX_IN_FLIGHT = "max_in_flight";
+    int DEFAULT_MAX_IN_FLIGHT = 0;
+
+    // 批量写入的编码线程数目，为0时在写入线程上编码
+    String ENCODE_THREADS = "encode_threads";
+    int DEFAULT_ENCODE_THREADS = 0;
+
+    // 写入消息所采用的格式，读取时会自动识别
+    String CODEC = "codec";
+    String DEFAULT_CODEC = Codecs.JSON;
   }
 
   interface SeekToPositions {
@@ -153,6 +153,14 @@ public abstract class BaseMessageBus implements MessageBus, Mappable {
     String CHECK_PERIOD = "check_period";
   }
 
+  // 支持的消息格式
+  interface Codecs {
+
+    String JSON = "json";
+
+    String BINARY = "binary";
+  }
+
   interface Fields {
 
     String NAME = "name";
@@ -1,20 +1,22 @@
 package playwell.message.bus;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import playwell.common.EasyMap;
 import playwell.message.Message;
+import playwell.util.MpscRingBuffer;
 
 /**
  * 基于内存缓冲的MessageBus 在BufferedMessageBus当中，消息并不会立即被提交到具体的介质中， 而是会提交到内存队列，当队列中的消息数目达到了阈值或者到达了指定的时间点，那么才会被一并提交到介质
@@ -25,8 +27,11 @@ public abstract class BufferedMessageBus extends BaseMessageBus {
 
   private static final Logger logger = LogManager.getLogger(BufferedMessageBus.class);
 
-  // 内存事件缓冲区
-  private final ConcurrentLinkedQueue<Message> buffer = new ConcurrentLinkedQueue<>();
+  // 缓冲区已满并且其它线程正在排空时，写入线程每次等待的时间
+  private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50L);
+
+  // 内存事件缓冲区，有界并且size为O(1)操作，只有非直接传输时才会创建
+  private MpscRingBuffer<Message> buffer;
 
   // 是否直接传输
   private boolean direct;
@@ -59,6 +64,8 @@ public abstract class BufferedMessageBus extends BaseMessageBus {
     if (!direct) {
       this.cleanBufferLock = new ReentrantLock();
       this.maxBufferSize = configuration.getInt(ConfigItems.MAX_BUFFER_SIZE, 10);
+      this.buffer = new MpscRingBuffer<>(Math.max(maxBufferSize, configuration.getInt(
+          ConfigItems.BUFFER_CAPACITY, ConfigItems.DEFAULT_BUFFER_CAPACITY)));
       long period = configuration.getLong(ConfigItems.PERIOD, 5);
 
       this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
@@ -76,7 +83,7 @@ public abstract class BufferedMessageBus extends BaseMessageBus {
       directWrite(Collections.singletonList(message));
     } else {
       // 添加新事件到缓冲区
-      buffer.add(message);
+      addToBuffer(message);
       // 缓冲区达到了最大的长度，
       if (buffer.size() >= maxBufferSize) {
         cleanBuffer();
@@ -91,7 +98,9 @@ public abstract class BufferedMessageBus extends BaseMessageBus {
       // 直接传输到broker中
       directWrite(messages);
     } else {
-      buffer.addAll(messages);
+      for (Message message : messages) {
+        addToBuffer(message);
+      }
       // 缓冲区达到了最大长度
       if (buffer.size() >= maxBufferSize) {
         cleanBuffer();
@@ -102,26 +111,55 @@ public abstract class BufferedMessageBus extends BaseMessageBus {
   @Override
   protected Map<String, Object> getStatus() {
     return ImmutableMap.of(
-        StatusItems.BUFFER_SIZE, buffer.size()
+        StatusItems.BUFFER_SIZE, buffer == null ? 0 : buffer.size()
     );
   }
 
-  private void cleanBuffer() {
+  // 缓冲区已满时先排空缓冲区再写入，由此对写入方形成背压
+  private void addToBuffer(Message message) {
+    while (!buffer.offer(message)) {
+      if (!cleanBuffer()) {
+        LockSupport.parkNanos(FULL_PARK_NANOS);
+      }
+    }
+  }
+
+  // 返回是否由当前线程执行了排空操作
+  private boolean cleanBuffer() {
     if (cleanBufferLock.tryLock()) {
       try {
-        final Collection<Message> messages = new LinkedList<>();
-        while (!buffer.isEmpty()) {
-          final Message message = buffer.poll();
-          messages.add(message);
-        }
-        if (messages.size() > 0) {
-          directWrite(messages);
-        }
+        drainBuffer();
       } catch (Exception e) {
         logger.error("Error happened when clean message bus buffer.", e);
       } finally {
         cleanBufferLock.unlock();
       }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 排空缓冲区，其它线程正在排空时会等待其完成。返回之后，调用之前写入缓冲区的消息都已经交给了directWrite，
+   * 用于在awaitWrites中等待请求完成之前，确保缓冲区中的消息已经发出
+   */
+  protected void flushBuffer() {
+    if (direct) {
+      return;
+    }
+    cleanBufferLock.lock();
+    try {
+      drainBuffer();
+    } finally {
+      cleanBufferLock.unlock();
+    }
+  }
+
+  private void drainBuffer() {
+    final List<Message> messages = new ArrayList<>(buffer.size());
+    buffer.drain(messages::add, Integer.MAX_VALUE);
+    if (messages.size() > 0) {
+      directWrite(messages);
     }
   }
 
@@ -143,6 +181,10 @@ public abstract class BufferedMessageBus extends BaseMessageBus {
 
     // Buffer刷新周期，单位秒
     String PERIOD = "refresh_buffer_period";
+
+    // Buffer容量上限，写满之后写入线程会同步排空缓冲区
+    String BUFFER_CAPACITY = "buffer_capacity";
+    int DEFAULT_BUFFER_CAPACITY = 65536;
   }
 
   // 状态条目
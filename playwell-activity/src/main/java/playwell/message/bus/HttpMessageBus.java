@@ -1,9 +1,29 @@
 package playwell.message.bus;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -18,17 +38,22 @@ import playwell.http.CommonHeaders;
 import playwell.http.HttpServiceManager;
 import playwell.http.NettyHttpClientHolder;
 import playwell.message.Message;
-import playwell.message.bus.codec.JSONArrayMessageCodec;
+import playwell.message.bus.codec.BinaryMessageCodec;
+import playwell.message.bus.codec.BinarySequenceMessageCodec;
 import playwell.message.bus.codec.JSONObjectMessageCodec;
+import playwell.message.bus.codec.StreamingJSONMessageDecoder;
 import spark.Service;
 
 /**
  * HttpEventBus提供了从Http通道读写消息的功能 HttpEventBus持有一个URL地址
  *
  * 对于读取消息： 如果本地的HttpServiceManager中持有与URL相同地址和端口的Service，那么将在该Service中注册路由，
- * 请求到该路由的消息会保存到一个缓冲区中，系统从该缓冲区读取消息。
+ * 请求到该路由的消息会保存到一个缓冲区中，系统从该缓冲区读取消息。JSON请求体会从输入流中增量解析，
+ * 整个请求体解析成功之后才会写入缓冲区，单个请求体的大小受max_request_size限制，消息数目受max_request_messages限制。
  *
- * 对于写消息： 如果为EventBus配置了消息合并，那么将会把消息拼接成一个JSON数组，然后执行请求 否则将为每个消息执行异步请求。
+ * 对于写消息： 如果为EventBus配置了消息合并，那么将会按照batch_bytes把消息拼接成一个或多个JSON数组，然后执行请求
+ * 否则将为每个消息执行异步请求。同时进行的请求数目受max_in_flight限制，遇到5xx或者超时会按照退避时间重试，
+ * 最终失败的请求会由awaitWrites抛出。
  */
 public class HttpMessageBus extends BufferedMessageBus {
 
@@ -36,20 +61,21 @@ public class HttpMessageBus extends BufferedMessageBus {
 
   private static final JSONObjectMessageCodec messageCodec = new JSONObjectMessageCodec();
 
-  private static final JSONArrayMessageCodec sequenceMessageCodec = new JSONArrayMessageCodec();
+  private static final BinaryMessageCodec binaryMessageCodec = new BinaryMessageCodec();
 
-  private static final AsyncCompletionHandler<Response> responseHandler = new AsyncCompletionHandler<Response>() {
+  private static final BinarySequenceMessageCodec binarySequenceMessageCodec =
+      new BinarySequenceMessageCodec();
 
-    @Override
-    public Response onCompleted(Response response) {
-      return response;
-    }
+  private static final StreamingJSONMessageDecoder streamingDecoder =
+      new StreamingJSONMessageDecoder();
 
-    @Override
-    public void onThrowable(Throwable t) {
-      logger.error(t.getMessage(), t);
-    }
-  };
+  private static final byte[] JSON_ARRAY_START = "[".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] JSON_ARRAY_SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] JSON_ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+
+  private static final String JSON_CONTENT_TYPE = "application/json;charset=utf-8";
 
   private String url;
 
@@ -61,7 +87,47 @@ public class HttpMessageBus extends BufferedMessageBus {
 
   private boolean combine;
 
-  private ConcurrentLinkedQueueMessageBus buffer;
+  // 是否采用二进制格式发送消息
+  private boolean binaryFormat;
+
+  // 单个请求体的最大字节数
+  private long maxRequestSize;
+
+  // 单个请求体的最大消息数目
+  private int maxRequestMessages;
+
+  // 允许同时进行的请求数目
+  private int maxInFlight;
+
+  // 正在进行中的请求许可，请求最终成功或失败之后才会释放
+  private Semaphore inFlightPermits;
+
+  // 合并发送时单个请求体的字节预算
+  private int batchBytes;
+
+  // 遇到5xx或者超时之后的最大重试次数
+  private int maxRetries;
+
+  // 首次重试的等待时间，之后每次翻倍
+  private long retryBackoff;
+
+  // 重试调度
+  private ScheduledExecutorService retryScheduler;
+
+  // 尚未完成或者已经失败但还没有被awaitWrites报告的请求，成功完成的请求会自行移除
+  private final Set<CompletableFuture<Void>> pendingRequests = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong requestCount = new AtomicLong(0L);
+
+  private final AtomicLong failureCount = new AtomicLong(0L);
+
+  private final AtomicLong retryCount = new AtomicLong(0L);
+
+  private final AtomicLong totalLatencyNanos = new AtomicLong(0L);
+
+  private final AtomicLong maxLatencyNanos = new AtomicLong(0L);
+
+  private RingBufferMessageBus buffer;
 
   private boolean isServer = false;
 
@@ -78,13 +144,32 @@ public class HttpMessageBus extends BufferedMessageBus {
     }
 
     this.combine = configuration.getBoolean(ConfigItems.COMBINE, true);
+    this.maxRequestSize = configuration.getLong(
+        ConfigItems.MAX_REQUEST_SIZE, ConfigItems.DEFAULT_MAX_REQUEST_SIZE);
+    this.maxRequestMessages = configuration.getInt(
+        ConfigItems.MAX_REQUEST_MESSAGES, ConfigItems.DEFAULT_MAX_REQUEST_MESSAGES);
+    final int maxInFlightConfig = configuration.getInt(
+        ConfigItems.MAX_IN_FLIGHT, ConfigItems.DEFAULT_MAX_IN_FLIGHT);
+    this.maxInFlight = maxInFlightConfig > 0 ? maxInFlightConfig : Integer.MAX_VALUE;
+    this.inFlightPermits = new Semaphore(maxInFlight);
+    this.batchBytes = configuration.getInt(ConfigItems.BATCH_BYTES, ConfigItems.DEFAULT_BATCH_BYTES);
+    this.maxRetries = configuration.getInt(ConfigItems.MAX_RETRIES, ConfigItems.DEFAULT_MAX_RETRIES);
+    this.retryBackoff = configuration.getLong(
+        ConfigItems.RETRY_BACKOFF, ConfigItems.DEFAULT_RETRY_BACKOFF);
+    final String codecName = configuration.getString(ConfigItems.CODEC, ConfigItems.DEFAULT_CODEC);
+    if (Codecs.BINARY.equals(codecName)) {
+      this.binaryFormat = true;
+    } else if (!Codecs.JSON.equals(codecName)) {
+      throw new RuntimeException(String.format(
+          "Unknown codec '%s' of the message bus: %s", codecName, name()));
+    }
 
     // 注册Route
     final HttpServiceManager httpServiceManager = HttpServiceManager.getInstance();
     if (httpServiceManager.isInited()) {
       Optional<Service> serviceOptional = httpServiceManager.getService(host, port);
       serviceOptional.ifPresent(service -> {
-        this.buffer = new ConcurrentLinkedQueueMessageBus();
+        this.buffer = new RingBufferMessageBus();
         this.buffer.initMessageBus(configuration.getSubArguments(ConfigItems.BUFFER));
         service.post(path, (request, response) -> {
           response.header(
@@ -92,31 +177,58 @@ public class HttpMessageBus extends BufferedMessageBus {
               CommonHeaders.JSON_CONTENT_TYPE.getValue()
           );
 
-          String body = request.body();
-          if (StringUtils.isEmpty(body)) {
-            response.status(400);
-            return Result.failWithCodeAndMessage(
-                "bad_request",
-                "There is no message in the request body"
-            ).toJSONString();
+          if (request.contentLength() > maxRequestSize) {
+            return requestTooLarge(response);
           }
 
-          body = StringUtils.strip(body);
-          if (body.startsWith("{")) {
-            buffer.write(messageCodec.decode(body));
-            response.status(200);
-            return Result.ok().toJSONString();
-          } else if (body.startsWith("[")) {
-            buffer.write(sequenceMessageCodec.decode(body));
-            response.status(200);
-            return Result.ok().toJSONString();
-          } else {
+          // 二进制格式的请求，无论单条消息还是消息序列都由序列codec解码
+          if (StringUtils.startsWith(request.contentType(), BinaryMessageCodec.CONTENT_TYPE)) {
+            final byte[] bytes = request.bodyAsBytes();
+            if (bytes != null && bytes.length > maxRequestSize) {
+              return requestTooLarge(response);
+            }
+            if (!BinarySequenceMessageCodec.isBinary(bytes)) {
+              response.status(400);
+              return Result.failWithCodeAndMessage(
+                  "bad_request",
+                  "The request body is not a valid binary message"
+              ).toJSONString();
+            }
+            return writeToBuffer(binarySequenceMessageCodec.decode(bytes), response);
+          }
+
+          // JSON格式的请求从输入流中增量解析，整个请求体解析成功之后才写入缓冲区，
+          // 避免格式错误的请求只有一部分消息被写入
+          final SizeLimitedInputStream inputStream = new SizeLimitedInputStream(
+              request.raw().getInputStream(), maxRequestSize);
+          final Charset charset = StringUtils.isEmpty(request.raw().getCharacterEncoding())
+              ? StandardCharsets.UTF_8 : Charset.forName(request.raw().getCharacterEncoding());
+          final List<Message> messages = new ArrayList<>();
+          try {
+            streamingDecoder.decode(inputStream, charset, message -> {
+              if (messages.size() >= maxRequestMessages) {
+                throw new TooManyMessagesException();
+              }
+              messages.add(message);
+            });
+          } catch (TooManyMessagesException e) {
+            response.status(413);
+            return Result.failWithCodeAndMessage(
+                "too_many_messages",
+                String.format("The request contains more than %d messages", maxRequestMessages)
+            ).toJSONString();
+          } catch (Exception e) {
+            if (inputStream.isExceeded()) {
+              return requestTooLarge(response);
+            }
             response.status(400);
             return Result.failWithCodeAndMessage(
                 "bad_request",
-                "The http event bus only accept json or json array"
-            );
+                String.format(
+                    "The http event bus only accept json or json array: %s", e.getMessage())
+            ).toJSONString();
           }
+          return writeToBuffer(messages, response);
         });
 
         this.isServer = true;
@@ -124,6 +236,27 @@ public class HttpMessageBus extends BufferedMessageBus {
     }
   }
 
+  private String requestTooLarge(spark.Response response) {
+    response.status(413);
+    return Result.failWithCodeAndMessage(
+        "request_too_large",
+        String.format("The request body exceeds the limit: %d bytes", maxRequestSize)
+    ).toJSONString();
+  }
+
+  // 缓冲区按照overflow_policy拒绝写入时返回503，由客户端稍后重试
+  private String writeToBuffer(Collection<Message> messages, spark.Response response) {
+    try {
+      buffer.write(messages);
+    } catch (MessageBusNotAvailableException e) {
+      response.status(503);
+      return Result.failWithCodeAndMessage("buffer_full", e.getMessage()).toJSONString();
+    }
+    response.status(200);
+    return Result.okWithData(Collections.singletonMap(
+        ResultFields.ACCEPTED, messages.size())).toJSONString();
+  }
+
   @Override
   protected void directWrite(Collection<Message> messages) {
     if (CollectionUtils.isEmpty(messages)) {
@@ -132,7 +265,11 @@ public class HttpMessageBus extends BufferedMessageBus {
 
     // 如果进程本身就是http server，那么可以直接写入buffer当中
     if (this.isServer) {
-      this.buffer.write(messages);
+      try {
+        this.buffer.write(messages);
+      } catch (MessageBusNotAvailableException e) {
+        throw new RuntimeException(e);
+      }
       return;
     }
 
@@ -143,22 +280,197 @@ public class HttpMessageBus extends BufferedMessageBus {
     }
 
     final AsyncHttpClient httpClient = clientOptional.get();
+    final String contentType = binaryFormat ? BinaryMessageCodec.CONTENT_TYPE : JSON_CONTENT_TYPE;
+
+    if (!combine) {
+      for (Message message : messages) {
+        post(httpClient, encode(message), contentType);
+      }
+      return;
+    }
+
+    // 按照字节预算将消息切分为多个请求，单条消息超出预算时独占一个请求
+    final List<byte[]> batch = new ArrayList<>();
+    int batchSize = 0;
+    for (Message message : messages) {
+      final byte[] encoded = encode(message);
+      if (!batch.isEmpty() && batchSize + encoded.length > batchBytes) {
+        post(httpClient, combine(batch, batchSize), contentType);
+        batch.clear();
+        batchSize = 0;
+      }
+      batch.add(encoded);
+      batchSize += encoded.length;
+    }
+    if (!batch.isEmpty()) {
+      post(httpClient, combine(batch, batchSize), contentType);
+    }
+  }
+
+  private byte[] encode(Message message) {
+    if (binaryFormat) {
+      return (byte[]) binaryMessageCodec.encode(message);
+    }
+    return ((String) messageCodec.encode(message)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private byte[] combine(List<byte[]> batch, int batchSize) {
+    if (binaryFormat) {
+      return BinarySequenceMessageCodec.concat(batch);
+    }
+
+    final byte[] body = new byte[batchSize + batch.size() + 1];
+    int position = 0;
+    for (byte[] encoded : batch) {
+      final byte[] delimiter = position == 0 ? JSON_ARRAY_START : JSON_ARRAY_SEPARATOR;
+      body[position++] = delimiter[0];
+      System.arraycopy(encoded, 0, body, position, encoded.length);
+      position += encoded.length;
+    }
+    body[position] = JSON_ARRAY_END[0];
+    return body;
+  }
+
+  // 请求数目达到max_in_flight时阻塞写入线程，由此对调用方形成背压
+  private void post(AsyncHttpClient httpClient, byte[] body, String contentType) {
+    inFlightPermits.acquireUninterruptibly();
+    requestCount.incrementAndGet();
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    pendingRequests.add(future);
+    future.thenRun(() -> pendingRequests.remove(future));
+    execute(httpClient, body, contentType, 0, System.nanoTime(), future);
+  }
 
-    if (combine) {
+  private void execute(AsyncHttpClient httpClient, byte[] body, String contentType,
+      int attempt, long startTime, CompletableFuture<Void> future) {
+    try {
       httpClient
           .preparePost(url)
-          .setBody((String) sequenceMessageCodec.encode(messages))
-          .addHeader("Content-Type", "application/json;charset=utf-8")
-          .execute(responseHandler);
-    } else {
-      for (Message message : messages) {
-        httpClient
-            .preparePost(url)
-            .setBody((String) messageCodec.encode(message))
-            .addHeader("Content-Type", "application/json;charset=utf-8")
-            .execute(responseHandler);
+          .setBody(body)
+          .addHeader("Content-Type", contentType)
+          .execute(new AsyncCompletionHandler<Response>() {
+
+            @Override
+            public Response onCompleted(Response response) {
+              final int status = response.getStatusCode();
+              if (status < 300) {
+                onSuccess(startTime, future);
+              } else if (status >= 500) {
+                retryOrFail(httpClient, body, contentType, attempt, startTime, future,
+                    new RuntimeException(String.format(
+                        "Http message bus %s got status %d: %s",
+                        name(), status, response.getResponseBody())));
+              } else {
+                onFailure(future, new RuntimeException(String.format(
+                    "Http message bus %s got status %d: %s",
+                    name(), status, response.getResponseBody())));
+              }
+              return response;
+            }
+
+            @Override
+            public void onThrowable(Throwable t) {
+              retryOrFail(httpClient, body, contentType, attempt, startTime, future,
+                  t instanceof Exception ? (Exception) t : new RuntimeException(t));
+            }
+          });
+    } catch (Exception e) {
+      onFailure(future, e);
+    }
+  }
+
+  private void retryOrFail(AsyncHttpClient httpClient, byte[] body, String contentType,
+      int attempt, long startTime, CompletableFuture<Void> future, Exception exception) {
+    if (attempt >= maxRetries) {
+      onFailure(future, exception);
+      return;
+    }
+
+    retryCount.incrementAndGet();
+    final long delay = retryBackoff << Math.min(attempt, 16);
+    logger.warn(String.format(
+        "Http message bus %s request failure, retry after %d ms: %s",
+        name(), delay, exception.getMessage()));
+    try {
+      getRetryScheduler().schedule(
+          () -> execute(httpClient, body, contentType, attempt + 1, startTime, future),
+          delay,
+          TimeUnit.MILLISECONDS
+      );
+    } catch (Exception e) {
+      onFailure(future, exception);
+    }
+  }
+
+  private void onSuccess(long startTime, CompletableFuture<Void> future) {
+    final long latency = System.nanoTime() - startTime;
+    totalLatencyNanos.addAndGet(latency);
+    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    inFlightPermits.release();
+    future.complete(null);
+  }
+
+  private void onFailure(CompletableFuture<Void> future, Exception exception) {
+    logger.error(exception.getMessage(), exception);
+    failureCount.incrementAndGet();
+    inFlightPermits.release();
+    future.completeExceptionally(exception);
+  }
+
+  private synchronized ScheduledExecutorService getRetryScheduler() {
+    if (retryScheduler == null) {
+      this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat(String.format("%s-retry-%%d", name()))
+          .setDaemon(true)
+          .build());
+    }
+    return retryScheduler;
+  }
+
+  /**
+   * 先排空缓冲区，然后等待调用之前已经发出的请求完成，只会抛出这些请求最终失败的错误。
+   * 调用之后其它线程新发出的请求不会延长等待，它们的错误也留给之后的awaitWrites报告
+   */
+  @Override
+  public void awaitWrites() {
+    flushBuffer();
+
+    Throwable exception = null;
+    for (CompletableFuture<Void> request : new ArrayList<>(pendingRequests)) {
+      try {
+        request.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        pendingRequests.remove(request);
+        if (exception == null) {
+          exception = e.getCause();
+        }
       }
     }
+
+    if (exception != null) {
+      throw new RuntimeException(String.format(
+          "Write messages to the http message bus %s failure", name()), exception);
+    }
+  }
+
+  @Override
+  protected Map<String, Object> getStatus() {
+    final long requests = requestCount.get();
+    final long inFlight = maxInFlight - (long) inFlightPermits.availablePermits();
+    final long succeeded = requests - inFlight - failureCount.get();
+    return ImmutableMap.<String, Object>builder()
+        .putAll(super.getStatus())
+        .put(StatusItems.IN_FLIGHT, inFlight)
+        .put(StatusItems.REQUESTS, requests)
+        .put(StatusItems.FAILURES, failureCount.get())
+        .put(StatusItems.RETRIES, retryCount.get())
+        .put(StatusItems.AVG_LATENCY, succeeded > 0
+            ? TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / succeeded) : 0L)
+        .put(StatusItems.MAX_LATENCY, TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()))
+        .build();
   }
 
   @Override
@@ -190,5 +502,110 @@ public class HttpMessageBus extends BufferedMessageBus {
     String COMBINE = "combine";
 
     String BUFFER = "buffer";
+
+    // 发送消息所采用的格式，接收时按照Content-Type识别
+    String CODEC = "codec";
+    String DEFAULT_CODEC = Codecs.JSON;
+
+    // 单个请求体的最大字节数，超出时返回413
+    String MAX_REQUEST_SIZE = "max_request_size";
+    long DEFAULT_MAX_REQUEST_SIZE = 64L * 1024 * 1024;
+
+    // 单个请求体的最大消息数目，超出时返回413
+    String MAX_REQUEST_MESSAGES = "max_request_messages";
+    int DEFAULT_MAX_REQUEST_MESSAGES = 65536;
+
+    // 允许同时进行的请求数目，达到之后写入会阻塞，为0时不限制
+    String MAX_IN_FLIGHT = "max_in_flight";
+    int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    // 合并发送时单个请求体的字节预算
+    String BATCH_BYTES = "batch_bytes";
+    int DEFAULT_BATCH_BYTES = 1024 * 1024;
+
+    // 遇到5xx或者超时之后的最大重试次数
+    String MAX_RETRIES = "max_retries";
+    int DEFAULT_MAX_RETRIES = 3;
+
+    // 首次重试的等待时间，单位毫秒，之后每次翻倍
+    String RETRY_BACKOFF = "retry_backoff";
+    long DEFAULT_RETRY_BACKOFF = 100L;
+  }
+
+  interface StatusItems {
+
+    String IN_FLIGHT = "in_flight";
+
+    String REQUESTS = "requests";
+
+    String FAILURES = "failures";
+
+    String RETRIES = "retries";
+
+    String AVG_LATENCY = "avg_latency_ms";
+
+    String MAX_LATENCY = "max_latency_ms";
+  }
+
+  interface ResultFields {
+
+    String ACCEPTED = "accepted";
+  }
+
+  /**
+   * 请求体中的消息数目超出max_request_messages
+   */
+  private static class TooManyMessagesException extends Exception {
+
+    TooManyMessagesException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * 限制读取字节数的输入流，超出限制时抛出IOException并进行标记
+   */
+  private static class SizeLimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+
+    private long count = 0L;
+
+    private boolean exceeded = false;
+
+    SizeLimitedInputStream(InputStream in, long limit) {
+      super(in);
+      this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = super.read();
+      if (b != -1) {
+        checkLimit(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int n = super.read(b, off, len);
+      if (n > 0) {
+        checkLimit(n);
+      }
+      return n;
+    }
+
+    private void checkLimit(int n) throws IOException {
+      count += n;
+      if (count > limit) {
+        exceeded = true;
+        throw new IOException(String.format("The input exceeds the limit: %d bytes", limit));
+      }
+    }
+
+    boolean isExceeded() {
+      return exceeded;
+    }
   }
 }
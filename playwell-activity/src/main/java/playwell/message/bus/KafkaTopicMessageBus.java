@@ -17,7 +17,7 @@ public class KafkaTopicMessageBus extends BaseKafkaMessageBus {
   public void open() {
     super.open();
     if (consumer != null) {
-      consumer.subscribe(Collections.singletonList(topic));
+      consumer.subscribe(Collections.singletonList(topic), newRebalanceListener());
       if (StringUtils.isNotEmpty(seekTo)) {
         final List<PartitionInfo> partitionInfoList = consumer.partitionsFor(topic);
         final List<TopicPartition> topicPartitions = partitionInfoList.stream()
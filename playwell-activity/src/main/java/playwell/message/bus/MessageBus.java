@@ -49,6 +49,14 @@ public interface MessageBus extends PlaywellComponent {
    */
   void ackMessages();
 
+  /**
+   * 等待已经写入的消息被真正确认，通常用于异步写入的MessageBus，在确认输入消息之前调用。
+   * 写入过程中发生的错误会在这里以RuntimeException抛出
+   */
+  default void awaitWrites() {
+
+  }
+
   /**
    * 是否处于打开状态
    *
@@ -0,0 +1,206 @@
+package playwell.message.bus;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.apache.commons.collections4.CollectionUtils;
+import playwell.common.EasyMap;
+import playwell.message.Message;
+import playwell.util.MpscRingBuffer;
+
+/**
+ * <p>基于有界无锁环形缓冲区实现的内存MessageBus，用于系统内部集成。</p>
+ *
+ * <p>缓冲区写满之后按照overflow_policy处理：</p>
+ * <ul>
+ * <li>block: 阻塞写入线程直到有空闲位置</li>
+ * <li>drop_oldest: 丢弃最旧的消息</li>
+ * <li>reject: 抛出MessageBusNotAvailableException，批量写入时整批写入或者整批拒绝</li>
+ * </ul>
+ *
+ * @author chihongze@gmail.com
+ */
+public class RingBufferMessageBus extends BaseMessageBus {
+
+  // 阻塞写入时每次等待的时间
+  private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50L);
+
+  private MpscRingBuffer<Message> ringBuffer;
+
+  private OverflowPolicy overflowPolicy;
+
+  // 因为缓冲区已满而被丢弃或拒绝的消息数目
+  private final AtomicLong overflowCount = new AtomicLong(0L);
+
+  public RingBufferMessageBus() {
+
+  }
+
+  @Override
+  protected void initMessageBus(EasyMap configuration) {
+    this.ringBuffer = new MpscRingBuffer<>(
+        configuration.getInt(ConfigItems.CAPACITY, ConfigItems.DEFAULT_CAPACITY));
+    final String policyType = configuration.getString(
+        ConfigItems.OVERFLOW_POLICY, ConfigItems.DEFAULT_OVERFLOW_POLICY);
+    this.overflowPolicy = OverflowPolicy.valueOfByType(policyType).orElseThrow(
+        () -> new RuntimeException(String.format(
+            "Unknown overflow policy '%s' of the message bus: %s", policyType, name())));
+  }
+
+  @Override
+  public void write(Message message) throws MessageBusNotAvailableException {
+    if (ringBuffer.offer(message)) {
+      return;
+    }
+
+    switch (overflowPolicy) {
+      case BLOCK:
+        while (!ringBuffer.offer(message)) {
+          if (!isOpen()) {
+            throw new MessageBusNotAvailableException(name());
+          }
+          LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return;
+      case DROP_OLDEST:
+        do {
+          if (ringBuffer.poll() != null) {
+            overflowCount.incrementAndGet();
+          }
+        } while (!ringBuffer.offer(message));
+        return;
+      default:
+        overflowCount.incrementAndGet();
+        throw new MessageBusNotAvailableException(name());
+    }
+  }
+
+  @Override
+  public void write(Collection<Message> messages) throws MessageBusNotAvailableException {
+    if (CollectionUtils.isEmpty(messages)) {
+      return;
+    }
+
+    // 拒绝策略下整批写入，空间不足时一条都不写入，避免调用方重试时产生重复消息
+    if (overflowPolicy == OverflowPolicy.REJECT) {
+      final List<Message> batch = messages instanceof List
+          ? (List<Message>) messages : new ArrayList<>(messages);
+      if (!ringBuffer.offerAll(batch)) {
+        overflowCount.addAndGet(batch.size());
+        throw new MessageBusNotAvailableException(name());
+      }
+      return;
+    }
+
+    for (Message message : messages) {
+      write(message);
+    }
+  }
+
+  @Override
+  public Collection<Message> read(int maxFetchNum) {
+    final List<Message> messages = new ArrayList<>(Math.min(maxFetchNum, ringBuffer.size()));
+    ringBuffer.drain(messages::add, maxFetchNum);
+    return messages;
+  }
+
+  @Override
+  public int readWithConsumer(int maxFetchNum, Consumer<Message> eventConsumer) {
+    return ringBuffer.drain(eventConsumer, maxFetchNum);
+  }
+
+  public int size() {
+    return ringBuffer.size();
+  }
+
+  public long getOverflowCount() {
+    return overflowCount.get();
+  }
+
+  @Override
+  protected Map<String, Object> getStatus() {
+    return ImmutableMap.of(
+        StatusItems.SIZE, ringBuffer.size(),
+        StatusItems.CAPACITY, ringBuffer.capacity(),
+        StatusItems.OVERFLOW, overflowCount.get()
+    );
+  }
+
+  // 清理剩余的所有消息，仅供测试使用
+  public void cleanAll() {
+    this.ringBuffer.clear();
+  }
+
+  /**
+   * 缓冲区写满之后的处理策略
+   */
+  public enum OverflowPolicy {
+
+    /**
+     * 阻塞写入线程直到有空闲位置
+     */
+    BLOCK("block"),
+
+    /**
+     * 丢弃最旧的消息
+     */
+    DROP_OLDEST("drop_oldest"),
+
+    /**
+     * 拒绝写入，抛出MessageBusNotAvailableException
+     */
+    REJECT("reject"),
+
+    ;
+
+    private static final Map<String, OverflowPolicy> ALL_POLICIES = new HashMap<>();
+
+    static {
+      for (OverflowPolicy policy : values()) {
+        ALL_POLICIES.put(policy.getType(), policy);
+      }
+    }
+
+    private final String type;
+
+    OverflowPolicy(String type) {
+      this.type = type;
+    }
+
+    public static Optional<OverflowPolicy> valueOfByType(String type) {
+      return Optional.ofNullable(ALL_POLICIES.get(type));
+    }
+
+    public String getType() {
+      return type;
+    }
+  }
+
+  interface ConfigItems {
+
+    // 缓冲区容量，会被向上取整为2的幂
+    String CAPACITY = "capacity";
+    int DEFAULT_CAPACITY = 65536;
+
+    // 缓冲区写满之后的处理策略
+    String OVERFLOW_POLICY = "overflow_policy";
+    String DEFAULT_OVERFLOW_POLICY = OverflowPolicy.BLOCK.getType();
+  }
+
+  interface StatusItems {
+
+    String SIZE = "size";
+
+    String CAPACITY = "capacity";
+
+    String OVERFLOW = "overflow";
+  }
+}
@@ -0,0 +1,264 @@
+package playwell.message.bus.codec;
+
+import java.util.HashMap;
+import java.util.Map;
+import playwell.activity.thread.message.MigrateActivityThreadMessage;
+import playwell.clock.ClockMessage;
+import playwell.common.EasyMap;
+import playwell.message.Message;
+import playwell.message.RoutedMessage;
+import playwell.message.ServiceRequestMessage;
+import playwell.message.ServiceResponseMessage;
+import playwell.message.sys.ActivityThreadCtrlMessage;
+import playwell.util.BinaryDecoder;
+import playwell.util.BinaryEncoder;
+
+/**
+ * <p>紧凑二进制格式的MessageCodec实现，编码结果为byte[]</p>
+ *
+ * <pre>
+ *   [magic][codec version][tag][fields...]
+ * </pre>
+ *
+ * <ul>
+ * <li>服务请求、服务响应、时钟、ActivityThread控制、ActivityThread迁移以及路由后的普通消息，
+ * 按照类型标记依次写入各个字段，不再重复写入属性名称</li>
+ * <li>属性值按类型编码，整数使用varint</li>
+ * <li>其它消息按照MapMessageCodec的Map结构编码，解码时同样交给MapMessageCodec处理</li>
+ * </ul>
+ *
+ * @author chihongze@gmail.com
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+  // 单条消息的首字节标记
+  static final byte MAGIC = (byte) 0xB7;
+
+  // 编码版本
+  static final byte CODEC_VERSION = 1;
+
+  // HTTP传输时使用的Content-Type
+  public static final String CONTENT_TYPE = "application/x-playwell-binary";
+
+  private static final MapMessageCodec mapMessageCodec = new MapMessageCodec();
+
+  public BinaryMessageCodec() {
+
+  }
+
+  /**
+   * 判断数据是否为二进制格式的单条消息
+   *
+   * @param bytes 数据
+   * @return 是否为二进制格式
+   */
+  public static boolean isBinary(byte[] bytes) {
+    return bytes != null && bytes.length > 2 && bytes[0] == MAGIC;
+  }
+
+  @Override
+  public Message decode(Object object) {
+    final byte[] bytes = (byte[]) object;
+    if (!isBinary(bytes)) {
+      throw new IllegalArgumentException("The bytes is not a binary message");
+    }
+    checkVersion(bytes[1]);
+    return readMessage(new BinaryDecoder(bytes, 2));
+  }
+
+  @Override
+  public Object encode(Message message) {
+    final BinaryEncoder encoder = new BinaryEncoder(128);
+    encoder.writeByte(MAGIC);
+    encoder.writeByte(CODEC_VERSION);
+    writeMessage(encoder, message);
+    return encoder.toByteArray();
+  }
+
+  static void checkVersion(byte version) {
+    if (version != CODEC_VERSION) {
+      throw new IllegalArgumentException(String.format(
+          "Unsupported binary message codec version: %d", version));
+    }
+  }
+
+  // 只对确切的类型使用定长字段，子类可能携带额外的属性，按照Map结构编码
+  static void writeMessage(BinaryEncoder encoder, Message message) {
+    final Class<?> messageClass = message.getClass();
+    if (messageClass == ServiceRequestMessage.class) {
+      final ServiceRequestMessage requestMessage = (ServiceRequestMessage) message;
+      encoder.writeByte(Tags.SERVICE_REQUEST);
+      encoder.writeVarLong(requestMessage.getTimestamp());
+      encoder.writeZigZagInt(requestMessage.getActivityId());
+      encoder.writeNullableString(requestMessage.getDomainId());
+      encoder.writeNullableString(requestMessage.getAction());
+      encoder.writeNullableString(requestMessage.getSender());
+      encoder.writeNullableString(requestMessage.getReceiver());
+      encoder.writeValue(requestMessage.getArgs());
+      encoder.writeBoolean(requestMessage.isIgnoreResult());
+    } else if (messageClass == ServiceResponseMessage.class) {
+      final ServiceResponseMessage responseMessage = (ServiceResponseMessage) message;
+      encoder.writeByte(Tags.SERVICE_RESPONSE);
+      encoder.writeVarLong(responseMessage.getTimestamp());
+      encoder.writeZigZagInt(responseMessage.getActivityId());
+      encoder.writeNullableString(responseMessage.getDomainId());
+      encoder.writeNullableString(responseMessage.getAction());
+      encoder.writeNullableString(responseMessage.getSender());
+      encoder.writeNullableString(responseMessage.getReceiver());
+      encoder.writeNullableString(responseMessage.getStatus());
+      encoder.writeNullableString(responseMessage.getErrorCode());
+      encoder.writeNullableString(responseMessage.getMessage());
+      encoder.writeMapEntries(responseMessage.getData());
+    } else if (messageClass == ClockMessage.class) {
+      final ClockMessage clockMessage = (ClockMessage) message;
+      encoder.writeByte(Tags.CLOCK);
+      encoder.writeNullableString(clockMessage.getSender());
+      encoder.writeNullableString(clockMessage.getReceiver());
+      encoder.writeZigZagLong(clockMessage.getTimePoint());
+      encoder.writeZigZagInt(clockMessage.getActivityId());
+      encoder.writeNullableString(clockMessage.getDomainId());
+      encoder.writeNullableString(clockMessage.getAction());
+      encoder.writeMapEntries(clockMessage.getExtraArgs());
+      encoder.writeVarLong(clockMessage.getTimestamp());
+    } else if (messageClass == ActivityThreadCtrlMessage.class) {
+      final ActivityThreadCtrlMessage ctrlMessage = (ActivityThreadCtrlMessage) message;
+      encoder.writeByte(Tags.ACTIVITY_THREAD_CTRL);
+      encoder.writeVarLong(ctrlMessage.getTimestamp());
+      encoder.writeNullableString(ctrlMessage.getSender());
+      encoder.writeNullableString(ctrlMessage.getReceiver());
+      encoder.writeZigZagInt(ctrlMessage.getActivityId());
+      encoder.writeNullableString(ctrlMessage.getDomainId());
+      encoder.writeNullableString(ctrlMessage.getCommand());
+      encoder.writeMapEntries(ctrlMessage.getArgs());
+    } else if (messageClass == MigrateActivityThreadMessage.class) {
+      encoder.writeByte(Tags.MIGRATE_ACTIVITY_THREAD);
+      encoder.writeNullableString(message.getSender());
+      encoder.writeNullableString(message.getReceiver());
+      encoder.writeMapEntries(message.getAttributes());
+    } else if (messageClass == RoutedMessage.class) {
+      final RoutedMessage routedMessage = (RoutedMessage) message;
+      encoder.writeByte(Tags.ROUTED);
+      encoder.writeNullableString(routedMessage.getDomainIDStrategy());
+      encoder.writeNullableString(routedMessage.getDomainId());
+      // DomainID与策略已经单独写入，不再随属性重复写入
+      final Map<String, Object> attributes = new HashMap<>(message.getAttributes());
+      attributes.remove(RoutedMessage.STRATEGY);
+      attributes.remove(RoutedMessage.DOMAIN_ID);
+      writeCommonFields(encoder, message, attributes);
+    } else if (messageClass == Message.class) {
+      encoder.writeByte(Tags.COMMON);
+      writeCommonFields(encoder, message, message.getAttributes());
+    } else {
+      encoder.writeByte(Tags.MAP);
+      encoder.writeMapEntries((Map<?, ?>) mapMessageCodec.encode(message));
+    }
+  }
+
+  private static void writeCommonFields(
+      BinaryEncoder encoder, Message message, Map<String, Object> attributes) {
+    encoder.writeNullableString(message.getType());
+    encoder.writeNullableString(message.getSender());
+    encoder.writeNullableString(message.getReceiver());
+    encoder.writeVarLong(message.getTimestamp());
+    encoder.writeMapEntries(attributes);
+  }
+
+  static Message readMessage(BinaryDecoder decoder) {
+    final byte tag = decoder.readByte();
+    switch (tag) {
+      case Tags.COMMON:
+        return readCommonMessage(decoder);
+      case Tags.ROUTED:
+        final String strategy = decoder.readNullableString();
+        final String domainId = decoder.readNullableString();
+        return new RoutedMessage(strategy, domainId, readCommonMessage(decoder));
+      case Tags.SERVICE_REQUEST:
+        return new ServiceRequestMessage(
+            decoder.readVarLong(),
+            decoder.readZigZagInt(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readValue(),
+            decoder.readBoolean()
+        );
+      case Tags.SERVICE_RESPONSE:
+        return new ServiceResponseMessage(
+            decoder.readVarLong(),
+            decoder.readZigZagInt(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readMapEntries()
+        );
+      case Tags.CLOCK:
+        return new ClockMessage(
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readZigZagLong(),
+            decoder.readZigZagInt(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readMapEntries(),
+            decoder.readVarLong()
+        );
+      case Tags.ACTIVITY_THREAD_CTRL:
+        return new ActivityThreadCtrlMessage(
+            decoder.readVarLong(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readZigZagInt(),
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            decoder.readMapEntries()
+        );
+      case Tags.MIGRATE_ACTIVITY_THREAD:
+        return new MigrateActivityThreadMessage(
+            decoder.readNullableString(),
+            decoder.readNullableString(),
+            MapMessageCodec.buildActivityThreadFromAttr(new EasyMap(decoder.readMapEntries()))
+        );
+      case Tags.MAP:
+        return mapMessageCodec.decode(decoder.readMapEntries());
+      default:
+        throw new IllegalArgumentException(String.format(
+            "Unknown binary message tag: %d at position %d", tag, decoder.getPosition() - 1));
+    }
+  }
+
+  private static Message readCommonMessage(BinaryDecoder decoder) {
+    final String type = decoder.readNullableString();
+    final String sender = decoder.readNullableString();
+    final String receiver = decoder.readNullableString();
+    final long timestamp = decoder.readVarLong();
+    final Map<String, Object> attributes = new HashMap<>(decoder.readMapEntries());
+    return new Message(type, sender, receiver, attributes, timestamp);
+  }
+
+  /**
+   * 消息类型标记
+   */
+  interface Tags {
+
+    byte COMMON = 0;
+
+    byte ROUTED = 1;
+
+    byte SERVICE_REQUEST = 2;
+
+    byte SERVICE_RESPONSE = 3;
+
+    byte CLOCK = 4;
+
+    byte ACTIVITY_THREAD_CTRL = 5;
+
+    byte MIGRATE_ACTIVITY_THREAD = 6;
+
+    byte MAP = 7;
+  }
+}
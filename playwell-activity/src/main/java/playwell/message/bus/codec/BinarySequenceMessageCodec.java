@@ -0,0 +1,101 @@
+package playwell.message.bus.codec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.collections4.CollectionUtils;
+import playwell.message.Message;
+import playwell.util.BinaryDecoder;
+import playwell.util.BinaryEncoder;
+
+/**
+ * <p>基于紧凑二进制格式的序列MessageCodec，编码结果为byte[]</p>
+ *
+ * <pre>
+ *   [magic][codec version][count][tag][fields...][tag][fields...]...
+ * </pre>
+ *
+ * 单条消息的格式与BinaryMessageCodec一致，解码时也可以接受BinaryMessageCodec编码的单条消息
+ *
+ * @author chihongze@gmail.com
+ */
+public class BinarySequenceMessageCodec implements SequenceMessageCodec {
+
+  // 消息序列的首字节标记
+  static final byte MAGIC = (byte) 0xB8;
+
+  public BinarySequenceMessageCodec() {
+
+  }
+
+  /**
+   * 判断数据是否为二进制格式的消息序列或者单条消息
+   *
+   * @param bytes 数据
+   * @return 是否为二进制格式
+   */
+  public static boolean isBinary(byte[] bytes) {
+    return bytes != null && bytes.length > 2 && (
+        bytes[0] == MAGIC || bytes[0] == BinaryMessageCodec.MAGIC);
+  }
+
+  @Override
+  public Collection<Message> decode(Object object) {
+    final byte[] bytes = (byte[]) object;
+    if (!isBinary(bytes)) {
+      throw new IllegalArgumentException("The bytes is not a binary message sequence");
+    }
+    BinaryMessageCodec.checkVersion(bytes[1]);
+    final BinaryDecoder decoder = new BinaryDecoder(bytes, 2);
+    if (bytes[0] == BinaryMessageCodec.MAGIC) {
+      return Collections.singletonList(BinaryMessageCodec.readMessage(decoder));
+    }
+
+    final int count = decoder.readVarInt();
+    final List<Message> messages = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      messages.add(BinaryMessageCodec.readMessage(decoder));
+    }
+    return messages;
+  }
+
+  @Override
+  public Object encode(Collection<Message> messages) {
+    final int count = CollectionUtils.size(messages);
+    final BinaryEncoder encoder = new BinaryEncoder(64 + count * 128);
+    encoder.writeByte(MAGIC);
+    encoder.writeByte(BinaryMessageCodec.CODEC_VERSION);
+    encoder.writeVarInt(count);
+    if (count > 0) {
+      messages.forEach(message -> BinaryMessageCodec.writeMessage(encoder, message));
+    }
+    return encoder.toByteArray();
+  }
+
+  /**
+   * 将BinaryMessageCodec编码的多条单消息拼接为消息序列，避免对消息重复编码
+   *
+   * @param frames 单条消息的编码结果
+   * @return 消息序列
+   */
+  public static byte[] concat(Collection<byte[]> frames) {
+    int size = 16;
+    for (byte[] frame : frames) {
+      size += frame.length;
+    }
+    final BinaryEncoder encoder = new BinaryEncoder(size);
+    encoder.writeByte(MAGIC);
+    encoder.writeByte(BinaryMessageCodec.CODEC_VERSION);
+    encoder.writeVarInt(frames.size());
+    for (byte[] frame : frames) {
+      if (!BinaryMessageCodec.isBinary(frame)) {
+        throw new IllegalArgumentException("The frame is not a binary message");
+      }
+      BinaryMessageCodec.checkVersion(frame[1]);
+      // 跳过单条消息的magic与版本号
+      encoder.writeBytes(frame, 2, frame.length - 2);
+    }
+    return encoder.toByteArray();
+  }
+}
@@ -1,5 +1,6 @@
 package playwell.message.bus.codec;
 
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -26,6 +27,7 @@ import playwell.message.ServiceResponseMessage;
 import playwell.message.sys.ActivityThreadCtrlMessage;
 import playwell.message.sys.SysMessage;
 import playwell.route.migration.MigrateOutputFinishedMessage;
+import playwell.route.migration.MigrateSstFileMessage;
 
 /**
  * <p>基于Map的MessageCodec实现</p>
@@ -227,13 +229,33 @@ public class MapMessageCodec implements MessageCodec {
         data.getString(Message.Fields.SENDER),
         data.getString(Message.Fields.RECEIVER)
     ));
+
+    // 处理SST文件迁移消息
+    ALL_CODECS.put(MigrateSstFileMessage.TYPE, data -> {
+      final EasyMap attr = data.getSubArguments(Message.Fields.ATTRIBUTES);
+      final String sender = data.getString(Message.Fields.SENDER);
+      final String receiver = data.getString(Message.Fields.RECEIVER);
+      final String fileName = attr.getString(MigrateSstFileMessage.Attributes.FILE_NAME);
+      final String path = attr.getString(MigrateSstFileMessage.Attributes.PATH, "");
+      if (!path.isEmpty()) {
+        return MigrateSstFileMessage.ofPath(sender, receiver, fileName, path);
+      }
+      return MigrateSstFileMessage.ofChunk(
+          sender,
+          receiver,
+          fileName,
+          attr.getLong(MigrateSstFileMessage.Attributes.OFFSET),
+          Base64.getDecoder().decode(attr.getString(MigrateSstFileMessage.Attributes.DATA, "")),
+          attr.getBoolean(MigrateSstFileMessage.Attributes.LAST)
+      );
+    });
   }
 
   public MapMessageCodec() {
 
   }
 
-  private static ActivityThread buildActivityThreadFromAttr(EasyMap attr) {
+  static ActivityThread buildActivityThreadFromAttr(EasyMap attr) {
     final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
     final ActivityDefinitionManager activityDefinitionManager = (ActivityDefinitionManager) integrationPlan
         .getTopComponent(TopComponentType.ACTIVITY_DEFINITION_MANAGER);
@@ -0,0 +1,82 @@
+package playwell.message.bus.codec;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.JSONToken;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import playwell.message.Message;
+
+/**
+ * <p>从输入流中增量解析JSON格式的消息，每解析出一条消息就立即交给回调处理，
+ * 不需要将整个请求体读取为字符串，也不会构建完整的JSON数组。</p>
+ *
+ * <p>输入可以是单个JSON对象，也可以是JSON对象数组，顶层的对象或数组之后不允许再有其它内容。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class StreamingJSONMessageDecoder {
+
+  private final MapMessageCodec mapMessageCodec = new MapMessageCodec();
+
+  public StreamingJSONMessageDecoder() {
+
+  }
+
+  /**
+   * 解析输入流中的消息
+   *
+   * @param inputStream 输入流
+   * @param charset 字符集
+   * @param handler 消息处理回调
+   * @return 解析出的消息数目
+   * @throws IllegalArgumentException 输入为空、不是合法的JSON对象/数组或者之后还有多余的内容
+   */
+  public int decode(InputStream inputStream, Charset charset, MessageHandler handler)
+      throws Exception {
+    try (JSONReader reader = new JSONReader(new InputStreamReader(inputStream, charset))) {
+      final int token = reader.peek();
+      if (token == JSONToken.LBRACE) {
+        handler.handle(mapMessageCodec.decode(reader.readObject(JSONObject.class)));
+        checkEnd(reader);
+        return 1;
+      } else if (token == JSONToken.LBRACKET) {
+        int count = 0;
+        reader.startArray();
+        while (reader.hasNext()) {
+          handler.handle(mapMessageCodec.decode(reader.readObject(JSONObject.class)));
+          count++;
+        }
+        reader.endArray();
+        checkEnd(reader);
+        return count;
+      } else if (token == JSONToken.EOF) {
+        throw new IllegalArgumentException("There is no message in the input");
+      } else {
+        throw new IllegalArgumentException("The input is neither a json object nor a json array");
+      }
+    } catch (JSONException e) {
+      throw new IllegalArgumentException(
+          String.format("The input is not a valid json: %s", e.getMessage()), e);
+    }
+  }
+
+  // 顶层的对象或数组之后只允许出现空白字符
+  private void checkEnd(JSONReader reader) {
+    if (reader.peek() != JSONToken.EOF) {
+      throw new IllegalArgumentException(
+          "There is unexpected content after the top-level json value");
+    }
+  }
+
+  /**
+   * 消息处理回调，允许抛出受检异常，例如MessageBusNotAvailableException
+   */
+  @FunctionalInterface
+  public interface MessageHandler {
+
+    void handle(Message message) throws Exception;
+  }
+}
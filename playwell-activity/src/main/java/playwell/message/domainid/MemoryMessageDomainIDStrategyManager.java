@@ -16,6 +16,9 @@ public class MemoryMessageDomainIDStrategyManager implements MessageDomainIDStra
 
   private final List<MessageDomainIDStrategy> allStrategies = new ArrayList<>();
 
+  // 编译后的策略组，策略发生变化时重新编译
+  private volatile MessageDomainIDStrategyGroup strategyGroup = MessageDomainIDStrategyGroup.EMPTY;
+
   public MemoryMessageDomainIDStrategyManager() {
 
   }
@@ -28,6 +31,7 @@ public class MemoryMessageDomainIDStrategyManager implements MessageDomainIDStra
       domainIDStrategy.init(strategyConf);
       allStrategies.add(domainIDStrategy);
     });
+    this.strategyGroup = MessageDomainIDStrategyGroup.compile(allStrategies);
   }
 
   @Override
@@ -40,6 +44,7 @@ public class MemoryMessageDomainIDStrategyManager implements MessageDomainIDStra
         ExpressionMessageDomainIDStrategy.ConfigItems.DOMAIN_ID, domainIdExpr
     )));
     allStrategies.add(messageDomainIDStrategy);
+    this.strategyGroup = MessageDomainIDStrategyGroup.compile(allStrategies);
     return Result.ok();
   }
 
@@ -47,6 +52,7 @@ public class MemoryMessageDomainIDStrategyManager implements MessageDomainIDStra
   public synchronized Result removeMessageDomainIDStrategy(String name) {
     final boolean removed = allStrategies.removeIf(strategy -> strategy.name().equals(name));
     if (removed) {
+      this.strategyGroup = MessageDomainIDStrategyGroup.compile(allStrategies);
       return Result.ok();
     } else {
       return Result.failWithCodeAndMessage(
@@ -61,6 +67,11 @@ public class MemoryMessageDomainIDStrategyManager implements MessageDomainIDStra
     return allStrategies;
   }
 
+  @Override
+  public MessageDomainIDStrategyGroup getMessageDomainIDStrategyGroup() {
+    return strategyGroup;
+  }
+
   // 配置项
   interface ConfigItems {
 
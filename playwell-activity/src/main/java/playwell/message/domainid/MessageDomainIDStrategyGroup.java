@@ -0,0 +1,156 @@
+package playwell.message.domainid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import playwell.common.expression.PlaywellExpression;
+import playwell.common.expression.PlaywellExpressionContext;
+import playwell.common.expression.spel.SpELPlaywellExpressionContext;
+import playwell.message.Message;
+import playwell.message.domainid.ExpressionMessageDomainIDStrategy.MessageDomainIDStrategyExpressionContextRoot;
+
+/**
+ * 将一组MessageDomainIDStrategy编译为一个整体，对每条消息只构建一次表达式上下文，
+ * 并且多个策略中相同的cond/domain_id表达式在同一条消息上只会计算一次。
+ *
+ * <p>策略集合发生变化时需要重新编译，通常由MessageDomainIDStrategyManager负责缓存。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class MessageDomainIDStrategyGroup {
+
+  public static final MessageDomainIDStrategyGroup EMPTY = new MessageDomainIDStrategyGroup(
+      Collections.emptyList());
+
+  // 尚未计算的表达式结果
+  private static final Object UNEVALUATED = new Object();
+
+  // 原始策略集合
+  private final Collection<MessageDomainIDStrategy> strategies;
+
+  // 编译后的策略
+  private final CompiledStrategy[] compiledStrategies;
+
+  // 去重之后的表达式
+  private final PlaywellExpression[] expressions;
+
+  private MessageDomainIDStrategyGroup(Collection<MessageDomainIDStrategy> strategies) {
+    this.strategies = strategies;
+    final Map<String, Integer> expressionIndexes = new HashMap<>();
+    final List<PlaywellExpression> expressionList = new ArrayList<>();
+    this.compiledStrategies = new CompiledStrategy[strategies.size()];
+    int i = 0;
+    for (MessageDomainIDStrategy strategy : strategies) {
+      if (strategy instanceof ExpressionMessageDomainIDStrategy) {
+        final ExpressionMessageDomainIDStrategy expressionStrategy =
+            (ExpressionMessageDomainIDStrategy) strategy;
+        compiledStrategies[i++] = new CompiledStrategy(
+            strategy,
+            indexOf(expressionStrategy.getCondExpr(), expressionIndexes, expressionList),
+            indexOf(expressionStrategy.getDomainIdExpr(), expressionIndexes, expressionList)
+        );
+      } else {
+        compiledStrategies[i++] = new CompiledStrategy(strategy, -1, -1);
+      }
+    }
+    this.expressions = expressionList.toArray(new PlaywellExpression[0]);
+  }
+
+  /**
+   * 编译策略集合
+   *
+   * @param strategies 策略集合
+   * @return 编译后的策略组
+   */
+  public static MessageDomainIDStrategyGroup compile(
+      Collection<MessageDomainIDStrategy> strategies) {
+    if (strategies == null || strategies.isEmpty()) {
+      return EMPTY;
+    }
+    return new MessageDomainIDStrategyGroup(
+        Collections.unmodifiableList(new ArrayList<>(strategies)));
+  }
+
+  private static int indexOf(PlaywellExpression expression,
+      Map<String, Integer> expressionIndexes, List<PlaywellExpression> expressionList) {
+    return expressionIndexes.computeIfAbsent(expression.getExpressionString(), expr -> {
+      expressionList.add(expression);
+      return expressionList.size() - 1;
+    });
+  }
+
+  public Collection<MessageDomainIDStrategy> getStrategies() {
+    return strategies;
+  }
+
+  public boolean isEmpty() {
+    return compiledStrategies.length == 0;
+  }
+
+  /**
+   * 按照策略的顺序计算消息的DomainID，每个匹配的策略都会回调一次
+   *
+   * @param message 消息
+   * @param consumer 回调函数，参数为策略名称和DomainID
+   */
+  public void forEachDomainId(Message message, BiConsumer<String, String> consumer) {
+    if (compiledStrategies.length == 0) {
+      return;
+    }
+
+    PlaywellExpressionContext context = null;
+    Object[] results = null;
+    for (CompiledStrategy compiledStrategy : compiledStrategies) {
+      if (compiledStrategy.condIndex < 0) {
+        final Optional<String> domainIdOptional = compiledStrategy.strategy.domainId(message);
+        domainIdOptional.ifPresent(domainId -> consumer.accept(
+            compiledStrategy.strategy.name(), domainId));
+        continue;
+      }
+
+      if (context == null) {
+        context = new SpELPlaywellExpressionContext();
+        context.setRootObject(new MessageDomainIDStrategyExpressionContextRoot(message));
+        results = new Object[expressions.length];
+        Arrays.fill(results, UNEVALUATED);
+      }
+      final boolean matched = (boolean) evaluate(compiledStrategy.condIndex, context, results);
+      if (matched) {
+        consumer.accept(compiledStrategy.strategy.name(),
+            evaluate(compiledStrategy.domainIdIndex, context, results).toString());
+      }
+    }
+  }
+
+  private Object evaluate(int index, PlaywellExpressionContext context, Object[] results) {
+    Object result = results[index];
+    if (result == UNEVALUATED) {
+      result = expressions[index].getResult(context);
+      results[index] = result;
+    }
+    return result;
+  }
+
+  private static class CompiledStrategy {
+
+    final MessageDomainIDStrategy strategy;
+
+    // cond表达式的位置，小于0表示不是基于表达式的策略
+    final int condIndex;
+
+    // domain_id表达式的位置
+    final int domainIdIndex;
+
+    CompiledStrategy(MessageDomainIDStrategy strategy, int condIndex, int domainIdIndex) {
+      this.strategy = strategy;
+      this.condIndex = condIndex;
+      this.domainIdIndex = domainIdIndex;
+    }
+  }
+}
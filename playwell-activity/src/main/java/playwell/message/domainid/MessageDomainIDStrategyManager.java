@@ -37,6 +37,15 @@ public interface MessageDomainIDStrategyManager extends PlaywellComponent {
    */
   Collection<MessageDomainIDStrategy> getAllMessageDomainIDStrategies();
 
+  /**
+   * 获取由所有MessageDomainIDStrategy编译而成的策略组
+   *
+   * @return 策略组
+   */
+  default MessageDomainIDStrategyGroup getMessageDomainIDStrategyGroup() {
+    return MessageDomainIDStrategyGroup.compile(getAllMessageDomainIDStrategies());
+  }
+
   interface ErrorCodes {
 
     String ALREADY_EXISTED = "already_existed";
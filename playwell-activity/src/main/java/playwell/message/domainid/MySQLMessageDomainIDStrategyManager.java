@@ -35,6 +35,9 @@ public class MySQLMessageDomainIDStrategyManager implements MessageDomainIDStrat
 
   private Collection<MessageDomainIDStrategy> allStrategies = Collections.emptyList();
 
+  // 编译后的策略组，每次刷新时重新编译
+  private volatile MessageDomainIDStrategyGroup strategyGroup = MessageDomainIDStrategyGroup.EMPTY;
+
   public MySQLMessageDomainIDStrategyManager() {
 
   }
@@ -96,12 +99,18 @@ public class MySQLMessageDomainIDStrategyManager implements MessageDomainIDStrat
     return allStrategies;
   }
 
+  @Override
+  public MessageDomainIDStrategyGroup getMessageDomainIDStrategyGroup() {
+    return strategyGroup;
+  }
+
   @Override
   public void beforeLoop() {
     expectedVersion = updater.compareAndCallback(
         expectedVersion, () -> {
           logger.info("Refreshing MySQLMessageDomainIDStrategyManager...");
           this.allStrategies = dataAccess.getAll();
+          this.strategyGroup = MessageDomainIDStrategyGroup.compile(allStrategies);
           logger.info("MySQLMessageDomainIDStrategyManager refreshed");
         });
   }
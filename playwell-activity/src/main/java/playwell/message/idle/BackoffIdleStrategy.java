@@ -0,0 +1,60 @@
+package playwell.message.idle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 指数退避：连续空闲时，先自旋，再yield，最后休眠，休眠时间从min_park_time开始逐次翻倍，直到max_park_time
+ * 只要有一次循环读取到了消息，就会重置回自旋阶段
+ *
+ * @author chihongze@gmail.com
+ */
+public class BackoffIdleStrategy extends BaseIdleStrategy {
+
+  private final int maxSpins;
+
+  private final int maxYields;
+
+  private final long minParkTime;
+
+  private final long maxParkTime;
+
+  private int spins = 0;
+
+  private int yields = 0;
+
+  private long parkTime;
+
+  public BackoffIdleStrategy(int maxSpins, int maxYields, long minParkTime, long maxParkTime) {
+    this.maxSpins = maxSpins;
+    this.maxYields = maxYields;
+    this.minParkTime = Math.max(minParkTime, 1L);
+    this.maxParkTime = Math.max(maxParkTime, this.minParkTime);
+    this.parkTime = this.minParkTime;
+  }
+
+  @Override
+  protected void doIdle(int workCount) {
+    if (workCount > 0) {
+      reset();
+      return;
+    }
+
+    if (spins < maxSpins) {
+      spins++;
+    } else if (yields < maxYields) {
+      yields++;
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(parkTime));
+      parkTime = Math.min(parkTime << 1, maxParkTime);
+    }
+  }
+
+  @Override
+  public void reset() {
+    this.spins = 0;
+    this.yields = 0;
+    this.parkTime = minParkTime;
+  }
+}
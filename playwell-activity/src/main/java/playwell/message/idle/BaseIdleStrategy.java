@@ -0,0 +1,24 @@
+package playwell.message.idle;
+
+/**
+ * BaseIdleStrategy，如果本次循环读满了最大消息数目，说明总线中很可能还有积压的消息，此时不再休眠，直接进入下一次循环
+ *
+ * @author chihongze@gmail.com
+ */
+public abstract class BaseIdleStrategy implements IdleStrategy {
+
+  protected BaseIdleStrategy() {
+
+  }
+
+  @Override
+  public void idle(int workCount, int maxWorkCount) {
+    if (maxWorkCount > 0 && workCount >= maxWorkCount) {
+      reset();
+      return;
+    }
+    doIdle(workCount);
+  }
+
+  protected abstract void doIdle(int workCount);
+}
@@ -0,0 +1,18 @@
+package playwell.message.idle;
+
+/**
+ * 忙等待，从不让出CPU，延迟最低，但会独占一个CPU核心
+ *
+ * @author chihongze@gmail.com
+ */
+public class BusySpinIdleStrategy extends BaseIdleStrategy {
+
+  public BusySpinIdleStrategy() {
+
+  }
+
+  @Override
+  protected void doIdle(int workCount) {
+    // Do nothing
+  }
+}
@@ -0,0 +1,44 @@
+package playwell.message.idle;
+
+import java.util.Optional;
+import playwell.clock.Clock;
+import playwell.integration.IntegrationPlan;
+import playwell.integration.IntegrationPlanFactory;
+import playwell.integration.TopComponentType;
+import playwell.util.Sleeper;
+
+/**
+ * 休眠到下一个待触发的ClockMessage为止，但最多不超过sleep_time，最少为1毫秒
+ * 如果当前集成方案中没有Clock组件，那么退化为固定时间的休眠
+ *
+ * @author chihongze@gmail.com
+ */
+public class ClockDeadlineIdleStrategy extends BaseIdleStrategy {
+
+  private final long sleepTime;
+
+  public ClockDeadlineIdleStrategy(long sleepTime) {
+    this.sleepTime = sleepTime;
+  }
+
+  @Override
+  protected void doIdle(int workCount) {
+    if (sleepTime <= 0) {
+      return;
+    }
+
+    long idleTime = sleepTime;
+    final IntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+    if (integrationPlan.contains(TopComponentType.CLOCK)) {
+      final Clock clock = (Clock) integrationPlan.getTopComponent(TopComponentType.CLOCK);
+      final Optional<Long> nextTimePointOptional = clock.getNextTimePoint();
+      if (nextTimePointOptional.isPresent()) {
+        // 时钟消息已经到期但尚未被消费时(例如没有可调度的活动)，至少休眠1毫秒，避免空转
+        idleTime = Math.max(1L, Math.min(
+            idleTime, nextTimePointOptional.get() - System.currentTimeMillis()));
+      }
+    }
+
+    Sleeper.sleep(idleTime);
+  }
+}
@@ -0,0 +1,23 @@
+package playwell.message.idle;
+
+/**
+ * MessageDispatcher每次循环结束后的空闲策略，根据本次循环的工作量决定是否休眠以及休眠多久
+ *
+ * @author chihongze@gmail.com
+ */
+public interface IdleStrategy {
+
+  /**
+   * 在一次循环结束后回调
+   *
+   * @param workCount 本次循环读取到的消息数目
+   * @param maxWorkCount 每次循环能读取的最大消息数目
+   */
+  void idle(int workCount, int maxWorkCount);
+
+  /**
+   * 重置策略的内部状态
+   */
+  default void reset() {
+  }
+}
@@ -0,0 +1,120 @@
+package playwell.message.idle;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import playwell.common.EasyMap;
+
+/**
+ * 空闲策略类型
+ * <pre>
+ * idle_strategy:
+ *   type: backoff
+ *   max_spins: 100
+ *   max_yields: 10
+ *   min_park_time: 1
+ *   max_park_time: 100
+ * </pre>
+ *
+ * @author chihongze@gmail.com
+ */
+public enum IdleStrategyType {
+
+  /**
+   * 固定时间休眠
+   */
+  SLEEP("sleep"),
+
+  /**
+   * 忙等待
+   */
+  BUSY_SPIN("busy_spin"),
+
+  /**
+   * 让出CPU
+   */
+  YIELD("yield"),
+
+  /**
+   * 指数退避
+   */
+  BACKOFF("backoff"),
+
+  /**
+   * 休眠到下一个时钟消息的触发时间点
+   */
+  CLOCK("clock"),
+
+  ;
+
+  private static final Map<String, IdleStrategyType> ALL_TYPES = new HashMap<>();
+
+  static {
+    for (IdleStrategyType type : values()) {
+      ALL_TYPES.put(type.getType(), type);
+    }
+  }
+
+  private final String type;
+
+  IdleStrategyType(String type) {
+    this.type = type;
+  }
+
+  public static Optional<IdleStrategyType> valueOfByType(String type) {
+    return Optional.ofNullable(ALL_TYPES.get(type));
+  }
+
+  /**
+   * 根据MessageDispatcher的idle_strategy配置构建空闲策略，没有配置时使用固定时间休眠
+   *
+   * @param configuration idle_strategy配置
+   * @param sleepTime MessageDispatcher配置的sleep_time
+   * @return IdleStrategy
+   */
+  public static IdleStrategy buildIdleStrategy(EasyMap configuration, long sleepTime) {
+    final String typeName = configuration.getString(ConfigItems.TYPE, SLEEP.getType());
+    final Optional<IdleStrategyType> typeOptional = valueOfByType(typeName);
+    if (!typeOptional.isPresent()) {
+      throw new RuntimeException(String.format("Unknown idle strategy type: %s", typeName));
+    }
+
+    switch (typeOptional.get()) {
+      case BUSY_SPIN:
+        return new BusySpinIdleStrategy();
+      case YIELD:
+        return new YieldIdleStrategy();
+      case BACKOFF:
+        return new BackoffIdleStrategy(
+            configuration.getInt(ConfigItems.MAX_SPINS, ConfigItems.DEFAULT_MAX_SPINS),
+            configuration.getInt(ConfigItems.MAX_YIELDS, ConfigItems.DEFAULT_MAX_YIELDS),
+            configuration.getLong(ConfigItems.MIN_PARK_TIME, ConfigItems.DEFAULT_MIN_PARK_TIME),
+            configuration.getLong(ConfigItems.MAX_PARK_TIME, sleepTime)
+        );
+      case CLOCK:
+        return new ClockDeadlineIdleStrategy(sleepTime);
+      default:
+        return new SleepIdleStrategy(sleepTime);
+    }
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public interface ConfigItems {
+
+    String TYPE = "type";
+
+    String MAX_SPINS = "max_spins";
+    int DEFAULT_MAX_SPINS = 100;
+
+    String MAX_YIELDS = "max_yields";
+    int DEFAULT_MAX_YIELDS = 10;
+
+    String MIN_PARK_TIME = "min_park_time";
+    long DEFAULT_MIN_PARK_TIME = 1L;
+
+    String MAX_PARK_TIME = "max_park_time";
+  }
+}
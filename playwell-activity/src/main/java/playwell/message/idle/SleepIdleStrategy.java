@@ -0,0 +1,24 @@
+package playwell.message.idle;
+
+import playwell.util.Sleeper;
+
+/**
+ * 休眠固定的时间，与原有的sleep_time行为一致
+ *
+ * @author chihongze@gmail.com
+ */
+public class SleepIdleStrategy extends BaseIdleStrategy {
+
+  private final long sleepTime;
+
+  public SleepIdleStrategy(long sleepTime) {
+    this.sleepTime = sleepTime;
+  }
+
+  @Override
+  protected void doIdle(int workCount) {
+    if (sleepTime > 0) {
+      Sleeper.sleep(sleepTime);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package playwell.message.idle;
+
+/**
+ * 空闲时通过Thread.yield让出CPU
+ *
+ * @author chihongze@gmail.com
+ */
+public class YieldIdleStrategy extends BaseIdleStrategy {
+
+  public YieldIdleStrategy() {
+
+  }
+
+  @Override
+  protected void doIdle(int workCount) {
+    Thread.yield();
+  }
+}
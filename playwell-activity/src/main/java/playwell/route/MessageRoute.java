@@ -1,11 +1,18 @@
 package playwell.route;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.logging.log4j.LogManager;
@@ -14,14 +21,16 @@ import playwell.common.EasyMap;
 import playwell.integration.IntegrationPlanFactory;
 import playwell.integration.IntergrationUtils;
 import playwell.integration.MessageRouteIntegrationPlan;
+import playwell.message.Message;
 import playwell.message.MessageDispatcher;
 import playwell.message.MessageDispatcherListener;
 import playwell.message.RoutedMessage;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
-import playwell.message.bus.MessageBusNotAvailableException;
-import playwell.message.domainid.MessageDomainIDStrategy;
+import playwell.message.domainid.MessageDomainIDStrategyGroup;
 import playwell.message.domainid.MessageDomainIDStrategyManager;
+import playwell.message.idle.IdleStrategy;
+import playwell.message.idle.IdleStrategyType;
 import playwell.service.ServiceMeta;
 import playwell.service.ServiceMetaManager;
 import playwell.util.PerfLog;
@@ -34,10 +43,15 @@ public class MessageRoute implements MessageDispatcher {
 
   private static final Logger logger = LogManager.getLogger(MessageRoute.class);
 
+  // 并行路由时每个任务最少处理的消息数目
+  private static final int ROUTE_CHUNK_SIZE = 256;
+
   private String inputMessageBusName;
 
   private long sleepTime;
 
+  private IdleStrategy idleStrategy;
+
   private int maxFetchNum;
 
   private Collection<MessageDispatcherListener> listeners;
@@ -52,6 +66,18 @@ public class MessageRoute implements MessageDispatcher {
 
   private long lastOutputExceptionTime = 0L;
 
+  // 并行路由的线程数目
+  private int routeThreads;
+
+  // 并行路由线程池，为null时在dispatch线程上路由
+  private ExecutorService routePool = null;
+
+  // ActivityRunner服务与MessageBus映射的刷新周期
+  private long runnerMessageBusRefreshPeriod;
+
+  // 缓存的ActivityRunner服务与MessageBus映射，在循环之间复用
+  private RunnerMessageBuses runnerMessageBuses = null;
+
   public MessageRoute() {
     this.listeners = new LinkedList<>();
   }
@@ -61,9 +87,22 @@ public class MessageRoute implements MessageDispatcher {
     final EasyMap configuration = (EasyMap) config;
     this.inputMessageBusName = configuration.getString(ConfigItems.INPUT_MESSAGE_BUS);
     this.sleepTime = configuration.getLong(ConfigItems.SLEEP_TIME, ConfigItems.DEFAULT_SLEEP_TIME);
+    this.idleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.IDLE_STRATEGY), sleepTime);
     this.maxFetchNum = configuration
         .getInt(ConfigItems.MAX_FETCH_NUM, ConfigItems.DEFAULT_MAX_FETCH_NUM);
 
+    this.routeThreads = configuration.getInt(
+        ConfigItems.ROUTE_THREADS, ConfigItems.DEFAULT_ROUTE_THREADS);
+    if (routeThreads > 0) {
+      this.routePool = Executors.newFixedThreadPool(routeThreads, new ThreadFactoryBuilder()
+          .setNameFormat("message-route-%d")
+          .setDaemon(true)
+          .build());
+    }
+    this.runnerMessageBusRefreshPeriod = configuration.getLong(
+        ConfigItems.RUNNER_BUS_REFRESH_PERIOD, ConfigItems.DEFAULT_RUNNER_BUS_REFRESH_PERIOD);
+
     // 加载MessageDispatcherListener
     IntergrationUtils.loadAndInitSubComponents(configuration.getObjectList(ConfigItems.LISTENERS))
         .forEach(listenerObj -> listeners.add((MessageDispatcherListener) listenerObj));
@@ -84,6 +123,9 @@ public class MessageRoute implements MessageDispatcher {
     while (true) {
 
       if (this.expectedStatus == MessageRouteStatus.STOPPED) {
+        if (routePool != null) {
+          routePool.shutdown();
+        }
         logger.info("MessageRoute stopped.");
         this.actualStatus = MessageRouteStatus.STOPPED;
         break;
@@ -98,6 +140,7 @@ public class MessageRoute implements MessageDispatcher {
         this.actualStatus = MessageRouteStatus.RUNNING;
       }
 
+      int readCount = 0;
       try {
         PerfLog.beginSpan("loop");
 
@@ -114,45 +157,42 @@ public class MessageRoute implements MessageDispatcher {
         final MessageBus messageBus = messageBusOptional.get();
 
         PerfLog.beginSpan("get_domain_id_strategies");
-        final Collection<MessageDomainIDStrategy> messageDomainIDStrategies = messageDomainIDStrategyManager
-            .getAllMessageDomainIDStrategies();
+        final MessageDomainIDStrategyGroup messageDomainIDStrategyGroup =
+            messageDomainIDStrategyManager.getMessageDomainIDStrategyGroup();
         PerfLog.endSpan();  // end span for get domain id strategies
 
         PerfLog.beginSpan("get_runner_message_bus");
-        Collection<String> allActivityRunnerServices = slotsManager.getAllServices();
-        Map<String, MessageBus> allActivityRunnerMessageBus = new HashMap<>(
-            allActivityRunnerServices.size());
-        allActivityRunnerServices.forEach(serviceName -> {
-          Optional<ServiceMeta> serviceMetaOptional = serviceMetaManager
-              .getServiceMetaByName(serviceName);
-          ServiceMeta serviceMeta = serviceMetaOptional.orElseThrow(
-              () -> new RuntimeException(
-                  String.format("Unknown ActivityRunner service: %s", serviceName)));
-          Optional<MessageBus> runnerMsgBusOptional = messageBusManager
-              .getMessageBusByName(serviceMeta.getMessageBus());
-          MessageBus runnerMessageBus = runnerMsgBusOptional.orElseThrow(
-              () -> new RuntimeException(String.format("Unknown MessageBus %s of the service: %s",
-                  serviceMeta.getMessageBus(), serviceMeta.getName())));
-          allActivityRunnerMessageBus.put(serviceName, runnerMessageBus);
-        });
+        final SlotsSnapshot slotsSnapshot = slotsManager.getSlotsSnapshot();
+        if (runnerMessageBuses == null
+            || runnerMessageBuses.slotsSnapshot != slotsSnapshot
+            || System.currentTimeMillis() - runnerMessageBuses.createdOn
+            >= runnerMessageBusRefreshPeriod) {
+          this.runnerMessageBuses = new RunnerMessageBuses(
+              slotsSnapshot, serviceMetaManager, messageBusManager);
+        }
+        final RunnerMessageBuses currentRunnerMessageBuses = this.runnerMessageBuses;
         PerfLog.endSpan();  // end span for get runner message bus
 
+        PerfLog.beginSpan("read_messages");
+        final List<Message> messages = new ArrayList<>(maxFetchNum);
+        readCount = messageBus.readWithConsumer(maxFetchNum, messages::add);
+        PerfLog.endSpan();  // end span for read messages
+
+        PerfLog.beginSpan("route_messages");
+        final Map<MessageBus, List<Message>> routedMessages = routeMessages(
+            messages, messageDomainIDStrategyGroup, currentRunnerMessageBuses);
+        PerfLog.endSpan();  // end span for route messages
+
         PerfLog.beginSpan("redirect_messages");
-        messageBus.readWithConsumer(maxFetchNum, message ->
-            messageDomainIDStrategies.forEach(strategy -> {
-              Optional<String> domainIdOptional = strategy.domainId(message);
-              domainIdOptional.ifPresent(domainId -> {
-                String serviceName = slotsManager.getServiceByKey(domainId);
-                MessageBus runnerMessageBus = allActivityRunnerMessageBus.get(serviceName);
-                try {
-                  runnerMessageBus.write(new RoutedMessage(strategy.name(), domainId, message));
-                } catch (MessageBusNotAvailableException e) {
-                  throw new RuntimeException(e);
-                }
-              });
-            }));
+        for (Map.Entry<MessageBus, List<Message>> entry : routedMessages.entrySet()) {
+          entry.getKey().write(entry.getValue());
+        }
         PerfLog.endSpan();  // end span for redirect messages
 
+        PerfLog.beginSpan("await_writes");
+        routedMessages.keySet().forEach(MessageBus::awaitWrites);
+        PerfLog.endSpan();  // end span for await writes
+
         PerfLog.beginSpan("ack_messages");
         messageBus.ackMessages();
         PerfLog.endSpan();  // end span for ack messages
@@ -167,11 +207,65 @@ public class MessageRoute implements MessageDispatcher {
         PerfLog.endRootSpan();  // end span for loop
         PerfLog.outputPerfLog();
         PerfLog.clear();
-        sleep();
+        idleStrategy.idle(readCount, maxFetchNum);
       }
     }
   }
 
+  // 按照目标MessageBus对消息进行分组，同一个MessageBus中的消息保持读取时的顺序
+  private Map<MessageBus, List<Message>> routeMessages(
+      List<Message> messages,
+      MessageDomainIDStrategyGroup messageDomainIDStrategyGroup,
+      RunnerMessageBuses runnerMessageBuses) throws InterruptedException {
+    if (messages.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    if (routePool == null || messages.size() < ROUTE_CHUNK_SIZE * 2) {
+      return routeChunk(messages, messageDomainIDStrategyGroup, runnerMessageBuses);
+    }
+
+    // 按照连续的区间切分给工作线程，合并时按照区间顺序拼接
+    final int chunkSize = Math.max(ROUTE_CHUNK_SIZE,
+        (messages.size() + routeThreads - 1) / routeThreads);
+    final List<Future<Map<MessageBus, List<Message>>>> futures = new ArrayList<>(
+        messages.size() / chunkSize + 1);
+    for (int i = 0; i < messages.size(); i += chunkSize) {
+      final List<Message> chunk = messages.subList(i, Math.min(i + chunkSize, messages.size()));
+      futures.add(routePool.submit(
+          () -> routeChunk(chunk, messageDomainIDStrategyGroup, runnerMessageBuses)));
+    }
+
+    final Map<MessageBus, List<Message>> routedMessages = new LinkedHashMap<>();
+    try {
+      for (Future<Map<MessageBus, List<Message>>> future : futures) {
+        future.get().forEach((runnerMessageBus, chunkMessages) -> routedMessages
+            .computeIfAbsent(runnerMessageBus, k -> new ArrayList<>(chunkMessages.size()))
+            .addAll(chunkMessages));
+      }
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    return routedMessages;
+  }
+
+  private Map<MessageBus, List<Message>> routeChunk(
+      List<Message> messages,
+      MessageDomainIDStrategyGroup messageDomainIDStrategyGroup,
+      RunnerMessageBuses runnerMessageBuses) {
+    final SlotsSnapshot slotsSnapshot = runnerMessageBuses.slotsSnapshot;
+    final Map<MessageBus, List<Message>> routedMessages = new LinkedHashMap<>();
+    for (Message message : messages) {
+      messageDomainIDStrategyGroup.forEachDomainId(message, (strategyName, domainId) -> {
+        final MessageBus runnerMessageBus = runnerMessageBuses.messageBuses[
+            slotsSnapshot.getServiceIndexByKey(domainId)];
+        routedMessages.computeIfAbsent(runnerMessageBus, k -> new ArrayList<>())
+            .add(new RoutedMessage(strategyName, domainId, message));
+      });
+    }
+    return routedMessages;
+  }
+
   @Override
   public boolean isStarted() {
     return started;
@@ -237,13 +331,33 @@ public class MessageRoute implements MessageDispatcher {
     this.lastExceptionType = exceptionType;
   }
 
-  private void sleep() {
-    if (this.sleepTime > 0) {
-      try {
-        TimeUnit.MILLISECONDS.sleep(this.sleepTime);
-      } catch (InterruptedException e) {
-        throw new RuntimeException(e);
+  // 按照slots快照中的服务序号缓存ActivityRunner的MessageBus
+  private static class RunnerMessageBuses {
+
+    final SlotsSnapshot slotsSnapshot;
+
+    final MessageBus[] messageBuses;
+
+    final long createdOn;
+
+    RunnerMessageBuses(SlotsSnapshot slotsSnapshot, ServiceMetaManager serviceMetaManager,
+        MessageBusManager messageBusManager) {
+      this.slotsSnapshot = slotsSnapshot;
+      this.messageBuses = new MessageBus[slotsSnapshot.getServicesNum()];
+      for (int i = 0; i < messageBuses.length; i++) {
+        final String serviceName = slotsSnapshot.getService(i);
+        Optional<ServiceMeta> serviceMetaOptional = serviceMetaManager
+            .getServiceMetaByName(serviceName);
+        ServiceMeta serviceMeta = serviceMetaOptional.orElseThrow(
+            () -> new RuntimeException(
+                String.format("Unknown ActivityRunner service: %s", serviceName)));
+        Optional<MessageBus> runnerMsgBusOptional = messageBusManager
+            .getMessageBusByName(serviceMeta.getMessageBus());
+        messageBuses[i] = runnerMsgBusOptional.orElseThrow(
+            () -> new RuntimeException(String.format("Unknown MessageBus %s of the service: %s",
+                serviceMeta.getMessageBus(), serviceMeta.getName())));
       }
+      this.createdOn = System.currentTimeMillis();
     }
   }
 
@@ -255,9 +369,19 @@ public class MessageRoute implements MessageDispatcher {
     String SLEEP_TIME = "sleep_time";
     long DEFAULT_SLEEP_TIME = 100;
 
+    String IDLE_STRATEGY = "idle_strategy";
+
     String MAX_FETCH_NUM = "max_fetch_num";
     int DEFAULT_MAX_FETCH_NUM = 5000;
 
     String LISTENERS = "listeners";
+
+    // 并行计算DomainID并分组的线程数目，为0时在dispatch线程上执行
+    String ROUTE_THREADS = "route_threads";
+    int DEFAULT_ROUTE_THREADS = 0;
+
+    // ActivityRunner服务与MessageBus映射的刷新周期，单位毫秒，slots快照发生变化时会立即刷新
+    String RUNNER_BUS_REFRESH_PERIOD = "runner_bus_refresh_period";
+    long DEFAULT_RUNNER_BUS_REFRESH_PERIOD = 3000L;
   }
 }
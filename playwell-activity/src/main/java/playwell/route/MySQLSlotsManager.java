@@ -2,18 +2,11 @@ package playwell.route;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -37,10 +30,8 @@ public class MySQLSlotsManager implements SlotsManager, MessageDispatcherListene
 
   private static final String COMPARE_AND_CALLBACK_ITEM = "slots";
 
-  // Read write lock
-  private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
-
-  private String[] allSlots = new String[0];
+  // 当前的slots分布，刷新时整体替换
+  private volatile SlotsSnapshot slotsSnapshot = SlotsSnapshot.EMPTY;
 
   private DataAccess dataAccess;
 
@@ -61,13 +52,15 @@ public class MySQLSlotsManager implements SlotsManager, MessageDispatcherListene
   @Override
   public void init(Object config) {
     final EasyMap configuration = (EasyMap) config;
-    this.allSlots = new String[0];
+    this.slotsSnapshot = SlotsSnapshot.EMPTY;
     final String dataSource = configuration.getString(ConfigItems.DATASOURCE);
     this.dataAccess = new DataAccess(dataSource);
     this.updator = new MySQLCompareAndCallback(dataSource, COMPARE_AND_CALLBACK_ITEM);
     this.migrationCoordinator = new DefaultMigrationCoordinator(dataSource);
-    this.migrationOutputTask = new DefaultMigrationOutputTask(dataSource);
-    this.migrationInputTask = new DefaultMigrationInputTask(dataSource);
+    this.migrationOutputTask = new DefaultMigrationOutputTask(
+        dataSource, configuration.getSubArguments(ConfigItems.MIGRATION_OUTPUT));
+    this.migrationInputTask = new DefaultMigrationInputTask(
+        dataSource, configuration.getSubArguments(ConfigItems.MIGRATION_INPUT));
   }
 
   @Override
@@ -114,71 +107,51 @@ public class MySQLSlotsManager implements SlotsManager, MessageDispatcherListene
 
   @Override
   public Collection<Integer> getSlotsByServiceName(String serviceName) {
-    try {
-      rwLock.readLock().lock();
-      final List<Integer> slots = new LinkedList<>();
-      for (int i = 0; i < allSlots.length; i++) {
-        String service = allSlots[i];
-        if (service.equals(serviceName)) {
-          slots.add(i);
-        }
-      }
-      return slots;
-    } finally {
-      rwLock.readLock().unlock();
-    }
+    return slotsSnapshot.getSlotsByServiceName(serviceName);
   }
 
   @Override
   public Optional<String> getServiceNameBySlot(int slot) {
-    try {
-      rwLock.readLock().lock();
-      if (slot >= allSlots.length) {
-        return Optional.empty();
-      }
-
-      return Optional.of(allSlots[slot]);
-    } finally {
-      rwLock.readLock().unlock();
+    final SlotsSnapshot snapshot = this.slotsSnapshot;
+    if (slot >= snapshot.getSlotsNum()) {
+      return Optional.empty();
     }
+
+    return Optional.of(snapshot.getServiceBySlot(slot));
   }
 
   @Override
   public Result getSlotsDistribution() {
-    try {
-      rwLock.readLock().lock();
-      final Map<String, Long> groupingCount = Arrays.stream(allSlots).collect(
-          Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-      return Result.okWithData(ImmutableMap.of(
-          ResultFields.SLOTS, allSlots.length,
-          ResultFields.DISTRIBUTION, groupingCount
-      ));
-    } finally {
-      rwLock.readLock().unlock();
-    }
+    final SlotsSnapshot snapshot = this.slotsSnapshot;
+    return Result.okWithData(ImmutableMap.of(
+        ResultFields.SLOTS, snapshot.getSlotsNum(),
+        ResultFields.DISTRIBUTION, snapshot.getDistribution()
+    ));
   }
 
   @Override
   public String getServiceByHash(long hashCode) {
-    int slot = Math.abs((int) (hashCode % allSlots.length));
-    return allSlots[slot];
+    return slotsSnapshot.getServiceByHash(hashCode);
   }
 
   @Override
   public String getServiceByKey(String string) {
-    return getServiceByHash(fnv1Hash(string));
+    return slotsSnapshot.getServiceByKey(string);
   }
 
   @Override
   public int getSlotByKey(String string) {
-    final long hashCode = fnv1Hash(string);
-    return Math.abs((int) (hashCode % allSlots.length));
+    return slotsSnapshot.getSlotByKey(string);
+  }
+
+  @Override
+  public SlotsSnapshot getSlotsSnapshot() {
+    return slotsSnapshot;
   }
 
   @Override
   public Collection<String> getAllServices() {
-    return new HashSet<>(Arrays.asList(allSlots));
+    return slotsSnapshot.getAllServices();
   }
 
   @Override
@@ -211,13 +184,8 @@ public class MySQLSlotsManager implements SlotsManager, MessageDispatcherListene
     this.expectedVersion = updator.compareAndCallback(expectedVersion, this::refreshAll);
   }
 
-  public void refreshAll() {
-    try {
-      rwLock.writeLock().lock();
-      this.allSlots = dataAccess.getAll();
-    } finally {
-      rwLock.writeLock().unlock();
-    }
+  public synchronized void refreshAll() {
+    this.slotsSnapshot = new SlotsSnapshot(slotsSnapshot.getVersion() + 1, dataAccess.getAll());
   }
 
   // 清除所有的slots记录，只用于测试
@@ -225,23 +193,15 @@ public class MySQLSlotsManager implements SlotsManager, MessageDispatcherListene
     dataAccess.truncate();
   }
 
-  private long fnv1Hash(String key) {
-    final int p = 16777619;
-    int hash = (int) 2166136261L;
-    for (int i = 0; i < key.length(); i++) {
-      hash = (hash ^ key.charAt(i)) * p;
-    }
-    hash += hash << 13;
-    hash ^= hash >> 7;
-    hash += hash << 3;
-    hash ^= hash >> 17;
-    hash += hash << 5;
-    return hash;
-  }
-
   interface ConfigItems {
 
     String DATASOURCE = "datasource";
+
+    // 迁移输出任务配置，包括并行扫描、限速、检查点以及SST文件传输相关的配置
+    String MIGRATION_OUTPUT = "migration_output";
+
+    // 迁移输入任务配置，包括接收SST文件的目录sst_file_directory
+    String MIGRATION_INPUT = "migration_input";
   }
 
   static class DataAccess {
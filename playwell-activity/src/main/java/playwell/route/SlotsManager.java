@@ -91,6 +91,13 @@ public interface SlotsManager extends PlaywellComponent {
    */
   MigrationInputTask getMigrationInputTask();
 
+  /**
+   * 获取当前slots分布的不可变快照，slots分布发生变化时会被整体替换
+   *
+   * @return slots快照
+   */
+  SlotsSnapshot getSlotsSnapshot();
+
   /**
    * 获取所有的节点
    *
@@ -0,0 +1,186 @@
+package playwell.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Slots分布的不可变快照，SlotsManager刷新时整体替换，读取时无需加锁。</p>
+ *
+ * <p>每个slot映射到一个服务序号，同一个服务的名称只保存一份，
+ * 调用者可以按照服务序号缓存与服务相关的对象，例如服务对应的MessageBus，
+ * 并通过版本号判断快照是否发生了变化。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class SlotsSnapshot {
+
+  public static final SlotsSnapshot EMPTY = new SlotsSnapshot(0L, new String[0]);
+
+  // 快照版本，每次刷新递增
+  private final long version;
+
+  // 去重后的服务名称，按照首次出现的顺序排列
+  private final String[] services;
+
+  // slot -> 服务序号
+  private final int[] slotServiceIndexes;
+
+  // 服务名称 -> 服务序号
+  private final Map<String, Integer> serviceIndexes;
+
+  private final Set<String> allServices;
+
+  public SlotsSnapshot(long version, String[] allSlots) {
+    this.version = version;
+    this.slotServiceIndexes = new int[allSlots.length];
+    final Map<String, Integer> indexes = new HashMap<>();
+    final List<String> serviceList = new ArrayList<>();
+    for (int slot = 0; slot < allSlots.length; slot++) {
+      final String service = allSlots[slot];
+      Integer index = indexes.get(service);
+      if (index == null) {
+        index = serviceList.size();
+        indexes.put(service, index);
+        serviceList.add(service);
+      }
+      slotServiceIndexes[slot] = index;
+    }
+    this.services = serviceList.toArray(new String[0]);
+    this.serviceIndexes = Collections.unmodifiableMap(indexes);
+    this.allServices = Collections.unmodifiableSet(new LinkedHashSet<>(serviceList));
+  }
+
+  /**
+   * 计算key的Hash值，与slot的计算规则保持一致。对同一个key进行多次查找时，可以先计算Hash再复用
+   *
+   * @param key key string
+   * @return Hash值
+   */
+  public static long hash(String key) {
+    final int p = 16777619;
+    int hash = (int) 2166136261L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * p;
+    }
+    hash += hash << 13;
+    hash ^= hash >> 7;
+    hash += hash << 3;
+    hash ^= hash >> 17;
+    hash += hash << 5;
+    return hash;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public int getSlotsNum() {
+    return slotServiceIndexes.length;
+  }
+
+  public boolean isEmpty() {
+    return slotServiceIndexes.length == 0;
+  }
+
+  public int getSlotByHash(long hashCode) {
+    if (slotServiceIndexes.length == 0) {
+      throw new RuntimeException("The slots have not been allocated yet");
+    }
+    return Math.abs((int) (hashCode % slotServiceIndexes.length));
+  }
+
+  public int getSlotByKey(String key) {
+    return getSlotByHash(hash(key));
+  }
+
+  /**
+   * 获取slot所属服务的序号
+   *
+   * @param slot slot index
+   * @return 服务序号，对应getServices()中的位置
+   */
+  public int getServiceIndexBySlot(int slot) {
+    return slotServiceIndexes[slot];
+  }
+
+  public int getServiceIndexByHash(long hashCode) {
+    return slotServiceIndexes[getSlotByHash(hashCode)];
+  }
+
+  public int getServiceIndexByKey(String key) {
+    return getServiceIndexByHash(hash(key));
+  }
+
+  /**
+   * 获取服务的序号
+   *
+   * @param service 服务名称
+   * @return 服务序号，不存在时返回-1
+   */
+  public int getServiceIndex(String service) {
+    final Integer index = serviceIndexes.get(service);
+    return index == null ? -1 : index;
+  }
+
+  public String getService(int serviceIndex) {
+    return services[serviceIndex];
+  }
+
+  public String getServiceBySlot(int slot) {
+    return services[slotServiceIndexes[slot]];
+  }
+
+  public String getServiceByHash(long hashCode) {
+    return services[getServiceIndexByHash(hashCode)];
+  }
+
+  public String getServiceByKey(String key) {
+    return getServiceByHash(hash(key));
+  }
+
+  /**
+   * 服务数目，服务序号的取值范围为[0, getServicesNum())
+   */
+  public int getServicesNum() {
+    return services.length;
+  }
+
+  public Collection<String> getAllServices() {
+    return allServices;
+  }
+
+  public Collection<Integer> getSlotsByServiceName(String service) {
+    final int serviceIndex = getServiceIndex(service);
+    if (serviceIndex < 0) {
+      return Collections.emptyList();
+    }
+    final List<Integer> slots = new ArrayList<>();
+    for (int slot = 0; slot < slotServiceIndexes.length; slot++) {
+      if (slotServiceIndexes[slot] == serviceIndex) {
+        slots.add(slot);
+      }
+    }
+    return slots;
+  }
+
+  /**
+   * 按照服务统计slots数目
+   */
+  public Map<String, Long> getDistribution() {
+    final long[] counts = new long[services.length];
+    for (int serviceIndex : slotServiceIndexes) {
+      counts[serviceIndex]++;
+    }
+    final Map<String, Long> distribution = new HashMap<>(services.length);
+    for (int i = 0; i < services.length; i++) {
+      distribution.put(services[i], counts[i]);
+    }
+    return distribution;
+  }
+}
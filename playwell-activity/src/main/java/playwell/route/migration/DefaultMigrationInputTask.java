@@ -1,5 +1,12 @@
 package playwell.route.migration;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -12,6 +19,7 @@ import org.apache.logging.log4j.Logger;
 import playwell.activity.thread.ActivityThread;
 import playwell.activity.thread.ActivityThreadPool;
 import playwell.activity.thread.message.MigrateActivityThreadMessage;
+import playwell.common.EasyMap;
 import playwell.integration.ActivityRunnerIntegrationPlan;
 import playwell.integration.IntegrationPlanFactory;
 import playwell.message.bus.MessageBus;
@@ -30,13 +38,22 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
 
   private final MigrationProgressDataAccess migrationProgressDataAccess;
 
+  // 接收SST文件分块的目录
+  private final String sstFileDirectory;
+
   private volatile boolean stopMark = false;
 
   private volatile boolean stopped = true;
 
   public DefaultMigrationInputTask(String dataSource) {
+    this(dataSource, new EasyMap());
+  }
+
+  public DefaultMigrationInputTask(String dataSource, EasyMap configuration) {
     this.migrationPlanDataAccess = new MigrationPlanDataAccess(dataSource);
     this.migrationProgressDataAccess = new MigrationProgressDataAccess(dataSource);
+    this.sstFileDirectory = configuration.getString(
+        ConfigItems.SST_FILE_DIRECTORY, ConfigItems.DEFAULT_SST_FILE_DIRECTORY);
   }
 
   @Override
@@ -49,8 +66,8 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
   // S1. 获取迁入需要的组件：MigrationPlan、SlotsManager、MessageBus
   // S2. 开始从MessageBus读取消息
   // S3. 判断消息类型，以及消息所包含的ActivityThread是否是属于该节点的slots
-  // S4. 向持久化存储写入ActivityThread
-  // S5. 如果读到了EOF消息，则暂停消费，将input_finished标记为true
+  // S4. 向持久化存储写入ActivityThread，如果是SST文件消息，则记录共享文件路径或者将分块写入本地文件
+  // S5. 如果读到了EOF消息，则暂停消费，导入接收到的SST文件，将input_finished标记为true
   @Override
   public void startInputTask(MigrationProgress migrationProgress) {
     final ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
@@ -69,6 +86,10 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
     final String inputService = migrationProgress.getInputNode();
     final Set<Integer> targetSlots = new HashSet<>(migrationProgress.getSlots());
     final List<ActivityThread> receivedActivityThreads = new LinkedList<>();
+    // 共享目录中的SST文件，导入时复制
+    final List<String> sharedSstFiles = new ArrayList<>();
+    // 通过分块接收到本地的SST文件，导入时直接移动
+    final List<String> receivedSstFiles = new ArrayList<>();
 
     this.stopMark = false;
     this.stopped = false;
@@ -119,6 +140,26 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
                             migrationProgress.getInputNode()
                         ));
               }
+            } else if (message instanceof MigrateSstFileMessage) {
+              final MigrateSstFileMessage sstFileMessage = (MigrateSstFileMessage) message;
+              if (outputService.equals(sstFileMessage.getSender()) &&
+                  inputService.equals(sstFileMessage.getReceiver())) {
+                if (sstFileMessage.isSharedPath()) {
+                  sharedSstFiles.add(resolveSstFilePath(sstFileMessage.getPath()).toString());
+                } else {
+                  receiveSstFileChunk(sstFileMessage).ifPresent(receivedSstFiles::add);
+                }
+              } else {
+                logger.error(
+                    String
+                        .format("Invalid MigrateSstFileMessage: (output = %s, input = %s), "
+                                + "current progress: (output = %s, input = %s)",
+                            message.getSender(),
+                            message.getReceiver(),
+                            migrationProgress.getOutputNode(),
+                            migrationProgress.getInputNode()
+                        ));
+              }
             } else if (message instanceof MigrateOutputFinishedMessage) {
               final MigrateOutputFinishedMessage eofMessage = (MigrateOutputFinishedMessage) message;
               if (outputService.equals(eofMessage.getSender()) &&
@@ -157,6 +198,9 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
         }
 
         if (eof.getVar()) {
+          if (!ingestSstFiles(targetSlots, sharedSstFiles, receivedSstFiles)) {
+            break;
+          }
           migrationProgressDataAccess.updateInputFinished(migrationProgress.getInputNode());
           migrationProgressDataAccess.updateStatus(
               migrationProgress.getOutputNode(),
@@ -179,6 +223,67 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
     activityThreadPool.batchSaveActivityThreads(receivedActivityThreads);
   }
 
+  // 将文件分块追加到本地文件，收到最后一个分块时返回完整文件的路径
+  private Optional<String> receiveSstFileChunk(MigrateSstFileMessage message) {
+    final Path path = resolveSstFilePath(message.getFileName());
+    try {
+      if (message.getOffset() == 0L) {
+        Files.createDirectories(path.getParent());
+        Files.write(path, message.getData(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+      } else {
+        final long length = Files.exists(path) ? Files.size(path) : 0L;
+        if (length != message.getOffset()) {
+          throw new RuntimeException(String.format(
+              "Unexpected sst file chunk, file: %s, offset: %d, received: %d",
+              message.getFileName(), message.getOffset(), length));
+        }
+        Files.write(path, message.getData(), StandardOpenOption.APPEND);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return message.isLast() ? Optional.of(path.toString()) : Optional.empty();
+  }
+
+  // 消息中的文件名或路径规范化之后必须位于sst_file_directory之下，避免写入或删除目录之外的文件
+  private Path resolveSstFilePath(String fileName) {
+    final Path directory = Paths.get(sstFileDirectory).toAbsolutePath().normalize();
+    final Path path = directory.resolve(fileName).normalize();
+    if (!path.startsWith(directory) || path.equals(directory)) {
+      throw new RuntimeException(String.format(
+          "Invalid sst file: %s, the file must be under the directory: %s",
+          fileName, directory));
+    }
+    return path;
+  }
+
+  // 导入接收到的SST文件，导入成功之后删除共享目录中的文件
+  protected boolean ingestSstFiles(
+      Collection<Integer> slots, List<String> sharedSstFiles, List<String> receivedSstFiles) {
+    if (CollectionUtils.isEmpty(sharedSstFiles) && CollectionUtils.isEmpty(receivedSstFiles)) {
+      return true;
+    }
+
+    final ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+    final ActivityThreadPool activityThreadPool = integrationPlan.getActivityThreadPool();
+    try {
+      if ((CollectionUtils.isNotEmpty(sharedSstFiles) &&
+          !activityThreadPool.ingestSstFiles(slots, sharedSstFiles, false)) ||
+          (CollectionUtils.isNotEmpty(receivedSstFiles) &&
+              !activityThreadPool.ingestSstFiles(slots, receivedSstFiles, true))) {
+        logger.error("The activity thread pool does not support ingesting sst files");
+        return false;
+      }
+    } catch (Exception e) {
+      logger.error("Ingest migration sst files error!", e);
+      return false;
+    }
+    sharedSstFiles.forEach(path -> new File(path).delete());
+    receivedSstFiles.forEach(path -> new File(path).delete());
+    return true;
+  }
+
   @Override
   public void stop() {
     this.stopMark = true;
@@ -188,4 +293,11 @@ public class DefaultMigrationInputTask implements MigrationInputTask {
   public boolean isStopped() {
     return this.stopped;
   }
+
+  interface ConfigItems {
+
+    // 接收SST文件的目录，共享目录模式下输出端的文件也必须位于该目录之下
+    String SST_FILE_DIRECTORY = "sst_file_directory";
+    String DEFAULT_SST_FILE_DIRECTORY = "/tmp/playwell_migration";
+  }
 }
@@ -1,27 +1,54 @@
 package playwell.route.migration;
 
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import playwell.activity.thread.ActivityThread;
+import playwell.activity.thread.ActivityThreadBinaryCodec;
 import playwell.activity.thread.ActivityThreadPool;
 import playwell.activity.thread.message.MigrateActivityThreadMessage;
+import playwell.clock.CachedTimestamp;
+import playwell.common.EasyMap;
 import playwell.integration.ActivityRunnerIntegrationPlan;
 import playwell.integration.IntegrationPlanFactory;
+import playwell.message.Message;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
 import playwell.message.bus.MessageBusNotAvailableException;
 import playwell.route.SlotsManager;
+import playwell.route.migration.MigrationOutputCheckpoint.RangeProgress;
 import playwell.util.VariableHolder;
 
 /**
- * DefaultMigrationOutputTask
+ * <p>DefaultMigrationOutputTask</p>
+ *
+ * <p>将ActivityThread存储划分为若干个范围并行扫描，符合条件的ActivityThread按批次写出；
+ * 每个范围已经写出的位置会周期性地保存为检查点，任务重启之后从检查点继续输出。</p>
+ *
+ * <p>传输方式为sst_file时，迁移slots的数据会被原样导出为SST文件，
+ * 通过共享文件系统路径或者MessageBus分块传输给输入节点，由输入节点直接导入，
+ * 这种方式不会保存检查点，任务重启之后会重新导出。</p>
  */
 public class DefaultMigrationOutputTask implements MigrationOutputTask {
 
@@ -34,6 +61,33 @@ public class DefaultMigrationOutputTask implements MigrationOutputTask {
 
   private final MigrationProgressDataAccess migrationProgressDataAccess;
 
+  // 并行扫描的范围数目
+  private final int parallelism;
+
+  // 每次写出的MigrateActivityThreadMessage数目
+  private final int batchSize;
+
+  // 每秒最多输出的字节数，小于等于0时不限制
+  private final long maxBytesPerSecond;
+
+  // 保存检查点的周期，单位毫秒
+  private final long checkpointPeriod;
+
+  // 传输方式
+  private final MigrationTransferMode transferMode;
+
+  // SST文件的导出目录
+  private final String sstFileDirectory;
+
+  // 导出目录是否为输入节点可以访问的共享目录
+  private final boolean sstFileShared;
+
+  // 单个SST文件的最大字节数
+  private final long sstFileMaxSize;
+
+  // 通过MessageBus传输SST文件时每个分块的字节数
+  private final int sstChunkSize;
+
   // 任务停止标记
   private volatile boolean stopMark = false;
 
@@ -44,8 +98,33 @@ public class DefaultMigrationOutputTask implements MigrationOutputTask {
   private volatile boolean running = false;
 
   public DefaultMigrationOutputTask(String dataSource) {
+    this(dataSource, new EasyMap());
+  }
+
+  public DefaultMigrationOutputTask(String dataSource, EasyMap configuration) {
     this.migrationPlanDataAccess = new MigrationPlanDataAccess(dataSource);
     this.migrationProgressDataAccess = new MigrationProgressDataAccess(dataSource);
+    this.parallelism = Math.max(1, configuration.getInt(
+        ConfigItems.PARALLELISM, ConfigItems.DEFAULT_PARALLELISM));
+    this.batchSize = Math.max(1, configuration.getInt(
+        ConfigItems.BATCH_SIZE, ConfigItems.DEFAULT_BATCH_SIZE));
+    this.maxBytesPerSecond = configuration.getLong(
+        ConfigItems.MAX_BYTES_PER_SECOND, ConfigItems.DEFAULT_MAX_BYTES_PER_SECOND);
+    this.checkpointPeriod = Math.max(100L, configuration.getLong(
+        ConfigItems.CHECKPOINT_PERIOD, ConfigItems.DEFAULT_CHECKPOINT_PERIOD));
+    final String transferModeType = configuration.getString(
+        ConfigItems.TRANSFER_MODE, ConfigItems.DEFAULT_TRANSFER_MODE);
+    this.transferMode = MigrationTransferMode.valueOfByType(transferModeType).orElseThrow(
+        () -> new RuntimeException(String.format(
+            "Unknown migration transfer mode: %s", transferModeType)));
+    this.sstFileDirectory = configuration.getString(
+        ConfigItems.SST_FILE_DIRECTORY, ConfigItems.DEFAULT_SST_FILE_DIRECTORY);
+    this.sstFileShared = configuration.getBoolean(
+        ConfigItems.SST_FILE_SHARED, ConfigItems.DEFAULT_SST_FILE_SHARED);
+    this.sstFileMaxSize = Math.max(1L, configuration.getLong(
+        ConfigItems.SST_FILE_MAX_SIZE, ConfigItems.DEFAULT_SST_FILE_MAX_SIZE));
+    this.sstChunkSize = Math.max(1024, configuration.getInt(
+        ConfigItems.SST_CHUNK_SIZE, ConfigItems.DEFAULT_SST_CHUNK_SIZE));
   }
 
   @Override
@@ -75,10 +154,9 @@ public class DefaultMigrationOutputTask implements MigrationOutputTask {
   }
 
   // 执行slots输出
-  // S2. 遍历所有的ActivityThread记录
-  // S3. 筛选出符合条件的记录
-  // S4. 通过MessageBus转发给相关的输入节点
-  // S5. 当所有的数据遍历完毕之后，向输入端输出一个EOF消息，并修改output_finished为true
+  // S1. 获取迁移计划，打开迁移使用的MessageBus
+  // S2. 传输方式为sst_file并且存储支持导出时，以SST文件的方式输出
+  // S3. 否则并行扫描存储，以MigrateActivityThreadMessage的方式输出
   private void doOutput(MigrationProgress progress) {
     logger.info("Migration output task start, the progress: " + progress);
 
@@ -91,54 +169,289 @@ public class DefaultMigrationOutputTask implements MigrationOutputTask {
 
     final ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
     final ActivityThreadPool activityThreadPool = integrationPlan.getActivityThreadPool();
-    final SlotsManager slotsManager = integrationPlan.getSlotsManager();
     final MessageBusManager messageBusManager = integrationPlan.getMessageBusManager();
 
     final MessageBus migrationMessageBus = messageBusManager.newMessageBus(
         migrationPlan.getMessageBus(), migrationPlan.getOutputMessageBusConfig());
     migrationMessageBus.open();
 
+    try {
+      if (transferMode == MigrationTransferMode.SST_FILE
+          && outputSstFiles(progress, activityThreadPool, migrationMessageBus)) {
+        return;
+      }
+      outputRanges(progress, activityThreadPool, migrationMessageBus);
+    } finally {
+      migrationMessageBus.close();
+      this.stopped = true;
+    }
+  }
+
+  // 以MigrateActivityThreadMessage的方式输出
+  // S1. 从检查点恢复扫描范围与游标，没有检查点时按照slots或者存储分布划分扫描范围
+  // S2. 对每个范围并行遍历ActivityThread记录
+  // S3. 筛选出符合条件的记录
+  // S4. 按批次通过MessageBus转发给相关的输入节点，并周期性地保存检查点
+  // S5. 当所有的范围遍历完毕之后，向输入端输出一个EOF消息，并修改output_finished为true
+  private void outputRanges(MigrationProgress progress,
+      ActivityThreadPool activityThreadPool, MessageBus migrationMessageBus) {
+    final Optional<MigrationOutputCheckpoint> checkpointOptional = MigrationOutputCheckpoint
+        .parse(progress.getOutputLatestKey());
+    final MigrationOutputCheckpoint checkpoint;
+    if (checkpointOptional.isPresent()) {
+      checkpoint = checkpointOptional.get();
+      logger.info("Migration output task resume from checkpoint: " + checkpoint.toJSONString());
+    } else {
+      // 按照slot组织存储时只需要扫描迁移slots所在的范围
+      checkpoint = MigrationOutputCheckpoint.create(activityThreadPool
+          .getSlotScanRanges(progress.getSlots())
+          .orElseGet(() -> activityThreadPool.splitScanRanges(parallelism)));
+      saveCheckpoint(progress, checkpoint, migrationMessageBus);
+    }
+
     final Set<Integer> targetSlots = new HashSet<>(progress.getSlots());
+    final RateLimiter rateLimiter = maxBytesPerSecond > 0 ?
+        RateLimiter.create(maxBytesPerSecond) : null;
+    final ExecutorService rangeExecutor = Executors.newFixedThreadPool(
+        Math.min(parallelism, checkpoint.getRanges().size()),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("migration-output-%d").build());
     try {
-      VariableHolder<Integer> counter = new VariableHolder<>(0);
-      activityThreadPool.scanAll(scanContext -> {
-        if (stopMark) {
-          scanContext.stop();
-          return;
+      final List<Future<?>> futures = new ArrayList<>(checkpoint.getRanges().size());
+      for (RangeProgress rangeProgress : checkpoint.getRanges()) {
+        if (rangeProgress.isFinished()) {
+          continue;
         }
-        final ActivityThread activityThread = scanContext.getCurrentActivityThread();
-        final int slot = slotsManager.getSlotByKey(activityThread.getDomainId());
+        futures.add(rangeExecutor.submit(() -> outputRange(
+            progress, rangeProgress, targetSlots, activityThreadPool, migrationMessageBus,
+            rateLimiter)));
+      }
 
-        // 属于要迁移的slot
-        if (targetSlots.contains(slot)) {
+      // 等待所有范围输出完毕，期间周期性地保存检查点
+      for (Future<?> future : futures) {
+        while (true) {
           try {
-            migrationMessageBus.write(new MigrateActivityThreadMessage(
-                progress.getOutputNode(),
-                progress.getInputNode(),
-                activityThread
-            ));
-            counter.setVar(counter.getVar() + 1);
-          } catch (MessageBusNotAvailableException e) {
-            logger.error("The migration message bus is not available", e);
-            throw new RuntimeException(e);
+            future.get(checkpointPeriod, TimeUnit.MILLISECONDS);
+            break;
+          } catch (TimeoutException e) {
+            saveCheckpoint(progress, checkpoint, migrationMessageBus);
           }
         }
-      });
-
-      // EOF
-      migrationMessageBus.write(new MigrateOutputFinishedMessage(
-          progress.getOutputNode(),
-          progress.getInputNode()
-      ));
-      // 修改output_finished
-      migrationProgressDataAccess.updateOutputFinished(progress.getOutputNode());
+      }
+      if (!checkpoint.isAllFinished()) {
+        logger.info(String.format("Migration output stopped, progress: %s, num: %d",
+            progress, checkpoint.getOutputNum()));
+        return;
+      }
+
+      finishOutput(progress, migrationMessageBus);
       logger.info(String.format("Migration output finished, progress: %s, num: %d",
-          progress, counter.getVar()));
+          progress, checkpoint.getOutputNum()));
+    } catch (ExecutionException e) {
+      logger.error("Migration output task error!", e.getCause());
     } catch (Exception e) {
       logger.error("Migration output task error!", e);
     } finally {
-      migrationMessageBus.close();
-      this.stopped = true;
+      this.stopMark = true;
+      rangeExecutor.shutdown();
+      try {
+        rangeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (!checkpoint.isAllFinished()) {
+        saveCheckpoint(progress, checkpoint, migrationMessageBus);
+      }
+    }
+  }
+
+  // 以SST文件的方式输出
+  // S1. 基于快照将迁移slots的数据导出为SST文件，存储不支持时返回false，由调用者退化为消息方式
+  // S2. 共享目录时只发送文件路径，由输入节点导入之后删除；否则按照分块发送文件内容，发送完毕之后删除
+  // S3. 所有文件发送完毕之后输出EOF消息，并修改output_finished为true
+  private boolean outputSstFiles(MigrationProgress progress,
+      ActivityThreadPool activityThreadPool, MessageBus migrationMessageBus) {
+    final String pathPrefix = Paths.get(sstFileDirectory, String.format("%s-%s-%d",
+        progress.getOutputNode(), progress.getInputNode(), CachedTimestamp.nowMilliseconds()))
+        .toString();
+    final List<String> paths;
+    try {
+      Files.createDirectories(Paths.get(sstFileDirectory));
+      final Optional<List<String>> pathsOptional = activityThreadPool.exportSlotsToSstFiles(
+          progress.getSlots(), pathPrefix, sstFileMaxSize);
+      if (!pathsOptional.isPresent()) {
+        logger.warn("The activity thread pool does not support exporting sst files, "
+            + "fall back to the message transfer mode");
+        return false;
+      }
+      paths = pathsOptional.get();
+    } catch (Exception e) {
+      logger.error("Export migration sst files error!", e);
+      return true;
+    }
+
+    final RateLimiter rateLimiter = maxBytesPerSecond > 0 ?
+        RateLimiter.create(maxBytesPerSecond) : null;
+    final List<String> pendingPaths = new ArrayList<>(paths);
+    try {
+      for (String path : paths) {
+        if (stopMark) {
+          logger.info(String.format("Migration output stopped, progress: %s, pending files: %s",
+              progress, pendingPaths));
+          return true;
+        }
+        final String fileName = Paths.get(path).getFileName().toString();
+        if (sstFileShared) {
+          migrationMessageBus.write(MigrateSstFileMessage.ofPath(
+              progress.getOutputNode(), progress.getInputNode(), fileName, path));
+        } else {
+          writeSstFileChunks(progress, path, fileName, migrationMessageBus, rateLimiter);
+          // 所有分块都被确认之后才能删除本地文件
+          migrationMessageBus.awaitWrites();
+          Files.deleteIfExists(Paths.get(path));
+        }
+        pendingPaths.remove(path);
+      }
+
+      finishOutput(progress, migrationMessageBus);
+      logger.info(String.format("Migration output finished, progress: %s, sst files: %s",
+          progress, paths));
+    } catch (Exception e) {
+      logger.error("Migration output task error!", e);
+    } finally {
+      // 尚未发送的文件不会再被使用
+      for (String path : pendingPaths) {
+        new File(path).delete();
+      }
+    }
+    return true;
+  }
+
+  // 将SST文件按照分块写入MessageBus
+  private void writeSstFileChunks(MigrationProgress progress, String path, String fileName,
+      MessageBus migrationMessageBus, RateLimiter rateLimiter)
+      throws IOException, MessageBusNotAvailableException {
+    final long length = new File(path).length();
+    final byte[] buffer = new byte[sstChunkSize];
+    long offset = 0L;
+    try (final InputStream in = new FileInputStream(path)) {
+      int readNum;
+      while ((readNum = in.read(buffer)) > 0) {
+        if (rateLimiter != null) {
+          rateLimiter.acquire(readNum);
+        }
+        migrationMessageBus.write(MigrateSstFileMessage.ofChunk(
+            progress.getOutputNode(),
+            progress.getInputNode(),
+            fileName,
+            offset,
+            Arrays.copyOf(buffer, readNum),
+            offset + readNum >= length
+        ));
+        offset += readNum;
+      }
+    }
+  }
+
+  // 输出EOF消息，确认之前写出的消息都已经送达之后再修改output_finished
+  private void finishOutput(MigrationProgress progress, MessageBus migrationMessageBus)
+      throws MessageBusNotAvailableException {
+    migrationMessageBus.write(new MigrateOutputFinishedMessage(
+        progress.getOutputNode(),
+        progress.getInputNode()
+    ));
+    migrationMessageBus.awaitWrites();
+    migrationProgressDataAccess.updateOutputFinished(progress.getOutputNode());
+  }
+
+  // 输出单个范围内属于迁移slots的ActivityThread，每写出一个批次推进一次游标
+  private void outputRange(
+      MigrationProgress progress,
+      RangeProgress rangeProgress,
+      Set<Integer> targetSlots,
+      ActivityThreadPool activityThreadPool,
+      MessageBus migrationMessageBus,
+      RateLimiter rateLimiter) {
+    final ActivityRunnerIntegrationPlan integrationPlan = IntegrationPlanFactory.currentPlan();
+    final SlotsManager slotsManager = integrationPlan.getSlotsManager();
+    final List<Message> batch = new ArrayList<>(batchSize);
+    final VariableHolder<String> lastCursor = new VariableHolder<>(rangeProgress.getCursor());
+    // 写出失败之后终止扫描，不同的ActivityThreadPool对回调异常的处理不同，因此单独记录
+    final VariableHolder<RuntimeException> writeError = new VariableHolder<>(null);
+
+    activityThreadPool.scanRange(
+        rangeProgress.getScanRange(), rangeProgress.getCursor(), scanContext -> {
+          if (stopMark || writeError.getVar() != null) {
+            scanContext.stop();
+            return;
+          }
+          final ActivityThread activityThread = scanContext.getCurrentActivityThread();
+          final int slot = slotsManager.getSlotByKey(activityThread.getDomainId());
+
+          // 属于要迁移的slot
+          if (targetSlots.contains(slot)) {
+            if (rateLimiter != null) {
+              // 优先使用存储中的字节数，避免仅为限速而重新编码
+              final int storedSize = scanContext.getStoredSize();
+              rateLimiter.acquire(storedSize > 0
+                  ? storedSize : ActivityThreadBinaryCodec.encode(activityThread).length);
+            }
+            batch.add(new MigrateActivityThreadMessage(
+                progress.getOutputNode(),
+                progress.getInputNode(),
+                activityThread
+            ));
+          }
+          lastCursor.setVar(scanContext.getCursor());
+
+          if (batch.size() >= batchSize) {
+            try {
+              writeBatch(migrationMessageBus, batch);
+            } catch (RuntimeException e) {
+              writeError.setVar(e);
+              scanContext.stop();
+              throw e;
+            }
+            rangeProgress.advance(lastCursor.getVar(), batch.size());
+            batch.clear();
+          }
+        });
+
+    if (writeError.getVar() != null) {
+      throw writeError.getVar();
+    }
+    writeBatch(migrationMessageBus, batch);
+    rangeProgress.advance(lastCursor.getVar(), batch.size());
+    if (!stopMark) {
+      rangeProgress.finish();
+    }
+  }
+
+  // 写出批次并等待确认，只有确认之后才能推进游标
+  private void writeBatch(MessageBus migrationMessageBus, List<Message> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      // 多个范围共享同一个MessageBus
+      synchronized (migrationMessageBus) {
+        migrationMessageBus.write(batch);
+      }
+    } catch (MessageBusNotAvailableException e) {
+      logger.error("The migration message bus is not available", e);
+      throw new RuntimeException(e);
+    }
+    migrationMessageBus.awaitWrites();
+  }
+
+  // 保存检查点之前先确认已经写出的消息，写出失败时不保存
+  private void saveCheckpoint(MigrationProgress progress, MigrationOutputCheckpoint checkpoint,
+      MessageBus migrationMessageBus) {
+    try {
+      migrationMessageBus.awaitWrites();
+      migrationProgressDataAccess.updateOutputLatestKey(
+          progress.getOutputNode(), checkpoint.toJSONString());
+    } catch (Exception e) {
+      logger.error("Save migration output checkpoint error!", e);
     }
   }
 
@@ -157,4 +470,35 @@ public class DefaultMigrationOutputTask implements MigrationOutputTask {
     SlotsManager slotsManager = integrationPlan.getSlotsManager();
     slotsManager.modifyService(slots, inputService);
   }
+
+  interface ConfigItems {
+
+    String PARALLELISM = "parallelism";
+    int DEFAULT_PARALLELISM = 4;
+
+    String BATCH_SIZE = "batch_size";
+    int DEFAULT_BATCH_SIZE = 500;
+
+    String MAX_BYTES_PER_SECOND = "max_bytes_per_second";
+    long DEFAULT_MAX_BYTES_PER_SECOND = 0L;
+
+    String CHECKPOINT_PERIOD = "checkpoint_period";
+    long DEFAULT_CHECKPOINT_PERIOD = 5000L;
+
+    // 传输方式，message或者sst_file
+    String TRANSFER_MODE = "transfer_mode";
+    String DEFAULT_TRANSFER_MODE = MigrationTransferMode.MESSAGE.getType();
+
+    String SST_FILE_DIRECTORY = "sst_file_directory";
+    String DEFAULT_SST_FILE_DIRECTORY = "/tmp/playwell_migration";
+
+    String SST_FILE_SHARED = "sst_file_shared";
+    boolean DEFAULT_SST_FILE_SHARED = false;
+
+    String SST_FILE_MAX_SIZE = "sst_file_max_size";
+    long DEFAULT_SST_FILE_MAX_SIZE = 256L * 1024 * 1024;
+
+    String SST_CHUNK_SIZE = "sst_chunk_size";
+    int DEFAULT_SST_CHUNK_SIZE = 512 * 1024;
+  }
 }
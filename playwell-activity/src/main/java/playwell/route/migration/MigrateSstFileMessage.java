@@ -0,0 +1,108 @@
+package playwell.route.migration;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import playwell.clock.CachedTimestamp;
+import playwell.message.Message;
+
+/**
+ * <p>以SST文件的方式迁移ActivityThread时，用于通知InputTask某个SST文件的消息</p>
+ *
+ * <p>输出节点与输入节点共享文件系统时，消息只携带文件路径；
+ * 否则文件内容会按照固定的大小切分为若干个分块，依次通过MessageBus传输，最后一个分块带有last标记。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class MigrateSstFileMessage extends Message {
+
+  public static final String TYPE = "migration_sst";
+
+  private final String fileName;
+
+  private final String path;
+
+  private final long offset;
+
+  private final byte[] data;
+
+  private final boolean last;
+
+  private MigrateSstFileMessage(String outputService, String inputService, String fileName,
+      String path, long offset, byte[] data, boolean last) {
+    super(
+        TYPE,
+        outputService,
+        inputService,
+        new HashMap<>(8),
+        CachedTimestamp.nowMilliseconds()
+    );
+    this.fileName = fileName;
+    this.path = path;
+    this.offset = offset;
+    this.data = data;
+    this.last = last;
+
+    final Map<String, Object> attributes = this.getAttributes();
+    attributes.put(Attributes.FILE_NAME, fileName);
+    attributes.put(Attributes.PATH, path);
+    attributes.put(Attributes.OFFSET, offset);
+    attributes.put(Attributes.DATA, Base64.getEncoder().encodeToString(data));
+    attributes.put(Attributes.LAST, last);
+  }
+
+  /**
+   * 构建携带共享文件路径的消息
+   */
+  public static MigrateSstFileMessage ofPath(
+      String outputService, String inputService, String fileName, String path) {
+    return new MigrateSstFileMessage(
+        outputService, inputService, fileName, path, 0L, new byte[0], true);
+  }
+
+  /**
+   * 构建携带文件分块的消息
+   */
+  public static MigrateSstFileMessage ofChunk(String outputService, String inputService,
+      String fileName, long offset, byte[] data, boolean last) {
+    return new MigrateSstFileMessage(
+        outputService, inputService, fileName, "", offset, data, last);
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public boolean isSharedPath() {
+    return !path.isEmpty();
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public boolean isLast() {
+    return last;
+  }
+
+  public interface Attributes {
+
+    String FILE_NAME = "file_name";
+
+    String PATH = "path";
+
+    String OFFSET = "offset";
+
+    String DATA = "data";
+
+    String LAST = "last";
+  }
+}
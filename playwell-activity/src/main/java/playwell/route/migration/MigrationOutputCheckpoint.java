@@ -0,0 +1,156 @@
+package playwell.route.migration;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.apache.commons.lang3.StringUtils;
+import playwell.activity.thread.ScanRange;
+
+/**
+ * <p>迁移输出任务的检查点，记录每个扫描范围已经输出到的位置。</p>
+ *
+ * <p>检查点序列化为JSON之后保存在migration_progress的output_latest_key中，
+ * 输出任务重启之后按照保存的范围和游标继续扫描，而不是从头开始。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+class MigrationOutputCheckpoint {
+
+  private final List<RangeProgress> ranges;
+
+  private MigrationOutputCheckpoint(List<RangeProgress> ranges) {
+    this.ranges = Collections.unmodifiableList(ranges);
+  }
+
+  static MigrationOutputCheckpoint create(List<ScanRange> scanRanges) {
+    final List<RangeProgress> ranges = new ArrayList<>(scanRanges.size());
+    scanRanges.forEach(scanRange -> ranges.add(new RangeProgress(scanRange, "", false, 0L)));
+    return new MigrationOutputCheckpoint(ranges);
+  }
+
+  /**
+   * 解析保存的检查点
+   *
+   * @param text output_latest_key中保存的内容
+   * @return 内容为空或者不是合法的检查点时返回空
+   */
+  static Optional<MigrationOutputCheckpoint> parse(String text) {
+    if (StringUtils.isBlank(text)) {
+      return Optional.empty();
+    }
+
+    try {
+      final JSONArray rangesArray = JSON.parseObject(text).getJSONArray(Fields.RANGES);
+      if (rangesArray == null || rangesArray.isEmpty()) {
+        return Optional.empty();
+      }
+      final List<RangeProgress> ranges = new ArrayList<>(rangesArray.size());
+      for (int i = 0; i < rangesArray.size(); i++) {
+        final JSONObject rangeObject = rangesArray.getJSONObject(i);
+        ranges.add(new RangeProgress(
+            new ScanRange(rangeObject.getString(Fields.BEGIN), rangeObject.getString(Fields.END)),
+            StringUtils.defaultString(rangeObject.getString(Fields.CURSOR)),
+            rangeObject.getBooleanValue(Fields.FINISHED),
+            rangeObject.getLongValue(Fields.OUTPUT_NUM)
+        ));
+      }
+      return Optional.of(new MigrationOutputCheckpoint(ranges));
+    } catch (Exception e) {
+      return Optional.empty();
+    }
+  }
+
+  List<RangeProgress> getRanges() {
+    return ranges;
+  }
+
+  boolean isAllFinished() {
+    return ranges.stream().allMatch(range -> range.finished);
+  }
+
+  long getOutputNum() {
+    return ranges.stream().mapToLong(range -> range.outputNum).sum();
+  }
+
+  String toJSONString() {
+    final JSONArray rangesArray = new JSONArray(ranges.size());
+    for (RangeProgress range : ranges) {
+      final JSONObject rangeObject = new JSONObject();
+      rangeObject.put(Fields.BEGIN, range.scanRange.getBegin());
+      rangeObject.put(Fields.END, range.scanRange.getEnd());
+      rangeObject.put(Fields.CURSOR, range.cursor);
+      rangeObject.put(Fields.FINISHED, range.finished);
+      rangeObject.put(Fields.OUTPUT_NUM, range.outputNum);
+      rangesArray.add(rangeObject);
+    }
+    final JSONObject checkpoint = new JSONObject();
+    checkpoint.put(Fields.RANGES, rangesArray);
+    return checkpoint.toJSONString();
+  }
+
+  /**
+   * 单个扫描范围的进度，由负责该范围的输出线程更新
+   */
+  static class RangeProgress {
+
+    private final ScanRange scanRange;
+
+    // 已经输出到的位置，该位置之前所有属于迁移slots的ActivityThread都已经写出
+    private volatile String cursor;
+
+    private volatile boolean finished;
+
+    private volatile long outputNum;
+
+    RangeProgress(ScanRange scanRange, String cursor, boolean finished, long outputNum) {
+      this.scanRange = scanRange;
+      this.cursor = cursor;
+      this.finished = finished;
+      this.outputNum = outputNum;
+    }
+
+    ScanRange getScanRange() {
+      return scanRange;
+    }
+
+    String getCursor() {
+      return cursor;
+    }
+
+    boolean isFinished() {
+      return finished;
+    }
+
+    long getOutputNum() {
+      return outputNum;
+    }
+
+    void advance(String cursor, int outputNum) {
+      this.cursor = cursor;
+      this.outputNum += outputNum;
+    }
+
+    void finish() {
+      this.finished = true;
+    }
+  }
+
+  interface Fields {
+
+    String RANGES = "ranges";
+
+    String BEGIN = "begin";
+
+    String END = "end";
+
+    String CURSOR = "cursor";
+
+    String FINISHED = "finished";
+
+    String OUTPUT_NUM = "output_num";
+  }
+}
@@ -162,6 +162,17 @@ class MigrationProgressDataAccess {
     );
   }
 
+  long updateOutputLatestKey(String outputServiceName, String outputLatestKey) {
+    return JDBCHelper.execute(
+        dataSource,
+        "UPDATE `migration_progress` SET `output_latest_key` = ? "
+            + "WHERE `output_node` = ? AND `status` = ?",
+        outputLatestKey,
+        outputServiceName,
+        MigrationProgressStatus.MIGRATING.getStatus()
+    );
+  }
+
   long updateInputFinished(String inputServiceName) {
     return JDBCHelper.execute(
         dataSource,
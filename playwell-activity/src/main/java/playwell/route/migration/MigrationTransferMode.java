@@ -0,0 +1,43 @@
+package playwell.route.migration;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 迁移输出任务传输ActivityThread的方式
+ *
+ * @author chihongze@gmail.com
+ */
+public enum MigrationTransferMode {
+
+  /**
+   * 逐个ActivityThread编码为MigrateActivityThreadMessage，输入端通过WriteBatch写入
+   */
+  MESSAGE("message"),
+
+  /**
+   * 将迁移slots的数据原样导出为SST文件，输入端直接导入，要求两端都按照slot组织存储
+   */
+  SST_FILE("sst_file"),
+  ;
+
+  private static final Map<String, MigrationTransferMode> allModes = Arrays.stream(values())
+      .collect(Collectors.toMap(MigrationTransferMode::getType, Function.identity()));
+
+  private final String type;
+
+  MigrationTransferMode(String type) {
+    this.type = type;
+  }
+
+  public static Optional<MigrationTransferMode> valueOfByType(String type) {
+    return Optional.ofNullable(allModes.get(type));
+  }
+
+  public String getType() {
+    return this.type;
+  }
+}
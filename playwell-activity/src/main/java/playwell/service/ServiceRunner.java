@@ -5,7 +5,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
@@ -22,6 +21,8 @@ import playwell.message.ServiceResponseMessage;
 import playwell.message.bus.MessageAckType;
 import playwell.message.bus.MessageBus;
 import playwell.message.bus.MessageBusManager;
+import playwell.message.idle.IdleStrategy;
+import playwell.message.idle.IdleStrategyType;
 import playwell.util.PerfLog;
 import playwell.util.Sleeper;
 
@@ -42,6 +43,8 @@ public class ServiceRunner implements MessageDispatcher {
 
   private long sleepTime;
 
+  private IdleStrategy idleStrategy;
+
   private int maxFetchNum;
 
   private volatile boolean started = false;
@@ -68,6 +71,8 @@ public class ServiceRunner implements MessageDispatcher {
     this.inputMessageBusName = configuration.getString(ConfigItems.INPUT_MESSAGE_BUS);
     this.sleepTime = configuration.getLong(
         ConfigItems.SLEEP_TIME, ConfigItems.DEFAULT_SLEEP_TIME);
+    this.idleStrategy = IdleStrategyType.buildIdleStrategy(
+        configuration.getSubArguments(ConfigItems.IDLE_STRATEGY), sleepTime);
     this.maxFetchNum = configuration.getInt(
         ConfigItems.MAX_FETCH_NUM, ConfigItems.DEFAULT_MAX_FETCH_NUM);
 
@@ -119,6 +124,7 @@ public class ServiceRunner implements MessageDispatcher {
         this.actualStatus = ServiceRunnerStatus.RUNNING;
       }
 
+      int readCount = 0;
       try {
         PerfLog.beginSpan("loop");
         this.lastActive = System.currentTimeMillis();
@@ -130,7 +136,7 @@ public class ServiceRunner implements MessageDispatcher {
         // 从总线中读取消息
         PerfLog.beginSpan("read_messages");
         final Map<String, Collection<ServiceRequestMessage>> messages = new HashMap<>();
-        inputMessageBus.readWithConsumer(this.maxFetchNum, message -> {
+        readCount = inputMessageBus.readWithConsumer(this.maxFetchNum, message -> {
           if (!(message instanceof ServiceRequestMessage)) {
             throw new RuntimeException(
                 "The ServiceRunner only accept ServiceRequestMessage, invalid message type: "
@@ -226,17 +232,7 @@ public class ServiceRunner implements MessageDispatcher {
         PerfLog.endRootSpan();  // end span for loop
         PerfLog.outputPerfLog();
         PerfLog.clear();
-        sleep();
-      }
-    }
-  }
-
-  private void sleep() {
-    if (this.sleepTime > 0) {
-      try {
-        TimeUnit.MILLISECONDS.sleep(this.sleepTime);
-      } catch (InterruptedException e) {
-        throw new RuntimeException(e);
+        idleStrategy.idle(readCount, maxFetchNum);
       }
     }
   }
@@ -314,6 +310,8 @@ public class ServiceRunner implements MessageDispatcher {
     String SLEEP_TIME = "sleep_time";
     long DEFAULT_SLEEP_TIME = 100;
 
+    String IDLE_STRATEGY = "idle_strategy";
+
     String MAX_FETCH_NUM = "max_fetch_num";
     int DEFAULT_MAX_FETCH_NUM = 1000;
 
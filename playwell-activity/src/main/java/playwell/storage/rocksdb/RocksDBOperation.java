@@ -1,8 +1,11 @@
 package playwell.storage.rocksdb;
 
+import com.google.common.primitives.UnsignedBytes;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -14,12 +17,21 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyMetaData;
+import org.rocksdb.CompressionType;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.LevelMetaData;
+import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.Snapshot;
+import org.rocksdb.SstFileMetaData;
+import org.rocksdb.SstFileWriter;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import playwell.common.EasyMap;
@@ -373,6 +385,170 @@ public class RocksDBOperation {
     }
   }
 
+  /**
+   * 遍历[from, to)范围内的KV，直到满足了指定的条件
+   *
+   * @param from 起始Key，包含在内，为null时从头开始
+   * @param to 结束Key，不包含在内，为null时遍历到末尾
+   * @param until 遍历停止条件
+   * @param kvConsumer KV消费者
+   * @param useSnapshot 是否使用快照
+   */
+  public void iterateRangeWithConsumer(byte[] from, byte[] to,
+      BiPredicate<byte[], byte[]> until, BiConsumer<byte[], byte[]> kvConsumer,
+      boolean useSnapshot) {
+    final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+    Snapshot snapshot = null;
+    try (final ReadOptions readOptions = newIteratorReadOptions()) {
+      if (useSnapshot) {
+        snapshot = rocksDBInstance.getSnapshot();
+        readOptions.setSnapshot(snapshot);
+      }
+      try (final RocksIterator iterator = rocksDBInstance
+          .newIterator(columnFamilyHandle, readOptions)) {
+        if (from == null) {
+          iterator.seekToFirst();
+        } else {
+          iterator.seek(from);
+        }
+        for (; iterator.isValid(); iterator.next()) {
+          final byte[] keyBytes = iterator.key();
+          if (to != null && comparator.compare(keyBytes, to) >= 0) {
+            break;
+          }
+          final byte[] valueBytes = iterator.value();
+          kvConsumer.accept(keyBytes, valueBytes);
+          if (until != null && until.test(keyBytes, valueBytes)) {
+            break;
+          }
+        }
+      }
+    } finally {
+      if (snapshot != null) {
+        rocksDBInstance.releaseSnapshot(snapshot);
+      }
+    }
+  }
+
+  /**
+   * 根据SST文件的Key分布与文件大小，将列族划分为数据量相近的若干个范围，用于并行遍历
+   *
+   * @param num 期望的范围数目
+   * @return 升序排列的划分点，数目不超过num - 1，数据量较小时可能为空
+   */
+  public List<byte[]> splitKeys(int num) {
+    if (num <= 1) {
+      return Collections.emptyList();
+    }
+
+    final ColumnFamilyMetaData metaData = rocksDBInstance.getColumnFamilyMetaData(
+        columnFamilyHandle);
+    final List<SstFileMetaData> files = new ArrayList<>();
+    long totalSize = 0L;
+    for (LevelMetaData levelMetaData : metaData.levels()) {
+      for (SstFileMetaData file : levelMetaData.files()) {
+        files.add(file);
+        totalSize += file.size();
+      }
+    }
+    if (files.size() < 2 || totalSize <= 0L) {
+      return Collections.emptyList();
+    }
+
+    final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+    files.sort((a, b) -> comparator.compare(a.smallestKey(), b.smallestKey()));
+    final long rangeSize = totalSize / num;
+    final List<byte[]> splitKeys = new ArrayList<>(num - 1);
+    long accumulated = 0L;
+    for (SstFileMetaData file : files) {
+      if (accumulated >= rangeSize * (splitKeys.size() + 1) && splitKeys.size() < num - 1) {
+        final byte[] key = file.smallestKey();
+        if (splitKeys.isEmpty()
+            || comparator.compare(splitKeys.get(splitKeys.size() - 1), key) < 0) {
+          splitKeys.add(key);
+        }
+      }
+      accumulated += file.size();
+    }
+    return splitKeys;
+  }
+
+  /**
+   * 基于同一个快照，将若干个范围内的KV依次写入SST文件，单个文件超过指定大小之后切换到新的文件
+   *
+   * @param ranges 升序排列且互不重叠的[from, to)范围
+   * @param pathPrefix 文件路径前缀，生成的文件为pathPrefix-序号.sst
+   * @param maxFileSize 单个文件的最大字节数，按照未压缩的KV大小估算
+   * @return 生成的文件路径，没有数据时为空
+   */
+  public List<String> writeSstFiles(
+      List<Pair<byte[], byte[]>> ranges, String pathPrefix, long maxFileSize) {
+    final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+    final List<String> paths = new ArrayList<>();
+    final Snapshot snapshot = rocksDBInstance.getSnapshot();
+    SstFileWriter writer = null;
+    long fileSize = 0L;
+    try (final ReadOptions readOptions = newIteratorReadOptions().setSnapshot(snapshot);
+        final EnvOptions envOptions = new EnvOptions();
+        final Options options = newSstFileOptions();
+        final RocksIterator iterator = rocksDBInstance
+            .newIterator(columnFamilyHandle, readOptions)) {
+      for (Pair<byte[], byte[]> range : ranges) {
+        final byte[] to = range.getRight();
+        for (iterator.seek(range.getLeft()); iterator.isValid(); iterator.next()) {
+          final byte[] keyBytes = iterator.key();
+          if (to != null && comparator.compare(keyBytes, to) >= 0) {
+            break;
+          }
+          final byte[] valueBytes = iterator.value();
+          if (writer == null) {
+            final String path = String.format("%s-%d.sst", pathPrefix, paths.size());
+            writer = new SstFileWriter(envOptions, options);
+            writer.open(path);
+            paths.add(path);
+          }
+          writer.put(keyBytes, valueBytes);
+          fileSize += keyBytes.length + valueBytes.length;
+          if (fileSize >= maxFileSize) {
+            writer.finish();
+            writer.close();
+            writer = null;
+            fileSize = 0L;
+          }
+        }
+      }
+      if (writer != null) {
+        writer.finish();
+      }
+      return paths;
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
+    } finally {
+      if (writer != null) {
+        writer.close();
+      }
+      rocksDBInstance.releaseSnapshot(snapshot);
+    }
+  }
+
+  /**
+   * 将外部的SST文件导入到列族中，文件中的Key会覆盖列族中已有的同名Key
+   *
+   * @param paths SST文件路径
+   * @param moveFiles 是否直接移动文件，否则复制文件
+   */
+  public void ingestSstFiles(List<String> paths, boolean moveFiles) {
+    if (CollectionUtils.isEmpty(paths)) {
+      return;
+    }
+    try (final IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+      ingestOptions.setMoveFiles(moveFiles);
+      rocksDBInstance.ingestExternalFile(columnFamilyHandle, paths, ingestOptions);
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public void compactRange() {
     try {
       rocksDBInstance.compactRange(this.columnFamilyHandle);
@@ -381,6 +557,14 @@ public class RocksDBOperation {
     }
   }
 
+  // SST文件使用与列族相同的压缩算法
+  private Options newSstFileOptions() {
+    final Options options = new Options();
+    options.setCompressionType(CompressionType.getCompressionType(cfConfig.getString(
+        CfConfigItems.COMPRESSION_TYPE, CfConfigItems.DEFAULT_COMPRESSION_TYPE)));
+    return options;
+  }
+
   private ReadOptions newIteratorReadOptions() {
     final ReadOptions readOptions = new ReadOptions();
     if (cfConfig.contains(CfConfigItems.ITERATOR_READAHEAD_SIZE)) {
@@ -12,6 +12,7 @@ import playwell.activity.Activity;
 import playwell.activity.ActivityStatus;
 import playwell.activity.definition.ActivityDefinition;
 import playwell.activity.thread.ActivityThread;
+import playwell.activity.thread.ActivityThreadScheduleExecutor.Batch;
 import playwell.activity.thread.ActivityThreadPool;
 import playwell.activity.thread.ActivityThreadScheduler;
 import playwell.activity.thread.ScheduleResult;
@@ -47,6 +48,9 @@ public abstract class Trigger {
   // 最新可用版本的Trigger定义
   protected final TriggerDefinition triggerDefinition;
 
+  // 从触发条件中提取的静态过滤条件，由TriggerManager设置
+  private TriggerEventFilter eventFilter = TriggerEventFilter.ALL;
+
   protected Trigger(Activity activity, ActivityDefinition latestEnableActivityDefinition) {
     this.activity = activity;
     this.latestEnableActivityDefinition = latestEnableActivityDefinition;
@@ -68,6 +72,36 @@ public abstract class Trigger {
   public void handleMessageStream(
       Map<ActivityThread, Collection<Message>> collector,
       Map<String, Map<String, Collection<Message>>> messagesByStrategies) {
+    handleMessageStream(collector, messagesByStrategies, null);
+  }
+
+  /**
+   * 处理事件流，每个DomainID的处理逻辑会按照(activityId, domainId)提交到调度执行器的任务批次中，
+   * 调用者需要通过{@link Batch#await()}等待处理完毕。如果没有指定任务批次，那么直接在当前线程中处理
+   *
+   * @param collector ActivityThread 对应的消息收集器，需要是线程安全的
+   * @param messagesByStrategies 按照DomainID进行分组的消息集合
+   * @param batch 调度执行器的任务批次
+   */
+  public void handleMessageStream(
+      Map<ActivityThread, Collection<Message>> collector,
+      Map<String, Map<String, Collection<Message>>> messagesByStrategies, Batch batch) {
+    handleMessageStream(collector, messagesByStrategies, batch, true);
+  }
+
+  /**
+   * 处理事件流，如果triggerable为false，说明本批次中没有事件能够满足触发条件，
+   * 只需要将事件投递给已经存在的ActivityThread，不再尝试创建新的ActivityThread
+   *
+   * @param collector ActivityThread 对应的消息收集器，需要是线程安全的
+   * @param messagesByStrategies 按照DomainID进行分组的消息集合
+   * @param batch 调度执行器的任务批次
+   * @param triggerable 本批次事件是否可能满足触发条件
+   */
+  public void handleMessageStream(
+      Map<ActivityThread, Collection<Message>> collector,
+      Map<String, Map<String, Collection<Message>>> messagesByStrategies, Batch batch,
+      boolean triggerable) {
 
     if (MapUtils.isEmpty(messagesByStrategies)) {
       return;
@@ -88,38 +122,67 @@ public abstract class Trigger {
     final Map<String, ActivityThread> threadsMap = activityThreadPool.multiGetActivityThreads(
         activityId, messages.keySet());
 
-    messages.entrySet().parallelStream().forEach(entry -> {
+    for (Map.Entry<String, Collection<Message>> entry : messages.entrySet()) {
       final String domainId = entry.getKey();
       final Collection<Message> mailbox = entry.getValue();
 
       if (CollectionUtils.isEmpty(mailbox)) {
-        return;
+        continue;
       }
 
-      try {
-        if (threadsMap.containsKey(domainId)) {
-          final ActivityThread activityThread = threadsMap.get(domainId);
-          collector.put(activityThread, mailbox);
-        } else if (activity.getStatus() == ActivityStatus.COMMON) {
-          TriggerMatchResult result = isMatchCondition(domainId, mailbox);
-          if (result != null && result.isMatched()) {
-            ScheduleResult scheduleResult = activityThreadScheduler.spawn(
-                latestEnableActivityDefinition, activity, domainId, result.getInitContextVars());
-            if (scheduleResult.isOk()) {
-              collector.put(scheduleResult.getActivityThread(), result.getTrailingMessages());
-            }
+      if (batch == null) {
+        handleMailbox(
+            collector, threadsMap, activityThreadScheduler, domainId, mailbox, triggerable);
+      } else {
+        batch.submit(activityId, domainId, () -> handleMailbox(
+            collector, threadsMap, activityThreadScheduler, domainId, mailbox, triggerable));
+      }
+    }
+  }
+
+  private void handleMailbox(
+      Map<ActivityThread, Collection<Message>> collector,
+      Map<String, ActivityThread> threadsMap,
+      ActivityThreadScheduler activityThreadScheduler,
+      String domainId,
+      Collection<Message> mailbox,
+      boolean triggerable) {
+    try {
+      if (threadsMap.containsKey(domainId)) {
+        final ActivityThread activityThread = threadsMap.get(domainId);
+        collector.put(activityThread, mailbox);
+      } else if (triggerable && activity.getStatus() == ActivityStatus.COMMON
+          && eventFilter.acceptAny(mailbox)) {
+        TriggerMatchResult result = isMatchCondition(domainId, mailbox);
+        if (result != null && result.isMatched()) {
+          ScheduleResult scheduleResult = activityThreadScheduler.spawn(
+              latestEnableActivityDefinition, activity, domainId, result.getInitContextVars());
+          if (scheduleResult.isOk()) {
+            collector.put(scheduleResult.getActivityThread(), result.getTrailingMessages());
           }
         }
-      } catch (Exception e) {
-        logger.error(String.format("Handle messages error with trigger! "
-                + "Activity Definition = %s, Activity = %d, Domain ID = %s, Mailbox = %s",
-            activity.getDefinitionName(),
-            activity.getId(),
-            domainId,
-            mailbox
-        ), e);
       }
-    });
+    } catch (Exception e) {
+      logger.error(String.format("Handle messages error with trigger! "
+              + "Activity Definition = %s, Activity = %d, Domain ID = %s, Mailbox = %s",
+          activity.getDefinitionName(),
+          activity.getId(),
+          domainId,
+          mailbox
+      ), e);
+    }
+  }
+
+  public Activity getActivity() {
+    return activity;
+  }
+
+  public TriggerEventFilter getEventFilter() {
+    return eventFilter;
+  }
+
+  void setEventFilter(TriggerEventFilter eventFilter) {
+    this.eventFilter = eventFilter;
   }
 
   protected abstract TriggerMatchResult isMatchCondition(String domainId,
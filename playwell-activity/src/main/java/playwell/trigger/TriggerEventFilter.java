@@ -0,0 +1,287 @@
+package playwell.trigger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import playwell.message.Message;
+
+/**
+ * 从触发条件中提取出来的静态过滤条件，包括事件类型以及必须存在的事件属性。
+ *
+ * <p>只有作为顶层AND条件出现的eventTypeIs("x")、eventType() == "x"、containsAttr("a")、
+ * isAttrNotEmpty("a")，以及只由事件类型判断组成的OR条件才会被提取，其余的条件都被视为可能满足。
+ * 因此过滤条件不满足的事件一定不会满足触发条件，可以跳过触发条件的计算。</p>
+ *
+ * @author chihongze@gmail.com
+ */
+public class TriggerEventFilter {
+
+  // 不进行任何过滤
+  public static final TriggerEventFilter ALL = new TriggerEventFilter(null, Collections.emptySet());
+
+  private static final String STRING_LITERAL = "(?:\"([^\"]*)\"|'([^']*)')";
+
+  private static final Pattern EVENT_TYPE_IS_PATTERN = Pattern.compile(
+      "^eventTypeIs\\(\\s*" + STRING_LITERAL + "\\s*\\)$");
+
+  private static final Pattern EVENT_TYPE_EQ_PATTERN = Pattern.compile(
+      "^eventType\\(\\s*\\)\\s*(?:==|(?i:eq))\\s*" + STRING_LITERAL + "$");
+
+  private static final Pattern EVENT_TYPE_EQ_REVERSED_PATTERN = Pattern.compile(
+      "^" + STRING_LITERAL + "\\s*(?:==|(?i:eq))\\s*eventType\\(\\s*\\)$");
+
+  private static final Pattern ATTR_PATTERN = Pattern.compile(
+      "^(?:containsAttr|isAttrNotEmpty)\\(\\s*" + STRING_LITERAL + "\\s*\\)$");
+
+  // 允许的事件类型，为null表示不限制
+  private final Set<String> eventTypes;
+
+  // 必须存在的事件属性
+  private final Set<String> requiredAttributes;
+
+  private TriggerEventFilter(Set<String> eventTypes, Set<String> requiredAttributes) {
+    this.eventTypes = eventTypes;
+    this.requiredAttributes = requiredAttributes;
+  }
+
+  /**
+   * 从触发条件表达式中提取过滤条件
+   *
+   * @param condition 触发条件表达式
+   * @return 过滤条件，无法提取时返回ALL
+   */
+  public static TriggerEventFilter fromCondition(String condition) {
+    if (StringUtils.isBlank(condition) || condition.contains("${")) {
+      return ALL;
+    }
+    final TriggerEventFilter filter = parse(condition.trim());
+    return filter == null ? ALL : filter;
+  }
+
+  // 按照OR、AND的优先级拆分表达式，无法提取时返回null
+  private static TriggerEventFilter parse(String expression) {
+    final List<String> disjuncts = split(expression, true);
+    if (disjuncts == null) {
+      return null;
+    }
+
+    if (disjuncts.size() > 1) {
+      // OR条件只有在每个分支都限定了事件类型时才能提取
+      final Set<String> eventTypes = new HashSet<>();
+      for (String disjunct : disjuncts) {
+        final TriggerEventFilter filter = parse(disjunct);
+        if (filter == null || filter.eventTypes == null) {
+          return null;
+        }
+        eventTypes.addAll(filter.eventTypes);
+      }
+      return new TriggerEventFilter(eventTypes, Collections.emptySet());
+    }
+
+    final List<String> conjuncts = split(expression, false);
+    if (conjuncts == null) {
+      return null;
+    }
+
+    Set<String> eventTypes = null;
+    final Set<String> requiredAttributes = new HashSet<>();
+    for (String conjunct : conjuncts) {
+      final TriggerEventFilter filter = parseAtom(conjunct);
+      if (filter == null) {
+        continue;
+      }
+      if (filter.eventTypes != null) {
+        if (eventTypes == null) {
+          eventTypes = new HashSet<>(filter.eventTypes);
+        } else {
+          eventTypes.retainAll(filter.eventTypes);
+        }
+      }
+      requiredAttributes.addAll(filter.requiredAttributes);
+    }
+
+    if (eventTypes == null && requiredAttributes.isEmpty()) {
+      return null;
+    }
+    return new TriggerEventFilter(eventTypes, requiredAttributes);
+  }
+
+  private static TriggerEventFilter parseAtom(String atom) {
+    if (atom.startsWith("(") && atom.endsWith(")") && closingParen(atom, 0) == atom.length() - 1) {
+      return parse(atom.substring(1, atom.length() - 1).trim());
+    }
+
+    for (Pattern pattern : new Pattern[]{
+        EVENT_TYPE_IS_PATTERN, EVENT_TYPE_EQ_PATTERN, EVENT_TYPE_EQ_REVERSED_PATTERN}) {
+      final Matcher matcher = pattern.matcher(atom);
+      if (matcher.matches()) {
+        return new TriggerEventFilter(
+            Collections.singleton(literal(matcher)), Collections.emptySet());
+      }
+    }
+
+    final Matcher matcher = ATTR_PATTERN.matcher(atom);
+    if (matcher.matches()) {
+      return new TriggerEventFilter(null, Collections.singleton(literal(matcher)));
+    }
+    return null;
+  }
+
+  private static String literal(Matcher matcher) {
+    return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+  }
+
+  // 按照顶层的OR或者AND运算符拆分表达式，括号和字符串中的运算符会被忽略
+  private static List<String> split(String expression, boolean or) {
+    final List<String> parts = new ArrayList<>();
+    final String word = or ? "or" : "and";
+    final String symbol = or ? "||" : "&&";
+    int depth = 0;
+    int begin = 0;
+    int i = 0;
+    while (i < expression.length()) {
+      final char c = expression.charAt(i);
+      if (c == '"' || c == '\'') {
+        final int end = expression.indexOf(c, i + 1);
+        if (end < 0) {
+          return null;
+        }
+        i = end + 1;
+        continue;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth < 0) {
+          return null;
+        }
+      } else if (depth == 0) {
+        // 三元运算符的优先级低于AND和OR，无法按照AND和OR拆分
+        if (c == '?') {
+          return null;
+        }
+        if (expression.startsWith(symbol, i)) {
+          parts.add(expression.substring(begin, i).trim());
+          i += symbol.length();
+          begin = i;
+          continue;
+        } else if (expression.regionMatches(true, i, word, 0, word.length())
+            && isBoundary(expression, i - 1)
+            && isBoundary(expression, i + word.length())) {
+          parts.add(expression.substring(begin, i).trim());
+          i += word.length();
+          begin = i;
+          continue;
+        }
+      }
+      i++;
+    }
+    if (depth != 0) {
+      return null;
+    }
+    parts.add(expression.substring(begin).trim());
+    return parts;
+  }
+
+  private static boolean isBoundary(String expression, int index) {
+    if (index < 0 || index >= expression.length()) {
+      return true;
+    }
+    final char c = expression.charAt(index);
+    return !(Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.');
+  }
+
+  private static int closingParen(String expression, int openIndex) {
+    int depth = 0;
+    for (int i = openIndex; i < expression.length(); i++) {
+      final char c = expression.charAt(i);
+      if (c == '"' || c == '\'') {
+        final int end = expression.indexOf(c, i + 1);
+        if (end < 0) {
+          return -1;
+        }
+        i = end;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 是否对事件类型进行了限制
+   *
+   * @return 没有限制事件类型时返回false
+   */
+  public boolean hasEventTypes() {
+    return eventTypes != null;
+  }
+
+  public Set<String> getEventTypes() {
+    return eventTypes == null ? Collections.emptySet() : eventTypes;
+  }
+
+  public Set<String> getRequiredAttributes() {
+    return requiredAttributes;
+  }
+
+  /**
+   * 判断事件是否可能满足触发条件
+   *
+   * @param message 事件
+   * @return 返回false时一定不满足触发条件
+   */
+  public boolean accept(Message message) {
+    if (eventTypes != null && !eventTypes.contains(message.getType())) {
+      return false;
+    }
+    if (!requiredAttributes.isEmpty()) {
+      final Map<String, Object> attributes = message.getAttributes();
+      if (attributes == null) {
+        return false;
+      }
+      for (String attribute : requiredAttributes) {
+        if (!attributes.containsKey(attribute)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 判断邮箱中是否有事件可能满足触发条件
+   *
+   * @param mailbox 事件邮箱
+   * @return 返回false时邮箱中所有的事件都不满足触发条件
+   */
+  public boolean acceptAny(Collection<Message> mailbox) {
+    if (this == ALL) {
+      return true;
+    }
+    for (Message message : mailbox) {
+      if (accept(message)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TriggerEventFilter@%d{\"event_types\": %s, \"required_attributes\": %s}",
+        System.identityHashCode(this), eventTypes, requiredAttributes);
+  }
+}
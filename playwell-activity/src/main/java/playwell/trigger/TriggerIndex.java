@@ -0,0 +1,72 @@
+package playwell.trigger;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 从事件类型到活动的倒排索引，用于在一批消息中找出可能被触发的活动。
+ * 没有提取出事件类型限制的活动总是会作为候选
+ *
+ * @author chihongze@gmail.com
+ */
+public class TriggerIndex {
+
+  // 事件类型 -> 活动ID
+  private final Map<String, Set<Integer>> activitiesByEventType = new HashMap<>();
+
+  // 不限制事件类型的活动ID
+  private final Set<Integer> wildcardActivities = new HashSet<>();
+
+  // 构建索引时使用的过滤条件，用于判断活动集合是否发生了变化
+  private final Map<Integer, TriggerEventFilter> eventFilters = new HashMap<>();
+
+  TriggerIndex() {
+
+  }
+
+  void add(int activityId, TriggerEventFilter eventFilter) {
+    eventFilters.put(activityId, eventFilter);
+    if (eventFilter.hasEventTypes()) {
+      for (String eventType : eventFilter.getEventTypes()) {
+        activitiesByEventType.computeIfAbsent(eventType, t -> new HashSet<>()).add(activityId);
+      }
+    } else {
+      wildcardActivities.add(activityId);
+    }
+  }
+
+  // 活动数目
+  int size() {
+    return eventFilters.size();
+  }
+
+  // 索引中的活动是否使用的是同一个过滤条件
+  boolean contains(int activityId, TriggerEventFilter eventFilter) {
+    return eventFilters.get(activityId) == eventFilter;
+  }
+
+  /**
+   * 获取可能被指定类型的事件所触发的活动
+   *
+   * @param eventTypes 本批次中出现的事件类型
+   * @return 候选活动ID
+   */
+  public Set<Integer> getCandidates(Collection<String> eventTypes) {
+    if (activitiesByEventType.isEmpty()) {
+      return Collections.unmodifiableSet(wildcardActivities);
+    }
+
+    final Set<Integer> candidates = new HashSet<>(wildcardActivities);
+    for (String eventType : eventTypes) {
+      final Set<Integer> activityIds = activitiesByEventType.get(eventType);
+      if (activityIds != null) {
+        candidates.addAll(activityIds);
+      }
+    }
+    return candidates;
+  }
+}
@@ -1,18 +1,25 @@
 package playwell.trigger;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import playwell.activity.Activity;
 import playwell.activity.definition.ActivityDefinition;
 import playwell.activity.definition.ActivityDefinitionManager;
 import playwell.common.EasyMap;
 import playwell.common.PlaywellComponent;
+import playwell.common.argument.Argument;
+import playwell.common.argument.ExpressionArgument;
+import playwell.common.argument.MapArgument;
 import playwell.integration.IntegrationPlan;
 import playwell.integration.IntegrationPlanFactory;
 import playwell.integration.TopComponentType;
@@ -29,6 +36,15 @@ public class TriggerManager implements PlaywellComponent {
 
   private final Map<String, TriggerInstanceBuilder> instanceBuilders = new HashMap<>();
 
+  // 从触发条件中提取的静态过滤条件，按照TriggerDefinition对象缓存，定义更新后旧的条目会被回收
+  private final Cache<TriggerDefinition, TriggerEventFilter> eventFilters = CacheBuilder
+      .newBuilder()
+      .weakKeys()
+      .build();
+
+  // 最近一次构建的倒排索引，活动集合以及触发条件都没有变化时直接复用
+  private volatile TriggerIndex latestTriggerIndex = null;
+
   public TriggerManager() {
 
   }
@@ -124,12 +140,76 @@ public class TriggerManager implements PlaywellComponent {
       }
 
       final TriggerInstanceBuilder triggerInstanceBuilder = instanceBuilders.get(triggerType);
-      return triggerInstanceBuilder.build(activity, activityDefinition);
+      final Trigger trigger = triggerInstanceBuilder.build(activity, activityDefinition);
+      trigger.setEventFilter(getEventFilter(triggerDefinition));
+      return trigger;
     } else {
       return new VoidTrigger(activity);
     }
   }
 
+  /**
+   * 获取从触发条件中提取的静态过滤条件，只有SimpleEventTrigger的condition参数会被提取
+   *
+   * @param triggerDefinition 触发器定义
+   * @return 静态过滤条件
+   */
+  public TriggerEventFilter getEventFilter(TriggerDefinition triggerDefinition) {
+    if (!SimpleEventTrigger.TYPE.equals(triggerDefinition.getType())) {
+      return TriggerEventFilter.ALL;
+    }
+
+    try {
+      return eventFilters.get(triggerDefinition, () -> {
+        final Argument arguments = triggerDefinition.getArguments();
+        if (arguments == null || !Argument.isMapArgument(arguments)) {
+          return TriggerEventFilter.ALL;
+        }
+        final Argument condition = ((MapArgument) arguments).getArgs()
+            .get(SimpleEventTrigger.ArgFields.CONDITION);
+        if (condition == null || !Argument.isExpressionArgument(condition)) {
+          return TriggerEventFilter.ALL;
+        }
+        return TriggerEventFilter.fromCondition(
+            ((ExpressionArgument) condition).getExpression().getExpressionString());
+      });
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * 基于Trigger实例构建从事件类型到活动的倒排索引
+   *
+   * @param triggers Trigger实例
+   * @return 倒排索引
+   */
+  public TriggerIndex buildTriggerIndex(Collection<Trigger> triggers) {
+    final TriggerIndex triggerIndex = new TriggerIndex();
+    triggers.forEach(trigger -> triggerIndex.add(
+        trigger.getActivity().getId(), trigger.getEventFilter()));
+    return triggerIndex;
+  }
+
+  /**
+   * 获取Trigger实例对应的倒排索引，只有活动集合或者触发条件发生变化时才会重新构建
+   *
+   * @param triggers Trigger实例
+   * @return 倒排索引
+   */
+  public TriggerIndex getTriggerIndex(Collection<Trigger> triggers) {
+    final TriggerIndex triggerIndex = latestTriggerIndex;
+    if (triggerIndex != null && triggerIndex.size() == triggers.size() && triggers.stream()
+        .allMatch(trigger -> triggerIndex.contains(
+            trigger.getActivity().getId(), trigger.getEventFilter()))) {
+      return triggerIndex;
+    }
+
+    final TriggerIndex newTriggerIndex = buildTriggerIndex(triggers);
+    this.latestTriggerIndex = newTriggerIndex;
+    return newTriggerIndex;
+  }
+
   // 配置项
   interface ConfigItems {
 
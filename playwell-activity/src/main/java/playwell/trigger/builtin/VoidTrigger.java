@@ -6,6 +6,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import playwell.activity.Activity;
 import playwell.activity.thread.ActivityThread;
+import playwell.activity.thread.ActivityThreadScheduleExecutor.Batch;
 import playwell.message.Message;
 import playwell.trigger.Trigger;
 import playwell.trigger.TriggerMatchResult;
@@ -27,7 +28,7 @@ public class VoidTrigger extends Trigger {
 
   @Override
   public void handleMessageStream(Map<ActivityThread, Collection<Message>> collector,
-      Map<String, Map<String, Collection<Message>>> messages) {
+      Map<String, Map<String, Collection<Message>>> messages, Batch batch, boolean triggerable) {
     logger.info(String.format(
         "There is not latest enable definition for activity: %d", this.activity.getId()));
   }
@@ -0,0 +1,162 @@
+package playwell.util;
+
+import com.alibaba.fastjson.JSON;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import playwell.util.BinaryEncoder.ValueTypes;
+
+/**
+ * 紧凑二进制格式的解码器，需要按照写入的顺序依次读取，非线程安全
+ *
+ * @author chihongze@gmail.com
+ */
+public class BinaryDecoder {
+
+  private final byte[] bytes;
+
+  private int position;
+
+  private final int limit;
+
+  public BinaryDecoder(byte[] bytes, int offset) {
+    this(bytes, offset, bytes.length);
+  }
+
+  public BinaryDecoder(byte[] bytes, int offset, int limit) {
+    this.bytes = bytes;
+    this.position = offset;
+    this.limit = limit;
+  }
+
+  public boolean hasRemaining() {
+    return position < limit;
+  }
+
+  public int getPosition() {
+    return position;
+  }
+
+  public byte readByte() {
+    checkRemaining(1);
+    return bytes[position++];
+  }
+
+  public boolean readBoolean() {
+    return readByte() != 0;
+  }
+
+  public int readVarInt() {
+    return (int) readVarLong();
+  }
+
+  public long readVarLong() {
+    long value = 0L;
+    int shift = 0;
+    while (true) {
+      final byte b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      shift += 7;
+    }
+  }
+
+  public int readZigZagInt() {
+    final int zigzag = readVarInt();
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  public long readZigZagLong() {
+    final long zigzag = readVarLong();
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  public long readFixed(int width) {
+    checkRemaining(width);
+    long value = 0L;
+    for (int i = 0; i < width; i++) {
+      value = (value << 8) | (bytes[position++] & 0xFF);
+    }
+    return value;
+  }
+
+  public String readString() {
+    return readUtf8(readVarInt());
+  }
+
+  public String readNullableString() {
+    final int length = readVarInt();
+    if (length == 0) {
+      return null;
+    }
+    return readUtf8(length - 1);
+  }
+
+  public Map<String, Object> readMapEntries() {
+    final int size = readVarInt();
+    final Map<String, Object> map = new HashMap<>(Math.max(size * 4 / 3 + 1, 16));
+    for (int i = 0; i < size; i++) {
+      final String key = readString();
+      map.put(key, readValue());
+    }
+    return map;
+  }
+
+  public Object readValue() {
+    final byte type = readByte();
+    switch (type) {
+      case ValueTypes.NULL:
+        return null;
+      case ValueTypes.TRUE:
+        return Boolean.TRUE;
+      case ValueTypes.FALSE:
+        return Boolean.FALSE;
+      case ValueTypes.INT:
+        return readZigZagInt();
+      case ValueTypes.LONG:
+        return readZigZagLong();
+      case ValueTypes.DOUBLE:
+        return Double.longBitsToDouble(readFixed(8));
+      case ValueTypes.FLOAT:
+        return Float.intBitsToFloat((int) readFixed(4));
+      case ValueTypes.STRING:
+        return readString();
+      case ValueTypes.DECIMAL:
+        return new BigDecimal(readString());
+      case ValueTypes.MAP:
+        return readMapEntries();
+      case ValueTypes.LIST:
+        final int size = readVarInt();
+        final List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue());
+        }
+        return list;
+      case ValueTypes.JSON:
+        return JSON.parse(readString());
+      default:
+        throw new IllegalArgumentException(String.format(
+            "Unknown value type %d at position %d", type, position - 1));
+    }
+  }
+
+  private String readUtf8(int length) {
+    checkRemaining(length);
+    final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+    position += length;
+    return value;
+  }
+
+  private void checkRemaining(int size) {
+    if (size < 0 || position + size > limit) {
+      throw new IllegalArgumentException(String.format(
+          "Unexpected end of binary data, position: %d, required: %d, limit: %d",
+          position, size, limit));
+    }
+  }
+}
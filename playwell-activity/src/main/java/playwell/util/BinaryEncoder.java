@@ -0,0 +1,201 @@
+package playwell.util;
+
+import com.alibaba.fastjson.JSON;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import playwell.common.Mappable;
+
+/**
+ * 紧凑二进制格式的编码器，整数使用varint编码，值按类型标记编码，无法识别的类型退化为JSON文本。
+ * 与{@link BinaryDecoder}配合使用，非线程安全
+ *
+ * @author chihongze@gmail.com
+ */
+public class BinaryEncoder {
+
+  private byte[] buffer;
+
+  private int position = 0;
+
+  public BinaryEncoder(int initSize) {
+    this.buffer = new byte[initSize];
+  }
+
+  public void writeByte(byte b) {
+    ensureCapacity(1);
+    buffer[position++] = b;
+  }
+
+  public void writeBoolean(boolean value) {
+    writeByte(value ? (byte) 1 : (byte) 0);
+  }
+
+  public void writeVarInt(int value) {
+    // 按无符号数编码，负数由调用者先进行zigzag转换
+    writeVarLong(value & 0xFFFFFFFFL);
+  }
+
+  public void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0L) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  public void writeZigZagInt(int value) {
+    writeVarInt((value << 1) ^ (value >> 31));
+  }
+
+  public void writeZigZagLong(long value) {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  public void writeFixed(long value, int width) {
+    ensureCapacity(width);
+    for (int i = width - 1; i >= 0; i--) {
+      buffer[position++] = (byte) (value >>> (i * 8));
+    }
+  }
+
+  public void writeBytes(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, buffer, position, length);
+    position += length;
+  }
+
+  public void writeString(String value) {
+    final byte[] stringBytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(stringBytes.length);
+    ensureCapacity(stringBytes.length);
+    System.arraycopy(stringBytes, 0, buffer, position, stringBytes.length);
+    position += stringBytes.length;
+  }
+
+  /**
+   * 写入可以为null的字符串，null与空字符串是可以区分的
+   *
+   * @param value 字符串
+   */
+  public void writeNullableString(String value) {
+    if (value == null) {
+      writeVarInt(0);
+      return;
+    }
+    final byte[] stringBytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(stringBytes.length + 1);
+    ensureCapacity(stringBytes.length);
+    System.arraycopy(stringBytes, 0, buffer, position, stringBytes.length);
+    position += stringBytes.length;
+  }
+
+  public void writeMapEntries(Map<?, ?> map) {
+    if (map == null) {
+      writeVarInt(0);
+      return;
+    }
+    writeVarInt(map.size());
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      writeString(String.valueOf(entry.getKey()));
+      writeValue(entry.getValue());
+    }
+  }
+
+  public void writeValue(Object value) {
+    if (value == null) {
+      writeByte(ValueTypes.NULL);
+    } else if (value instanceof String) {
+      writeByte(ValueTypes.STRING);
+      writeString((String) value);
+    } else if (value instanceof Boolean) {
+      writeByte((Boolean) value ? ValueTypes.TRUE : ValueTypes.FALSE);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      writeByte(ValueTypes.INT);
+      writeZigZagInt(((Number) value).intValue());
+    } else if (value instanceof Long) {
+      writeByte(ValueTypes.LONG);
+      writeZigZagLong((Long) value);
+    } else if (value instanceof Double) {
+      writeByte(ValueTypes.DOUBLE);
+      writeFixed(Double.doubleToLongBits((Double) value), 8);
+    } else if (value instanceof Float) {
+      writeByte(ValueTypes.FLOAT);
+      writeFixed(Float.floatToIntBits((Float) value) & 0xFFFFFFFFL, 4);
+    } else if (value instanceof BigDecimal) {
+      writeByte(ValueTypes.DECIMAL);
+      writeString(value.toString());
+    } else if (value instanceof Map) {
+      writeByte(ValueTypes.MAP);
+      writeMapEntries((Map<?, ?>) value);
+    } else if (value instanceof Collection) {
+      final Collection<?> collection = (Collection<?>) value;
+      writeByte(ValueTypes.LIST);
+      writeVarInt(collection.size());
+      for (Object element : collection) {
+        writeValue(element);
+      }
+    } else if (value instanceof Object[]) {
+      final Object[] array = (Object[]) value;
+      writeByte(ValueTypes.LIST);
+      writeVarInt(array.length);
+      for (Object element : array) {
+        writeValue(element);
+      }
+    } else if (value instanceof Mappable) {
+      writeByte(ValueTypes.MAP);
+      writeMapEntries(((Mappable) value).toMap());
+    } else {
+      // 其它类型按照JSON进行序列化
+      writeByte(ValueTypes.JSON);
+      writeString(JSON.toJSONString(value));
+    }
+  }
+
+  public int size() {
+    return position;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, position);
+  }
+
+  private void ensureCapacity(int size) {
+    if (position + size > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + size));
+    }
+  }
+
+  /**
+   * 值类型标记
+   */
+  interface ValueTypes {
+
+    byte NULL = 0;
+
+    byte TRUE = 1;
+
+    byte FALSE = 2;
+
+    byte INT = 3;
+
+    byte LONG = 4;
+
+    byte DOUBLE = 5;
+
+    byte FLOAT = 6;
+
+    byte STRING = 7;
+
+    byte DECIMAL = 8;
+
+    byte MAP = 9;
+
+    byte LIST = 10;
+
+    byte JSON = 11;
+  }
+}
@@ -0,0 +1,197 @@
+package playwell.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * <p>基于数组的有界无锁环形缓冲区，写入与读取都不会分配额外的节点对象，size为O(1)操作。</p>
+ *
+ * <p>每个槽位持有一个序号，生产者与消费者通过CAS竞争写入位置与读取位置。
+ * 主要面向多生产者单消费者的场景，但读取端同样是线程安全的，
+ * 因此生产者在缓冲区满时可以通过poll丢弃最旧的元素。</p>
+ *
+ * @param <E> 元素类型
+ * @author chihongze@gmail.com
+ */
+public class MpscRingBuffer<E> {
+
+  private final int capacity;
+
+  private final int mask;
+
+  private final AtomicReferenceArray<E> elements;
+
+  private final AtomicLongArray sequences;
+
+  // 下一个写入位置
+  private final AtomicLong tail = new AtomicLong(0L);
+
+  // 下一个读取位置
+  private final AtomicLong head = new AtomicLong(0L);
+
+  /**
+   * 构建环形缓冲区，容量会被向上取整为2的幂
+   *
+   * @param capacity 最小容量
+   */
+  public MpscRingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(String.format(
+          "The capacity of ring buffer must be positive, but got %d", capacity));
+    }
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.elements = new AtomicReferenceArray<>(this.capacity);
+    this.sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * 写入元素，缓冲区已满时立即返回false
+   *
+   * @param element 元素，不能为null
+   * @return 是否写入成功
+   */
+  public boolean offer(E element) {
+    if (element == null) {
+      throw new NullPointerException("The ring buffer element could not be null");
+    }
+
+    while (true) {
+      final long position = tail.get();
+      final int index = (int) (position & mask);
+      final long diff = sequences.get(index) - position;
+      if (diff == 0L) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.lazySet(index, element);
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (diff < 0L) {
+        // 该槽位上一轮的元素尚未被读取，缓冲区已满
+        return false;
+      }
+      // 其它生产者已经占用了该位置，重新读取写入位置
+    }
+  }
+
+  /**
+   * 批量写入元素，只有剩余空间足够容纳全部元素时才会写入，否则一个都不写入并返回false
+   *
+   * @param batch 元素列表，不能包含null
+   * @return 是否写入成功
+   */
+  public boolean offerAll(List<E> batch) {
+    final int n = batch.size();
+    if (n == 0) {
+      return true;
+    }
+    if (n > capacity) {
+      return false;
+    }
+    for (E element : batch) {
+      if (element == null) {
+        throw new NullPointerException("The ring buffer element could not be null");
+      }
+    }
+
+    while (true) {
+      final long position = tail.get();
+      if (position + n - head.get() > capacity) {
+        return false;
+      }
+      if (tail.compareAndSet(position, position + n)) {
+        for (int i = 0; i < n; i++) {
+          final long current = position + i;
+          final int index = (int) (current & mask);
+          // 读取端已经移动了读取位置，但可能尚未释放该槽位
+          while (sequences.get(index) != current) {
+            Thread.yield();
+          }
+          elements.lazySet(index, batch.get(i));
+          sequences.set(index, current + 1);
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * 读取并移除最旧的元素
+   *
+   * @return 最旧的元素，缓冲区为空时返回null
+   */
+  public E poll() {
+    while (true) {
+      final long position = head.get();
+      final int index = (int) (position & mask);
+      final long diff = sequences.get(index) - (position + 1);
+      if (diff == 0L) {
+        if (head.compareAndSet(position, position + 1)) {
+          final E element = elements.get(index);
+          elements.lazySet(index, null);
+          sequences.set(index, position + capacity);
+          return element;
+        }
+      } else if (diff < 0L) {
+        // 缓冲区为空，或者生产者已占用位置但尚未完成写入
+        return null;
+      }
+    }
+  }
+
+  /**
+   * 批量读取元素并交给consumer处理
+   *
+   * @param consumer 元素处理函数
+   * @param maxDrainNum 最多读取的元素数目
+   * @return 实际读取的元素数目
+   */
+  public int drain(Consumer<E> consumer, int maxDrainNum) {
+    int drained = 0;
+    while (drained < maxDrainNum) {
+      final E element = poll();
+      if (element == null) {
+        break;
+      }
+      consumer.accept(element);
+      drained++;
+    }
+    return drained;
+  }
+
+  /**
+   * 当前元素数目，并发写入时为近似值
+   */
+  public int size() {
+    while (true) {
+      final long currentHead = head.get();
+      final long currentTail = tail.get();
+      if (currentHead == head.get()) {
+        return (int) Math.max(0L, Math.min(currentTail - currentHead, capacity));
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * 清空缓冲区
+   */
+  public void clear() {
+    while (poll() != null) {
+      // 逐个丢弃
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package playwell.action;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * ActionCtrlInfo常量控制表达式解析的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class ActionCtrlInfoTestCase {
+
+  @Test
+  public void testFromConstantCtrlExpression() {
+    assertConstant("call(\"next\")", "CALL next");
+    assertConstant(" call( 'next' ) ", "CALL next");
+    assertConstant("finish()", "FINISH");
+    assertConstant("fail()", "FAIL");
+    assertConstant("failBecause(\"timeout\")", "FAIL because timeout");
+    assertConstant("retry(3)", "RETRY 3");
+    assertConstant("retry(3, \"CALL next\")", "RETRY 3 CALL next");
+    assertConstant("repair(\"problem\")", "repairing problem");
+
+    final ActionCtrlInfo failInfo = ActionCtrlInfo.fromConstantCtrlExpression(
+        "failBecause('timeout')").orElseThrow(AssertionError::new);
+    Assert.assertEquals(ActionCtrlType.FAIL, failInfo.getCtrlType());
+    Assert.assertEquals("timeout", failInfo.getFailureReason());
+
+    final RetryActionCtrlInfo retryInfo = (RetryActionCtrlInfo) ActionCtrlInfo
+        .fromConstantCtrlExpression("retry(2, 'CALL next')").orElseThrow(AssertionError::new);
+    Assert.assertEquals(2, retryInfo.getCount());
+    Assert.assertEquals(ActionCtrlType.CALL, retryInfo.getRetryFailureAction().getCtrlType());
+    Assert.assertEquals("next", retryInfo.getRetryFailureAction().getNextStep());
+
+    // 非常量表达式在调度时计算
+    Arrays.asList(
+        "call($(\"next\"))",
+        "call(eventAttr(\"next\"))",
+        "call('next' + 1)",
+        "call(\"next\").trim()",
+        "call(1)",
+        "retry('3')",
+        "retry(3, 'next')",
+        "retry(99999999999)",
+        "call('')",
+        "finish(1)",
+        "str('finish')",
+        ""
+    ).forEach(expression -> Assert.assertFalse(expression,
+        ActionCtrlInfo.fromConstantCtrlExpression(expression).isPresent()));
+  }
+
+  @Test
+  public void testWithContextVars() {
+    final Map<String, Object> contextVars = ImmutableMap.of("a", 1);
+    final ActionCtrlInfo callInfo = ActionCtrlInfo.fromConstantCtrlExpression("call('next')")
+        .orElseThrow(AssertionError::new);
+    Assert.assertEquals(Collections.emptyMap(), callInfo.getContextVars());
+    final ActionCtrlInfo newCallInfo = callInfo.withContextVars(contextVars);
+    Assert.assertEquals(ActionCtrlType.CALL, newCallInfo.getCtrlType());
+    Assert.assertEquals("next", newCallInfo.getNextStep());
+    Assert.assertEquals(contextVars, newCallInfo.getContextVars());
+    Assert.assertEquals(Collections.emptyMap(), callInfo.getContextVars());
+
+    final ActionCtrlInfo retryInfo = ActionCtrlInfo.fromConstantCtrlExpression("retry(1)")
+        .orElseThrow(AssertionError::new).withContextVars(contextVars);
+    Assert.assertTrue(retryInfo instanceof RetryActionCtrlInfo);
+    Assert.assertEquals(contextVars,
+        ((RetryActionCtrlInfo) retryInfo).getRetryFailureAction().getContextVars());
+
+    final ActionCtrlInfo repairInfo = ActionCtrlInfo.fromConstantCtrlExpression("repair('p')")
+        .orElseThrow(AssertionError::new).withContextVars(contextVars);
+    Assert.assertEquals("p", ((RepairActionCtrlInfo) repairInfo).getProblem());
+    Assert.assertEquals(contextVars, repairInfo.getContextVars());
+  }
+
+  private void assertConstant(String expression, String expectedCtrlString) {
+    final Optional<ActionCtrlInfo> ctrlInfo = ActionCtrlInfo.fromConstantCtrlExpression(
+        expression);
+    Assert.assertTrue(expression, ctrlInfo.isPresent());
+    final ActionCtrlInfo expected = ActionCtrlInfo.fromCtrlString(
+        expectedCtrlString, Collections.emptyMap());
+    Assert.assertEquals(expression, expected.getCtrlType(), ctrlInfo.get().getCtrlType());
+    Assert.assertEquals(expression, expected.getNextStep(), ctrlInfo.get().getNextStep());
+    Assert.assertEquals(
+        expression, expected.getFailureReason(), ctrlInfo.get().getFailureReason());
+  }
+}
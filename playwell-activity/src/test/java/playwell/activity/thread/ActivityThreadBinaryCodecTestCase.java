@@ -0,0 +1,105 @@
+package playwell.activity.thread;
+
+import com.alibaba.fastjson.JSONArray;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.action.ActionDefinition;
+import playwell.activity.Activity;
+import playwell.activity.ActivityStatus;
+import playwell.activity.definition.ActivityDefinition;
+
+/**
+ * ActivityThreadBinaryCodec的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class ActivityThreadBinaryCodecTestCase {
+
+  @Test
+  public void testEncodeAndDecode() {
+    final ActivityDefinition activityDefinition = new ActivityDefinition(
+        "test",
+        "0.1",
+        "yaml",
+        "user_id",
+        "Test",
+        "",
+        null,
+        Arrays.asList(newAction("a"), newAction("b"), newAction("c")),
+        true,
+        Collections.emptyMap(),
+        "",
+        new Date(),
+        new Date()
+    );
+    final Activity activity = new Activity(
+        1, "Test", "test", ActivityStatus.COMMON, Collections.emptyMap(), new Date(), new Date());
+
+    final Map<String, Object> nested = new HashMap<>();
+    nested.put("x", 1);
+    nested.put("y", Arrays.asList("a", 2L, null));
+    final Map<String, Object> context = new HashMap<>();
+    context.put("int", -12);
+    context.put("long", 1L << 40);
+    context.put("double", 3.14D);
+    context.put("decimal", new BigDecimal("1.10"));
+    context.put("string", "中文");
+    context.put("bool", true);
+    context.put("null", null);
+    context.put("map", nested);
+
+    final long now = System.currentTimeMillis();
+    final ActivityThread activityThread = new ActivityThread(
+        activity,
+        activityDefinition,
+        "Sam",
+        ActivityThreadStatus.RUNNING,
+        "b",
+        now,
+        now - 1000L,
+        context
+    );
+
+    final byte[] bytes = ActivityThreadBinaryCodec.encode(activityThread);
+    Assert.assertTrue(ActivityThreadBinaryCodec.isBinary(bytes));
+    Assert.assertEquals(
+        ActivityThreadStorageFormat.BINARY, ActivityThreadStorageFormat.detect(bytes));
+    Assert.assertEquals(ActivityThreadStorageFormat.JSON, ActivityThreadStorageFormat.detect(
+        JSONArray.toJSONBytes(new Object[]{"0.1", 1, "b", now, now, context})));
+
+    final ActivityThreadBinaryCodec.Decoder decoder = new ActivityThreadBinaryCodec.Decoder(bytes);
+    Assert.assertEquals("0.1", decoder.readDefinitionVersion());
+    Assert.assertEquals(ActivityThreadStatus.RUNNING.getCode(), decoder.readStatusCode());
+    Assert.assertEquals("b", decoder.readCurrentAction(activityDefinition));
+    Assert.assertEquals(now, decoder.readUpdatedOn());
+    Assert.assertEquals(now - 1000L, decoder.readCreatedOn());
+    Assert.assertEquals(context, decoder.readContext());
+
+    // 不在编排中的action按名称保存
+    activityThread.setCurrentAction("unknown");
+    final ActivityThreadBinaryCodec.Decoder decoder2 = new ActivityThreadBinaryCodec.Decoder(
+        ActivityThreadBinaryCodec.encode(activityThread));
+    decoder2.readDefinitionVersion();
+    decoder2.readStatusCode();
+    Assert.assertEquals("unknown", decoder2.readCurrentAction(activityDefinition));
+  }
+
+  private ActionDefinition newAction(String name) {
+    return new ActionDefinition(
+        name,
+        "debug",
+        null,
+        Collections.emptyList(),
+        null,
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        false
+    );
+  }
+}
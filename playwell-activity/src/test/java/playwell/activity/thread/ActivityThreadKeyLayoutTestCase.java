@@ -0,0 +1,58 @@
+package playwell.activity.thread;
+
+import com.google.common.primitives.UnsignedBytes;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 针对ActivityThreadKeyLayout的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class ActivityThreadKeyLayoutTestCase {
+
+  @Test
+  public void testBuildAndParse() {
+    for (ActivityThreadKeyLayout layout : ActivityThreadKeyLayout.values()) {
+      final byte[] keyBytes = layout.buildKey(37, 1001, "user_10001");
+      Assert.assertEquals(1001, layout.getActivityId(keyBytes));
+      Assert.assertEquals("user_10001", layout.getDomainId(keyBytes));
+    }
+
+    // activity布局与早期的Key保持一致
+    final byte[] activityKey = ActivityThreadKeyLayout.ACTIVITY.buildKey(37, 1, "a");
+    Assert.assertArrayEquals(new byte[]{0, 0, 0, 1, 'a'}, activityKey);
+    Assert.assertEquals(-1, ActivityThreadKeyLayout.ACTIVITY.getSlot(activityKey));
+
+    final byte[] slotKey = ActivityThreadKeyLayout.SLOT.buildKey(37, 1, "a");
+    Assert.assertEquals(37, ActivityThreadKeyLayout.SLOT.getSlot(slotKey));
+    Assert.assertEquals(Arrays.asList(
+        ActivityThreadKeyLayout.ACTIVITY, ActivityThreadKeyLayout.SLOT),
+        Arrays.asList(
+            ActivityThreadKeyLayout.valueOfByType("activity").orElse(null),
+            ActivityThreadKeyLayout.valueOfByType("slot").orElse(null)));
+    Assert.assertFalse(ActivityThreadKeyLayout.valueOfByType("unknown").isPresent());
+  }
+
+  @Test
+  public void testSlotRange() {
+    // 同一个slot的Key都位于[slotPrefix(slot), slotPrefix(slot + 1))之间
+    final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+    final byte[] from = ActivityThreadKeyLayout.slotPrefix(255);
+    final byte[] to = ActivityThreadKeyLayout.slotPrefix(256);
+    for (String domainId : Arrays.asList("", "1", "user_10001")) {
+      final byte[] keyBytes = ActivityThreadKeyLayout.SLOT.buildKey(255, Integer.MAX_VALUE,
+          domainId);
+      Assert.assertTrue(comparator.compare(keyBytes, from) >= 0);
+      Assert.assertTrue(comparator.compare(keyBytes, to) < 0);
+    }
+
+    Assert.assertEquals(
+        Arrays.asList(Pair.of(1, 3), Pair.of(5, 5), Pair.of(7, 8)),
+        ActivityThreadKeyLayout.mergeSlots(Arrays.asList(8, 2, 1, 5, 3, 7, 2)));
+    Assert.assertTrue(ActivityThreadKeyLayout.mergeSlots(Arrays.asList()).isEmpty());
+  }
+}
@@ -0,0 +1,86 @@
+package playwell.activity.thread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import playwell.activity.thread.ActivityThreadScheduleExecutor.Batch;
+
+/**
+ * ActivityThreadScheduleExecutor的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class ActivityThreadScheduleExecutorTestCase {
+
+  private ActivityThreadScheduleExecutor executor;
+
+  @Before
+  public void setUp() {
+    executor = new ActivityThreadScheduleExecutor("test", 4);
+  }
+
+  @Test
+  public void testOrderPerDomainId() {
+    final Map<String, List<Integer>> results = new ConcurrentHashMap<>();
+    final Batch batch = executor.newBatch();
+    for (int i = 0; i < 1000; i++) {
+      final int seq = i;
+      final String domainId = "user_" + (i % 10);
+      batch.submit(1, domainId, () -> results.computeIfAbsent(
+          domainId, did -> Collections.synchronizedList(new ArrayList<>())).add(seq));
+    }
+    batch.await();
+
+    Assert.assertEquals(0, batch.getPendingNum());
+    Assert.assertEquals(10, results.size());
+    results.values().forEach(seqList -> {
+      Assert.assertEquals(100, seqList.size());
+      for (int i = 1; i < seqList.size(); i++) {
+        Assert.assertTrue(seqList.get(i - 1) < seqList.get(i));
+      }
+    });
+  }
+
+  @Test
+  public void testError() {
+    final Batch batch = executor.newBatch();
+    batch.submit(1, "a", () -> {
+      throw new IllegalStateException("test");
+    });
+    batch.submit(1, "b", () -> {
+    });
+    try {
+      batch.await();
+      Assert.fail("The error should be rethrown by await");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("test", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRejected() {
+    executor.shutdown();
+    final Batch batch = executor.newBatch();
+    try {
+      batch.submit(1, "a", () -> {
+      });
+      Assert.fail("The task should be rejected after shutdown");
+    } catch (RejectedExecutionException e) {
+      // 被拒绝的任务不计入批次，await不会阻塞
+      Assert.assertEquals(0, batch.getPendingNum());
+      batch.await();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+}
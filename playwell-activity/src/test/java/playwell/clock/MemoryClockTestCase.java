@@ -75,4 +75,31 @@ public class MemoryClockTestCase {
     messages = memoryClockLogic.fetchClockMessages(now);
     Assert.assertEquals(0L, messages.size());
   }
+
+  @Test
+  public void testCancelClockMessage() {
+    final long now = System.currentTimeMillis();
+    memoryClockLogic.registerClockMessage(new ClockMessage(
+        "", "", now + 1000L, 1, "a", "timeout", CachedTimestamp.nowMilliseconds()));
+    memoryClockLogic.registerClockMessage(new ClockMessage(
+        "", "", now + 1000L, 1, "b", "timeout", CachedTimestamp.nowMilliseconds()));
+
+    Assert.assertTrue(memoryClockLogic.cancelClockMessage(1, "a", "timeout"));
+    Assert.assertFalse(memoryClockLogic.cancelClockMessage(1, "a", "timeout"));
+    Collection<ClockMessage> messages = memoryClockLogic.fetchClockMessages(now + 1000L);
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals("b", messages.iterator().next().getDomainId());
+
+    // 替换之后只保留新注册的消息
+    memoryClockLogic.replaceClockMessage(new ClockMessage(
+        "", "", now + 2000L, 1, "b", "timeout", CachedTimestamp.nowMilliseconds()));
+    Assert.assertEquals(0, memoryClockLogic.fetchClockMessages(now + 1000L).size());
+    messages = memoryClockLogic.fetchClockMessages(now + 2000L);
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals(now + 2000L, messages.iterator().next().getTimePoint());
+
+    // 已经清理的消息不能再被取消
+    memoryClockLogic.clean(now + 2000L);
+    Assert.assertFalse(memoryClockLogic.cancelClockMessage(1, "b", "timeout"));
+  }
 }
@@ -0,0 +1,134 @@
+package playwell.clock;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import playwell.common.EasyMap;
+
+/**
+ * TimingWheelClock的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class TimingWheelClockTestCase {
+
+  private TimingWheelClock timingWheelClock;
+
+  private long now;
+
+  @Before
+  public void setUp() {
+    timingWheelClock = new TimingWheelClock();
+    timingWheelClock.init(new EasyMap(Collections.emptyMap()));
+    now = CachedTimestamp.nowMilliseconds();
+  }
+
+  @Test
+  public void testFetchClockMessages() {
+    // 分别落在毫秒、秒、分钟、小时层
+    timingWheelClock.registerClockMessage(newMessage(now + 100L, "ms"));
+    timingWheelClock.registerClockMessage(newMessage(now + TimeUnit.SECONDS.toMillis(5L), "s"));
+    timingWheelClock.registerClockMessage(newMessage(now + TimeUnit.MINUTES.toMillis(3L), "m"));
+    timingWheelClock.registerClockMessage(newMessage(now + TimeUnit.HOURS.toMillis(2L), "h"));
+    Assert.assertEquals(4, timingWheelClock.getPendingNum());
+
+    final Optional<Long> nextTimePoint = timingWheelClock.getNextTimePoint();
+    Assert.assertTrue(nextTimePoint.isPresent());
+    Assert.assertTrue(nextTimePoint.get() <= now + 100L);
+
+    Assert.assertEquals(0, timingWheelClock.fetchClockMessages(now + 99L).size());
+    assertFetched(now + 100L, "ms");
+
+    // 没有clean之前，已经到期的消息可以重复获取
+    assertFetched(now + 100L, "ms");
+    timingWheelClock.clean(now + 100L);
+    Assert.assertEquals(0, timingWheelClock.fetchClockMessages(now + 100L).size());
+
+    Assert.assertEquals(0,
+        timingWheelClock.fetchClockMessages(now + TimeUnit.SECONDS.toMillis(5L) - 1L).size());
+    assertFetched(now + TimeUnit.SECONDS.toMillis(5L), "s");
+    timingWheelClock.clean(now + TimeUnit.SECONDS.toMillis(5L));
+
+    assertFetched(now + TimeUnit.MINUTES.toMillis(3L), "m");
+    timingWheelClock.clean(now + TimeUnit.MINUTES.toMillis(3L));
+
+    Assert.assertEquals(0,
+        timingWheelClock.fetchClockMessages(now + TimeUnit.HOURS.toMillis(2L) - 1L).size());
+    assertFetched(now + TimeUnit.HOURS.toMillis(2L), "h");
+    timingWheelClock.clean(now + TimeUnit.HOURS.toMillis(2L));
+
+    Assert.assertEquals(0, timingWheelClock.getPendingNum());
+    Assert.assertFalse(timingWheelClock.getNextTimePoint().isPresent());
+  }
+
+  @Test
+  public void testRegisterExpiredMessage() {
+    // 注册时已经过期的消息，在下一次获取时立即返回
+    timingWheelClock.fetchClockMessages(now + 1000L);
+    timingWheelClock.registerClockMessage(newMessage(now + 500L, "expired"));
+    assertFetched(now + 1000L, "expired");
+  }
+
+  @Test
+  public void testCancelClockMessage() {
+    timingWheelClock.registerClockMessage(newMessage(now + 1000L, "a"));
+    timingWheelClock.registerClockMessage(newMessage(now + TimeUnit.MINUTES.toMillis(5L), "b"));
+    Assert.assertTrue(timingWheelClock.cancelClockMessage(1, "a", "test"));
+    Assert.assertFalse(timingWheelClock.cancelClockMessage(1, "a", "test"));
+    Assert.assertEquals(1, timingWheelClock.getPendingNum());
+    Assert.assertEquals(0, timingWheelClock.fetchClockMessages(now + 1000L).size());
+
+    // 替换之后只保留新注册的消息
+    timingWheelClock.replaceClockMessage(newMessage(now + TimeUnit.MINUTES.toMillis(6L), "b"));
+    Assert.assertEquals(0,
+        timingWheelClock.fetchClockMessages(now + TimeUnit.MINUTES.toMillis(5L)).size());
+    assertFetched(now + TimeUnit.MINUTES.toMillis(6L), "b");
+    Assert.assertEquals(0, timingWheelClock.getPendingNum());
+  }
+
+  @Test
+  public void testReplaceClockMessageTwice() {
+    // 连续替换时，之前每一次被取消的消息都不应再触发
+    timingWheelClock.registerClockMessage(newMessage(now + 1000L, "a"));
+    timingWheelClock.replaceClockMessage(newMessage(now + 2000L, "a"));
+    timingWheelClock.replaceClockMessage(newMessage(now + 3000L, "a"));
+    Assert.assertEquals(1, timingWheelClock.getPendingNum());
+    Assert.assertEquals(0, timingWheelClock.fetchClockMessages(now + 2000L).size());
+    assertFetched(now + 3000L, "a");
+  }
+
+  @Test
+  public void testCancelAmbiguousKey() {
+    // ("u1", "x_y")与("u1_x", "y")拼接后相同，取消其中一个不应影响另一个
+    timingWheelClock.registerClockMessage(new ClockMessage(
+        "", "", now + 1000L, 1, "u1", "x_y", Collections.emptyMap(), now));
+    timingWheelClock.registerClockMessage(new ClockMessage(
+        "", "", now + 1000L, 1, "u1_x", "y", Collections.emptyMap(), now));
+    Assert.assertTrue(timingWheelClock.cancelClockMessage(1, "u1", "x_y"));
+    assertFetched(now + 1000L, "u1_x");
+  }
+
+  private void assertFetched(long untilTimePoint, String domainId) {
+    final Collection<ClockMessage> messages = timingWheelClock.fetchClockMessages(untilTimePoint);
+    Assert.assertEquals(1, messages.size());
+    for (ClockMessage message : messages) {
+      Assert.assertEquals(domainId, message.getDomainId());
+    }
+  }
+
+  private ClockMessage newMessage(long timePoint, String domainId) {
+    return new ClockMessage(
+        "",
+        "",
+        timePoint,
+        1,
+        domainId,
+        "test",
+        CachedTimestamp.nowMilliseconds()
+    );
+  }
+}
@@ -0,0 +1,236 @@
+package playwell.common.expression;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.common.Result;
+import playwell.common.argument.BaseArgumentRootContext;
+import playwell.common.argument.ContextVarAccessMixin;
+import playwell.common.argument.EventVarAccessMixin;
+import playwell.common.argument.ResultVarAccessMixin;
+import playwell.common.expression.fastpath.FastPathPlaywellExpression;
+import playwell.common.expression.spel.SpELPlaywellExpressionContext;
+import playwell.message.Message;
+import playwell.message.MessageArgumentVar;
+
+/**
+ * 快速路径表达式与SpEL表达式的兼容性测试，两者在同样的上下文中执行结果必须完全一致
+ *
+ * @author chihongze@gmail.com
+ */
+public class FastPathExpressionCompatibilityTestCase {
+
+  // 能够被快速路径识别的表达式
+  private static final List<String> FAST_PATH_EXPRESSIONS = Arrays.asList(
+      "$(\"count\") + 1",
+      "$(\"count\", 0) == 100",
+      "$(\"count\") % 3 == 0",
+      "$(\"amount\") > 100 AND $(\"amount\") <= 200",
+      "$(\"amount\") > 100 and $(\"missing\", 0) lt 5",
+      "!resultOk() || errorCode() == \"timeout\"",
+      "NOT resultOk()",
+      "not resultFailure() and !resultTimeout() and !resultIgnore()",
+      "eventType() == 'user_behavior'",
+      "eventTypeIs(\"user_behavior\") && eventAttr(\"behavior\") == \"下单\"",
+      "strEventAttr(\"user_id\") + '_' + intEventAttr(\"amount\")",
+      "strEventAttr(\"missing\", 'none')",
+      "event.get(\"amount\") * 2",
+      "event.get(\"missing\", 10) / 3",
+      "intEventAttr(\"amount\") / 2.0",
+      "intEventAttr(\"missing\", 7)",
+      "longEventAttr(\"amount\") - 1",
+      "boolEventAttr(\"missing\")",
+      "-intVar(\"count\") + 5L",
+      "+intVar(\"count\", 3) div 3 mod 2",
+      "longVar(\"count\") * 3",
+      "strVar(\"name\") + strVar(\"missing\", 'x')",
+      "boolVar(\"flag\") == true",
+      "var(\"flag\") and true",
+      "isAttrEmpty(\"empty\") and isAttrNotEmpty(\"user_id\")",
+      "containsAttr(\"user_id\") or containsAttr(\"missing\")",
+      "resultVar(\"code\") == 0",
+      "resultVar(\"missing\", -1)",
+      "strResultVar(\"msg\") + resultVar(\"code\", 0)",
+      "intResultVar(\"code\") >= 0",
+      "resultOk()",
+      "call(\"next\")",
+      "finish()",
+      "fail()",
+      "retry(3)",
+      "retry(3, \"failure\")",
+      "failBecause(\"error\")",
+      "repair(\"oops\")",
+      "str(null)",
+      "str('abc')",
+      "$(\"name\") + null",
+      "$(\"nothing\", null) == null",
+      "$(\"price\") >= 9.9",
+      "$(\"price\") < $(\"count\")",
+      "$(\"count\") == 10L",
+      "$(\"count\") eq 10.0",
+      "$(\"count\") ne 11 && $(\"count\") != null",
+      "'abc' < 'abd'",
+      "'abc' >= 'abd'",
+      "10 % 3 * 2 - -1",
+      "(1 + 2) * 3 - 7 / 2",
+      "1.5 + 2L",
+      "3L / 2",
+      "'It''s'",
+      "\"say \"\"hi\"\"\"",
+      "true AND $(\"flag\")",
+      "FALSE or TRUE",
+      "1 + 'a' + 2",
+      "'a' + true",
+      // 下面的表达式在执行时会退回到SpEL
+      "1 / 0",
+      "$(\"missing\")",
+      "$(\"tags\") + 1",
+      "$(\"name\") + $(\"tags\")",
+      "$(\"name\") < 5",
+      "$(\"name\") and true",
+      "intVar(\"count\", 1L)",
+      "retry(3L)",
+      "eventAttr(1)"
+  );
+
+  // 只能由SpEL执行的表达式
+  private static final List<String> SPRING_EL_EXPRESSIONS = Arrays.asList(
+      "list.add($(\"tags\"), 'x')",
+      "str('%s-%s', 1, 2)",
+      "${$(\"name\")}-x",
+      "$(\"tags\")[0]",
+      "$(\"name\").length()",
+      "T(java.lang.Math).abs(-1)",
+      "$(\"count\") > 1 ? 'a' : 'b'",
+      "1e3 + 1",
+      "2 ^ 3",
+      "#root != null",
+      "event.type"
+  );
+
+  @Test
+  public void testFastPathRecognition() {
+    FAST_PATH_EXPRESSIONS.forEach(expression -> Assert.assertTrue(expression,
+        ((FastPathPlaywellExpression) compileFastPath(expression)).isFastPath()));
+    SPRING_EL_EXPRESSIONS.forEach(expression -> Assert.assertFalse(expression,
+        ((FastPathPlaywellExpression) compileFastPath(expression)).isFastPath()));
+  }
+
+  @Test
+  public void testCompatibility() {
+    final List<TestRoot> roots = Arrays.asList(
+        new TestRoot(Result.okWithData(ImmutableMap.of("code", 0, "msg", "done"))),
+        new TestRoot(Result.failWithCodeAndMessage("timeout", "timeout")),
+        new TestRoot(Result.timeout())
+    );
+
+    for (String expression : FAST_PATH_EXPRESSIONS) {
+      for (TestRoot root : roots) {
+        assertCompatible(expression, root);
+      }
+    }
+    for (String expression : SPRING_EL_EXPRESSIONS) {
+      assertCompatible(expression, roots.get(0));
+    }
+  }
+
+  @Test
+  public void testResultWithType() {
+    final TestRoot root = new TestRoot(Result.ok());
+    final PlaywellExpression fastPath = compileFastPath("$(\"count\") + 1");
+    Assert.assertEquals(Integer.valueOf(11), fastPath.getResultWithType(newContext(root),
+        Integer.class));
+    Assert.assertEquals(11L, (long) fastPath.getResultWithType(newContext(root), Long.class));
+    Assert.assertEquals("11", fastPath.getResultWithType(newContext(root), String.class));
+    Assert.assertTrue(compileFastPath("resultOk()").getResultWithType(
+        newContext(root), Boolean.class));
+  }
+
+  private void assertCompatible(String expression, TestRoot root) {
+    final PlaywellExpression spel = PlaywellExpression.compile(
+        PlaywellExpression.Compilers.SPRING_EL, expression);
+    final PlaywellExpression fastPath = compileFastPath(expression);
+
+    Object expected = null;
+    Class<?> expectedError = null;
+    try {
+      expected = spel.getResult(newContext(root));
+    } catch (RuntimeException e) {
+      expectedError = e.getClass();
+    }
+
+    Object actual = null;
+    Class<?> actualError = null;
+    try {
+      actual = fastPath.getResult(newContext(root));
+    } catch (RuntimeException e) {
+      actualError = e.getClass();
+    }
+
+    final String message = String.format("%s with result %s", expression, root.getResult());
+    Assert.assertEquals(message, expectedError, actualError);
+    Assert.assertEquals(message, expected, actual);
+    if (expected != null) {
+      Assert.assertEquals(message, expected.getClass(), actual.getClass());
+    }
+  }
+
+  private PlaywellExpression compileFastPath(String expression) {
+    return PlaywellExpression.compile(PlaywellExpression.Compilers.FAST_PATH, expression);
+  }
+
+  private PlaywellExpressionContext newContext(TestRoot root) {
+    final PlaywellExpressionContext context = new SpELPlaywellExpressionContext();
+    context.setRootObject(root);
+    return context;
+  }
+
+  public static class TestRoot extends BaseArgumentRootContext implements
+      EventVarAccessMixin, ContextVarAccessMixin, ResultVarAccessMixin {
+
+    public final MessageArgumentVar event;
+
+    public final Map<String, Object> context;
+
+    public final Result result;
+
+    TestRoot(Result result) {
+      final Map<String, Object> attributes = new HashMap<>();
+      attributes.put("user_id", "1");
+      attributes.put("behavior", "下单");
+      attributes.put("amount", 50);
+      attributes.put("empty", "");
+      this.event = new MessageArgumentVar(new Message(
+          "user_behavior", "", "", attributes, System.currentTimeMillis()));
+
+      this.context = new HashMap<>();
+      context.put("count", 10);
+      context.put("amount", 150);
+      context.put("price", 9.9);
+      context.put("flag", true);
+      context.put("name", "Sam");
+      context.put("tags", Collections.singletonList("a"));
+      this.result = result;
+    }
+
+    @Override
+    public MessageArgumentVar getEvent() {
+      return event;
+    }
+
+    @Override
+    public Map<String, Object> getContext() {
+      return context;
+    }
+
+    @Override
+    public Result getResult() {
+      return result;
+    }
+  }
+}
@@ -156,6 +156,45 @@ public class SpringELTest {
     Assert.assertEquals(101, exp.getResult(ctx, true));
   }
 
+  @Test
+  public void testBytecodeCompile() {
+    final Student student = new Student(1, "Sam", 1);
+    final PlaywellExpression exp = new SpELPlaywellExpression("id + grade > 1");
+    exp.compile();
+    Assert.assertFalse(exp.isBytecodeCompiled());
+    for (int i = 0; i < 200; i++) {
+      final PlaywellExpressionContext ctx = new SpELPlaywellExpressionContext();
+      ctx.setRootObject(student);
+      Assert.assertEquals(true, exp.getResult(ctx));
+    }
+    Assert.assertTrue(exp.isBytecodeCompiled());
+
+    // 编译之后根对象类型发生变化，会退回到解释执行
+    final PlaywellExpressionContext ctx = new SpELPlaywellExpressionContext();
+    ctx.setRootObject(new Teacher(0L, 1L));
+    Assert.assertEquals(false, exp.getResult(ctx));
+  }
+
+  public static class Teacher {
+
+    private final long id;
+
+    private final long grade;
+
+    public Teacher(long id, long grade) {
+      this.id = id;
+      this.grade = grade;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public long getGrade() {
+      return grade;
+    }
+  }
+
   public static class Student {
 
     private final int id;
@@ -0,0 +1,127 @@
+package playwell.message.bus;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.common.EasyMap;
+import playwell.message.Message;
+
+/**
+ * 针对RingBufferMessageBus的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class RingBufferMessageBusTestCase {
+
+  @Test
+  public void testReadAndWrite() throws Exception {
+    final RingBufferMessageBus messageBus = newMessageBus(5, "reject");
+    Assert.assertEquals(8, messageBus.getStatus().get("capacity"));
+    for (int i = 0; i < 8; i++) {
+      messageBus.write(newMessage(i));
+    }
+    Assert.assertEquals(8, messageBus.size());
+
+    final Collection<Message> messages = messageBus.read(3);
+    Assert.assertEquals(3, messages.size());
+    Assert.assertEquals(0, messages.iterator().next().getAttributes().get("seq"));
+
+    final List<Message> consumed = new ArrayList<>();
+    Assert.assertEquals(5, messageBus.readWithConsumer(100, consumed::add));
+    Assert.assertEquals(7, consumed.get(4).getAttributes().get("seq"));
+    Assert.assertEquals(0, messageBus.size());
+    Assert.assertTrue(messageBus.read(10).isEmpty());
+  }
+
+  @Test
+  public void testOverflowPolicies() throws Exception {
+    final RingBufferMessageBus rejectBus = newMessageBus(2, "reject");
+    rejectBus.write(newMessage(0));
+    rejectBus.write(newMessage(1));
+    try {
+      rejectBus.write(newMessage(2));
+      Assert.fail();
+    } catch (MessageBusNotAvailableException e) {
+      Assert.assertEquals(1L, rejectBus.getOverflowCount());
+    }
+
+    // 拒绝策略下批量写入要么全部写入，要么全部拒绝
+    final RingBufferMessageBus batchRejectBus = newMessageBus(4, "reject");
+    batchRejectBus.write(newMessage(0));
+    try {
+      batchRejectBus.write(Arrays.asList(newMessage(1), newMessage(2), newMessage(3),
+          newMessage(4)));
+      Assert.fail();
+    } catch (MessageBusNotAvailableException e) {
+      Assert.assertEquals(1, batchRejectBus.size());
+      Assert.assertEquals(4L, batchRejectBus.getOverflowCount());
+    }
+    batchRejectBus.write(Arrays.asList(newMessage(1), newMessage(2), newMessage(3)));
+    final List<Object> batchSeqs = new ArrayList<>();
+    batchRejectBus.readWithConsumer(
+        10, message -> batchSeqs.add(message.getAttributes().get("seq")));
+    Assert.assertEquals(Arrays.asList(0, 1, 2, 3), batchSeqs);
+
+    final RingBufferMessageBus dropOldestBus = newMessageBus(2, "drop_oldest");
+    for (int i = 0; i < 5; i++) {
+      dropOldestBus.write(newMessage(i));
+    }
+    final List<Object> seqs = new ArrayList<>();
+    dropOldestBus.readWithConsumer(10, message -> seqs.add(message.getAttributes().get("seq")));
+    Assert.assertEquals(Arrays.asList(3, 4), seqs);
+    Assert.assertEquals(3L, dropOldestBus.getOverflowCount());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    final RingBufferMessageBus messageBus = newMessageBus(64, "block");
+    final int producerNum = 4;
+    final int messageNum = 10000;
+    final CountDownLatch latch = new CountDownLatch(producerNum);
+    for (int p = 0; p < producerNum; p++) {
+      final int base = p * messageNum;
+      new Thread(() -> {
+        try {
+          for (int i = 0; i < messageNum; i++) {
+            messageBus.write(newMessage(base + i));
+          }
+        } catch (MessageBusNotAvailableException e) {
+          throw new RuntimeException(e);
+        } finally {
+          latch.countDown();
+        }
+      }).start();
+    }
+
+    final Set<Object> received = Collections.synchronizedSet(new HashSet<>());
+    while (received.size() < producerNum * messageNum) {
+      messageBus.readWithConsumer(100, message -> received.add(
+          message.getAttributes().get("seq")));
+    }
+    latch.await();
+    Assert.assertEquals(producerNum * messageNum, received.size());
+    Assert.assertEquals(0, messageBus.size());
+  }
+
+  private RingBufferMessageBus newMessageBus(int capacity, String overflowPolicy) {
+    final RingBufferMessageBus messageBus = new RingBufferMessageBus();
+    messageBus.init(new EasyMap(ImmutableMap.of(
+        "name", "test_bus",
+        RingBufferMessageBus.ConfigItems.CAPACITY, capacity,
+        RingBufferMessageBus.ConfigItems.OVERFLOW_POLICY, overflowPolicy
+    )));
+    return messageBus;
+  }
+
+  private Message newMessage(int seq) {
+    return new Message("test", "", "", ImmutableMap.of("seq", seq), 0L);
+  }
+}
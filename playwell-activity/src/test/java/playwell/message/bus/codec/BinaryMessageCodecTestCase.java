@@ -0,0 +1,118 @@
+package playwell.message.bus.codec;
+
+import com.google.common.collect.ImmutableMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.clock.ClockMessage;
+import playwell.message.Message;
+import playwell.message.RoutedMessage;
+import playwell.message.ServiceRequestMessage;
+import playwell.message.ServiceResponseMessage;
+import playwell.message.sys.ActivityThreadCtrlMessage;
+
+/**
+ * 针对BinaryMessageCodec与BinarySequenceMessageCodec的测试用例，解码结果需要与JSON格式一致
+ *
+ * @author chihongze@gmail.com
+ */
+public class BinaryMessageCodecTestCase {
+
+  private final MessageCodec binaryCodec = new BinaryMessageCodec();
+
+  private final MessageCodec jsonCodec = new JSONObjectMessageCodec();
+
+  @Test
+  public void testRoundTrip() {
+    for (Message message : sampleMessages()) {
+      final byte[] bytes = (byte[]) binaryCodec.encode(message);
+      Assert.assertTrue(BinaryMessageCodec.isBinary(bytes));
+      final Message decoded = binaryCodec.decode(bytes);
+      Assert.assertEquals(message.getClass(), decoded.getClass());
+      Assert.assertEquals(jsonCodec.encode(message), jsonCodec.encode(decoded));
+
+      // 二进制格式的体积应当小于JSON
+      final int jsonSize = ((String) jsonCodec.encode(message))
+          .getBytes(StandardCharsets.UTF_8).length;
+      Assert.assertTrue(bytes.length < jsonSize);
+    }
+  }
+
+  @Test
+  public void testTypedFields() {
+    final ServiceRequestMessage requestMessage = (ServiceRequestMessage) binaryCodec.decode(
+        binaryCodec.encode(new ServiceRequestMessage(
+            1000L, 1, "10001", "add", "activity_runner", "add_service",
+            ImmutableMap.of("a", 1, "b", 2L, "c", 1.5), true)));
+    Assert.assertEquals(1, requestMessage.getActivityId());
+    Assert.assertEquals("10001", requestMessage.getDomainId());
+    Assert.assertEquals(1, requestMessage.getMapArgs().getInt("a"));
+    Assert.assertEquals(2L, requestMessage.getMapArgs().getLong("b"));
+    Assert.assertEquals(1.5, requestMessage.getMapArgs().getDouble("c"), 0.0);
+    Assert.assertTrue(requestMessage.isIgnoreResult());
+
+    final RoutedMessage routedMessage = (RoutedMessage) binaryCodec.decode(
+        binaryCodec.encode(new RoutedMessage("user_id", "10001",
+            new Message("user_behavior", "", "", ImmutableMap.of("user_id", "10001"), 1000L))));
+    Assert.assertEquals("user_id", routedMessage.getDomainIDStrategy());
+    Assert.assertEquals("10001", routedMessage.getDomainId());
+    Assert.assertEquals("10001", routedMessage.getAttributes().get("user_id"));
+    Assert.assertEquals(3, routedMessage.getAttributes().size());
+
+    final ActivityThreadCtrlMessage ctrlMessage = (ActivityThreadCtrlMessage) binaryCodec
+        .decode(binaryCodec.encode(new ActivityThreadCtrlMessage(
+            1000L, "", "", 1, "10001", "CALL next", ImmutableMap.of("reason", "test"))));
+    Assert.assertEquals("CALL next", ctrlMessage.getCommand());
+    Assert.assertEquals("test", ctrlMessage.getArgs().get("reason"));
+  }
+
+  @Test
+  public void testSequence() {
+    final SequenceMessageCodec sequenceCodec = new BinarySequenceMessageCodec();
+    final List<Message> messages = sampleMessages();
+    final byte[] bytes = (byte[]) sequenceCodec.encode(messages);
+    Assert.assertTrue(BinarySequenceMessageCodec.isBinary(bytes));
+    final Collection<Message> decoded = sequenceCodec.decode(bytes);
+    Assert.assertEquals(messages.size(), decoded.size());
+    int i = 0;
+    for (Message message : decoded) {
+      Assert.assertEquals(jsonCodec.encode(messages.get(i++)), jsonCodec.encode(message));
+    }
+
+    // 空序列
+    Assert.assertTrue(sequenceCodec.decode(
+        sequenceCodec.encode(Collections.emptyList())).isEmpty());
+
+    // 由单条消息拼接的序列
+    final List<byte[]> frames = new ArrayList<>();
+    messages.forEach(message -> frames.add((byte[]) binaryCodec.encode(message)));
+    Assert.assertArrayEquals(bytes, BinarySequenceMessageCodec.concat(frames));
+
+    // 单条消息
+    final Collection<Message> single = sequenceCodec.decode(
+        binaryCodec.encode(messages.get(0)));
+    Assert.assertEquals(1, single.size());
+  }
+
+  private List<Message> sampleMessages() {
+    return Arrays.asList(
+        new Message("user_behavior", "", "", ImmutableMap.of(
+            "user_id", "10001", "behavior", "登录", "score", 99), 1000L),
+        new RoutedMessage("user_id", "10001", new Message(
+            "user_behavior", "", "", ImmutableMap.of("user_id", "10001"), 1000L)),
+        new ServiceRequestMessage(1000L, 1, "10001", "add", "activity_runner", "add_service",
+            ImmutableMap.of("a", 1, "b", Arrays.asList(1, 2, 3)), false),
+        new ServiceResponseMessage(1000L, 1, "10001", "add", "add_service", "activity_runner",
+            "ok", "", "", ImmutableMap.of("sum", 3)),
+        new ClockMessage("clock", "activity_runner", 2000L, 1, "10001", "wait",
+            ImmutableMap.of("k", "v"), 1000L),
+        new ActivityThreadCtrlMessage(1000L, "", "", 1, "10001", "continue",
+            Collections.emptyMap())
+    );
+  }
+}
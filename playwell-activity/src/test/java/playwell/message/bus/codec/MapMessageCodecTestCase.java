@@ -10,6 +10,7 @@ import playwell.message.Message;
 import playwell.message.ServiceRequestMessage;
 import playwell.message.ServiceResponseMessage;
 import playwell.message.sys.ActivityThreadCtrlMessage;
+import playwell.route.migration.MigrateSstFileMessage;
 
 /**
  * 针对MapMessageCodec的测试用例
@@ -18,6 +19,35 @@ import playwell.message.sys.ActivityThreadCtrlMessage;
  */
 public class MapMessageCodecTestCase {
 
+  @Test
+  @SuppressWarnings({"unchecked"})
+  public void testMigrateSstFileMessage() {
+    final MessageCodec messageCodec = new MapMessageCodec();
+
+    // 文件分块
+    final byte[] chunk = new byte[]{0, 1, 2, (byte) 0xFF, 127, -128};
+    MigrateSstFileMessage message = (MigrateSstFileMessage) messageCodec.decode(
+        (Map<String, Object>) messageCodec.encode(MigrateSstFileMessage.ofChunk(
+            "runner_a", "runner_b", "runner_a-runner_b-1-0.sst", 1024L, chunk, false)));
+    Assert.assertEquals("runner_a", message.getSender());
+    Assert.assertEquals("runner_b", message.getReceiver());
+    Assert.assertEquals("runner_a-runner_b-1-0.sst", message.getFileName());
+    Assert.assertFalse(message.isSharedPath());
+    Assert.assertEquals(1024L, message.getOffset());
+    Assert.assertArrayEquals(chunk, message.getData());
+    Assert.assertFalse(message.isLast());
+
+    // 共享文件路径
+    message = (MigrateSstFileMessage) messageCodec.decode(
+        (Map<String, Object>) messageCodec.encode(MigrateSstFileMessage.ofPath(
+            "runner_a", "runner_b", "runner_a-runner_b-1-0.sst",
+            "/data/migration/runner_a-runner_b-1-0.sst")));
+    Assert.assertTrue(message.isSharedPath());
+    Assert.assertEquals("/data/migration/runner_a-runner_b-1-0.sst", message.getPath());
+    Assert.assertEquals(0, message.getData().length);
+    Assert.assertTrue(message.isLast());
+  }
+
   @Test
   @SuppressWarnings({"unchecked"})
   public void test() {
@@ -0,0 +1,85 @@
+package playwell.message.bus.codec;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.message.Message;
+import playwell.message.ServiceRequestMessage;
+
+/**
+ * 针对StreamingJSONMessageDecoder的测试用例，解析结果需要与JSONArrayMessageCodec一致
+ *
+ * @author chihongze@gmail.com
+ */
+public class StreamingJSONMessageDecoderTestCase {
+
+  private final StreamingJSONMessageDecoder decoder = new StreamingJSONMessageDecoder();
+
+  private final JSONArrayMessageCodec sequenceCodec = new JSONArrayMessageCodec();
+
+  private final JSONObjectMessageCodec messageCodec = new JSONObjectMessageCodec();
+
+  @Test
+  public void testDecodeArray() throws Exception {
+    final List<Message> messages = Arrays.asList(
+        new Message("user_behavior", "", "", ImmutableMap.of(
+            "user_id", "10001", "behavior", "登录"), 1000L),
+        new ServiceRequestMessage(1000L, 1, "10001", "add", "activity_runner", "add_service",
+            ImmutableMap.of("a", 1, "b", 2), false)
+    );
+    final String body = (String) sequenceCodec.encode(messages);
+
+    final List<Message> decoded = decode("  \n" + body);
+    final Collection<Message> expected = sequenceCodec.decode(body);
+    Assert.assertEquals(expected.size(), decoded.size());
+    final Iterator<Message> iterator = expected.iterator();
+    for (Message message : decoded) {
+      final Message expectedMessage = iterator.next();
+      Assert.assertEquals(expectedMessage.getClass(), message.getClass());
+      Assert.assertEquals(messageCodec.encode(expectedMessage), messageCodec.encode(message));
+    }
+
+    Assert.assertTrue(decode("[]").isEmpty());
+  }
+
+  @Test
+  public void testDecodeObject() throws Exception {
+    final Message message = new Message(
+        "user_behavior", "", "", ImmutableMap.of("user_id", "10001"), 1000L);
+    final List<Message> decoded = decode((String) messageCodec.encode(message));
+    Assert.assertEquals(1, decoded.size());
+    Assert.assertEquals(messageCodec.encode(message), messageCodec.encode(decoded.get(0)));
+  }
+
+  @Test
+  public void testInvalidInput() throws Exception {
+    for (String body : Arrays.asList("", "   ", "\"abc\"", "123",
+        "[{\"type\":\"a\"}] xyz", "[{\"type\":\"a\"}]]", "{\"type\":\"a\"}{\"type\":\"b\"}",
+        "[{\"type\":\"a\"}],[]")) {
+      try {
+        decode(body);
+        Assert.fail(body);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  private List<Message> decode(String body) throws Exception {
+    final List<Message> messages = new ArrayList<>();
+    final int count = decoder.decode(
+        new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+        StandardCharsets.UTF_8,
+        messages::add
+    );
+    Assert.assertEquals(messages.size(), count);
+    return messages;
+  }
+}
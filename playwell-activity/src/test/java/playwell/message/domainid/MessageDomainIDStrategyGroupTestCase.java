@@ -0,0 +1,84 @@
+package playwell.message.domainid;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.common.EasyMap;
+import playwell.message.Message;
+import playwell.message.TestUserBehaviorEvent;
+
+/**
+ * MessageDomainIDStrategyGroup的测试用例，策略组的计算结果需要与逐个策略计算的结果一致
+ *
+ * @author chihongze@gmail.com
+ */
+public class MessageDomainIDStrategyGroupTestCase {
+
+  @Test
+  public void testForEachDomainId() {
+    final List<MessageDomainIDStrategy> strategies = Arrays.asList(
+        newStrategy("user_id", "event.type == 'user_behavior'", "event.get('user_id')"),
+        newStrategy(
+            "user_id_order_id",
+            "event.type == 'user_behavior' AND event.get('biz', '') == '订单'",
+            "event.get('user_id') + '_' + event.get('order_id')"
+        ),
+        newStrategy("same_user_id", "event.type == 'user_behavior'", "event.get('user_id')"),
+        newStrategy("device_id", "event.type == 'device'", "event.get('device_id')")
+    );
+    final MessageDomainIDStrategyGroup group = MessageDomainIDStrategyGroup.compile(strategies);
+    Assert.assertEquals(4, group.getStrategies().size());
+
+    final List<Message> messages = Arrays.asList(
+        new TestUserBehaviorEvent("1", "登录", Collections.emptyMap(), 0L),
+        new TestUserBehaviorEvent(
+            "1", "提交订单", ImmutableMap.of("order_id", "101", "biz", "订单"), 0L),
+        new Message("device", "", "", ImmutableMap.of("device_id", "d1"), 0L),
+        new Message("other", "", "", Collections.emptyMap(), 0L)
+    );
+
+    for (Message message : messages) {
+      final Map<String, String> expected = new LinkedHashMap<>();
+      strategies.forEach(strategy -> strategy.domainId(message).ifPresent(
+          domainId -> expected.put(strategy.name(), domainId)));
+      final Map<String, String> actual = new LinkedHashMap<>();
+      group.forEachDomainId(message, actual::put);
+      Assert.assertEquals(expected, actual);
+      Assert.assertEquals(
+          new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+    }
+
+    final Map<String, String> domainIds = new LinkedHashMap<>();
+    group.forEachDomainId(messages.get(1), domainIds::put);
+    Assert.assertEquals(ImmutableMap.of(
+        "user_id", "1",
+        "user_id_order_id", "1_101",
+        "same_user_id", "1"
+    ), domainIds);
+  }
+
+  @Test
+  public void testEmptyGroup() {
+    Assert.assertSame(MessageDomainIDStrategyGroup.EMPTY,
+        MessageDomainIDStrategyGroup.compile(Collections.emptyList()));
+    MessageDomainIDStrategyGroup.EMPTY.forEachDomainId(
+        new Message("other", "", "", Collections.emptyMap(), 0L),
+        (strategyName, domainId) -> Assert.fail());
+  }
+
+  private MessageDomainIDStrategy newStrategy(String name, String cond, String domainId) {
+    final MessageDomainIDStrategy strategy = new ExpressionMessageDomainIDStrategy();
+    strategy.init(new EasyMap(ImmutableMap.of(
+        ExpressionMessageDomainIDStrategy.ConfigItems.NAME, name,
+        ExpressionMessageDomainIDStrategy.ConfigItems.COND, cond,
+        ExpressionMessageDomainIDStrategy.ConfigItems.DOMAIN_ID, domainId
+    )));
+    return strategy;
+  }
+}
@@ -0,0 +1,52 @@
+package playwell.route;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 针对SlotsSnapshot的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class SlotsSnapshotTestCase {
+
+  @Test
+  public void testLookup() {
+    final String[] allSlots = new String[100];
+    for (int i = 0; i < allSlots.length; i++) {
+      allSlots[i] = i < 30 ? "runner_a" : (i < 80 ? "runner_b" : "runner_c");
+    }
+    final SlotsSnapshot snapshot = new SlotsSnapshot(1L, allSlots);
+
+    Assert.assertEquals(1L, snapshot.getVersion());
+    Assert.assertEquals(100, snapshot.getSlotsNum());
+    Assert.assertEquals(3, snapshot.getServicesNum());
+    Assert.assertEquals(Arrays.asList("runner_a", "runner_b", "runner_c"),
+        Arrays.asList(snapshot.getAllServices().toArray()));
+    Assert.assertEquals(ImmutableMap.of("runner_a", 30L, "runner_b", 50L, "runner_c", 20L),
+        snapshot.getDistribution());
+    Assert.assertEquals(30, snapshot.getSlotsByServiceName("runner_a").size());
+    Assert.assertTrue(snapshot.getSlotsByServiceName("runner_d").isEmpty());
+    Assert.assertEquals(-1, snapshot.getServiceIndex("runner_d"));
+
+    for (int i = 0; i < 1000; i++) {
+      final String key = Integer.toString(i);
+      final int slot = snapshot.getSlotByKey(key);
+      Assert.assertTrue(slot >= 0 && slot < 100);
+      Assert.assertEquals(allSlots[slot], snapshot.getServiceByKey(key));
+      Assert.assertEquals(allSlots[slot],
+          snapshot.getService(snapshot.getServiceIndexByHash(SlotsSnapshot.hash(key))));
+      Assert.assertEquals(snapshot.getServiceIndex(allSlots[slot]),
+          snapshot.getServiceIndexByKey(key));
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testEmpty() {
+    Assert.assertTrue(SlotsSnapshot.EMPTY.isEmpty());
+    Assert.assertTrue(SlotsSnapshot.EMPTY.getAllServices().isEmpty());
+    SlotsSnapshot.EMPTY.getServiceByKey("1");
+  }
+}
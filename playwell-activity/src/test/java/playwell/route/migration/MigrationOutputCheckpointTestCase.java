@@ -0,0 +1,58 @@
+package playwell.route.migration;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.activity.thread.ScanRange;
+import playwell.route.migration.MigrationOutputCheckpoint.RangeProgress;
+
+/**
+ * 针对MigrationOutputCheckpoint的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class MigrationOutputCheckpointTestCase {
+
+  @Test
+  public void testSerialize() {
+    final MigrationOutputCheckpoint checkpoint = MigrationOutputCheckpoint.create(Arrays.asList(
+        new ScanRange("", "AAAAAQ"),
+        new ScanRange("AAAAAQ", "AAAAAg"),
+        new ScanRange("AAAAAg", "")
+    ));
+    Assert.assertFalse(checkpoint.isAllFinished());
+
+    final RangeProgress first = checkpoint.getRanges().get(0);
+    first.advance("AAAAADEw", 500);
+    first.advance("AAAAADIw", 20);
+    first.finish();
+    checkpoint.getRanges().get(1).advance("AAAAAjEw", 100);
+
+    final MigrationOutputCheckpoint restored = MigrationOutputCheckpoint
+        .parse(checkpoint.toJSONString()).orElseThrow(AssertionError::new);
+    Assert.assertEquals(3, restored.getRanges().size());
+    Assert.assertEquals(620L, restored.getOutputNum());
+    Assert.assertFalse(restored.isAllFinished());
+
+    final RangeProgress restoredFirst = restored.getRanges().get(0);
+    Assert.assertTrue(restoredFirst.isFinished());
+    Assert.assertEquals("AAAAADIw", restoredFirst.getCursor());
+    Assert.assertEquals("AAAAAQ", restoredFirst.getScanRange().getEnd());
+
+    final RangeProgress restoredLast = restored.getRanges().get(2);
+    Assert.assertFalse(restoredLast.isFinished());
+    Assert.assertEquals("", restoredLast.getCursor());
+    Assert.assertEquals("AAAAAg", restoredLast.getScanRange().getBegin());
+    Assert.assertEquals("", restoredLast.getScanRange().getEnd());
+  }
+
+  @Test
+  public void testParseInvalid() {
+    Assert.assertFalse(MigrationOutputCheckpoint.parse("").isPresent());
+    Assert.assertFalse(MigrationOutputCheckpoint.parse(null).isPresent());
+    Assert.assertFalse(MigrationOutputCheckpoint.parse("latest_key").isPresent());
+    Assert.assertFalse(MigrationOutputCheckpoint.parse("{\"ranges\":[]}").isPresent());
+    Assert.assertTrue(MigrationOutputCheckpoint.create(
+        Arrays.asList(ScanRange.ALL)).getRanges().get(0).getScanRange().isAll());
+  }
+}
@@ -0,0 +1,97 @@
+package playwell.trigger;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import playwell.message.Message;
+
+/**
+ * 从触发条件中提取事件过滤条件的测试用例
+ *
+ * @author chihongze@gmail.com
+ */
+public class TriggerEventFilterTestCase {
+
+  @Test
+  public void testFromCondition() {
+    TriggerEventFilter filter = TriggerEventFilter.fromCondition(
+        "eventTypeIs(\"user_behavior\") AND eventAttr(\"behavior\") == \"提交订单\"");
+    Assert.assertEquals(ImmutableSet.of("user_behavior"), filter.getEventTypes());
+    Assert.assertTrue(filter.getRequiredAttributes().isEmpty());
+
+    filter = TriggerEventFilter.fromCondition(
+        "eventType() == 'register' && containsAttr('user_id') and isAttrNotEmpty(\"mobile\")");
+    Assert.assertEquals(ImmutableSet.of("register"), filter.getEventTypes());
+    Assert.assertEquals(ImmutableSet.of("user_id", "mobile"), filter.getRequiredAttributes());
+
+    filter = TriggerEventFilter.fromCondition(
+        "(eventTypeIs('a') or 'b' eq eventType()) and $('x') > 1");
+    Assert.assertEquals(ImmutableSet.of("a", "b"), filter.getEventTypes());
+
+    filter = TriggerEventFilter.fromCondition("eventTypeIs('a') and eventTypeIs('b')");
+    Assert.assertTrue(filter.hasEventTypes());
+    Assert.assertTrue(filter.getEventTypes().isEmpty());
+
+    filter = TriggerEventFilter.fromCondition("containsAttr('order_id')");
+    Assert.assertFalse(filter.hasEventTypes());
+    Assert.assertEquals(ImmutableSet.of("order_id"), filter.getRequiredAttributes());
+
+    // 无法提取的条件
+    Arrays.asList(
+        "true",
+        "eventTypeIs('a') or $('x') > 1",
+        "eventTypeIs('a') ? true : false",
+        "!eventTypeIs('a')",
+        "eventTypeIs('${type}')",
+        "eventAttr('or') == 'and'",
+        "",
+        "(eventTypeIs('a')"
+    ).forEach(condition -> Assert.assertSame(
+        condition, TriggerEventFilter.ALL, TriggerEventFilter.fromCondition(condition)));
+  }
+
+  @Test
+  public void testAccept() {
+    final TriggerEventFilter filter = TriggerEventFilter.fromCondition(
+        "eventTypeIs('a') and containsAttr('user_id')");
+    Assert.assertTrue(filter.accept(newMessage("a", ImmutableMap.of("user_id", 1))));
+    Assert.assertFalse(filter.accept(newMessage("a", Collections.emptyMap())));
+    Assert.assertFalse(filter.accept(newMessage("b", ImmutableMap.of("user_id", 1))));
+
+    Assert.assertTrue(filter.acceptAny(Arrays.asList(
+        newMessage("b", Collections.emptyMap()),
+        newMessage("a", ImmutableMap.of("user_id", 1)))));
+    Assert.assertFalse(filter.acceptAny(Arrays.asList(
+        newMessage("b", Collections.emptyMap()),
+        newMessage("a", Collections.emptyMap()))));
+    Assert.assertTrue(TriggerEventFilter.ALL.acceptAny(Collections.singletonList(
+        newMessage("b", Collections.emptyMap()))));
+  }
+
+  @Test
+  public void testTriggerIndex() {
+    final TriggerIndex index = new TriggerIndex();
+    index.add(1, TriggerEventFilter.fromCondition("eventTypeIs('a')"));
+    index.add(2, TriggerEventFilter.fromCondition("eventTypeIs('a') or eventTypeIs('b')"));
+    index.add(3, TriggerEventFilter.fromCondition("$('x') > 1"));
+    final TriggerEventFilter filterOfC = TriggerEventFilter.fromCondition("eventTypeIs('c')");
+    index.add(4, filterOfC);
+
+    Assert.assertEquals(ImmutableSet.of(1, 2, 3), index.getCandidates(Collections.singleton("a")));
+    Assert.assertEquals(ImmutableSet.of(2, 3, 4), index.getCandidates(Arrays.asList("b", "c")));
+    Assert.assertEquals(ImmutableSet.of(3), index.getCandidates(Collections.emptySet()));
+
+    Assert.assertEquals(4, index.size());
+    Assert.assertTrue(index.contains(4, filterOfC));
+    Assert.assertFalse(index.contains(4, TriggerEventFilter.fromCondition("eventTypeIs('c')")));
+    Assert.assertFalse(index.contains(5, filterOfC));
+  }
+
+  private Message newMessage(String type, Map<String, Object> attributes) {
+    return new Message(type, "", "", attributes, System.currentTimeMillis());
+  }
+}